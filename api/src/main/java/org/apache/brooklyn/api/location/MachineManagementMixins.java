@@ -125,4 +125,18 @@ public class MachineManagementMixins {
         Map<String,Object> getLocationMetrics(Map<String,Object> properties);
     }
 
+    /**
+     * Implement to indicate that a location can create several machines in one request to its provider,
+     * if told in advance how many {@link MachineProvisioningLocation#obtain(Map)} calls to expect.
+     */
+    @Beta
+    public interface ProvisionsMachinesInBatches {
+        /**
+         * Advises that the given number of calls to obtain are about to be made (typically concurrently,
+         * e.g. when a cluster grows), so they can be satisfied by as few provider requests as possible.
+         * This is only a hint; the location must still satisfy any number of obtain calls.
+         */
+        void expectObtains(int count);
+    }
+
 }
\ No newline at end of file
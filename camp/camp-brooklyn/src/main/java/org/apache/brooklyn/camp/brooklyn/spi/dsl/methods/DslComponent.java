@@ -29,6 +29,9 @@ import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Iterables;
 import com.google.common.util.concurrent.Callables;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
 import com.thoughtworks.xstream.annotations.XStreamConverter;
 
 import java.util.*;
@@ -62,6 +65,8 @@ import org.apache.brooklyn.core.location.Locations;
 import org.apache.brooklyn.core.mgmt.BrooklynTaskTags;
 import org.apache.brooklyn.core.mgmt.internal.LocalEntityManager;
 import org.apache.brooklyn.core.sensor.DependentConfiguration;
+import org.apache.brooklyn.core.sensor.DependentConfiguration.AttributeAndSensorCondition;
+import org.apache.brooklyn.core.sensor.SensorDependencySupplier;
 import org.apache.brooklyn.core.sensor.Sensors;
 import org.apache.brooklyn.util.JavaGroovyEquivalents;
 import org.apache.brooklyn.util.collections.MutableList;
@@ -69,6 +74,7 @@ import org.apache.brooklyn.util.collections.MutableSet;
 import org.apache.brooklyn.util.core.flags.TypeCoercions;
 import org.apache.brooklyn.util.core.task.DeferredSupplier;
 import org.apache.brooklyn.util.core.task.ImmediateSupplier;
+import org.apache.brooklyn.util.core.task.ListenableSupplier;
 import org.apache.brooklyn.util.core.task.TaskBuilder;
 import org.apache.brooklyn.util.core.task.Tasks;
 import org.apache.brooklyn.util.core.text.TemplateProcessor;
@@ -663,7 +669,7 @@ public class DslComponent extends BrooklynDslDeferredSupplier<Entity> implements
     public BrooklynDslDeferredSupplier<?> attributeWhenReady(final Object sensorNameOrSupplier) {
         return new AttributeWhenReady(this, sensorNameOrSupplier);
     }
-    public static class AttributeWhenReady extends BrooklynDslDeferredSupplier<Object> {
+    public static class AttributeWhenReady extends BrooklynDslDeferredSupplier<Object> implements SensorDependencySupplier, ListenableSupplier<Object> {
         private static final long serialVersionUID = 1740899524088902383L;
         private final DslComponent component;
         @XStreamConverter(ObjectWithDefaultStringImplConverter.class)
@@ -716,6 +722,22 @@ public class DslComponent extends BrooklynDslDeferredSupplier<Entity> implements
             return JavaGroovyEquivalents.groovyTruth(result) ? Maybe.of(result) : ImmediateValueNotAvailableException.newAbsentWithExceptionSupplier(() -> "Sensor '"+ts2+"' on "+targetEntity+" not immediately available");
         }
 
+        @Override @JsonIgnore
+        @SuppressWarnings("unchecked")
+        public Maybe<AttributeAndSensorCondition<?>> getSensorDependencyImmediately() {
+            Maybe<Entity> targetEntityMaybe = component.getImmediately();
+            if (targetEntityMaybe.isAbsent()) return Maybe.castAbsent(targetEntityMaybe);
+            Entity targetEntity = targetEntityMaybe.get();
+
+            String sensorNameS = resolveSensorName(true);
+            Sensor<?> targetSensor = targetEntity.getEntityType().getSensor(sensorNameS);
+            if (!(targetSensor instanceof AttributeSensor<?>)) {
+                targetSensor = Sensors.newSensor(Object.class, sensorNameS);
+            }
+            return Maybe.<AttributeAndSensorCondition<?>>of(new AttributeAndSensorCondition<Object>(targetEntity,
+                    (AttributeSensor<Object>) targetSensor, JavaGroovyEquivalents.groovyTruthPredicate()));
+        }
+
         @SuppressWarnings("unchecked")
         @Override
         public Task<Object> newTask() {
@@ -729,6 +751,35 @@ public class DslComponent extends BrooklynDslDeferredSupplier<Entity> implements
             return (Task<Object>) DependentConfiguration.attributeWhenReady(targetEntity, (AttributeSensor<?>)targetSensor);
         }
 
+        @Override @JsonIgnore
+        public ListenableFuture<Object> getListenable() {
+            Maybe<Entity> targetEntity;
+            try {
+                targetEntity = component.getImmediately();
+            } catch (ImmediateSupplier.ImmediateUnsupportedException e) {
+                targetEntity = Maybe.absent(e);
+            }
+            if (targetEntity.isPresent() && sensorName instanceof String) {
+                return getListenable(targetEntity.get(), (String) sensorName);
+            }
+            // finding the entity (or sensor name) may have to wait, so do that in a task, then wait for the sensor without one
+            Task<ListenableFuture<Object>> resolving = Tasks.<ListenableFuture<Object>>builder().dynamic(false)
+                    .displayName("Resolving target of " + this)
+                    .tag(BrooklynTaskTags.TRANSIENT_TASK_TAG)
+                    .body(() -> getListenable(component.get(), resolveSensorName(false)))
+                    .build();
+            return Futures.transformAsync(findExecutionContext(this).submit(resolving), f -> f, MoreExecutors.directExecutor());
+        }
+
+        @SuppressWarnings("unchecked")
+        private ListenableFuture<Object> getListenable(Entity targetEntity, String sensorNameS) {
+            Sensor<?> targetSensor = targetEntity.getEntityType().getSensor(sensorNameS);
+            if (!(targetSensor instanceof AttributeSensor<?>)) {
+                targetSensor = Sensors.newSensor(Object.class, sensorNameS);
+            }
+            return DependentConfiguration.builder().attributeWhenReady(targetEntity, (AttributeSensor<Object>)targetSensor).runAsync();
+        }
+
         @Override
         public int hashCode() {
             return Objects.hashCode(component, sensorName);
@@ -0,0 +1,82 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.brooklyn.camp.brooklyn;
+
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+import org.apache.brooklyn.api.entity.Entity;
+import org.apache.brooklyn.api.mgmt.Task;
+import org.apache.brooklyn.api.sensor.AttributeSensor;
+import org.apache.brooklyn.core.entity.trait.Startable;
+import org.apache.brooklyn.core.sensor.Sensors;
+import org.apache.brooklyn.core.test.entity.TestEntity;
+import org.apache.brooklyn.entity.stock.BasicStartable;
+import org.apache.brooklyn.test.Asserts;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.testng.annotations.Test;
+
+import com.google.common.base.Predicates;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Iterables;
+
+/**
+ * Tests that a start latch written as {@code $brooklyn:sibling(...).attributeWhenReady(...)} in YAML
+ * is recognised as a dependency on that sibling when the parent starts its children.
+ */
+@Test
+public class StartDependencyOrderYamlTest extends AbstractYamlTest {
+    private static final Logger log = LoggerFactory.getLogger(StartDependencyOrderYamlTest.class);
+
+    AttributeSensor<Boolean> go = Sensors.newBooleanSensor("test.go");
+
+    @Test
+    public void testChildWaitsForSiblingItsLatchDependsOn() throws Exception {
+        Entity app = createApplicationUnstarted(
+                "services:",
+                "- type: " + BasicStartable.class.getName(),
+                "  id: upstream",
+                "  brooklyn.config:",
+                "    latch.start: $brooklyn:parent().attributeWhenReady(\"test.go\")",
+                "- type: " + TestEntity.class.getName(),
+                "  id: downstream",
+                "  brooklyn.config:",
+                "    latch.start: $brooklyn:sibling(\"upstream\").attributeWhenReady(\"test.never\")");
+        final TestEntity downstream = (TestEntity) Iterables.find(app.getChildren(), Predicates.instanceOf(TestEntity.class));
+
+        final Task<?> task = app.invoke(Startable.START, ImmutableMap.<String, Object>of());
+        // TestEntity ignores its latch, so it is only held back by the dependency ordering,
+        // until the upstream entity has started (as the sensor it waits on is never set)
+        Asserts.succeedsContinually(new Runnable() {
+            @Override public void run() {
+                assertFalse(downstream.getCallHistory().contains("start"));
+                assertFalse(task.isDone());
+            }});
+
+        app.sensors().set(go, true);
+        task.get();
+        assertTrue(downstream.getCallHistory().contains("start"));
+    }
+
+    @Override
+    protected Logger getLogger() {
+        return log;
+    }
+}
@@ -0,0 +1,168 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.brooklyn.core.catalog.internal;
+
+import java.util.Collection;
+import java.util.Dictionary;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.brooklyn.util.collections.MutableList;
+import org.apache.brooklyn.util.collections.MutableMap;
+import org.apache.brooklyn.util.collections.MutableSet;
+import org.apache.brooklyn.util.text.Strings;
+import org.osgi.framework.Constants;
+
+import com.google.common.annotations.Beta;
+
+/**
+ * Computes the order in which a set of bundles can be started, from the
+ * {@code Require-Bundle}, {@code Import-Package} and {@code Export-Package} headers in their manifests.
+ * <p>
+ * Bundles are grouped into "waves": every bundle in a wave depends only on bundles in earlier waves
+ * (or on bundles outside the set being ordered), so the bundles within a wave can be started concurrently.
+ * Bundles which are part of a dependency cycle are put together in a final wave.
+ */
+@Beta
+public class BundleDependencyOrder {
+
+    private BundleDependencyOrder() {}
+
+    /** As {@link #computeWaves(Map)}, reading the headers from OSGi-style dictionaries, as given by {@code Bundle.getHeaders()}. */
+    public static <T> List<List<T>> computeWavesFromDictionaries(Map<T, ? extends Dictionary<String, String>> manifestHeaders) {
+        Map<T, Map<String, String>> headers = MutableMap.of();
+        for (Map.Entry<T, ? extends Dictionary<String, String>> entry : manifestHeaders.entrySet()) {
+            Map<String, String> h = MutableMap.of();
+            Dictionary<String, String> d = entry.getValue();
+            if (d != null) {
+                for (Enumeration<String> keys = d.keys(); keys.hasMoreElements(); ) {
+                    String key = keys.nextElement();
+                    h.put(key, d.get(key));
+                }
+            }
+            headers.put(entry.getKey(), h);
+        }
+        return computeWaves(headers);
+    }
+
+    /**
+     * Returns the given items grouped into waves, in dependency order; see class comment.
+     * Order within each wave is the iteration order of the map passed in.
+     */
+    public static <T> List<List<T>> computeWaves(Map<T, Map<String, String>> manifestHeaders) {
+        Map<String, T> bySymbolicName = MutableMap.of();
+        Map<String, Set<T>> exporters = MutableMap.of();
+        for (Map.Entry<T, Map<String, String>> entry : manifestHeaders.entrySet()) {
+            Map<String, String> headers = entry.getValue();
+            if (headers == null) continue;
+            List<String> symbolicName = parseNames(headers.get(Constants.BUNDLE_SYMBOLICNAME));
+            if (!symbolicName.isEmpty()) {
+                bySymbolicName.put(symbolicName.get(0), entry.getKey());
+            }
+            for (String pkg : parseNames(headers.get(Constants.EXPORT_PACKAGE))) {
+                Set<T> e = exporters.get(pkg);
+                if (e == null) {
+                    e = MutableSet.of();
+                    exporters.put(pkg, e);
+                }
+                e.add(entry.getKey());
+            }
+        }
+
+        Map<T, Set<T>> dependencies = MutableMap.of();
+        for (Map.Entry<T, Map<String, String>> entry : manifestHeaders.entrySet()) {
+            Set<T> deps = MutableSet.of();
+            Map<String, String> headers = entry.getValue();
+            if (headers != null) {
+                for (String required : parseNames(headers.get(Constants.REQUIRE_BUNDLE))) {
+                    T dep = bySymbolicName.get(required);
+                    if (dep != null) deps.add(dep);
+                }
+                for (String pkg : parseNames(headers.get(Constants.IMPORT_PACKAGE))) {
+                    Set<T> e = exporters.get(pkg);
+                    // if the bundle exports the package itself it will normally be wired to its own copy
+                    if (e != null && !e.contains(entry.getKey())) deps.addAll(e);
+                }
+            }
+            deps.remove(entry.getKey());
+            dependencies.put(entry.getKey(), deps);
+        }
+
+        List<List<T>> waves = MutableList.of();
+        Set<T> done = MutableSet.of();
+        Set<T> remaining = MutableSet.copyOf(manifestHeaders.keySet());
+        while (!remaining.isEmpty()) {
+            List<T> wave = MutableList.of();
+            for (T candidate : remaining) {
+                if (done.containsAll(dependencies.get(candidate))) {
+                    wave.add(candidate);
+                }
+            }
+            if (wave.isEmpty()) {
+                // cycle; start whatever is left together
+                wave.addAll(remaining);
+            }
+            waves.add(wave);
+            done.addAll(wave);
+            remaining.removeAll(wave);
+        }
+        return waves;
+    }
+
+    /**
+     * Returns the names declared in an OSGi manifest header such as {@code Import-Package},
+     * ignoring any attributes and directives; e.g. {@code a;b;version="[1,2)",c} gives {@code [a, b, c]}.
+     */
+    static List<String> parseNames(String header) {
+        List<String> result = MutableList.of();
+        if (Strings.isBlank(header)) return result;
+        for (String clause : splitOutsideQuotes(header, ',')) {
+            for (String part : splitOutsideQuotes(clause, ';')) {
+                part = part.trim();
+                if (part.isEmpty()) continue;
+                if (part.contains("=")) {
+                    // attribute or directive; names come first in a clause so we are done
+                    break;
+                }
+                result.add(part);
+            }
+        }
+        return result;
+    }
+
+    private static Collection<String> splitOutsideQuotes(String text, char separator) {
+        List<String> result = MutableList.of();
+        boolean inQuotes = false;
+        int start = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '"') {
+                inQuotes = !inQuotes;
+            } else if (c == separator && !inQuotes) {
+                result.add(text.substring(start, i));
+                start = i + 1;
+            }
+        }
+        result.add(text.substring(start));
+        return result;
+    }
+
+}
@@ -25,13 +25,24 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.Dictionary;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
+import java.util.function.Consumer;
 import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+import javax.annotation.Nullable;
+
 import org.apache.brooklyn.api.catalog.BrooklynCatalog;
 import org.apache.brooklyn.api.catalog.CatalogItem;
 import org.apache.brooklyn.api.catalog.CatalogItem.CatalogItemType;
@@ -51,6 +62,7 @@ import org.apache.brooklyn.core.mgmt.internal.ManagementContextInternal;
 import org.apache.brooklyn.core.mgmt.rebind.RebindManagerImpl;
 import org.apache.brooklyn.core.objs.BrooklynTypes;
 import org.apache.brooklyn.core.server.BrooklynServerConfig;
+import org.apache.brooklyn.core.server.BrooklynServerPaths;
 import org.apache.brooklyn.core.typereg.BundleUpgradeParser;
 import org.apache.brooklyn.core.typereg.BundleUpgradeParser.CatalogUpgrades;
 import org.apache.brooklyn.core.typereg.RegisteredTypePredicates;
@@ -82,6 +94,7 @@ import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Stopwatch;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Iterables;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 
 @Beta
 public class CatalogInitialization implements ManagementContextInjectable {
@@ -281,32 +294,39 @@ public class CatalogInitialization implements ManagementContextInjectable {
     public void installPersistedBundles(PersistedCatalogState persistedState, Runnable beforeDeferredStartAndSetRunPersistence, RebindExceptionHandler exceptionHandler, RebindLogger rebindLogger) {
         // Always install the bundles from persisted state; installed (but not started) prior to catalog,
         // so that OSGi unique IDs might be picked up when initial catalog is populated
-        Map<InstallableManagedBundle, OsgiBundleInstallationResult> persistenceInstalls = installPersistedBundlesDontStart(persistedState.getBundles(), exceptionHandler, rebindLogger);
+        BundleStartupTimings timings = new BundleStartupTimings();
+        // shared by the concurrent installs and all the start waves; null if installing and starting one at a time
+        ExecutorService startupExecutor = newStartupExecutor();
+        try {
+            Map<InstallableManagedBundle, OsgiBundleInstallationResult> persistenceInstalls = installPersistedBundlesDontStart(persistedState.getBundles(), exceptionHandler, startupExecutor, timings, rebindLogger);
 
-        if (beforeDeferredStartAndSetRunPersistence!=null) beforeDeferredStartAndSetRunPersistence.run();
+            if (beforeDeferredStartAndSetRunPersistence!=null) beforeDeferredStartAndSetRunPersistence.run();
 
-        final Maybe<OsgiManager> maybesOsgiManager = managementContext.getOsgiManager();
-        if (maybesOsgiManager.isAbsent()) {
-            // Can't find any bundles to tell if there are upgrades. Could be running tests; do no filtering.
-            CatalogUpgrades.storeInManagementContext(CatalogUpgrades.EMPTY, managementContext);
-        } else {
-            final OsgiManager osgiManager = maybesOsgiManager.get();
-            final BundleContext bundleContext = osgiManager.getFramework().getBundleContext();
-            final CatalogUpgrades catalogUpgrades = catalogUpgradeScanner.scan(osgiManager, bundleContext, rebindLogger);
-            CatalogUpgrades.storeInManagementContext(catalogUpgrades, managementContext);
-        }
+            final Maybe<OsgiManager> maybesOsgiManager = managementContext.getOsgiManager();
+            if (maybesOsgiManager.isAbsent()) {
+                // Can't find any bundles to tell if there are upgrades. Could be running tests; do no filtering.
+                CatalogUpgrades.storeInManagementContext(CatalogUpgrades.EMPTY, managementContext);
+            } else {
+                final OsgiManager osgiManager = maybesOsgiManager.get();
+                final BundleContext bundleContext = osgiManager.getFramework().getBundleContext();
+                final CatalogUpgrades catalogUpgrades = catalogUpgradeScanner.scan(osgiManager, bundleContext, rebindLogger);
+                CatalogUpgrades.storeInManagementContext(catalogUpgrades, managementContext);
+            }
 
-        PersistedCatalogState filteredPersistedState = filterBundlesAndCatalogInPersistedState(persistedState, rebindLogger);
+            PersistedCatalogState filteredPersistedState = filterBundlesAndCatalogInPersistedState(persistedState, rebindLogger);
 
-        // 2021-09-14 previously we effectively installed here, after populating; but now we do it earlier and then uninstall if needed, to preserve IDs
-//            Map<InstallableManagedBundle, OsgiBundleInstallationResult> persistenceInstalls = installPersistedBundlesDontStart(filteredPersistedState.getBundles(), exceptionHandler, rebindLogger);
+            // 2021-09-14 previously we effectively installed here, after populating; but now we do it earlier and then uninstall if needed, to preserve IDs
+//                Map<InstallableManagedBundle, OsgiBundleInstallationResult> persistenceInstalls = installPersistedBundlesDontStart(filteredPersistedState.getBundles(), exceptionHandler, rebindLogger);
 
-        try {
-            startPersistedBundles(filteredPersistedState, persistenceInstalls, exceptionHandler, rebindLogger);
-            BrooklynCatalog catalog = managementContext.getCatalog();
-            catalog.addCatalogLegacyItemsOnRebind(filteredPersistedState.getLegacyCatalogItems());
+            try {
+                startPersistedBundles(filteredPersistedState, persistenceInstalls, exceptionHandler, startupExecutor, timings, rebindLogger);
+                BrooklynCatalog catalog = managementContext.getCatalog();
+                catalog.addCatalogLegacyItemsOnRebind(filteredPersistedState.getLegacyCatalogItems());
+            } finally {
+                if (beforeDeferredStartAndSetRunPersistence!=null) hasRunPersistenceInitialization = true;
+            }
         } finally {
-            if (beforeDeferredStartAndSetRunPersistence!=null) hasRunPersistenceInitialization = true;
+            if (startupExecutor != null) startupExecutor.shutdownNow();
         }
     }
 
@@ -515,23 +535,28 @@ public class CatalogInitialization implements ManagementContextInjectable {
         return false;
     }
 
-    private Map<InstallableManagedBundle, OsgiBundleInstallationResult> installPersistedBundlesDontStart(Map<VersionedName, InstallableManagedBundle> bundles, RebindExceptionHandler exceptionHandler, RebindLogger rebindLogger) {
-        Map<InstallableManagedBundle, OsgiBundleInstallationResult> installs = MutableMap.of();
+    private Map<InstallableManagedBundle, OsgiBundleInstallationResult> installPersistedBundlesDontStart(Map<VersionedName, InstallableManagedBundle> bundles, RebindExceptionHandler exceptionHandler, @Nullable ExecutorService startupExecutor, BundleStartupTimings timings, RebindLogger rebindLogger) {
+        Map<InstallableManagedBundle, OsgiBundleInstallationResult> installs = Collections.synchronizedMap(MutableMap.of());
 
         // Install the bundles
         Map<VersionedName, InstallableManagedBundle> remaining = MutableMap.copyOf(bundles);
-        Set<Pair<Entry<VersionedName, InstallableManagedBundle>, Exception>> errors = MutableSet.of();
+        Set<Pair<Entry<VersionedName, InstallableManagedBundle>, Exception>> errors = Collections.synchronizedSet(MutableSet.of());
+        if (startupExecutor != null && remaining.size() > 1) {
+            // first pass concurrently; anything which fails (eg because it needs another bundle first) is retried below
+            Set<VersionedName> installed = Collections.synchronizedSet(MutableSet.of());
+            forEachConcurrently(MutableSet.copyOf(remaining.entrySet()), startupExecutor, entry -> {
+                if (installPersistedBundle(entry, installs, errors, timings, rebindLogger)) {
+                    installed.add(entry.getKey());
+                }
+            });
+            remaining.keySet().removeAll(installed);
+        }
         while (!remaining.isEmpty()) {
             int installed = 0;
             for (Entry<VersionedName, InstallableManagedBundle> entry : MutableSet.copyOf(remaining.entrySet())) {
-                rebindLogger.debug("RebindManager installing bundle {}", entry.getKey());
-                try {
-                    installs.put(entry.getValue(), installBundle(entry.getValue().getManagedBundle(), entry.getValue().getInputStreamSource()));
+                if (installPersistedBundle(entry, installs, errors, timings, rebindLogger)) {
                     remaining.remove(entry.getKey());
                     installed++;
-                } catch (Exception e) {
-                    rebindLogger.debug("Unable to install bundle " + entry.getKey() + ", but may re-try in case it has a dependency on another bundle (" + e + ")");
-                    errors.add(Pair.of(entry, e));
                 }
             }
             if (installed == 0) {
@@ -540,13 +565,37 @@ public class CatalogInitialization implements ManagementContextInjectable {
             }
         }
         rebindLogger.debug("RebindManager installed bundles {}, {} errors", installs.keySet(), errors.size());
-        errors.forEach(err -> exceptionHandler.onCreateFailed(BrooklynObjectType.MANAGED_BUNDLE,
+        // only report errors for bundles which did not install on a subsequent attempt
+        errors.stream().filter(err -> remaining.containsKey(err.getLeft().getKey())).forEach(err -> exceptionHandler.onCreateFailed(BrooklynObjectType.MANAGED_BUNDLE,
                 err.getLeft().getKey().toString(), err.getLeft().getValue().getManagedBundle().getSymbolicName(), err.getRight()));
 
-        return installs;
+        // return in the order given, irrespective of the order in which they were installed
+        Map<InstallableManagedBundle, OsgiBundleInstallationResult> result = MutableMap.of();
+        for (InstallableManagedBundle b : bundles.values()) {
+            if (installs.containsKey(b)) {
+                result.put(b, installs.get(b));
+            }
+        }
+        return result;
+    }
+
+    private boolean installPersistedBundle(Entry<VersionedName, InstallableManagedBundle> entry, Map<InstallableManagedBundle, OsgiBundleInstallationResult> installs,
+            Set<Pair<Entry<VersionedName, InstallableManagedBundle>, Exception>> errors, BundleStartupTimings timings, RebindLogger rebindLogger) {
+        rebindLogger.debug("RebindManager installing bundle {}", entry.getKey());
+        Stopwatch sw = Stopwatch.createStarted();
+        try {
+            installs.put(entry.getValue(), installBundle(entry.getValue().getManagedBundle(), entry.getValue().getInputStreamSource()));
+            timings.installed(entry.getKey(), sw);
+            return true;
+        } catch (Exception e) {
+            Exceptions.propagateIfFatal(e);
+            rebindLogger.debug("Unable to install bundle " + entry.getKey() + ", but may re-try in case it has a dependency on another bundle (" + e + ")");
+            errors.add(Pair.of(entry, e));
+            return false;
+        }
     }
 
-    private void startPersistedBundles(PersistedCatalogState filteredPersistedState, Map<InstallableManagedBundle, OsgiBundleInstallationResult> installs, RebindExceptionHandler exceptionHandler, RebindLogger rebindLogger) {
+    private void startPersistedBundles(PersistedCatalogState filteredPersistedState, Map<InstallableManagedBundle, OsgiBundleInstallationResult> installs, RebindExceptionHandler exceptionHandler, @Nullable ExecutorService startupExecutor, BundleStartupTimings timings, RebindLogger rebindLogger) {
         // Start the bundles (now that we've installed them all)
 
         // start order is:  OSGi and not catalog; then OSGi and catalog; then not catalog nor OSGi; then catalog and not OSGi
@@ -581,21 +630,40 @@ public class CatalogInitialization implements ManagementContextInjectable {
         if (!bundlesInOrder.isEmpty()) {
             log.debug("Rebind bundle start order is: " + bundlesInOrder);
         }
-        Set<RegisteredType> installedTypes = MutableSet.of();
+        Set<RegisteredType> installedTypes = Collections.synchronizedSet(MutableSet.of());
 
-        for (OsgiBundleInstallationResult br : bundlesInOrder) {
-            try {
-                startBundle(br);
-                Iterables.addAll(installedTypes, managementContext.getTypeRegistry().getMatching(
-                    RegisteredTypePredicates.containingBundle(br.getVersionedName())));
-            } catch (Exception e) {
-                exceptionHandler.onCreateFailed(BrooklynObjectType.MANAGED_BUNDLE, br.getMetadata().getId(), br.getMetadata().getSymbolicName(), e);
+        if (startupExecutor == null) {
+            for (OsgiBundleInstallationResult br : bundlesInOrder) {
+                try {
+                    startPersistedBundle(br, installedTypes, timings);
+                } catch (Exception e) {
+                    exceptionHandler.onCreateFailed(BrooklynObjectType.MANAGED_BUNDLE, br.getMetadata().getId(), br.getMetadata().getSymbolicName(), e);
+                }
+            }
+        } else {
+            for (List<OsgiBundleInstallationResult> wave : computeStartWaves(bundlesInOrder)) {
+                Map<OsgiBundleInstallationResult, Exception> errors = Collections.synchronizedMap(MutableMap.of());
+                forEachConcurrently(wave, startupExecutor, br -> {
+                    try {
+                        startPersistedBundle(br, installedTypes, timings);
+                    } catch (Exception e) {
+                        Exceptions.propagateIfFatal(e);
+                        errors.put(br, e);
+                    }
+                });
+                // report in start order, from this thread
+                for (OsgiBundleInstallationResult br : wave) {
+                    if (errors.containsKey(br)) {
+                        exceptionHandler.onCreateFailed(BrooklynObjectType.MANAGED_BUNDLE, br.getMetadata().getId(), br.getMetadata().getSymbolicName(), errors.get(br));
+                    }
+                }
             }
         }
+        timings.log(rebindLogger);
         
         // Validate that they all started successfully
         if (!installedTypes.isEmpty()) {
-            validateAllTypes(installedTypes, exceptionHandler);
+            validateAllTypes(installedTypes, bundlesInOrder, exceptionHandler);
         }
         
         for (Map.Entry<InstallableManagedBundle, OsgiBundleInstallationResult> entry : installs.entrySet()) {
@@ -612,14 +680,37 @@ public class CatalogInitialization implements ManagementContextInjectable {
         }
     }
 
-    private void validateAllTypes(Set<RegisteredType> installedTypes, RebindExceptionHandler exceptionHandler) {
+    private void validateAllTypes(Set<RegisteredType> installedTypes, Collection<OsgiBundleInstallationResult> bundles, RebindExceptionHandler exceptionHandler) {
         Stopwatch sw = Stopwatch.createStarted();
         log.debug("Getting catalog to validate all types");
         final BrooklynCatalog catalog = this.managementContext.getCatalog();
         log.debug("Got catalog in {} now validate", sw.toString());
         sw.reset(); sw.start();
-        Map<RegisteredType, Collection<Throwable>> validationErrors = catalog.validateTypes( installedTypes );
+
+        Set<RegisteredType> typesToValidate = installedTypes;
+        TypeRegistryStartupCache startupCache = null;
+        Maybe<String> startupCacheKey = Maybe.absent();
+        boolean startupCacheMatched = false;
+        if (Boolean.TRUE.equals(managementContext.getConfig().getConfig(BrooklynServerConfig.CATALOG_STARTUP_CACHE_ENABLED))) {
+            startupCache = new TypeRegistryStartupCache(managementContext,
+                new File(Os.mergePaths(BrooklynServerPaths.getMgmtBaseDir(managementContext), TypeRegistryStartupCache.DEFAULT_FILE_NAME)));
+            startupCacheKey = TypeRegistryStartupCache.computeKey(managementContext,
+                bundles.stream().map(OsgiBundleInstallationResult::getMetadata).collect(Collectors.toList()));
+            if (startupCacheKey.isPresent()) {
+                startupCacheMatched = startupCache.load(startupCacheKey.get());
+                if (startupCacheMatched) {
+                    typesToValidate = startupCache.resolveFromSnapshot(installedTypes);
+                }
+            } else {
+                log.debug("Not using catalog startup cache: " + Maybe.getException(startupCacheKey).getMessage());
+            }
+        }
+
+        Map<RegisteredType, Collection<Throwable>> validationErrors = catalog.validateTypes( typesToValidate );
         log.debug("Validation done in {}", sw.toString());
+        if (startupCacheKey.isPresent() && !startupCacheMatched && validationErrors.isEmpty()) {
+            startupCache.save(startupCacheKey.get(), installedTypes);
+        }
         if (!validationErrors.isEmpty()) {
             Map<VersionedName, Map<RegisteredType,Collection<Throwable>>> errorsByBundle = MutableMap.of();
             for (RegisteredType t: validationErrors.keySet()) {
@@ -657,6 +748,77 @@ public class CatalogInitialization implements ManagementContextInjectable {
         }
     }
 
+    private void startPersistedBundle(OsgiBundleInstallationResult br, Set<RegisteredType> installedTypes, BundleStartupTimings timings) throws BundleException {
+        Stopwatch sw = Stopwatch.createStarted();
+        startBundle(br);
+        Iterables.addAll(installedTypes, managementContext.getTypeRegistry().getMatching(
+            RegisteredTypePredicates.containingBundle(br.getVersionedName())));
+        timings.started(br.getVersionedName(), sw);
+    }
+
+    private int getStartupParallelism() {
+        Integer result = managementContext.getConfig().getConfig(BrooklynServerConfig.CATALOG_STARTUP_PARALLELISM);
+        return result == null ? 1 : Math.max(1, result);
+    }
+
+    /** A pool of {@link BrooklynServerConfig#CATALOG_STARTUP_PARALLELISM} threads, which the caller must shut down; or null if that is 1. */
+    @Nullable
+    private ExecutorService newStartupExecutor() {
+        int parallelism = getStartupParallelism();
+        if (parallelism <= 1) return null;
+        return Executors.newFixedThreadPool(parallelism, new ThreadFactoryBuilder()
+                .setNameFormat("brooklyn-catalog-startup-%d")
+                .setDaemon(true)
+                .build());
+    }
+
+    /**
+     * Splits the bundles, already in start order, into waves which can each be started concurrently.
+     * Bundles keep the relative order of the categories described in {@link #startPersistedBundles(PersistedCatalogState, Map, RebindExceptionHandler, ExecutorService, BundleStartupTimings, RebindLogger)},
+     * and within each category are ordered by the dependencies in their manifests.
+     */
+    private List<List<OsgiBundleInstallationResult>> computeStartWaves(Collection<OsgiBundleInstallationResult> bundlesInOrder) {
+        List<List<OsgiBundleInstallationResult>> result = MutableList.of();
+        Map<OsgiBundleInstallationResult, Dictionary<String, String>> category = new LinkedHashMap<>();
+        Integer lastCategory = null;
+        for (OsgiBundleInstallationResult br : bundlesInOrder) {
+            Bundle b = br.getBundle();
+            int thisCategory = b == null ? 0 : b.getResource("/META-INF/MANIFEST.MF") == null ? 2 : b.getResource("/catalog.bom") != null ? 1 : 0;
+            if (lastCategory != null && thisCategory != lastCategory) {
+                result.addAll(BundleDependencyOrder.computeWavesFromDictionaries(category));
+                category.clear();
+            }
+            category.put(br, b == null ? null : b.getHeaders());
+            lastCategory = thisCategory;
+        }
+        result.addAll(BundleDependencyOrder.computeWavesFromDictionaries(category));
+        log.debug("Rebind bundle start waves are: " + result);
+        return result;
+    }
+
+    /** Runs the given action against all the items using the given executor, returning when all are done. */
+    private static <T> void forEachConcurrently(Collection<T> items, ExecutorService executor, Consumer<T> action) {
+        if (items.size() <= 1) {
+            items.forEach(action);
+            return;
+        }
+        List<Future<?>> futures = MutableList.of();
+        try {
+            for (T item : items) {
+                futures.add(executor.submit(() -> action.accept(item)));
+            }
+            for (Future<?> f : futures) {
+                f.get();
+            }
+        } catch (InterruptedException e) {
+            futures.forEach(f -> f.cancel(true));
+            throw new RuntimeInterruptedException(e);
+        } catch (ExecutionException e) {
+            futures.forEach(f -> f.cancel(true));
+            throw Exceptions.propagate(e.getCause());
+        }
+    }
+
     private PersistedCatalogState filterBundlesAndCatalogInPersistedState(PersistedCatalogState persistedState, RebindLogger rebindLogger) {
         CatalogUpgrades catalogUpgrades = CatalogUpgrades.getFromManagementContext(managementContext);
         
@@ -689,6 +851,40 @@ public class CatalogInitialization implements ManagementContextInjectable {
         return new PersistedCatalogState(bundles, legacyCatalogItems);
     }
 
+    /** Records how long each persisted bundle took to install and to start, for reporting once startup is done. */
+    private static class BundleStartupTimings {
+        private final Map<VersionedName, Duration> installTimes = Collections.synchronizedMap(MutableMap.of());
+        private final Map<VersionedName, Duration> startTimes = Collections.synchronizedMap(MutableMap.of());
+        private final Stopwatch total = Stopwatch.createStarted();
+
+        void installed(VersionedName bundle, Stopwatch sw) {
+            installTimes.put(bundle, Duration.of(sw));
+        }
+
+        void started(VersionedName bundle, Stopwatch sw) {
+            startTimes.put(bundle, Duration.of(sw));
+        }
+
+        void log(RebindLogger rebindLogger) {
+            Map<VersionedName, Duration> totals = MutableMap.of();
+            synchronized (installTimes) {
+                totals.putAll(installTimes);
+            }
+            synchronized (startTimes) {
+                startTimes.forEach((k, v) -> totals.put(k, totals.containsKey(k) ? totals.get(k).add(v) : v));
+            }
+            if (totals.isEmpty()) return;
+            StringBuilder report = new StringBuilder();
+            totals.entrySet().stream()
+                    .sorted((a, b) -> b.getValue().compareTo(a.getValue()))
+                    .forEach(e -> report.append("\n    ").append(e.getKey()).append(": ").append(e.getValue())
+                            .append(" (install ").append(installTimes.get(e.getKey()))
+                            .append(", start ").append(startTimes.get(e.getKey())).append(")"));
+            rebindLogger.info("Installed and started {} persisted bundles in {}", totals.size(), Duration.of(total));
+            rebindLogger.debug("Persisted bundle startup times, slowest first:{}", report);
+        }
+    }
+
     public interface RebindLogger {
         void debug(String message, Object... args);
         void info(String message, Object... args);
@@ -0,0 +1,282 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.brooklyn.core.catalog.internal;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.apache.brooklyn.api.mgmt.ManagementContext;
+import org.apache.brooklyn.api.typereg.BrooklynTypeRegistry.RegisteredTypeKind;
+import org.apache.brooklyn.api.typereg.ManagedBundle;
+import org.apache.brooklyn.api.typereg.RegisteredType;
+import org.apache.brooklyn.core.BrooklynVersion;
+import org.apache.brooklyn.core.mgmt.ha.OsgiManager;
+import org.apache.brooklyn.core.mgmt.internal.ManagementContextInternal;
+import org.apache.brooklyn.core.typereg.BasicBrooklynTypeRegistry;
+import org.apache.brooklyn.core.typereg.BasicTypeImplementationPlan;
+import org.apache.brooklyn.core.typereg.RegisteredTypes;
+import org.apache.brooklyn.util.collections.MutableList;
+import org.apache.brooklyn.util.collections.MutableMap;
+import org.apache.brooklyn.util.collections.MutableSet;
+import org.apache.brooklyn.util.exceptions.Exceptions;
+import org.apache.brooklyn.util.guava.Maybe;
+import org.apache.brooklyn.util.javalang.ClassLoadingContext;
+import org.apache.brooklyn.util.stream.Streams;
+import org.osgi.framework.Bundle;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.annotations.Beta;
+import com.google.common.base.Objects;
+
+/**
+ * A snapshot of the outcome of validating the types in persisted bundles, so that a restart
+ * with the same bundles need not validate them all again.
+ * <p>
+ * Types are still parsed from each bundle's {@code catalog.bom} as normal; the snapshot records,
+ * for each type, what validation changed: its resolved kind, supertypes, Java type, any rewritten plan,
+ * and any tags added. It is keyed on the Brooklyn version, the checksums of the persisted bundles,
+ * and the names and versions of all installed OSGi bundles, and is ignored if any of those differ.
+ * Types which are not in the snapshot, or whose plan or supertypes do not match, are validated as normal.
+ */
+@Beta
+public class TypeRegistryStartupCache {
+
+    private static final Logger log = LoggerFactory.getLogger(TypeRegistryStartupCache.class);
+
+    public static final String DEFAULT_FILE_NAME = "catalog-startup-cache.json";
+
+    private static final int FORMAT_VERSION = 1;
+    private static final String JAVA_PREFIX = "java:";
+    private static final String TYPE_PREFIX = "type:";
+
+    private final ManagementContext mgmt;
+    private final File file;
+    private Map<String, Map<String, Object>> entries;
+
+    public TypeRegistryStartupCache(ManagementContext mgmt, File file) {
+        this.mgmt = mgmt;
+        this.file = file;
+    }
+
+    /**
+     * Returns the key a snapshot for the given persisted bundles must have to be used,
+     * or absent if it cannot be computed (eg OSGi is not available, or a bundle has no checksum).
+     */
+    public static Maybe<String> computeKey(ManagementContext mgmt, Collection<? extends ManagedBundle> bundles) {
+        Maybe<OsgiManager> osgiManager = ((ManagementContextInternal)mgmt).getOsgiManager();
+        if (osgiManager.isAbsent()) return Maybe.absent("OSGi not available");
+        Set<String> parts = new TreeSet<>();
+        for (ManagedBundle b : bundles) {
+            if (b.getChecksum() == null) return Maybe.absent("No checksum for " + b);
+            parts.add("managed " + b.getVersionedName() + " " + b.getChecksum());
+        }
+        for (Bundle b : osgiManager.get().getFramework().getBundleContext().getBundles()) {
+            parts.add("osgi " + b.getSymbolicName() + " " + b.getVersion());
+        }
+        StringBuilder key = new StringBuilder("brooklyn " + BrooklynVersion.get());
+        for (String part : parts) {
+            key.append("\n").append(part);
+        }
+        return Maybe.of(Streams.getMd5Checksum(Streams.newInputStreamWithContents(key.toString())));
+    }
+
+    /** Loads the snapshot, returning whether there is one and it was saved with the given key. */
+    @SuppressWarnings("unchecked")
+    public boolean load(String key) {
+        entries = null;
+        if (!file.exists()) return false;
+        try {
+            Map<String, Object> data = new ObjectMapper().readValue(file, Map.class);
+            if (!Objects.equal(data.get("version"), FORMAT_VERSION) || !Objects.equal(data.get("key"), key)) {
+                log.debug("Not using catalog startup cache " + file + "; bundles or version have changed");
+                return false;
+            }
+            entries = MutableMap.of();
+            for (Map<String, Object> entry : (List<Map<String, Object>>) data.get("types")) {
+                entries.put(entryKey((String) entry.get("bundle"), (String) entry.get("id")), entry);
+            }
+            log.debug("Loaded catalog startup cache " + file + ", " + entries.size() + " types");
+            return true;
+        } catch (Exception e) {
+            Exceptions.propagateIfFatal(e);
+            log.warn("Unable to read catalog startup cache " + file + " (ignoring): " + Exceptions.collapseText(e));
+            entries = null;
+            return false;
+        }
+    }
+
+    /**
+     * Replaces each of the given unresolved types in the type registry with the resolved version recorded
+     * in the snapshot most recently {@link #load(String) loaded}, where possible.
+     * Returns those types which could not be resolved from the snapshot, and so still need validating.
+     */
+    public Set<RegisteredType> resolveFromSnapshot(Collection<RegisteredType> types) {
+        Set<RegisteredType> remaining = MutableSet.of();
+        if (entries == null) {
+            remaining.addAll(types);
+            return remaining;
+        }
+        for (RegisteredType t : types) {
+            Maybe<RegisteredType> resolved = resolveFromSnapshot(t);
+            if (resolved.isPresent()) {
+                ((BasicBrooklynTypeRegistry) mgmt.getTypeRegistry()).addToLocalUnpersistedTypeRegistry(resolved.get(), true);
+            } else {
+                if (log.isTraceEnabled()) log.trace("Cannot use catalog startup cache for {}: {}", t, Maybe.getException(resolved).getMessage());
+                remaining.add(t);
+            }
+        }
+        log.debug("Resolved " + (types.size() - remaining.size()) + " of " + types.size() + " types from catalog startup cache " + file);
+        return remaining;
+    }
+
+    @SuppressWarnings("unchecked")
+    private Maybe<RegisteredType> resolveFromSnapshot(RegisteredType t) {
+        Map<String, Object> entry = entries.get(entryKey(t.getContainingBundle(), t.getId()));
+        if (entry == null) return Maybe.absent("Not in snapshot");
+        if (!(t.getPlan().getPlanData() instanceof String) || !Objects.equal(entry.get("planChecksum"), checksum((String) t.getPlan().getPlanData()))) {
+            return Maybe.absent("Plan has changed");
+        }
+
+        RegisteredType result = RegisteredTypes.copyResolved(RegisteredTypeKind.valueOf((String) entry.get("kind")), t, true);
+        if (entry.get("plan") != null) {
+            RegisteredTypes.changePlanNotingEquivalent(result,
+                new BasicTypeImplementationPlan((String) entry.get("planFormat"), (String) entry.get("plan")));
+        }
+        RegisteredTypes.addTags(result, (List<String>) entry.get("addedTags"));
+
+        ClassLoadingContext loader = CatalogUtils.newClassLoadingContext(mgmt, result);
+        Set<Object> supers = MutableSet.of();
+        for (String s : (List<String>) entry.get("superTypes")) {
+            if (s.startsWith(JAVA_PREFIX)) {
+                Maybe<Class<?>> c = loader.tryLoadClass(s.substring(JAVA_PREFIX.length()));
+                if (c.isAbsent()) return Maybe.absent("Cannot load supertype " + s);
+                supers.add(c.get());
+            } else if (s.startsWith(TYPE_PREFIX)) {
+                RegisteredType st = mgmt.getTypeRegistry().get(s.substring(TYPE_PREFIX.length()));
+                if (st == null) return Maybe.absent("Cannot find supertype " + s);
+                supers.add(st);
+            }
+        }
+        RegisteredTypes.addSuperTypes(result, supers);
+
+        String javaType = (String) entry.get("javaType");
+        if (javaType != null) {
+            Maybe<Class<?>> c = loader.tryLoadClass(javaType);
+            if (c.isAbsent()) return Maybe.absent("Cannot load java type " + javaType);
+            RegisteredTypes.cacheActualJavaType(result, c.get());
+        }
+        return Maybe.of(result);
+    }
+
+    /**
+     * Records the current state in the type registry of the given types, which should be
+     * the unresolved versions as parsed from their bundles, and writes it to the snapshot file with the given key.
+     * Types which have not been resolved, or whose resolved state cannot be recorded, are omitted.
+     */
+    public void save(String key, Collection<RegisteredType> unresolvedTypes) {
+        Map<String, RegisteredType> current = MutableMap.of();
+        for (RegisteredType t : mgmt.getTypeRegistry().getAll()) {
+            current.put(entryKey(t.getContainingBundle(), t.getId()), t);
+        }
+        List<Map<String, Object>> types = MutableList.of();
+        for (RegisteredType t : unresolvedTypes) {
+            RegisteredType resolved = current.get(entryKey(t.getContainingBundle(), t.getId()));
+            if (resolved == null) continue;
+            Maybe<Map<String, Object>> entry = toEntry(t, resolved);
+            if (entry.isPresent()) {
+                types.add(entry.get());
+            } else {
+                if (log.isTraceEnabled()) log.trace("Not recording {} in catalog startup cache: {}", t, Maybe.getException(entry).getMessage());
+            }
+        }
+
+        Map<String, Object> data = MutableMap.of();
+        data.put("version", FORMAT_VERSION);
+        data.put("key", key);
+        data.put("types", types);
+        File tmp = new File(file.getPath() + ".tmp");
+        try {
+            if (file.getParentFile() != null) file.getParentFile().mkdirs();
+            new ObjectMapper().writeValue(tmp, data);
+            Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            log.debug("Wrote catalog startup cache " + file + ", " + types.size() + " types");
+        } catch (Exception e) {
+            Exceptions.propagateIfFatal(e);
+            log.warn("Unable to write catalog startup cache " + file + " (ignoring): " + Exceptions.collapseText(e));
+            tmp.delete();
+        }
+    }
+
+    private Maybe<Map<String, Object>> toEntry(RegisteredType unresolved, RegisteredType resolved) {
+        if (resolved.getKind() == null || resolved.getKind() == RegisteredTypeKind.UNRESOLVED) return Maybe.absent("Not resolved");
+        if (!(unresolved.getPlan().getPlanData() instanceof String) || !(resolved.getPlan().getPlanData() instanceof String)) {
+            return Maybe.absent("Plan is not a string");
+        }
+        Map<String, Object> result = MutableMap.of();
+        result.put("id", resolved.getId());
+        result.put("bundle", resolved.getContainingBundle());
+        result.put("kind", resolved.getKind().name());
+        result.put("planChecksum", checksum((String) unresolved.getPlan().getPlanData()));
+        if (!Objects.equal(unresolved.getPlan().getPlanData(), resolved.getPlan().getPlanData())) {
+            result.put("planFormat", resolved.getPlan().getPlanFormat());
+            result.put("plan", resolved.getPlan().getPlanData());
+        }
+
+        List<String> addedTags = MutableList.of();
+        for (Object tag : resolved.getTags()) {
+            if (unresolved.getTags().contains(tag)) continue;
+            if (!(tag instanceof String)) return Maybe.absent("Validation added non-string tag " + tag);
+            addedTags.add((String) tag);
+        }
+        result.put("addedTags", addedTags);
+
+        List<String> supers = MutableList.of();
+        for (Object s : resolved.getSuperTypes()) {
+            if (s instanceof Class) {
+                supers.add(JAVA_PREFIX + ((Class<?>) s).getName());
+            } else if (s instanceof RegisteredType) {
+                supers.add(TYPE_PREFIX + ((RegisteredType) s).getId());
+            } else {
+                return Maybe.absent("Unsupported supertype " + s);
+            }
+        }
+        result.put("superTypes", supers);
+
+        Class<?> javaType = RegisteredTypes.peekActualJavaType(resolved);
+        if (javaType != null) result.put("javaType", javaType.getName());
+        return Maybe.of(result);
+    }
+
+    private static String entryKey(String bundle, String id) {
+        return bundle + "/" + id;
+    }
+
+    private static String checksum(String plan) {
+        return Streams.getMd5Checksum(Streams.newInputStreamWithContents(plan));
+    }
+
+}
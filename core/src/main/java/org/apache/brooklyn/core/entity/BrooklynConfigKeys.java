@@ -247,6 +247,15 @@ public class BrooklynConfigKeys {
             .description("Latch for blocking luanch; if non-null will wait for this to resolve (normal use is with '$brooklyn:attributeWhenReady')")
             .build();
 
+    @Beta
+    public static final ConfigKey<Boolean> START_CHILDREN_IN_DEPENDENCY_ORDER = ConfigKeys.builder(Boolean.class)
+            .name("start.children.dependencyOrder")
+            .description("Whether, when starting children in parallel, to hold back the start of any child whose start or provision latch "
+                    + "waits on a sensor of a sibling until that sensor is ready (or the sibling has started), "
+                    + "rather than starting it straight away to wait on the latch")
+            .defaultValue(true)
+            .build();
+
     public static final ConfigKey<Duration> START_TIMEOUT = newConfigKey(
             "start.timeout", 
             "Time to wait, after launching, for SERVICE_UP before failing", 
@@ -0,0 +1,245 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.brooklyn.core.entity.trait;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.LinkedBlockingQueue;
+
+import org.apache.brooklyn.api.entity.Entity;
+import org.apache.brooklyn.api.location.Location;
+import org.apache.brooklyn.api.mgmt.SubscriptionHandle;
+import org.apache.brooklyn.api.mgmt.Task;
+import org.apache.brooklyn.api.sensor.SensorEvent;
+import org.apache.brooklyn.api.sensor.SensorEventListener;
+import org.apache.brooklyn.config.ConfigKey;
+import org.apache.brooklyn.core.entity.BrooklynConfigKeys;
+import org.apache.brooklyn.core.entity.Entities;
+import org.apache.brooklyn.core.entity.EntityInternal;
+import org.apache.brooklyn.core.sensor.DependentConfiguration;
+import org.apache.brooklyn.core.sensor.DependentConfiguration.AttributeAndSensorCondition;
+import org.apache.brooklyn.util.collections.MutableList;
+import org.apache.brooklyn.util.collections.MutableMap;
+import org.apache.brooklyn.util.collections.MutableSet;
+import org.apache.brooklyn.util.core.task.Tasks;
+import org.apache.brooklyn.util.exceptions.CompoundRuntimeException;
+import org.apache.brooklyn.util.exceptions.Exceptions;
+import org.apache.brooklyn.util.guava.Maybe;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.base.Function;
+import com.google.common.collect.ImmutableList;
+
+/**
+ * Starts a set of entities in parallel, except that an entity whose {@link BrooklynConfigKeys#START_LATCH start}
+ * or {@link BrooklynConfigKeys#PROVISION_LATCH provision} latch waits on a sensor of another entity in the set
+ * is only started once that sensor is ready, or once that other entity's start has completed.
+ * <p>
+ * Starting everything at once parks a thread for every entity waiting on a latch, for as long as it waits;
+ * here the dependencies are followed using subscriptions, with a single thread (this task's) submitting
+ * each start as it becomes ready. The latches are still evaluated as normal when the entity starts,
+ * so this changes only when entities are started and not the outcome. If nothing is running and entities
+ * are still waiting (e.g. because their latches depend on each other) they are started anyway, as they would
+ * have been before.
+ */
+class DependencyOrderedStart implements Callable<Void> {
+
+    private static final Logger log = LoggerFactory.getLogger(DependencyOrderedStart.class);
+
+    /** Latches which are waited on before an entity does any work, so it gains nothing from being started before they are ready. */
+    static final List<ConfigKey<Boolean>> LATCHES = ImmutableList.of(BrooklynConfigKeys.START_LATCH, BrooklynConfigKeys.PROVISION_LATCH);
+
+    /**
+     * Returns an unsubmitted task to start the given entities in dependency order,
+     * or absent if none of their latches depend on each other (so they can simply be started in parallel).
+     */
+    static Maybe<Task<Void>> newTaskIfDependent(Entity parent, Iterable<? extends Entity> entities,
+            Function<? super Entity, ? extends Iterable<? extends Location>> locations) {
+        List<Entity> members = ImmutableList.copyOf(entities);
+        List<Gate> gates = MutableList.of();
+        for (Entity entity : members) {
+            for (ConfigKey<Boolean> latch : LATCHES) {
+                Maybe<Object> raw = ((EntityInternal)entity).config().getInternalConfigMap().getConfigRaw(latch, true);
+                if (raw.isAbsentOrNull()) continue;
+                Maybe<AttributeAndSensorCondition<?>> condition = DependentConfiguration.getSensorDependency(entity, raw.get());
+                if (condition.isAbsent()) continue;
+                Entity upstream = findMember(condition.get().getSource(), members);
+                if (upstream==null || upstream.equals(entity)) continue;
+                gates.add(new Gate(entity, upstream, condition.get()));
+            }
+        }
+        if (gates.isEmpty()) return Maybe.absent("No dependencies between entities to start");
+        return Maybe.of(Tasks.<Void>builder().dynamic(false)
+                .displayName("starting (dependency order)")
+                .description("Starting "+members.size()+" entities, each once the entities its latches wait on are ready")
+                .body(new DependencyOrderedStart(parent, members, gates, locations))
+                .build());
+    }
+
+    /** the member of the given set which is or contains the given entity, or null */
+    private static Entity findMember(Entity entity, List<Entity> members) {
+        for (Entity e = entity; e != null; e = e.getParent()) {
+            if (members.contains(e)) return e;
+        }
+        return null;
+    }
+
+    /** The start of {@link #entity} waits for {@link #condition}, on (a descendant of) {@link #upstream}. */
+    private static class Gate {
+        final Entity entity;
+        final Entity upstream;
+        final AttributeAndSensorCondition<?> condition;
+        // only accessed by the coordinating thread
+        boolean open;
+
+        Gate(Entity entity, Entity upstream, AttributeAndSensorCondition<?> condition) {
+            this.entity = entity;
+            this.upstream = upstream;
+            this.condition = condition;
+        }
+
+        @Override
+        public String toString() {
+            return entity+" waiting on "+condition;
+        }
+    }
+
+    private final Entity parent;
+    private final List<Entity> members;
+    private final List<Gate> gates;
+    private final Function<? super Entity, ? extends Iterable<? extends Location>> locations;
+
+    /** gates whose condition has been satisfied, and entities whose start has completed */
+    private final BlockingQueue<Object> events = new LinkedBlockingQueue<Object>();
+    private final Set<Entity> notStarted = MutableSet.of();
+    private final Map<Entity, Task<?>> running = MutableMap.of();
+    private final List<Throwable> failures = MutableList.of();
+
+    private DependencyOrderedStart(Entity parent, List<Entity> members, List<Gate> gates,
+            Function<? super Entity, ? extends Iterable<? extends Location>> locations) {
+        this.parent = parent;
+        this.members = members;
+        this.gates = gates;
+        this.locations = locations;
+    }
+
+    @Override
+    public Void call() throws Exception {
+        log.debug("Starting children of "+parent+" in dependency order: "+gates);
+        notStarted.addAll(members);
+        List<SubscriptionHandle> subscriptions = MutableList.of();
+        try {
+            for (final Gate gate : gates) {
+                subscriptions.add(subscribe(gate));
+                // check after subscribing so that a change in between is not missed
+                if (gate.condition.isSatisfied()) gate.open = true;
+            }
+            startReady();
+
+            while (!notStarted.isEmpty() || !running.isEmpty()) {
+                if (running.isEmpty() && events.isEmpty()) {
+                    log.debug("Starting "+notStarted+" in "+parent+" without waiting for their dependencies, as nothing else is starting (possible cycle)");
+                    for (Gate gate : gates) gate.open = true;
+                    startReady();
+                    continue;
+                }
+                Tasks.setBlockingDetails("Waiting for "+running.keySet()+" (to start "+notStarted+")");
+                onEvent(events.take());
+                startReady();
+            }
+        } finally {
+            Tasks.resetBlockingDetails();
+            for (SubscriptionHandle subscription : subscriptions) {
+                parent.subscriptions().unsubscribe(subscription);
+            }
+        }
+
+        if (!failures.isEmpty()) {
+            throw new CompoundRuntimeException("Error starting "+(failures.size() > 1 ? "entities" : "entity")+" in "+parent, failures);
+        }
+        return null;
+    }
+
+    private <T> SubscriptionHandle subscribe(final Gate gate) {
+        @SuppressWarnings("unchecked")
+        final AttributeAndSensorCondition<T> condition = (AttributeAndSensorCondition<T>) gate.condition;
+        return parent.subscriptions().subscribe(condition.getSource(), condition.getSensor(), new SensorEventListener<T>() {
+            @Override
+            public void onEvent(SensorEvent<T> event) {
+                if (condition.getPredicate().apply(event.getValue())) events.add(gate);
+            }
+        });
+    }
+
+    private void onEvent(Object event) {
+        if (event instanceof Gate) {
+            ((Gate)event).open = true;
+            return;
+        }
+        Entity done = (Entity) event;
+        Task<?> task = running.remove(done);
+        if (task.isError()) {
+            try {
+                task.get();
+            } catch (Exception e) {
+                Exceptions.propagateIfFatal(e);
+                failures.add(e);
+            }
+        }
+        // whether or not it succeeded, the dependents' latches will now report the outcome
+        for (Gate gate : gates) {
+            if (gate.upstream.equals(done)) gate.open = true;
+        }
+    }
+
+    private void startReady() {
+        for (Iterator<Entity> it = notStarted.iterator(); it.hasNext(); ) {
+            Entity entity = it.next();
+            if (isWaiting(entity)) continue;
+            it.remove();
+            start(entity);
+        }
+    }
+
+    private boolean isWaiting(Entity entity) {
+        for (Gate gate : gates) {
+            if (gate.entity.equals(entity) && !gate.open) return true;
+        }
+        return false;
+    }
+
+    private void start(final Entity entity) {
+        log.debug("Starting "+entity+" in "+parent+" (dependencies ready)");
+        Task<?> task = Entities.invokeEffector(parent, entity, Startable.START,
+                MutableMap.of("locations", locations.apply(entity)));
+        running.put(entity, task);
+        task.addListener(new Runnable() {
+            @Override
+            public void run() {
+                events.add(entity);
+            }
+        }, Runnable::run);
+    }
+
+}
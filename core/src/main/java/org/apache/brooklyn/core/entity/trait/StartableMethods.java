@@ -24,8 +24,10 @@ import java.util.List;
 
 import org.apache.brooklyn.api.entity.Entity;
 import org.apache.brooklyn.api.location.Location;
+import org.apache.brooklyn.api.mgmt.Task;
 import org.apache.brooklyn.api.mgmt.TaskAdaptable;
 import org.apache.brooklyn.core.effector.Effectors;
+import org.apache.brooklyn.core.entity.BrooklynConfigKeys;
 import org.apache.brooklyn.core.entity.Entities;
 import org.apache.brooklyn.core.entity.EntityPredicates;
 import org.apache.brooklyn.util.collections.MutableMap;
@@ -33,9 +35,13 @@ import org.apache.brooklyn.util.core.config.ConfigBag;
 import org.apache.brooklyn.util.core.task.DynamicTasks;
 import org.apache.brooklyn.util.core.task.TaskTags;
 import org.apache.brooklyn.util.exceptions.CompoundRuntimeException;
+import org.apache.brooklyn.util.guava.Maybe;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.google.common.annotations.Beta;
+import com.google.common.base.Function;
+import com.google.common.base.Functions;
 import com.google.common.base.Predicates;
 import com.google.common.collect.Iterables;
 import com.google.common.collect.Lists;
@@ -105,7 +111,27 @@ public class StartableMethods {
     }
     /** unsubmitted task for starting children of the given entity at the given locations */
     public static TaskAdaptable<?> startingChildren(Entity entity, Iterable<? extends Location> locations) {
-        return Effectors.invocation(Startable.START, MutableMap.of("locations", locations), filterStartableManagedEntities(entity.getChildren()));
+        Iterable<Entity> children = filterStartableManagedEntities(entity.getChildren());
+        if (isStartingInDependencyOrder(entity)) {
+            Maybe<Task<Void>> ordered = DependencyOrderedStart.newTaskIfDependent(entity, children, Functions.constant(locations));
+            if (ordered.isPresent()) return ordered.get();
+        }
+        return Effectors.invocation(Startable.START, MutableMap.of("locations", locations), children);
+    }
+    /**
+     * unsubmitted task for starting the given children of the given entity, each at the locations given by the function,
+     * in dependency order if {@link BrooklynConfigKeys#START_CHILDREN_IN_DEPENDENCY_ORDER} and any of their latches depend on each other,
+     * otherwise in parallel; or absent if they should be started in parallel by the caller
+     */
+    @Beta
+    public static Maybe<Task<Void>> startingChildrenInDependencyOrder(Entity entity, Iterable<? extends Entity> children,
+            Function<? super Entity, ? extends Iterable<? extends Location>> locations) {
+        if (!isStartingInDependencyOrder(entity)) return Maybe.absent("Not starting children of "+entity+" in dependency order");
+        return DependencyOrderedStart.newTaskIfDependent(entity, children, locations);
+    }
+    
+    private static boolean isStartingInDependencyOrder(Entity entity) {
+        return Boolean.TRUE.equals(entity.getConfig(BrooklynConfigKeys.START_CHILDREN_IN_DEPENDENCY_ORDER));
     }
 
     /** unsubmitted task for stopping children of the given entity */
@@ -54,6 +54,7 @@ import org.apache.brooklyn.util.guava.Maybe;
 import org.apache.brooklyn.util.javalang.MemoryUsageTracker;
 import org.apache.brooklyn.util.stream.Streams;
 import org.apache.brooklyn.util.text.Strings;
+import org.apache.brooklyn.util.time.Duration;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -105,6 +106,9 @@ public class BrooklynTaskTags extends TaskTags {
 
     public static final String ERROR_HANDLED_BY_TASK_TAG = "ERROR_HANDLED_BY";
 
+    /** Tag (as the key of a map tag) recording a file transfer done by a task, with its size, duration and throughput */
+    public static final String FILE_TRANSFER_TAG = "FILE_TRANSFER";
+
     // ------------- entity tags -------------------------
     
     public abstract static class WrappedItem<T> {
@@ -569,6 +573,18 @@ public class BrooklynTaskTags extends TaskTags {
         return ImmutableMap.of(ERROR_HANDLED_BY_TASK_TAG, handler.getId());
     }
 
+    /** Map tag keyed by {@link #FILE_TRANSFER_TAG} describing a file copied to the given destination;
+     * {@code skipped} indicates the copy was not needed because the destination was already up to date. */
+    public static Map<String,Map<String,Object>> tagForFileTransfer(String destination, long bytes, Duration duration, boolean skipped) {
+        long millis = Math.max(1, duration.toMilliseconds());
+        return ImmutableMap.of(FILE_TRANSFER_TAG, ImmutableMap.<String,Object>of(
+                "destination", destination,
+                "bytes", bytes,
+                "durationMillis", duration.toMilliseconds(),
+                "bytesPerSecond", skipped ? 0 : bytes * 1000 / millis,
+                "skipped", skipped));
+    }
+
     /**
      * checks if the given task is part of the given effector call on the given entity;
      * @param task  the task to check (false if null)
@@ -54,6 +54,8 @@ import org.apache.brooklyn.core.typereg.BundleUpgradeParser.CatalogUpgrades;
 import org.apache.brooklyn.util.collections.MutableList;
 import org.apache.brooklyn.util.collections.MutableMap;
 import org.apache.brooklyn.util.collections.MutableSet;
+import org.apache.brooklyn.util.core.ClassLoaderCache;
+import org.apache.brooklyn.util.core.ClassLoaderUtils;
 import org.apache.brooklyn.util.core.osgi.Osgis;
 import org.apache.brooklyn.util.core.osgi.Osgis.BundleFinder;
 import org.apache.brooklyn.util.core.osgi.SystemFrameworkLoader;
@@ -72,9 +74,12 @@ import org.apache.brooklyn.util.text.Strings;
 import org.apache.brooklyn.util.time.Duration;
 import org.apache.commons.lang3.tuple.Pair;
 import org.osgi.framework.Bundle;
+import org.osgi.framework.BundleEvent;
 import org.osgi.framework.BundleException;
+import org.osgi.framework.BundleListener;
 import org.osgi.framework.Constants;
 import org.osgi.framework.FrameworkEvent;
+import org.osgi.framework.SynchronousBundleListener;
 import org.osgi.framework.launch.Framework;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -95,6 +100,10 @@ public class OsgiManager {
 
     public static final ConfigKey<Boolean> OSGI_STARTUP_COMPLETE = ConfigKeys.newBooleanConfigKey("brooklyn.osgi.startup.complete");
 
+    public static final ConfigKey<Integer> CLASS_LOADER_CACHE_SIZE = ConfigKeys.newIntegerConfigKey("brooklyn.classloader.cache.size",
+        "Maximum number of class-name lookups (found or not) remembered by ClassLoaderUtils between bundle or type changes; "
+        + "0 disables the cache", ClassLoaderCache.DEFAULT_MAX_SIZE);
+
     /* see `Osgis` class for info on starting framework etc */
     
     final ManagementContext mgmt;
@@ -109,6 +118,15 @@ public class OsgiManager {
     private File osgiFrameworkCacheDir;
     final ManagedBundlesRecord managedBundlesRecord = new ManagedBundlesRecord();
     
+    private volatile ClassLoaderCache classLoaderCache;
+    private final BundleListener classLoaderCacheInvalidator = new SynchronousBundleListener() {
+        @Override
+        public void bundleChanged(BundleEvent event) {
+            // any change can affect lookups, including start/stop, as only active bundles are searched in the white list
+            invalidateClassLoaderCache();
+        }
+    };
+    
     class ManagedBundlesRecord {
         private final Map<String, ManagedBundle> managedBundlesByUid = MutableMap.of();
         private final Map<VersionedName, String> managedBundlesUidByVersionedName = MutableMap.of();
@@ -283,10 +301,21 @@ public class OsgiManager {
             if (reuseFramework && framework!=null) {
                 bundlesAtStartup = MutableSet.copyOf(Arrays.asList(framework.getBundleContext().getBundles()));
             }
+            if (framework!=null) {
+                framework.getBundleContext().addBundleListener(classLoaderCacheInvalidator);
+            }
         }
     }
 
     public void stop() {
+        try {
+            framework.getBundleContext().removeBundleListener(classLoaderCacheInvalidator);
+        } catch (Exception e) {
+            Exceptions.propagateIfFatal(e);
+            log.debug("Unable to remove class-loader cache listener from OSGi framework (continuing): "+e);
+        }
+        invalidateClassLoaderCache();
+        
         if (reuseFramework) {
             for (Bundle b: framework.getBundleContext().getBundles()) {
                 if (!bundlesAtStartup.contains(b)) {
@@ -396,6 +425,36 @@ public class OsgiManager {
         }
     }
     
+    /**
+     * The cache used by {@link ClassLoaderUtils} for class lookups in this management context,
+     * or null if disabled by {@link #CLASS_LOADER_CACHE_SIZE}. It is invalidated on every bundle event
+     * (install, start, stop, uninstall etc), and when types are added to or removed from the type registry.
+     */
+    @Beta
+    public ClassLoaderCache getClassLoaderCache() {
+        ClassLoaderCache result = classLoaderCache;
+        if (result == null) {
+            int size = mgmt.getConfig().getConfig(CLASS_LOADER_CACHE_SIZE);
+            if (size <= 0) return null;
+            synchronized (classLoaderCacheInvalidator) {
+                result = classLoaderCache;
+                if (result == null) {
+                    classLoaderCache = result = new ClassLoaderCache(size);
+                }
+            }
+        }
+        return result;
+    }
+    
+    @Beta
+    public void invalidateClassLoaderCache() {
+        ClassLoaderCache cache = classLoaderCache;
+        if (cache != null) {
+            if (log.isTraceEnabled()) log.trace("Invalidating "+cache+" for mgmt node "+mgmt.getManagementNodeId());
+            cache.invalidateAll();
+        }
+    }
+    
     public ManagementContext getManagementContext() {
         return mgmt;
     }
@@ -23,17 +23,26 @@ import static com.google.common.base.Preconditions.checkNotNull;
 import java.io.Closeable;
 import java.io.IOException;
 import java.util.Collection;
+import java.util.Date;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.brooklyn.api.entity.Application;
 import org.apache.brooklyn.api.entity.Entity;
 import org.apache.brooklyn.api.location.Location;
+import org.apache.brooklyn.api.mgmt.Task;
 import org.apache.brooklyn.api.mgmt.entitlement.EntitlementContext;
 import org.apache.brooklyn.core.entity.Entities;
 import org.apache.brooklyn.core.entity.EntityInternal;
@@ -48,32 +57,46 @@ import org.apache.brooklyn.core.mgmt.usage.ApplicationUsage;
 import org.apache.brooklyn.core.mgmt.usage.LocationUsage;
 import org.apache.brooklyn.core.mgmt.usage.UsageListener;
 import org.apache.brooklyn.core.mgmt.usage.UsageManager;
+import org.apache.brooklyn.util.collections.MutableMap;
 import org.apache.brooklyn.util.core.ClassLoaderUtils;
 import org.apache.brooklyn.util.core.flags.TypeCoercions;
+import org.apache.brooklyn.util.core.task.ScheduledTask;
+import org.apache.brooklyn.util.core.task.Tasks;
 import org.apache.brooklyn.util.exceptions.Exceptions;
 import org.apache.brooklyn.util.time.Duration;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.google.common.annotations.Beta;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Function;
+import com.google.common.base.MoreObjects;
 import com.google.common.base.Predicate;
+import com.google.common.base.Supplier;
+import com.google.common.base.Suppliers;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Sets;
 import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListenableFuture;
-import com.google.common.util.concurrent.ListeningExecutorService;
 import com.google.common.util.concurrent.MoreExecutors;
 import com.google.common.util.concurrent.ThreadFactoryBuilder;
 
 public class LocalUsageManager implements UsageManager {
 
     // TODO Threading model needs revisited.
-    // Synchronizes on updates to storage; but if two Brooklyn nodes were both writing to the same
+    // Synchronizes on updates to storage, on a mutex chosen by the app/location id so that events for
+    // different apps do not wait for each other; but if two Brooklyn nodes were both writing to the same
     // ApplicationUsage or LocationUsage record there'd be a race. That currently won't happen
     // (at least for ApplicationUsage?) because the app is mastered in just one node at a time,
     // and because location events are just manage/unmanage which should be happening in just 
     // one place at a time for a given location.
+    //
+    // Each listener is notified on its own thread, from its own queue, so a slow listener does not
+    // hold up the others. Events are queued while holding the id's mutex, so each listener sees the
+    // events for a given app or location in the order they were recorded. With a bounded queue, waiting
+    // for space also holds that mutex, which is shared by other ids on the same stripe; hence the config
+    // keys advise a short USAGE_LISTENER_QUEUE_FULL_TIMEOUT. (Taking a sequence number under the mutex and
+    // queuing outside it would not help, as later events on the stripe would then wait for their turn.)
     
     private static final Logger log = LoggerFactory.getLogger(LocalUsageManager.class);
 
@@ -140,20 +163,229 @@ public class LocalUsageManager implements UsageManager {
     @VisibleForTesting
     public static final String LOCATION_USAGE_KEY = "usage-location";
 
+    /**
+     * Counts of the events handled for a usage listener.
+     */
+    @Beta
+    public static class ListenerMetrics {
+        private final int queueSize;
+        private final int maxQueueSize;
+        private final long delivered;
+        private final long failed;
+        private final long dropped;
+        private final long batches;
+
+        ListenerMetrics(int queueSize, int maxQueueSize, long delivered, long failed, long dropped, long batches) {
+            this.queueSize = queueSize;
+            this.maxQueueSize = maxQueueSize;
+            this.delivered = delivered;
+            this.failed = failed;
+            this.dropped = dropped;
+            this.batches = batches;
+        }
+        /** Events currently waiting to be delivered. */
+        public int getQueueSize() {
+            return queueSize;
+        }
+        /** Largest number of events that have been waiting at once. */
+        public int getMaxQueueSize() {
+            return maxQueueSize;
+        }
+        /** Events delivered, including those where the listener threw an exception. */
+        public long getDelivered() {
+            return delivered;
+        }
+        /** Events where the listener threw an exception. */
+        public long getFailed() {
+            return failed;
+        }
+        /** Events not delivered because the listener's queue stayed full. */
+        public long getDropped() {
+            return dropped;
+        }
+        /** Number of batches taken from the queue for delivery. */
+        public long getBatches() {
+            return batches;
+        }
+        @Override
+        public String toString() {
+            return MoreObjects.toStringHelper(this).add("queueSize", queueSize).add("maxQueueSize", maxQueueSize)
+                    .add("delivered", delivered).add("failed", failed).add("dropped", dropped).add("batches", batches)
+                    .toString();
+        }
+    }
+
+    /**
+     * Delivers events to one listener, in the order they were queued, from a bounded queue drained in batches
+     * by a thread of its own.
+     */
+    private static class ListenerDispatcher {
+        private final UsageListener listener;
+        private final BlockingQueue<Function<UsageListener, Void>> queue;
+        private final Duration queueFullTimeout;
+        private final int batchSize;
+        private final ExecutorService executor;
+        private final AtomicBoolean drainScheduled = new AtomicBoolean();
+
+        private final AtomicInteger maxQueueSize = new AtomicInteger();
+        private final AtomicLong delivered = new AtomicLong();
+        private final AtomicLong failed = new AtomicLong();
+        private final AtomicLong dropped = new AtomicLong();
+        private final AtomicLong batches = new AtomicLong();
+
+        ListenerDispatcher(UsageListener listener, int queueCapacity, Duration queueFullTimeout, int batchSize, ThreadFactory threadFactory) {
+            this.listener = listener;
+            this.queue = new LinkedBlockingQueue<>(Math.max(1, queueCapacity));
+            this.queueFullTimeout = queueFullTimeout;
+            this.batchSize = Math.max(1, batchSize);
+            this.executor = Executors.newSingleThreadExecutor(threadFactory);
+        }
+
+        void enqueue(Function<UsageListener, Void> job) {
+            boolean queued;
+            try {
+                queued = queue.offer(job, queueFullTimeout.toNanoseconds(), TimeUnit.NANOSECONDS);
+            } catch (InterruptedException e) {
+                throw Exceptions.propagate(e);
+            }
+            if (!queued) {
+                if (dropped.incrementAndGet() == 1) {
+                    log.warn("Usage listener "+listener+" queue full after waiting "+queueFullTimeout+"; not notifying it of "+job
+                            +" (further occurrences logged at debug); "+getMetrics());
+                } else {
+                    log.debug("Usage listener "+listener+" queue full; not notifying it of "+job+"; "+getMetrics());
+                }
+                return;
+            }
+            int size = queue.size();
+            int max;
+            while ((max = maxQueueSize.get()) < size && !maxQueueSize.compareAndSet(max, size)) {}
+            if (drainScheduled.compareAndSet(false, true)) {
+                try {
+                    executor.execute(this::drain);
+                } catch (RuntimeException e) {
+                    // executor shut down (listener removed or manager terminated)
+                    drainScheduled.set(false);
+                    log.debug("Not notifying usage listener "+listener+" of "+job+"; no longer accepting events");
+                }
+            }
+        }
+
+        private void drain() {
+            do {
+                try {
+                    deliverQueued();
+                } finally {
+                    drainScheduled.set(false);
+                }
+                // catch anything queued after the last batch was taken but before the flag was cleared
+            } while (!queue.isEmpty() && drainScheduled.compareAndSet(false, true));
+        }
+
+        private void deliverQueued() {
+            List<Function<UsageListener, Void>> batch = Lists.newArrayListWithCapacity(Math.min(batchSize, 1024));
+            while (queue.drainTo(batch, batchSize) > 0) {
+                batches.incrementAndGet();
+                for (Function<UsageListener, Void> job : batch) {
+                    try {
+                        job.apply(listener);
+                    } catch (RuntimeException e) {
+                        failed.incrementAndGet();
+                        log.error("Problem notifying listener "+listener+" of "+job, e);
+                        Exceptions.propagateIfFatal(e);
+                    } finally {
+                        delivered.incrementAndGet();
+                    }
+                }
+                batch.clear();
+            }
+        }
+
+        /** Delivers any queued events and then closes the listener, if it is {@link Closeable}. */
+        ListenableFuture<?> close() {
+            ListenableFuture<?> result = MoreExecutors.listeningDecorator(executor).submit(() -> {
+                deliverQueued();
+                if (listener instanceof Closeable) {
+                    try {
+                        ((Closeable)listener).close();
+                    } catch (IOException e) {
+                        log.warn("Problem closing usage listener "+listener+" (continuing)", e);
+                    }
+                }
+            });
+            executor.shutdown();
+            return result;
+        }
+
+        /** Stops accepting events, delivering any already queued. */
+        void shutdown() {
+            executor.shutdown();
+        }
+
+        void shutdownNow() {
+            executor.shutdownNow();
+        }
+
+        ListenerMetrics getMetrics() {
+            return new ListenerMetrics(queue.size(), maxQueueSize.get(), delivered.get(), failed.get(), dropped.get(), batches.get());
+        }
+    }
+
+    private static final int MUTEX_STRIPES = 64;
+
+    private static final Duration COMPACTION_PERIOD = Duration.ONE_HOUR;
+    private static final String COMPACTION_TASK_NAME = "usage compaction";
+
     private final LocalManagementContext managementContext;
     
-    private final Object mutex = new Object();
+    private final Object[] mutexes = new Object[MUTEX_STRIPES];
 
-    private final List<UsageListener> listeners = Lists.newCopyOnWriteArrayList();
-    
-    private final AtomicInteger listenerQueueSize = new AtomicInteger();
+    private final List<ListenerDispatcher> listeners = Lists.newCopyOnWriteArrayList();
     
-    private ListeningExecutorService listenerExecutor = MoreExecutors.listeningDecorator(Executors.newSingleThreadExecutor(new ThreadFactoryBuilder()
+    private final ThreadFactory listenerThreadFactory = new ThreadFactoryBuilder()
             .setNameFormat("brooklyn-usagemanager-listener-%d")
-            .build()));
+            .build();
+
+    private final int listenerQueueCapacity;
+    private final Duration listenerQueueFullTimeout;
+    private final int listenerBatchSize;
+
+    /** null if all usage events are kept */
+    private final Duration rawEventsRetention;
+    private final ScheduledTask compactionTask;
 
     public LocalUsageManager(LocalManagementContext managementContext) {
         this.managementContext = checkNotNull(managementContext, "managementContext");
+        for (int i = 0; i < mutexes.length; i++) {
+            mutexes[i] = new Object();
+        }
+        listenerQueueCapacity = managementContext.getBrooklynProperties().getConfig(UsageManager.USAGE_LISTENER_QUEUE_CAPACITY);
+        listenerQueueFullTimeout = managementContext.getBrooklynProperties().getConfig(UsageManager.USAGE_LISTENER_QUEUE_FULL_TIMEOUT);
+        listenerBatchSize = managementContext.getBrooklynProperties().getConfig(UsageManager.USAGE_LISTENER_BATCH_SIZE);
+        rawEventsRetention = managementContext.getBrooklynProperties().getConfig(UsageManager.USAGE_RAW_EVENTS_RETENTION);
+        if (rawEventsRetention != null) {
+            // records are also compacted as events are added; this catches those no longer getting events
+            Callable<Task<?>> taskFactory = new Callable<Task<?>>() {
+                @Override public Task<Void> call() {
+                    return Tasks.<Void>builder().dynamic(false).displayName(COMPACTION_TASK_NAME).body(new Callable<Void>() {
+                        @Override
+                        public Void call() {
+                            try {
+                                compactUsage();
+                            } catch (Throwable t) {
+                                Exceptions.propagateIfFatal(t);
+                                log.warn("Problem compacting usage records (continuing)", t);
+                            }
+                            return null;
+                        }}).build();
+                }
+            };
+            compactionTask = ScheduledTask.builder(taskFactory).displayName(ScheduledTask.prefixScheduledName(COMPACTION_TASK_NAME)).tagTransient()
+                    .period(COMPACTION_PERIOD).delay(COMPACTION_PERIOD).build();
+            managementContext.getExecutionManager().submit(compactionTask);
+        } else {
+            compactionTask = null;
+        }
         
         // Register a coercion from String->UsageListener, so that USAGE_LISTENERS defined in brooklyn.properties
         // will be instantiated, given their class names.
@@ -184,25 +416,20 @@ public class LocalUsageManager implements UsageManager {
     }
 
     public void terminate() {
+        if (compactionTask != null) compactionTask.cancel(true);
+
         // Wait for the listeners to finish + close the listeners
         Duration timeout = managementContext.getBrooklynProperties().getConfig(UsageManager.USAGE_LISTENER_TERMINATION_TIMEOUT);
-        if (listenerQueueSize.get() > 0) {
-            log.info("Usage manager waiting for "+listenerQueueSize+" listener events for up to "+timeout);
+        int queueSize = 0;
+        for (ListenerDispatcher dispatcher : listeners) {
+            queueSize += dispatcher.getMetrics().getQueueSize();
+        }
+        if (queueSize > 0) {
+            log.info("Usage manager waiting for "+queueSize+" listener events for up to "+timeout);
         }
         List<ListenableFuture<?>> futures = Lists.newArrayList();
-        for (final UsageListener listener : listeners) {
-            ListenableFuture<?> future = listenerExecutor.submit(new Runnable() {
-                @Override
-                public void run() {
-                    if (listener instanceof Closeable) {
-                        try {
-                            ((Closeable)listener).close();
-                        } catch (IOException e) {
-                            log.warn("Problem closing usage listener "+listener+" (continuing)", e);
-                        }
-                    }
-                }});
-            futures.add(future);
+        for (ListenerDispatcher dispatcher : listeners) {
+            futures.add(dispatcher.close());
         }
         try {
             Futures.successfulAsList(futures).get(timeout.toMilliseconds(), TimeUnit.MILLISECONDS);
@@ -210,25 +437,71 @@ public class LocalUsageManager implements UsageManager {
             Exceptions.propagateIfFatal(e);
             log.warn("Problem terminiating usage listeners (continuing)", e);
         } finally {
-            listenerExecutor.shutdownNow();
+            for (ListenerDispatcher dispatcher : listeners) {
+                dispatcher.shutdownNow();
+            }
+        }
+    }
+
+    /** The task periodically compacting usage records, if {@link UsageManager#USAGE_RAW_EVENTS_RETENTION} is set; otherwise null. */
+    @VisibleForTesting
+    ScheduledTask getCompactionTask() {
+        return compactionTask;
+    }
+
+    /** Counts of the events handled for each listener, in the order the listeners were added. */
+    @Beta
+    public Map<UsageListener, ListenerMetrics> getListenerMetrics() {
+        Map<UsageListener, ListenerMetrics> result = MutableMap.of();
+        for (ListenerDispatcher dispatcher : listeners) {
+            result.put(dispatcher.listener, dispatcher.getMetrics());
         }
+        return result;
+    }
+
+    /**
+     * Replaces usage events older than {@link UsageManager#USAGE_RAW_EVENTS_RETENTION} with per-day rollups,
+     * in all usage records; does nothing if that is not configured.
+     */
+    @Beta
+    public void compactUsage() {
+        if (rawEventsRetention == null) return;
+        int count = 0;
+        ConcurrentMap<String, ApplicationUsage> appUsageMap = managementContext.getStorage().getMap(APPLICATION_USAGE_KEY);
+        for (String id : appUsageMap.keySet()) {
+            synchronized (getMutex(id)) {
+                ApplicationUsage usage = appUsageMap.get(id);
+                if (usage != null && usage.compact(getCompactionCutoff())) {
+                    appUsageMap.put(id, usage);
+                    count++;
+                }
+            }
+        }
+        ConcurrentMap<String, LocationUsage> locUsageMap = managementContext.getStorage().getMap(LOCATION_USAGE_KEY);
+        for (String id : locUsageMap.keySet()) {
+            synchronized (getMutex(id)) {
+                LocationUsage usage = locUsageMap.get(id);
+                if (usage != null && usage.compact(getCompactionCutoff())) {
+                    locUsageMap.put(id, usage);
+                    count++;
+                }
+            }
+        }
+        if (count > 0) log.debug("Compacted usage events older than "+rawEventsRetention+" in "+count+" usage records");
+    }
+
+    private Date getCompactionCutoff() {
+        return new Date(System.currentTimeMillis() - rawEventsRetention.toMilliseconds());
+    }
+
+    private Object getMutex(String id) {
+        return mutexes[Math.floorMod(id.hashCode(), mutexes.length)];
     }
 
+    /** Must be called holding the mutex for the app or location the event is for, so that listeners see its events in order. */
     private void execOnListeners(final Function<UsageListener, Void> job) {
-        for (final UsageListener listener : listeners) {
-            listenerQueueSize.incrementAndGet();
-            listenerExecutor.execute(new Runnable() {
-                @Override
-                public void run() {
-                    try {
-                        job.apply(listener);
-                    } catch (RuntimeException e) {
-                        log.error("Problem notifying listener "+listener+" of "+job, e);
-                        Exceptions.propagateIfFatal(e);
-                    } finally {
-                        listenerQueueSize.decrementAndGet();
-                    }
-                }});
+        for (ListenerDispatcher dispatcher : listeners) {
+            dispatcher.enqueue(job);
         }
     }
     
@@ -241,6 +514,7 @@ public class LocalUsageManager implements UsageManager {
         // If we don't have a usage record, then generate one outside of the mutex. But then double-check while
         // holding the mutex to see if another thread has created one. If it has, stick with that rather than 
         // overwriting it.
+        Object mutex = getMutex(app.getId());
         ApplicationUsage usage;
         synchronized (mutex) {
             usage = eventMap.get(app.getId());
@@ -249,6 +523,8 @@ public class LocalUsageManager implements UsageManager {
             usage = new ApplicationUsage(app.getId(), app.getDisplayName(), app.getEntityType().getName(), ((EntityInternal)app).toMetadataRecord());
         }
         final ApplicationUsage.ApplicationEvent event = new ApplicationUsage.ApplicationEvent(state, getUser());
+        // computed once, by whichever listener gets to it first, rather than for every listener
+        final Supplier<UsageListener.ApplicationMetadata> metadata = Suppliers.memoize(() -> new ApplicationMetadataImpl(Entities.proxy(app)));
         
         synchronized (mutex) {
             ApplicationUsage otherUsage = eventMap.get(app.getId());
@@ -256,12 +532,13 @@ public class LocalUsageManager implements UsageManager {
                 usage = otherUsage;
             }
             usage.addEvent(event);        
+            if (rawEventsRetention != null) usage.compact(getCompactionCutoff());
             eventMap.put(app.getId(), usage);
 
             execOnListeners(new Function<UsageListener, Void>() {
                     @Override
                     public Void apply(UsageListener listener) {
-                        listener.onApplicationEvent(new ApplicationMetadataImpl(Entities.proxy(app)), event);
+                        listener.onApplicationEvent(metadata.get(), event);
                         return null;
                     }
                     @Override
@@ -342,6 +619,7 @@ public class LocalUsageManager implements UsageManager {
         // If we don't have a usage record, then generate one outside of the mutex. But then double-check while
         // holding the mutex to see if another thread has created one. If it has, stick with that rather than 
         // overwriting it.
+        Object mutex = getMutex(loc.getId());
         LocationUsage usage;
         synchronized (mutex) {
             usage = eventMap.get(loc.getId());
@@ -349,6 +627,7 @@ public class LocalUsageManager implements UsageManager {
         if (usage == null) {
             usage = new LocationUsage(loc.getId(), ((LocationInternal)loc).toMetadataRecord());
         }
+        final Supplier<UsageListener.LocationMetadata> metadata = Suppliers.memoize(() -> new LocationMetadataImpl(loc));
         
         synchronized (mutex) {
             LocationUsage otherUsage = eventMap.get(loc.getId());
@@ -356,12 +635,13 @@ public class LocalUsageManager implements UsageManager {
                 usage = otherUsage;
             }
             usage.addEvent(event);
+            if (rawEventsRetention != null) usage.compact(getCompactionCutoff());
             eventMap.put(loc.getId(), usage);
             
             execOnListeners(new Function<UsageListener, Void>() {
                     @Override
                     public Void apply(UsageListener listener) {
-                        listener.onLocationEvent(new LocationMetadataImpl(loc), event);
+                        listener.onLocationEvent(metadata.get(), event);
                         return null;
                     }
                     @Override
@@ -435,12 +715,20 @@ public class LocalUsageManager implements UsageManager {
 
     @Override
     public void addUsageListener(UsageListener listener) {
-        listeners.add(checkNotNull(listener, "listener"));
+        listeners.add(new ListenerDispatcher(checkNotNull(listener, "listener"), 
+                listenerQueueCapacity, listenerQueueFullTimeout, listenerBatchSize, listenerThreadFactory));
     }
 
     @Override
     public void removeUsageListener(UsageListener listener) {
-        listeners.remove(listener);
+        for (ListenerDispatcher dispatcher : listeners) {
+            if (dispatcher.listener.equals(listener)) {
+                listeners.remove(dispatcher);
+                // events already queued are still delivered
+                dispatcher.shutdown();
+                return;
+            }
+        }
     }
 
     private String getUser() {
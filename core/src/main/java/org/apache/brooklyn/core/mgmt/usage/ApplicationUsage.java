@@ -27,6 +27,8 @@ import java.util.Map;
 
 import org.apache.brooklyn.core.entity.lifecycle.Lifecycle;
 
+import com.google.common.annotations.Beta;
+import com.google.common.base.Function;
 import com.google.common.base.MoreObjects;
 import com.google.common.base.Objects;
 import com.google.common.collect.ImmutableList;
@@ -90,6 +92,8 @@ public class ApplicationUsage {
     private final String entityType;
     private final Map<String, String> metadata;
     private final List<ApplicationEvent> events = Collections.synchronizedList(Lists.<ApplicationEvent>newArrayList());
+    /** guarded by {@link #events}; null until events are first compacted, and in state persisted before rollups were added */
+    private List<UsageRollup> rollups;
 
     public ApplicationUsage(String applicationId, String applicationName, String entityType, Map<String, String> metadata) {
         this.applicationId = checkNotNull(applicationId, "applicationId");
@@ -121,7 +125,60 @@ public class ApplicationUsage {
         }
     }
 
+    /**
+     * The events needed to tell the state between the given dates: those in the range, plus the last one at or
+     * before the start (giving the state at the start) and the first one after (giving when the last state in the range ended).
+     * Events before {@link UsageManager#USAGE_RAW_EVENTS_RETENTION} may have been compacted into {@link #getRollups()}.
+     */
+    @Beta
+    public List<ApplicationEvent> getEvents(Date start, Date end) {
+        synchronized (events) {
+            return ImmutableList.copyOf(UsageRollups.eventsBetween(events, start, end, DATE_OF));
+        }
+    }
+
+    /** Per-day totals for each state, replacing events that have been compacted; in date order. */
+    @Beta
+    public List<UsageRollup> getRollups() {
+        synchronized (events) {
+            return rollups == null ? ImmutableList.<UsageRollup>of() : ImmutableList.copyOf(rollups);
+        }
+    }
+
+    /** The {@link #getRollups()} overlapping the given dates. */
+    @Beta
+    public List<UsageRollup> getRollups(Date start, Date end) {
+        synchronized (events) {
+            return rollups == null ? ImmutableList.<UsageRollup>of() : ImmutableList.copyOf(UsageRollups.rollupsBetween(rollups, start, end));
+        }
+    }
+
     public void addEvent(ApplicationEvent event) {
         events.add(checkNotNull(event, "event"));
     }
+
+    /**
+     * Replaces the events whose period ended before the given date with per-day totals in {@link #getRollups()}.
+     * The most recent event is always kept.
+     * 
+     * @return whether any events were compacted
+     */
+    @Beta
+    public boolean compact(Date cutoff) {
+        synchronized (events) {
+            if (events.size() < 2) return false;
+            if (rollups == null) rollups = Lists.newArrayList();
+            return UsageRollups.compact(events, rollups, cutoff, DATE_OF, STATE_OF, APPLICATION_ID_OF) > 0;
+        }
+    }
+
+    private static final Function<ApplicationEvent, Date> DATE_OF = new Function<ApplicationEvent, Date>() {
+        @Override public Date apply(ApplicationEvent input) { return input.getDate(); }
+    };
+    private static final Function<ApplicationEvent, Lifecycle> STATE_OF = new Function<ApplicationEvent, Lifecycle>() {
+        @Override public Lifecycle apply(ApplicationEvent input) { return input.getState(); }
+    };
+    private static final Function<ApplicationEvent, String> APPLICATION_ID_OF = new Function<ApplicationEvent, String>() {
+        @Override public String apply(ApplicationEvent input) { return null; }
+    };
 }
@@ -27,6 +27,8 @@ import java.util.Map;
 
 import org.apache.brooklyn.core.entity.lifecycle.Lifecycle;
 
+import com.google.common.annotations.Beta;
+import com.google.common.base.Function;
 import com.google.common.base.MoreObjects;
 import com.google.common.base.Objects;
 import com.google.common.collect.ImmutableList;
@@ -111,6 +113,8 @@ public class LocationUsage {
     private final String locationId;
     private final Map<String, String> metadata;
     private final List<LocationEvent> events = Collections.synchronizedList(Lists.<LocationEvent>newArrayList());
+    /** guarded by {@link #events}; null until events are first compacted, and in state persisted before rollups were added */
+    private List<UsageRollup> rollups;
 
     public LocationUsage(String locationId, Map<String, String> metadata) {
         this.locationId = checkNotNull(locationId, "locationId");
@@ -131,9 +135,95 @@ public class LocationUsage {
         }
     }
 
+    /**
+     * The events needed to tell the state between the given dates: those in the range, plus the last one at or
+     * before the start (giving the state at the start) and the first one after (giving when the last state in the range ended).
+     * Events before {@link UsageManager#USAGE_RAW_EVENTS_RETENTION} may have been compacted into {@link #getRollups()}.
+     */
+    @Beta
+    public List<LocationEvent> getEvents(Date start, Date end) {
+        synchronized (events) {
+            return ImmutableList.copyOf(UsageRollups.eventsBetween(events, start, end, DATE_OF));
+        }
+    }
+
+    /** Per-day totals for each state, replacing events that have been compacted; in date order. */
+    @Beta
+    public List<UsageRollup> getRollups() {
+        synchronized (events) {
+            return rollups == null ? ImmutableList.<UsageRollup>of() : ImmutableList.copyOf(rollups);
+        }
+    }
+
+    /** The {@link #getRollups()} overlapping the given dates. */
+    @Beta
+    public List<UsageRollup> getRollups(Date start, Date end) {
+        synchronized (events) {
+            return rollups == null ? ImmutableList.<UsageRollup>of() : ImmutableList.copyOf(UsageRollups.rollupsBetween(rollups, start, end));
+        }
+    }
+
+    /** The date of the earliest usage recorded, including any compacted into {@link #getRollups()}; null if none. */
+    @Beta
+    public Date getFirstDate() {
+        synchronized (events) {
+            if (rollups != null && !rollups.isEmpty()) return rollups.get(0).getStart();
+            return events.isEmpty() ? null : events.get(0).getDate();
+        }
+    }
+
+    /** The most recent event (which is never compacted); null if none. */
+    @Beta
+    public LocationEvent getLastEvent() {
+        synchronized (events) {
+            return events.isEmpty() ? null : events.get(events.size() - 1);
+        }
+    }
+
+    /** Whether any event or {@link #getRollups() rollup} is for the given application; without copying them, unlike {@link #getEvents()}. */
+    @Beta
+    public boolean hasApplication(String applicationId) {
+        synchronized (events) {
+            for (LocationEvent event : events) {
+                if (Objects.equal(applicationId, event.getApplicationId())) return true;
+            }
+            if (rollups != null) {
+                for (UsageRollup rollup : rollups) {
+                    if (Objects.equal(applicationId, rollup.getApplicationId())) return true;
+                }
+            }
+            return false;
+        }
+    }
+
     public void addEvent(LocationEvent event) {
         events.add(checkNotNull(event, "event"));
     }
+
+    /**
+     * Replaces the events whose period ended before the given date with per-day totals in {@link #getRollups()}.
+     * The most recent event is always kept.
+     * 
+     * @return whether any events were compacted
+     */
+    @Beta
+    public boolean compact(Date cutoff) {
+        synchronized (events) {
+            if (events.size() < 2) return false;
+            if (rollups == null) rollups = Lists.newArrayList();
+            return UsageRollups.compact(events, rollups, cutoff, DATE_OF, STATE_OF, APPLICATION_ID_OF) > 0;
+        }
+    }
+
+    private static final Function<LocationEvent, Date> DATE_OF = new Function<LocationEvent, Date>() {
+        @Override public Date apply(LocationEvent input) { return input.getDate(); }
+    };
+    private static final Function<LocationEvent, Lifecycle> STATE_OF = new Function<LocationEvent, Lifecycle>() {
+        @Override public Lifecycle apply(LocationEvent input) { return input.getState(); }
+    };
+    private static final Function<LocationEvent, String> APPLICATION_ID_OF = new Function<LocationEvent, String>() {
+        @Override public String apply(LocationEvent input) { return input.getApplicationId(); }
+    };
     
     @Override
     public String toString() {
@@ -48,6 +48,39 @@ public interface UsageManager {
             "Timeout on termination, to wait for queue of usage listener events to be processed",
             Duration.TEN_SECONDS);
 
+    @Beta
+    ConfigKey<Integer> USAGE_LISTENER_QUEUE_CAPACITY = ConfigKeys.newIntegerConfigKey(
+            "brooklyn.usageManager.listeners.queueCapacity",
+            "Maximum number of usage events queued for each listener, beyond which recording further events "
+            + "waits for the listener to catch up (see brooklyn.usageManager.listeners.queueFullTimeout); default unbounded. "
+            + "The wait is made while holding the lock which orders events for that application or location, which is shared "
+            + "with other applications and locations, so a stuck listener also delays their lifecycle changes; "
+            + "if setting this, also set a short queueFullTimeout",
+            Integer.MAX_VALUE);
+
+    @Beta
+    ConfigKey<Duration> USAGE_LISTENER_QUEUE_FULL_TIMEOUT = ConfigKeys.newConfigKey(
+            Duration.class,
+            "brooklyn.usageManager.listeners.queueFullTimeout",
+            "Time to wait for space in a listener's full queue when recording a usage event, after which the event is "
+            + "not delivered to that listener (it is still recorded); default forever. "
+            + "Recording events for other applications and locations may wait behind this (see brooklyn.usageManager.listeners.queueCapacity), "
+            + "so with a bounded queue this should be short",
+            Duration.PRACTICALLY_FOREVER);
+
+    @Beta
+    ConfigKey<Integer> USAGE_LISTENER_BATCH_SIZE = ConfigKeys.newIntegerConfigKey(
+            "brooklyn.usageManager.listeners.batchSize",
+            "Maximum number of queued usage events taken at once for delivery to a listener",
+            100);
+
+    @Beta
+    ConfigKey<Duration> USAGE_RAW_EVENTS_RETENTION = ConfigKeys.newConfigKey(
+            Duration.class,
+            "brooklyn.usageManager.rawEventsRetention",
+            "How long to keep individual usage events for each application and location, after which they are "
+            + "replaced by totals per day and state (see UsageRollup); default keeps all events");
+
     /**
      * Adds this application event to the usage record for the given app (creating the usage 
      * record if one does not already exist).
@@ -0,0 +1,121 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.brooklyn.core.mgmt.usage;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.Date;
+
+import org.apache.brooklyn.core.entity.lifecycle.Lifecycle;
+
+import com.google.common.annotations.Beta;
+import com.google.common.base.MoreObjects;
+import com.google.common.base.Objects;
+
+/**
+ * The total time an application or location spent in one state during one day (UTC), replacing the
+ * individual usage events for that time once they are older than
+ * {@link UsageManager#USAGE_RAW_EVENTS_RETENTION}.
+ */
+@Beta
+public class UsageRollup {
+
+    public static final long DAY_MILLIS = 24*60*60*1000L;
+
+    private final Date day;
+    private final Lifecycle state;
+    private final String applicationId;
+    private final Date start;
+    private final Date end;
+    private final long durationMillis;
+
+    public UsageRollup(Date day, Lifecycle state, String applicationId, Date start, Date end, long durationMillis) {
+        this.day = checkNotNull(day, "day");
+        this.state = checkNotNull(state, "state");
+        this.applicationId = applicationId;
+        this.start = checkNotNull(start, "start");
+        this.end = checkNotNull(end, "end");
+        this.durationMillis = durationMillis;
+    }
+
+    /** Start of the UTC day containing the given time. */
+    public static Date dayOf(long timeMillis) {
+        return new Date(timeMillis - Math.floorMod(timeMillis, DAY_MILLIS));
+    }
+
+    /** Start of the (UTC) day covered. */
+    public Date getDay() {
+        return day;
+    }
+
+    public Lifecycle getState() {
+        return state;
+    }
+
+    /** The application using the location at the time, for location usage; null for application usage. */
+    public String getApplicationId() {
+        return applicationId;
+    }
+
+    /** Start of the earliest period in this state during the day. */
+    public Date getStart() {
+        return start;
+    }
+
+    /** End of the latest period in this state during the day. */
+    public Date getEnd() {
+        return end;
+    }
+
+    /** Total time in this state during the day; may be less than {@link #getEnd()} - {@link #getStart()}. */
+    public long getDurationMillis() {
+        return durationMillis;
+    }
+
+    /** Whether this is for the same day, state and application as the other, so they can be combined. */
+    boolean isSameKey(UsageRollup other) {
+        return day.equals(other.day) && state == other.state && Objects.equal(applicationId, other.applicationId);
+    }
+
+    /** Combines this with another for the same day, state and application. */
+    UsageRollup plus(UsageRollup other) {
+        return new UsageRollup(day, state, applicationId,
+                start.before(other.start) ? start : other.start,
+                end.after(other.end) ? end : other.end,
+                durationMillis + other.durationMillis);
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (!(other instanceof UsageRollup)) return false;
+        UsageRollup o = (UsageRollup) other;
+        return isSameKey(o) && Objects.equal(start, o.start) && Objects.equal(end, o.end) && durationMillis == o.durationMillis;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hashCode(day, state, applicationId, start, end, durationMillis);
+    }
+
+    @Override
+    public String toString() {
+        return MoreObjects.toStringHelper(this).add("day", day).add("state", state).add("appId", applicationId)
+                .add("start", start).add("end", end).add("durationMillis", durationMillis).toString();
+    }
+}
@@ -0,0 +1,121 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.brooklyn.core.mgmt.usage;
+
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+
+import org.apache.brooklyn.core.entity.lifecycle.Lifecycle;
+import org.apache.brooklyn.util.collections.MutableList;
+
+import com.google.common.base.Function;
+
+/**
+ * Range queries and compaction over the event lists of {@link ApplicationUsage} and {@link LocationUsage}.
+ * Callers must hold the lock on the lists passed in.
+ */
+class UsageRollups {
+
+    private UsageRollups() {}
+
+    /**
+     * The events needed to tell the state between the given dates: those in the range, plus the last one at or
+     * before the start (giving the state at the start) and the first one after the end (giving when the last state ended).
+     * Relies on the events being in date order, as they are recorded.
+     */
+    static <E> List<E> eventsBetween(List<E> events, Date start, Date end, Function<? super E, Date> dateOf) {
+        if (events.isEmpty()) return MutableList.of();
+        int from = Math.max(0, firstIndexAfter(events, start.getTime(), dateOf) - 1);
+        int to = Math.min(events.size(), firstIndexAfter(events, end.getTime(), dateOf) + 1);
+        return MutableList.copyOf(events.subList(from, Math.max(from, to)));
+    }
+
+    /** index of the first event dated after the given time, or the size of the list if none */
+    private static <E> int firstIndexAfter(List<E> events, long time, Function<? super E, Date> dateOf) {
+        int lo = 0, hi = events.size();
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (dateOf.apply(events.get(mid)).getTime() <= time) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    static List<UsageRollup> rollupsBetween(List<UsageRollup> rollups, Date start, Date end) {
+        List<UsageRollup> result = MutableList.of();
+        for (UsageRollup rollup : rollups) {
+            if (!rollup.getStart().after(end) && !rollup.getEnd().before(start)) {
+                result.add(rollup);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Replaces the events whose period (up to the next event) ended before the cutoff with per-day totals for
+     * each state, merged into the given rollups. The last event is always kept, as its period has not ended.
+     * 
+     * @return the number of events removed
+     */
+    static <E> int compact(List<E> events, List<UsageRollup> rollups, Date cutoff,
+            Function<? super E, Date> dateOf, Function<? super E, Lifecycle> stateOf, Function<? super E, String> applicationIdOf) {
+        int count = 0;
+        while (count + 1 < events.size() && dateOf.apply(events.get(count + 1)).before(cutoff)) {
+            count++;
+        }
+        if (count == 0) return 0;
+
+        List<UsageRollup> merged = MutableList.copyOf(rollups);
+        for (int i = 0; i < count; i++) {
+            E event = events.get(i);
+            long periodStart = dateOf.apply(event).getTime();
+            long periodEnd = Math.max(periodStart, dateOf.apply(events.get(i + 1)).getTime());
+            do {
+                Date day = UsageRollup.dayOf(periodStart);
+                long pieceEnd = Math.min(periodEnd, day.getTime() + UsageRollup.DAY_MILLIS);
+                add(merged, new UsageRollup(day, stateOf.apply(event), applicationIdOf.apply(event),
+                        new Date(periodStart), new Date(pieceEnd), pieceEnd - periodStart));
+                periodStart = pieceEnd;
+            } while (periodStart < periodEnd);
+        }
+        merged.sort(Comparator.comparing(UsageRollup::getDay).thenComparing(UsageRollup::getStart));
+
+        events.subList(0, count).clear();
+        rollups.clear();
+        rollups.addAll(merged);
+        return count;
+    }
+
+    private static void add(List<UsageRollup> rollups, UsageRollup rollup) {
+        // most recent rollups are at the end, and usually the ones to merge with
+        for (int i = rollups.size() - 1; i >= 0; i--) {
+            UsageRollup existing = rollups.get(i);
+            if (existing.isSameKey(rollup)) {
+                rollups.set(i, existing.plus(rollup));
+                return;
+            }
+            if (existing.getDay().before(rollup.getDay())) break;
+        }
+        rollups.add(rollup);
+    }
+}
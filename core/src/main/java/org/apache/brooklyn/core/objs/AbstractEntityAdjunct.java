@@ -111,6 +111,11 @@ public abstract class AbstractEntityAdjunct extends AbstractBrooklynObject imple
     
     /** not for direct access; refer to as 'subscriptionTracker' via getter so that it is initialized */
     protected transient SubscriptionTracker _subscriptionTracker;
+
+    /** not for direct access; refer to as 'scheduler' via getter so that it is initialized */
+    private transient volatile AdjunctScheduler _scheduler;
+    // not the adjunct itself, as subclasses commonly synchronize on that while running scheduled jobs
+    private final transient Object schedulerMutex = new Object();
     
     private AtomicBoolean destroyed = new AtomicBoolean(false);
     
@@ -434,6 +439,24 @@ public abstract class AbstractEntityAdjunct extends AbstractBrooklynObject imple
         return _subscriptionTracker;
     }
 
+    /**
+     * Returns the scheduler for running this adjunct's deferred and delayed jobs in its execution context,
+     * one at a time, instead of in a thread of its own; available once the entity is set.
+     */
+    @Beta
+    public AdjunctScheduler getScheduler() {
+        synchronized (schedulerMutex) {
+            if (_scheduler==null) _scheduler = new AdjunctScheduler(this);
+            return _scheduler;
+        }
+    }
+
+    /** Cancels any jobs pending in the {@link #getScheduler() scheduler}, if it has been used. */
+    protected void cancelScheduledJobs() {
+        AdjunctScheduler scheduler = _scheduler;
+        if (scheduler!=null) scheduler.cancelAll();
+    }
+
     /** 
      * Unsubscribes and clears all managed subscriptions; is called by the owning entity when a policy is removed
      * and should always be called by any subclasses overriding this method
@@ -442,6 +465,8 @@ public abstract class AbstractEntityAdjunct extends AbstractBrooklynObject imple
         destroyed.set(true);
         SubscriptionTracker tracker = getSubscriptionTracker();
         if (tracker != null) tracker.unsubscribeAll();
+        AdjunctScheduler scheduler = _scheduler;
+        if (scheduler != null) scheduler.close();
         getManagementContext().getRebindManager().getChangeListener().onUnmanaged(this);
     }
     
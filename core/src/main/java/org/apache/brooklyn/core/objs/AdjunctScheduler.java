@@ -0,0 +1,186 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.brooklyn.core.objs;
+
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.brooklyn.api.mgmt.ExecutionContext;
+import org.apache.brooklyn.api.mgmt.ExecutionManager;
+import org.apache.brooklyn.api.mgmt.ManagementContext;
+import org.apache.brooklyn.api.mgmt.Task;
+import org.apache.brooklyn.util.core.task.BasicExecutionManager;
+import org.apache.brooklyn.util.core.task.ScheduledTask;
+import org.apache.brooklyn.util.core.task.SingleThreadedScheduler;
+import org.apache.brooklyn.util.core.task.Tasks;
+import org.apache.brooklyn.util.time.Duration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.annotations.Beta;
+import com.google.common.base.MoreObjects;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Sets;
+
+/**
+ * Runs deferred and delayed jobs for an {@link AbstractEntityAdjunct}, as {@link ScheduledTask}s in the adjunct's
+ * {@link AbstractEntityAdjunct#getExecutionContext() execution context}, rather than in a thread owned by the adjunct.
+ * <p>
+ * Jobs therefore share the management context's thread pool and delay timer, show up in the activity view
+ * against the entity, and are tidied up by the garbage collector like any other task. Jobs for the same adjunct
+ * run one at a time in the order they become due (using a {@link SingleThreadedScheduler} for a tag unique to
+ * the adjunct), as they did when each adjunct had its own single-threaded executor.
+ * <p>
+ * Pending jobs are cancelled when the adjunct is suspended or destroyed (see {@link #cancelAll()} and {@link #close()});
+ * the scheduler is not persisted, so after rebind adjuncts reschedule anything they need as they did before.
+ */
+@Beta
+public class AdjunctScheduler {
+
+    private static final Logger LOG = LoggerFactory.getLogger(AdjunctScheduler.class);
+
+    /** Jobs starting later than this after they were due are logged, as a sign the shared pool is saturated. */
+    private static final long LAG_WARN_THRESHOLD_MILLIS = 10*1000;
+
+    private final AbstractEntityAdjunct adjunct;
+    private final String serialTag;
+    private final Set<Task<?>> pending = Sets.newConcurrentHashSet();
+    private volatile boolean closed;
+
+    private final AtomicLong runCount = new AtomicLong();
+    private volatile long lastLag;
+    private volatile long maxLag;
+
+    public AdjunctScheduler(AbstractEntityAdjunct adjunct) {
+        this.adjunct = Preconditions.checkNotNull(adjunct, "adjunct");
+        this.serialTag = "adjunct-scheduler-"+adjunct.getId();
+    }
+
+    /** Runs the job as soon as possible, after any jobs already due for this adjunct. */
+    public Task<?> submit(String displayName, Runnable job) {
+        return schedule(displayName, job, Duration.ZERO);
+    }
+
+    /** Runs the job after the given delay; returns the (cancellable) scheduled task. */
+    public Task<?> schedule(final String displayName, final Runnable job, Duration delay) {
+        Preconditions.checkState(!closed, "Scheduler for %s is closed", adjunct);
+        ExecutionContext executionContext = Preconditions.checkNotNull(adjunct.getExecutionContext(), "No execution context for %s; entity not set", adjunct);
+        BasicExecutionManager em = getBasicExecutionManager();
+        if (em != null) em.setTaskSchedulerForTag(serialTag, SingleThreadedScheduler.class);
+
+        final long delayMillis = Math.max(0, delay.toMilliseconds());
+        final long due = System.currentTimeMillis() + delayMillis;
+        Runnable timedJob = new Runnable() {
+            @Override
+            public void run() {
+                long lag = Math.max(0, System.currentTimeMillis() - due);
+                lastLag = lag;
+                if (lag > maxLag) maxLag = lag;
+                runCount.incrementAndGet();
+                if (lag > LAG_WARN_THRESHOLD_MILLIS) {
+                    LOG.warn("{} started {} {} after it was due", new Object[] {adjunct, displayName, Duration.millis(lag)});
+                }
+                job.run();
+            }
+            @Override
+            public String toString() {
+                return displayName+" for "+adjunct;
+            }
+        };
+        ScheduledTask task = ScheduledTask.builder(() -> Tasks.builder().body(timedJob).dynamic(false).displayName(displayName).tag(serialTag).build())
+                .delay(Duration.millis(delayMillis))
+                .displayName(displayName+(delayMillis > 0 ? " (after "+Duration.millis(delayMillis)+")" : ""))
+                .build();
+
+        purgeDone();
+        pending.add(task);
+        return executionContext.submit(task);
+    }
+
+    /** Cancels all jobs not yet started; any job already running is left to complete. */
+    public void cancelAll() {
+        cancelAll(false);
+    }
+
+    /** Cancels all jobs, interrupting any which are running, and releases the serial scheduler; no further jobs may be scheduled. */
+    public void close() {
+        closed = true;
+        cancelAll(true);
+        BasicExecutionManager em = getBasicExecutionManager();
+        if (em != null) em.clearTaskSchedulerForTag(serialTag);
+    }
+
+    public boolean isClosed() {
+        return closed;
+    }
+
+    /** Number of jobs scheduled but not yet completed. */
+    public int getPendingCount() {
+        purgeDone();
+        return pending.size();
+    }
+
+    /** Number of jobs which have started. */
+    public long getRunCount() {
+        return runCount.get();
+    }
+
+    /** How long after it was due the most recent job started. */
+    public Duration getLastLag() {
+        return Duration.millis(lastLag);
+    }
+
+    /** The longest any job started after it was due. */
+    public Duration getMaxLag() {
+        return Duration.millis(maxLag);
+    }
+
+    private void cancelAll(boolean mayInterruptIfRunning) {
+        Iterator<Task<?>> iter = pending.iterator();
+        while (iter.hasNext()) {
+            Task<?> task = iter.next();
+            iter.remove();
+            if (!task.isDone()) task.cancel(mayInterruptIfRunning);
+        }
+    }
+
+    private void purgeDone() {
+        Iterator<Task<?>> iter = pending.iterator();
+        while (iter.hasNext()) {
+            if (iter.next().isDone()) iter.remove();
+        }
+    }
+
+    private BasicExecutionManager getBasicExecutionManager() {
+        ManagementContext mgmt = adjunct.getManagementContext();
+        ExecutionManager em = (mgmt != null) ? mgmt.getExecutionManager() : null;
+        return (em instanceof BasicExecutionManager) ? (BasicExecutionManager) em : null;
+    }
+
+    @Override
+    public String toString() {
+        return MoreObjects.toStringHelper(this)
+                .add("adjunct", adjunct)
+                .add("pending", pending.size())
+                .add("runs", runCount.get())
+                .add("maxLag", getMaxLag())
+                .toString();
+    }
+}
@@ -70,6 +70,7 @@ public abstract class AbstractPolicy extends AbstractEntityAdjunct implements Po
     @Override
     public void suspend() {
         suspended.set(true);
+        cancelScheduledJobs();
     }
 
     @Override
@@ -30,6 +30,7 @@ import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 
 import javax.annotation.Nullable;
 
@@ -58,7 +59,9 @@ import org.apache.brooklyn.util.core.task.BasicTask;
 import org.apache.brooklyn.util.core.task.DeferredSupplier;
 import org.apache.brooklyn.util.core.task.DynamicTasks;
 import org.apache.brooklyn.util.core.task.ImmediateSupplier;
+import org.apache.brooklyn.util.core.task.ListenableSupplier;
 import org.apache.brooklyn.util.core.task.ParallelTask;
+import org.apache.brooklyn.util.core.task.ScheduledTask;
 import org.apache.brooklyn.util.core.task.TaskInternal;
 import org.apache.brooklyn.util.core.task.Tasks;
 import org.apache.brooklyn.util.core.task.ValueResolver;
@@ -90,6 +93,9 @@ import com.google.common.base.Throwables;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Iterables;
 import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.SettableFuture;
 
 import groovy.lang.Closure;
 
@@ -213,7 +219,7 @@ public class DependentConfiguration {
         return new WaitInTaskForAttributeReady<T,T>(source, sensor, ready, abortConditions, blockingDetails).call();
     }
 
-    protected static class WaitInTaskForAttributeReady<T,V> implements Callable<V> {
+    protected static class WaitInTaskForAttributeReady<T,V> implements Callable<V>, ListenableSupplier<V> {
 
         /* This is a change since before Oct 2014. Previously it would continue to poll,
          * (maybe finding a different error) if the target entity becomes unmanaged. 
@@ -395,6 +401,120 @@ public class DependentConfiguration {
                 }
             }
         }
+
+        /**
+         * As {@link #call()}, but rather than blocking, subscribes to the sensors and returns a future which is completed
+         * from the subscriptions (with the same result or exception as {@link #call()} would give).
+         * No thread or task is held while waiting, except a single delayed task to apply any timeout.
+         * Unmanagement of the waiting entity is checked on each event and on timeout; when it is unmanaged its
+         * subscriptions are removed, so a caller needing to know about that should use a timeout (synchronous
+         * callers, in the entity's tasks, are cancelled on unmanagement anyway).
+         * Cancelling the future removes the subscriptions.
+         */
+        @Override
+        @SuppressWarnings({ "rawtypes", "unchecked" })
+        public ListenableFuture<V> getListenable() {
+            Preconditions.checkNotNull(source, "source");
+            Preconditions.checkNotNull(sensor, "sensor on "+source);
+            final SettableFuture<V> result = SettableFuture.create();
+            if (completeIfReady(result, source.getAttribute(sensor))) return result;
+
+            for (AttributeAndSensorCondition abortCondition : abortSensorConditions) {
+                if (abortIfMatches(result, abortCondition, abortCondition.source.getAttribute(abortCondition.sensor))) return result;
+            }
+
+            Task<?> current = Tasks.current();
+            if (current == null) throw new IllegalStateException("Should only be invoked in a running task");
+            final Entity entity = BrooklynTaskTags.getTargetOrContextEntity(current);
+            if (entity == null) throw new IllegalStateException("Should only be invoked in a running task with an entity tag; "+
+                current+" has no entity tag ("+((TaskInternal<?>)current).getStatusDetail(false)+")");
+
+            // one listener for the sensor and the abort conditions, re-checking them all on any event
+            final SensorEventListener<Object> listener = new SensorEventListener<Object>() {
+                @Override public void onEvent(SensorEvent<Object> event) {
+                    if (result.isDone()) return;
+                    if (completeIfReady(result, source.getAttribute(sensor))) return;
+                    for (AttributeAndSensorCondition abortCondition : abortSensorConditions) {
+                        if (abortIfMatches(result, abortCondition, abortCondition.source.getAttribute(abortCondition.sensor))) return;
+                    }
+                    completeIfUnmanaged(result, entity);
+                }};
+
+            final List<SubscriptionHandle> subscriptions = Lists.newCopyOnWriteArrayList();
+            final AtomicReference<Task<?>> timeoutTask = new AtomicReference<Task<?>>();
+            result.addListener(new Runnable() {
+                @Override public void run() {
+                    for (SubscriptionHandle handle : subscriptions) {
+                        entity.subscriptions().unsubscribe(handle);
+                    }
+                    Task<?> task = timeoutTask.get();
+                    if (task != null) task.cancel(true);
+                }}, MoreExecutors.directExecutor());
+
+            subscriptions.add(entity.subscriptions().subscribe(source, (AttributeSensor) sensor, listener));
+            for (AttributeAndSensorCondition abortCondition : abortSensorConditions) {
+                subscriptions.add(entity.subscriptions().subscribe(abortCondition.source, abortCondition.sensor, listener));
+            }
+            // check again in case anything changed before we subscribed
+            listener.onEvent(null);
+            if (result.isDone()) {
+                // subscriptions added after completion would not have been removed by the listener above
+                for (SubscriptionHandle handle : subscriptions) {
+                    entity.subscriptions().unsubscribe(handle);
+                }
+                return result;
+            }
+
+            if (timeout!=null && !Duration.PRACTICALLY_FOREVER.equals(timeout)) {
+                final long start = System.currentTimeMillis();
+                Task<?> task = ((EntityInternal)entity).getManagementContext().getExecutionManager().submit(
+                    ScheduledTask.builder(new Callable<Task<?>>() {
+                        @Override public Task<?> call() {
+                            return Tasks.builder().dynamic(false).displayName("timeout waiting for "+sensor.getName()+" on "+source)
+                                .tag(BrooklynTaskTags.TRANSIENT_TASK_TAG).body(new Runnable() {
+                                    @Override public void run() {
+                                        if (result.isDone() || completeIfReady(result, source.getAttribute(sensor))) return;
+                                        if (completeIfUnmanaged(result, entity)) return;
+                                        if (onTimeout.isPresent()) result.set(onTimeout.get());
+                                        else result.setException(new RuntimeTimeoutException("Unsatisfied after "+Duration.sinceUtc(start)));
+                                    }}).build();
+                        }})
+                        .displayName("waiting on "+sensor.getName())
+                        .tagTransient()
+                        .delay(timeout)
+                        .build());
+                timeoutTask.set(task);
+                if (result.isDone()) task.cancel(true);
+            }
+            return result;
+        }
+
+        private boolean completeIfUnmanaged(SettableFuture<V> result, Entity entity) {
+            if (ignoreUnmanaged || !Entities.isNoLongerManaged(entity)) return false;
+            if (onUnmanaged.isPresent()) result.set(onUnmanaged.get());
+            else result.setException(new NotManagedException(entity));
+            return true;
+        }
+
+        private boolean completeIfReady(SettableFuture<V> result, T value) {
+            if (result.isDone() || !ready(value)) return result.isDone();
+            try {
+                result.set(postProcess(value));
+            } catch (Throwable e) {
+                Exceptions.propagateIfFatal(e);
+                result.setException(e);
+            }
+            if (LOG.isDebugEnabled()) LOG.debug("Attribute-ready for {} in entity {}", sensor, source);
+            return true;
+        }
+
+        @SuppressWarnings({ "rawtypes", "unchecked" })
+        private boolean abortIfMatches(SettableFuture<V> result, AttributeAndSensorCondition abortCondition, Object value) {
+            if (!abortCondition.predicate.apply(value)) return false;
+            result.setException(new CompoundRuntimeException("Aborted waiting for ready value from "+source+" "+sensor.getName(),
+                ImmutableList.of(new Exception("Abort due to "+abortCondition+": "+value))));
+            return true;
+        }
     }
     
     /**
@@ -831,12 +951,62 @@ public class DependentConfiguration {
             this.predicate = checkNotNull(predicate, "predicate");
         }
         
+        public Entity getSource() {
+            return source;
+        }
+        
+        public AttributeSensor<T> getSensor() {
+            return sensor;
+        }
+        
+        public Predicate<? super T> getPredicate() {
+            return predicate;
+        }
+        
+        /** whether the sensor currently has a value satisfying the predicate */
+        public boolean isSatisfied() {
+            return predicate.apply(source.sensors().get(sensor));
+        }
+        
         @Override
         public String toString() {
             return JavaClassNames.simpleClassName(this)+"["+source+"["+sensor.getName()+"] "+predicate+"]";
         }
     }
     
+    /**
+     * Returns the sensor condition the given (unresolved) config value waits on, if it is known without blocking:
+     * that is, if the value is a task from {@link #attributeWhenReady(Entity, AttributeSensor)} (or its builder),
+     * or a {@link SensorDependencySupplier} such as {@code $brooklyn:attributeWhenReady}.
+     * Suppliers are evaluated in the context of the given entity, which should be the entity the value is set on.
+     */
+    @Beta
+    public static Maybe<AttributeAndSensorCondition<?>> getSensorDependency(Entity context, @Nullable Object value) {
+        if (value instanceof BasicTask && ((BasicTask<?>)value).getJob() instanceof WaitInTaskForAttributeReady) {
+            @SuppressWarnings({ "unchecked", "rawtypes" })
+            WaitInTaskForAttributeReady<Object,?> job = (WaitInTaskForAttributeReady) ((BasicTask<?>)value).getJob();
+            return Maybe.<AttributeAndSensorCondition<?>>of(new AttributeAndSensorCondition<Object>(job.source, job.sensor, job.ready));
+        }
+        if (value instanceof SensorDependencySupplier) {
+            final SensorDependencySupplier supplier = (SensorDependencySupplier) value;
+            try {
+                Maybe<Maybe<AttributeAndSensorCondition<?>>> result = ((EntityInternal)context).getExecutionContext().getImmediately(
+                        new Callable<Maybe<AttributeAndSensorCondition<?>>>() {
+                            @Override
+                            public Maybe<AttributeAndSensorCondition<?>> call() {
+                                return supplier.getSensorDependencyImmediately();
+                            }
+                        });
+                if (result.isPresent()) return result.get();
+                return Maybe.absent("Sensor dependency of "+value+" not available", Maybe.getException(result));
+            } catch (Exception e) {
+                Exceptions.propagateIfFatal(e);
+                return Maybe.absent("Sensor dependency of "+value+" could not be determined", e);
+            }
+        }
+        return Maybe.absent("Not a sensor dependency: "+value);
+    }
+    
     public static ProtoBuilder builder() {
         return new ProtoBuilder();
     }
@@ -1008,6 +1178,15 @@ public class DependentConfiguration {
             validate();
             return new WaitInTaskForAttributeReady<T,V>(this).call();
         }
+        /**
+         * As {@link #runNow()} but without blocking, returning a future completed when the value is ready
+         * (see {@link ListenableSupplier}); must be invoked in a task with an entity context.
+         */
+        @Beta
+        public ListenableFuture<V> runAsync() {
+            validate();
+            return new WaitInTaskForAttributeReady<T,V>(this).getListenable();
+        }
         @SuppressWarnings({ "unchecked", "rawtypes" })
         private void validate() {
             checkNotNull(source, "Entity source");
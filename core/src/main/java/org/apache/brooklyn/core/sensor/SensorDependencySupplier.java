@@ -0,0 +1,42 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.brooklyn.core.sensor;
+
+import org.apache.brooklyn.core.sensor.DependentConfiguration.AttributeAndSensorCondition;
+import org.apache.brooklyn.util.guava.Maybe;
+
+import com.google.common.annotations.Beta;
+
+/**
+ * Implemented by deferred values which wait for a sensor on an entity to be ready
+ * (such as {@code $brooklyn:attributeWhenReady}), so that callers can find what the value
+ * depends on without resolving it, and so without blocking.
+ * 
+ * @see DependentConfiguration#getSensorDependency(org.apache.brooklyn.api.entity.Entity, Object)
+ */
+@Beta
+public interface SensorDependencySupplier {
+
+    /**
+     * The entity and sensor this value waits on, if they can be determined immediately;
+     * invoked in the context of the entity which has this value.
+     */
+    Maybe<AttributeAndSensorCondition<?>> getSensorDependencyImmediately();
+
+}
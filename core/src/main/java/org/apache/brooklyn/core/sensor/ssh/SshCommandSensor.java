@@ -84,6 +84,7 @@ public final class SshCommandSensor<T> extends AbstractAddTriggerableSensor<T> {
                     "Whether to trim the output ignoring everything up to and before the last `---` line if present when expecting yaml; " +
                     "useful if the script has quite a lot of output which should be ignored prior, with the value to be used for the sensor output last; " +
                     "default true (ignored if format is 'string')", true);
+    public static final ConfigKey<Boolean> USE_HELPER_AGENT = SshFeed.USE_HELPER_AGENT;
 
     final private AtomicBoolean commandUrlInstalled = new AtomicBoolean(false);
 
@@ -127,6 +128,7 @@ public final class SshCommandSensor<T> extends AbstractAddTriggerableSensor<T> {
                 .name("SSH Sensor Feed: "+initParam(SENSOR_NAME))
                 .entity(entity)
                 .onlyIfServiceUp(Maybe.ofDisallowingNull(EntityInitializers.resolve(params, ONLY_IF_SERVICE_UP)).or(true))
+                .useHelperAgent(Boolean.TRUE.equals(initParam(USE_HELPER_AGENT)))
                 .poll(pollConfig);
 
         String commandUrl = EntityInitializers.resolve(initParams(), SENSOR_COMMAND_URL);
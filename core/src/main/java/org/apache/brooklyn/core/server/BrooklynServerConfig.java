@@ -124,6 +124,15 @@ public class BrooklynServerConfig {
     public static final ConfigKey<String> BROOKLYN_CATALOG_URL = ConfigKeys.newStringConfigKey("brooklyn.catalog.url",
         "The URL of a custom catalog.bom to load");
 
+    public static final ConfigKey<Integer> CATALOG_STARTUP_PARALLELISM = ConfigKeys.newIntegerConfigKey("brooklyn.catalog.startup.parallelism",
+        "Number of persisted bundles to install and start concurrently on startup and rebind; "
+        + "if more than 1, bundles are started in waves computed from the dependencies declared in their manifests. "
+        + "Default 1, installing and starting bundles one at a time", 1);
+
+    public static final ConfigKey<Boolean> CATALOG_STARTUP_CACHE_ENABLED = ConfigKeys.newBooleanConfigKey("brooklyn.catalog.startup.cache.enabled",
+        "Whether to keep a snapshot of the validated types in persisted bundles, in the management base directory, "
+        + "and use it on startup and rebind to skip validating types when the bundles have not changed; default false", false);
+
     /** string used in places where the management node ID is needed to resolve a path */
     public static final String MANAGEMENT_NODE_ID_PROPERTY = "brooklyn.mgmt.node.id";
     
@@ -508,6 +508,13 @@ public class BasicBrooklynTypeRegistry implements BrooklynTypeRegistry {
                     log.trace(msg.get());
                 }
             });
+        invalidateClassLoaderCache();
+    }
+    
+    /** class lookups can depend on the types known (their libraries and containing bundles) */
+    private void invalidateClassLoaderCache() {
+        Maybe<OsgiManager> osgi = ((ManagementContextInternal)mgmt).getOsgiManager();
+        if (osgi.isPresent()) osgi.get().invalidateClassLoaderCache();
     }
 
     private boolean isWrapperBundle(String bundleNameVersion) { 
@@ -622,6 +629,7 @@ public class BasicBrooklynTypeRegistry implements BrooklynTypeRegistry {
                 }
                 return changed;
             });
+        if (changedLocally) invalidateClassLoaderCache();
         legacyDelete(type, changedLocally);
     }
     
@@ -660,6 +668,7 @@ public class BasicBrooklynTypeRegistry implements BrooklynTypeRegistry {
                 }
                 return true;
             });
+        invalidateClassLoaderCache();
         legacyDelete(type.getVersionedName(), changedLocally);
     }
     
@@ -675,12 +684,14 @@ public class BasicBrooklynTypeRegistry implements BrooklynTypeRegistry {
             localRegisteredTypesAndContainingBundles.clear();
             catalogUpgrades = null;
         });
+        invalidateClassLoaderCache();
     }
 
     
     @Beta
     public void storeCatalogUpgradesInstructions(CatalogUpgrades catalogUpgrades) {
         this.catalogUpgrades = catalogUpgrades;
+        invalidateClassLoaderCache();
     }
 
     @Beta
@@ -54,8 +54,11 @@ import org.slf4j.LoggerFactory;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 
@@ -71,7 +74,7 @@ public class CustomWorkflowStep extends WorkflowStepDefinition implements Workfl
         this.steps = steps;
     }
 
-    String shorthand;
+    protected String shorthand;
     @Override
     public void populateFromShorthand(String value) {
         if (shorthand==null) {
@@ -92,13 +95,16 @@ public class CustomWorkflowStep extends WorkflowStepDefinition implements Workfl
     String retention;
 
     /** What to run this set of steps against, either an entity to run in that context, 'children' or 'members' to run over those, a range eg 1..10,  or a list (often in a variable) to run over elements of the list */
-    Object target;
+    protected Object target;
+
+    /** Name of the variable in each sub-workflow which is set to the element of the target being processed; defaults to 'target' */
+    protected String target_var_name;
 
     // see WorkflowCommonConfig.LOCK
     Object lock;
 
     // usually a string; see utils/WorkflowConcurrency
-    Object concurrency;
+    protected Object concurrency;
 
     Map<String,Object> parameters;
 
@@ -148,12 +154,25 @@ public class CustomWorkflowStep extends WorkflowStepDefinition implements Workfl
 
     @Override
     public Object doTaskBodyWithSubWorkflowsForReplay(WorkflowStepInstanceExecutionContext context, @Nonnull List<WorkflowExecutionContext> subworkflows, ReplayContinuationInstructions instructions) {
-        boolean wasList = Boolean.TRUE.equals(getStepState(context).wasList);
-        return runSubworkflowsWithConcurrency(context, subworkflows, wasList, true, instructions);
+        StepState state = getStepState(context);
+        boolean wasList = Boolean.TRUE.equals(state.wasList);
+
+        // the order of sub-workflows as recorded is not guaranteed to survive persistence, so restore the target order so output is aggregated the same as on the original run
+        subworkflows = subworkflows.stream().sorted(Comparator.comparing(CustomWorkflowStep::getTargetIndex)).collect(Collectors.toList());
+
+        // use the concurrency computed on the original run, if known, so replays do not re-evaluate it against a changed model
+        long ci = state.concurrency != null ? state.concurrency : resolveConcurrency(context, subworkflows.size(), wasList);
+        return runSubworkflowsWithConcurrency(context, subworkflows, wasList, ci, true, instructions);
+    }
+
+    private static int getTargetIndex(WorkflowExecutionContext nestedWorkflow) {
+        Object index = nestedWorkflow.getWorkflowScratchVariables()==null ? null : nestedWorkflow.getWorkflowScratchVariables().get("target_index");
+        return index instanceof Number ? ((Number) index).intValue() : Integer.MAX_VALUE;
     }
 
     static class StepState {
         Boolean wasList;
+        Integer concurrency;
     }
     void setStepState(WorkflowStepInstanceExecutionContext context, StepState state, boolean persist) {
         context.setStepState(state, persist);
@@ -190,6 +209,10 @@ public class CustomWorkflowStep extends WorkflowStepDefinition implements Workfl
 
         boolean wasList = targetR instanceof Iterable;
 
+        if (!wasList && isTargetRequiredToBeList()) {
+            throw new IllegalArgumentException("Target of "+getNameOrDefault()+" must be a list or an expression that resolves to a list");
+        }
+
         if (!wasList) {
             if (targetR == null) { /* fine if no target supplied */ }
             else if (targetR instanceof Entity) { /* entity is also supported */ }
@@ -215,55 +238,55 @@ public class CustomWorkflowStep extends WorkflowStepDefinition implements Workfl
             }
         });
 
+        long ci = resolveConcurrency(context, nestedWorkflowContext.size(), wasList);
+
         StepState state = getStepState(context);
         state.wasList = wasList;
+        state.concurrency = (int) ci;
         setStepState(context, state, false); // persist in next line
         WorkflowReplayUtils.setNewSubWorkflows(context, nestedWorkflowContext.stream().map(BrooklynTaskTags::tagForWorkflow).collect(Collectors.toList()), Tasks.current().getId());
         // persist children now in case they aren't run right away, so that they are known in case of replay, we can incrementally resume (but after parent list)
         nestedWorkflowContext.forEach(n -> n.persist());
 
-        return runSubworkflowsWithConcurrency(context, nestedWorkflowContext, wasList, false, null);
+        return runSubworkflowsWithConcurrency(context, nestedWorkflowContext, wasList, ci, false, null);
     }
 
-    private Object runSubworkflowsWithConcurrency(WorkflowStepInstanceExecutionContext context, List<WorkflowExecutionContext> nestedWorkflowContexts, boolean wasList, boolean isReplaying, WorkflowStepDefinition.ReplayContinuationInstructions instructionsIfReplaying) {
-        List result = MutableList.of();
-        LOG.debug("Running sub-workflows "+nestedWorkflowContexts);
-        if (nestedWorkflowContexts.isEmpty()) return result;
+    /** whether the target must be a list; if false, a single entity or no target is also permitted, and the output is not wrapped in a list */
+    protected boolean isTargetRequiredToBeList() {
+        return false;
+    }
 
+    private long resolveConcurrency(WorkflowStepInstanceExecutionContext context, int targetSize, boolean wasList) {
         long ci = 1;
         Object c = concurrency;
-        if (c != null && wasList) {
+        if (c != null && wasList && targetSize > 0) {
             c = context.resolve(WorkflowExpressionResolution.WorkflowExpressionStage.STEP_RUNNING, c, Object.class);
             if (c instanceof Number) {
                 // okay
             } else if (c instanceof String) {
-                c = WorkflowConcurrencyParser.parse((String) c).apply((double) nestedWorkflowContexts.size());
+                c = WorkflowConcurrencyParser.parse((String) c).apply((double) targetSize);
             } else {
                 throw new IllegalArgumentException("Unsupported concurrency object: '" + c + "'");
             }
             ci = (long) Math.floor(0.000001 + ((Number) c).doubleValue());
             if (ci <= 0)
-                throw new IllegalArgumentException("Invalid concurrency value: " + ci + " (concurrency " + c + ", target size " + nestedWorkflowContexts.size() + ")");
+                throw new IllegalArgumentException("Invalid concurrency value: " + ci + " (concurrency " + c + ", target size " + targetSize + ")");
+            // no point in allowing more than the number of targets
+            ci = Math.min(ci, targetSize);
         }
+        return ci;
+    }
 
-        AtomicInteger availableThreads = ci == 1 ? null : new AtomicInteger((int) ci);
-        List<Task<?>> submitted = MutableList.of();
-        List<Throwable> errors = MutableList.of();
-        for (int i = 0; i < nestedWorkflowContexts.size(); i++) {
-            if (availableThreads != null) while (availableThreads.get() <= 0) {
-                try {
-                    Tasks.withBlockingDetails("Waiting before running remaining " + (nestedWorkflowContexts.size() - i) + " instances because " + ci + " are currently running",
-                            () -> {
-                                synchronized (availableThreads) {
-                                    availableThreads.wait(500);
-                                }
-                                return null;
-                            });
-                } catch (Exception e) {
-                    throw Exceptions.propagate(e);
-                }
-            }
+    private Object runSubworkflowsWithConcurrency(WorkflowStepInstanceExecutionContext context, List<WorkflowExecutionContext> nestedWorkflowContexts, boolean wasList, long ci, boolean isReplaying, WorkflowStepDefinition.ReplayContinuationInstructions instructionsIfReplaying) {
+        List result = MutableList.of();
+        LOG.debug("Running sub-workflows "+nestedWorkflowContexts);
+        if (nestedWorkflowContexts.isEmpty()) return result;
 
+        // permits are released by the sub-workflow task end callback, so waiting here wakes up as soon as a slot is free rather than polling
+        Semaphore availableThreads = ci <= 1 ? null : new Semaphore((int) ci);
+        Map<Integer,Task<?>> submitted = MutableMap.of();
+        Map<Integer,Throwable> errors = new TreeMap<>();
+        for (int i = 0; i < nestedWorkflowContexts.size(); i++) {
             Task<Object> task;
             if (!isReplaying) {
                 task = nestedWorkflowContexts.get(i).getTask(false).get();
@@ -280,7 +303,7 @@ public class CustomWorkflowStep extends WorkflowStepDefinition implements Workfl
                         task = null;
                     }
                 } catch (Exception e) {
-                    errors.add(e);
+                    errors.put(i, e);
                     task = null;
                 }
             }
@@ -290,27 +313,32 @@ public class CustomWorkflowStep extends WorkflowStepDefinition implements Workfl
                     task.cancel(false);
                 } else {
                     if (availableThreads != null) {
-                        availableThreads.decrementAndGet();
-                        ((EntityInternal) context.getEntity()).getExecutionContext().submit(MutableMap.of("newTaskEndCallback", (Runnable) () -> {
-                                    availableThreads.incrementAndGet();
-                                    synchronized (availableThreads) {
-                                        availableThreads.notifyAll();
-                                    }
-                                }),
+                        if (!availableThreads.tryAcquire()) {
+                            try {
+                                Tasks.withBlockingDetails("Waiting before running remaining " + (nestedWorkflowContexts.size() - i) + " instances because " + ci + " are currently running",
+                                        () -> {
+                                            availableThreads.acquire();
+                                            return null;
+                                        });
+                            } catch (Exception e) {
+                                throw Exceptions.propagate(e);
+                            }
+                        }
+                        ((EntityInternal) context.getEntity()).getExecutionContext().submit(MutableMap.of("newTaskEndCallback", (Runnable) availableThreads::release),
                                 task);
                     } else {
                         DynamicTasks.queue(task);
                     }
-                    submitted.add(task);
+                    submitted.put(i, task);
                 }
             }
         }
 
-        submitted.forEach(t -> {
+        submitted.forEach((i, t) -> {
             try {
                 t.get();
             } catch (Throwable tt) {
-                errors.add(tt);
+                errors.put(i, tt);
             }
         });
         nestedWorkflowContexts.forEach(nw -> result.add(nw.getOutput()));
@@ -321,7 +349,7 @@ public class CustomWorkflowStep extends WorkflowStepDefinition implements Workfl
         context.setOutput(result);
 
         if (!errors.isEmpty()) {
-            throw Exceptions.propagate("Error running sub-workflows in "+context.getWorkflowStepReference(), errors);
+            throw Exceptions.propagate("Error running sub-workflows in "+context.getWorkflowStepReference(), errors.values());
         }
 
         return !wasList ? Iterables.getOnlyElement(result) : result;
@@ -373,7 +401,7 @@ public class CustomWorkflowStep extends WorkflowStepDefinition implements Workfl
                 throw new IllegalArgumentException("Not permitted to override '" + forbiddenKey + "' when using a workflow step");
             }
         }
-        if (!"workflow".equals(typeBestGuess)) {
+        if (!isStepsDefinitionPermitted(typeBestGuess)) {
             // custom workflow step
             for (String forbiddenKey : new String[]{"steps"}) {
                 if (m.containsKey(forbiddenKey)) {
@@ -397,6 +425,11 @@ public class CustomWorkflowStep extends WorkflowStepDefinition implements Workfl
         return result;
     }
 
+    /** whether the given type, used to create this step, is permitted to supply its own `steps` (true for the built-in types, false for custom workflow steps) */
+    protected boolean isStepsDefinitionPermitted(String typeBestGuess) {
+        return "workflow".equals(typeBestGuess);
+    }
+
     private WorkflowExecutionContext newWorkflow(WorkflowStepInstanceExecutionContext context, Object target, int targetIndex) {
         if (steps==null) throw new IllegalArgumentException("Cannot make new workflow with no steps");
 
@@ -407,6 +440,7 @@ public class CustomWorkflowStep extends WorkflowStepDefinition implements Workfl
                 ConfigBag.newInstance(getInput()), null);
         if (target!=null) {
             nestedWorkflowContext.getWorkflowScratchVariables().put("target", target);
+            if (Strings.isNonBlank(target_var_name)) nestedWorkflowContext.getWorkflowScratchVariables().put(target_var_name, target);
             nestedWorkflowContext.getWorkflowScratchVariables().put("target_index", targetIndex);
         }
         return nestedWorkflowContext;
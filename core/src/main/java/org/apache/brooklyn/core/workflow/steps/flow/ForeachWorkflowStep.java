@@ -0,0 +1,76 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.brooklyn.core.workflow.steps.flow;
+
+import org.apache.brooklyn.api.mgmt.ManagementContext;
+import org.apache.brooklyn.core.workflow.WorkflowExecutionContext;
+import org.apache.brooklyn.core.workflow.steps.CustomWorkflowStep;
+import org.apache.brooklyn.util.collections.MutableMap;
+import org.apache.brooklyn.util.text.Strings;
+
+import javax.annotation.Nullable;
+
+/**
+ * Runs the nested `steps` once for each element in a list `target`, e.g. `foreach x in ${list}`,
+ * setting the variable named in the shorthand (or `target_var_name`) to the element in each sub-workflow.
+ * Runs sequentially by default; set `concurrency` to run iterations in parallel, as for the `workflow` step.
+ * Output is always a list, in the order of the target, regardless of the order iterations complete.
+ */
+public class ForeachWorkflowStep extends CustomWorkflowStep {
+
+    public static final String SHORTHAND = "${target_var_name} [ \" in \" ${target...} ]";
+
+    @Override
+    public void populateFromShorthand(String value) {
+        if (shorthand!=null) {
+            // custom type defined from foreach with its own shorthand
+            super.populateFromShorthand(value);
+            return;
+        }
+        if (input==null) input = MutableMap.of();
+
+        populateFromShorthandTemplate(SHORTHAND, value);
+
+        target_var_name = (String) input.remove("target_var_name");
+        if (input.containsKey("target")) target = input.remove("target");
+    }
+
+    @Override
+    public void validateStep(@Nullable ManagementContext mgmt, @Nullable WorkflowExecutionContext workflow) {
+        super.validateStep(mgmt, workflow);
+
+        if (target==null) throw new IllegalArgumentException("A `foreach` step requires a `target` to iterate over");
+        if (Strings.isBlank(target_var_name)) throw new IllegalArgumentException("A `foreach` step requires a variable name, e.g. `foreach x in ${list}`");
+    }
+
+    @Override
+    protected boolean isTargetRequiredToBeList() {
+        return true;
+    }
+
+    @Override
+    protected boolean isStepsDefinitionPermitted(String typeBestGuess) {
+        return "foreach".equals(typeBestGuess) || super.isStepsDefinitionPermitted(typeBestGuess);
+    }
+
+    @Override
+    public String getNameOrDefault() {
+        return Strings.isNonBlank(getName()) ? getName() : "foreach";
+    }
+}
@@ -36,9 +36,12 @@ import org.apache.brooklyn.core.enricher.AbstractEnricher;
 import org.apache.brooklyn.core.entity.AbstractEntity;
 import org.apache.brooklyn.core.entity.trait.Changeable;
 import org.apache.brooklyn.util.collections.MutableList;
+import org.apache.brooklyn.util.core.task.ScheduledTask;
+import org.apache.brooklyn.util.core.task.Tasks;
 import org.apache.brooklyn.util.exceptions.Exceptions;
 import org.apache.brooklyn.util.guava.Maybe;
 import org.apache.brooklyn.util.text.StringPredicates;
+import org.apache.brooklyn.util.time.Duration;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -99,6 +102,12 @@ public abstract class AbstractAggregator<T,U> extends AbstractEnricher implement
                     "may only apply if no value filter set", 
             false);
 
+    public static final ConfigKey<Duration> PUBLISH_MIN_PERIOD = ConfigKeys.newConfigKey(
+            Duration.class,
+            "enricher.aggregator.publishMinPeriod",
+            "If set, the minimum time between publishing the target sensor; changes within this period are " +
+                    "published together, as the latest value at the end of the period (default is to publish on every change)");
+
     protected Entity producer;
     protected Sensor<U> targetSensor;
     protected T defaultMemberValue;
@@ -107,6 +116,11 @@ public abstract class AbstractAggregator<T,U> extends AbstractEnricher implement
     protected Boolean fromChildren;
     protected Predicate<? super Entity> entityFilter;
     protected Predicate<? super T> valueFilter;
+    protected Duration publishMinPeriod;
+
+    private final Object publishLock = new Object();
+    private long lastPublishTime;
+    private boolean publishScheduled;
     
     public AbstractAggregator() {}
 
@@ -156,6 +170,7 @@ public abstract class AbstractAggregator<T,U> extends AbstractEnricher implement
         this.fromChildren = Maybe.fromNullable(getConfig(FROM_CHILDREN)).or(fromChildren);
         this.entityFilter = (Predicate<? super Entity>) (getConfig(ENTITY_FILTER) == null ? Predicates.alwaysTrue() : getConfig(ENTITY_FILTER));
         this.valueFilter = (Predicate<? super T>) (getConfig(VALUE_FILTER) == null ? getDefaultValueFilter() : getConfig(VALUE_FILTER));
+        this.publishMinPeriod = getConfig(PUBLISH_MIN_PERIOD);
         
         setEntityLoadingTargetConfig();
     }
@@ -266,8 +281,59 @@ public abstract class AbstractAggregator<T,U> extends AbstractEnricher implement
 
     /**
      * Called whenever the values for the set of producers changes (e.g. on an event, or on a member added/removed).
+     * Publishes immediately, unless {@link #PUBLISH_MIN_PERIOD} is set and the last publication was more recent,
+     * in which case a single publication is scheduled for the end of that period.
      */
     protected void onUpdated() {
+        if (publishMinPeriod == null || !publishMinPeriod.isPositive()) {
+            publish();
+            return;
+        }
+        long delay;
+        synchronized (publishLock) {
+            if (publishScheduled) return;
+            long now = System.currentTimeMillis();
+            delay = lastPublishTime + publishMinPeriod.toMilliseconds() - now;
+            if (delay > 0) {
+                publishScheduled = true;
+            } else {
+                lastPublishTime = now;
+            }
+        }
+        if (delay <= 0) {
+            publish();
+        } else {
+            publishAfterDelay(delay);
+        }
+    }
+
+    private void publishAfterDelay(long delay) {
+        if (LOG.isTraceEnabled()) LOG.trace("{} scheduling publish in {}ms", this, delay);
+        Runnable job = new Runnable() {
+            @Override public void run() {
+                synchronized (publishLock) {
+                    publishScheduled = false;
+                    lastPublishTime = System.currentTimeMillis();
+                }
+                if (!isRunning()) return;
+                try {
+                    publish();
+                } catch (Exception e) {
+                    if (isRunning()) {
+                        LOG.error("Error in enricher "+this+": "+e, e);
+                    } else {
+                        if (LOG.isDebugEnabled()) LOG.debug("Error in enricher "+this+" (but no longer running): "+e, e);
+                    }
+                }
+            }
+        };
+        ScheduledTask task = ScheduledTask.builder(() -> Tasks.builder().body(job).dynamic(false).displayName("Aggregator publish").build())
+            .delay(Duration.millis(delay)).displayName("Aggregator publish after delay").build();
+        getExecutionContext().submit(task);
+    }
+
+    /** Computes and emits the target sensor. */
+    protected void publish() {
         try {
             emit(targetSensor, compute());
         } catch (Throwable t) {
@@ -38,7 +38,6 @@ import org.apache.brooklyn.util.collections.MutableList;
 import org.apache.brooklyn.util.collections.MutableMap;
 import org.apache.brooklyn.util.collections.QuorumCheck.QuorumChecks;
 import org.apache.brooklyn.util.core.flags.SetFromFlag;
-import org.apache.brooklyn.util.exceptions.Exceptions;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -62,7 +61,8 @@ public class Aggregator<T,U> extends AbstractAggregator<T,U> implements SensorEv
             "enricher.transformation.untyped",
             "Specifies a transformation, as a function from a collection to the value, or as a string " +
                     "matching a pre-defined named transformation, such as 'average' (for numbers), " +
-                    "'sum' (for numbers), 'min' (for numbers), 'max' (for numbers), 'isQuorate' (to compute a quorum), " +
+                    "'sum' (for numbers), 'min' (for numbers), 'max' (for numbers), 'count' (of numbers), " +
+                    "'median' or 'percentile:<n>' (for numbers, e.g. 'percentile:95'), 'isQuorate' (to compute a quorum), " +
                     "'list' (the default, putting any collection of items into a list), " +
                     "or 'first' (the first value, or null if empty)");
 
@@ -93,6 +93,12 @@ public class Aggregator<T,U> extends AbstractAggregator<T,U> implements SensorEv
     // We use a synchronizedMap over a ConcurrentHashMap for entities that store null values.
     protected final Map<Entity, T> values = Collections.synchronizedMap(new LinkedHashMap<Entity, T>());
 
+    /**
+     * If the transformation can be computed incrementally, its result for the filtered {@link #values};
+     * updated (synchronized on values) as each value changes rather than recomputed from all of them.
+     */
+    protected MathAggregatorFunctions.Accumulator<?> accumulator;
+
     public Aggregator() {}
 
     @Override
@@ -122,6 +128,10 @@ public class Aggregator<T,U> extends AbstractAggregator<T,U> implements SensorEv
         } else if (t1!=null && !Objects.equals(t2, this.transformation)) {
             throw new IllegalStateException("Cannot supply both "+TRANSFORMATION_UNTYPED+" and "+TRANSFORMATION+" unless they are equal.");
         }
+        
+        if (this.transformation instanceof MathAggregatorFunctions.IncrementalComputingNumber) {
+            this.accumulator = ((MathAggregatorFunctions.IncrementalComputingNumber<?>) (Object) this.transformation).newAccumulator();
+        }
     }
         
     @SuppressWarnings({ "rawtypes", "unchecked" })
@@ -137,6 +147,13 @@ public class Aggregator<T,U> extends AbstractAggregator<T,U> implements SensorEv
             result = MathAggregatorFunctions.computingMin(null, null, (TypeToken<? extends Number>) targetType);
         } else if ("max".equalsIgnoreCase(t1)) {
             result = MathAggregatorFunctions.computingMax(null, null, (TypeToken<? extends Number>) targetType);
+        } else if ("count".equalsIgnoreCase(t1)) {
+            result = MathAggregatorFunctions.computingCount(null, 0, (TypeToken<? extends Number>) targetType);
+        } else if ("median".equalsIgnoreCase(t1)) {
+            result = MathAggregatorFunctions.computingPercentile(50, null, null, (TypeToken<? extends Number>) targetType);
+        } else if (t1.toLowerCase().startsWith("percentile:")) {
+            double percentile = Double.parseDouble(t1.substring("percentile:".length()).trim());
+            result = MathAggregatorFunctions.computingPercentile(percentile, null, null, (TypeToken<? extends Number>) targetType);
         } else if ("isQuorate".equalsIgnoreCase(t1)) {
             result = new Enrichers.ComputingIsQuorate(targetType,
                 QuorumChecks.of(config().get(QUORUM_CHECK_TYPE)), config().get(QUORUM_TOTAL_SIZE));
@@ -203,7 +220,10 @@ public class Aggregator<T,U> extends AbstractAggregator<T,U> implements SensorEv
                 } else {
                     initialVal = null;
                 }
-                values.put(producer, initialVal != null ? initialVal : defaultMemberValue);
+                boolean hadValue = values.containsKey(producer);
+                T newVal = initialVal != null ? initialVal : defaultMemberValue;
+                values.put(producer, newVal);
+                accumulate(hadValue, vo, true, newVal);
                 //we might skip in onEvent in the short window while !values.containsKey(producer)
                 //but that's okay because the put which would have been done there is done here now
             } else {
@@ -216,7 +236,11 @@ public class Aggregator<T,U> extends AbstractAggregator<T,U> implements SensorEv
     
     @Override
     protected void onProducerRemoved(Entity producer) {
-        values.remove(producer);
+        synchronized (values) {
+            if (values.containsKey(producer)) {
+                accumulate(true, values.remove(producer), false, null);
+            }
+        }
         onUpdated();
     }
 
@@ -225,7 +249,8 @@ public class Aggregator<T,U> extends AbstractAggregator<T,U> implements SensorEv
         Entity e = event.getSource();
         synchronized (values) {
             if (values.containsKey(e)) {
-                values.put(e, event.getValue());
+                T oldVal = values.put(e, event.getValue());
+                accumulate(true, oldVal, true, event.getValue());
             } else {
                 if (LOG.isDebugEnabled()) LOG.debug("{} received event for unknown producer ({}); presumably that producer has recently been removed", this, e);
             }
@@ -233,19 +258,17 @@ public class Aggregator<T,U> extends AbstractAggregator<T,U> implements SensorEv
         onUpdated();
     }
 
-    @Override
-    protected void onUpdated() {
-        try {
-            emit(targetSensor, compute());
-        } catch (Throwable t) {
-            LOG.warn("Error calculating and setting aggregate for enricher "+this, t);
-            throw Exceptions.propagate(t);
-        }
+    /** Must be called synchronized on {@link #values}, when the value for a producer is added, changed or removed. */
+    protected void accumulate(boolean hadOldVal, T oldVal, boolean hasNewVal, T newVal) {
+        if (accumulator == null) return;
+        if (hadOldVal && valueFilter.apply(oldVal)) accumulator.remove(oldVal);
+        if (hasNewVal && valueFilter.apply(newVal)) accumulator.add(newVal);
     }
-    
+
     @Override
     protected Object compute() {
         synchronized (values) {
+            if (accumulator != null) return accumulator.get();
             // TODO Could avoid copying when filter not needed
             List<T> vs = MutableList.copyOf(Iterables.filter(values.values(), valueFilter));
             if (transformation==null) return vs;
@@ -263,7 +263,7 @@ public class Enrichers {
                 @SuppressWarnings({ "unchecked", "rawtypes" })
                 public Function<? super Collection<S>, ? extends T> get() {
                     // relies on TypeCoercion of result from Number to T, and type erasure for us to get away with it!
-                    return new ComputingSum((Number)defaultValueForUnreportedSensors, (Number)valueToReportIfNoSensors, publishing.getTypeToken());
+                    return (Function) MathAggregatorFunctions.computingSum((Number)defaultValueForUnreportedSensors, (Number)valueToReportIfNoSensors, (TypeToken) publishing.getTypeToken());
                 }
             };
             return self();
@@ -274,7 +274,7 @@ public class Enrichers {
                 @SuppressWarnings({ "unchecked", "rawtypes" })
                 public Function<? super Collection<S>, ? extends T> get() {
                     // relies on TypeCoercion of result from Number to T, and type erasure for us to get away with it!
-                    return new ComputingAverage((Number)defaultValueForUnreportedSensors, (Number)valueToReportIfNoSensors, publishing.getTypeToken());
+                    return (Function) MathAggregatorFunctions.computingAverage((Number)defaultValueForUnreportedSensors, (Number)valueToReportIfNoSensors, (TypeToken) publishing.getTypeToken());
                 }
             };
             return self();
@@ -20,6 +20,7 @@ package org.apache.brooklyn.enricher.stock;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 
 import javax.annotation.Nullable;
@@ -31,6 +32,10 @@ import org.slf4j.LoggerFactory;
 
 import com.google.common.annotations.Beta;
 import com.google.common.base.Function;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.HashMultiset;
+import com.google.common.collect.Multiset;
+import com.google.common.collect.TreeMultiset;
 import com.google.common.reflect.TypeToken;
 
 @Beta
@@ -38,6 +43,10 @@ public class MathAggregatorFunctions {
 
     private static final Logger LOG = LoggerFactory.getLogger(MathAggregatorFunctions.class);
 
+    /** a value this many times larger than a running sum after adding or removing it may have lost the sum's precision */
+    private static final double SUM_CANCELLATION_RATIO = 1 << 20;
+    private static final int SUM_MIN_UPDATES_BEFORE_RECOMPUTE = 16;
+
     private MathAggregatorFunctions() {}
     
     @Beta
@@ -88,6 +97,42 @@ public class MathAggregatorFunctions {
         return new ComputingMax<T>(defaultValueForUnreportedSensors, valueToReportIfNoSensors, typeToken);
     }
 
+    @Beta
+    public static <T extends Number> Function<Collection<? extends Number>, T> computingCount(
+            Number defaultValueForUnreportedSensors, Number valueToReportIfNoSensors, TypeToken<T> typeToken) {
+        return new ComputingCount<T>(defaultValueForUnreportedSensors, valueToReportIfNoSensors, typeToken);
+    }
+
+    /**
+     * @param percentile between 0 and 100; the result interpolates linearly between the closest ranks
+     */
+    @Beta
+    public static <T extends Number> Function<Collection<? extends Number>, T> computingPercentile(double percentile,
+            Number defaultValueForUnreportedSensors, Number valueToReportIfNoSensors, TypeToken<T> typeToken) {
+        return new ComputingPercentile<T>(percentile, defaultValueForUnreportedSensors, valueToReportIfNoSensors, typeToken);
+    }
+
+    /**
+     * The result of an aggregation, maintained as individual values are added and removed
+     * rather than recomputed from all the values on every change.
+     */
+    @Beta
+    public interface Accumulator<T> {
+        void add(@Nullable Object val);
+        void remove(@Nullable Object val);
+        T get();
+    }
+
+    /**
+     * An aggregation function which can also be computed incrementally; each {@link #newAccumulator()} gives
+     * the same result as {@link #apply(Object)} on the values it holds, updated in at most O(log n) per value
+     * (percentiles are O(n) to read, but without re-sorting).
+     */
+    @Beta
+    public interface IncrementalComputingNumber<T extends Number> extends Function<Collection<? extends Number>, T> {
+        Accumulator<T> newAccumulator();
+    }
+
     @Beta
     protected abstract static class AbstractComputingNumber<T extends Number> implements Function<Collection<? extends Number>, T> {
         protected final Number defaultValueForUnreportedSensors;
@@ -159,10 +204,159 @@ public class MathAggregatorFunctions {
         }
         
         public abstract Number applyImpl(Collection<Number> vals);
+
+        /** Treats each value as {@link #apply(Collection)} does, but keeps only a running result. */
+        protected abstract class BasicAccumulator implements Accumulator<T> {
+            private int count;
+            private boolean loggedNonNumber;
+
+            @Override
+            public synchronized void add(@Nullable Object val) {
+                Maybe<Number> n = toNumber(val, true);
+                if (n.isPresent()) {
+                    count++;
+                    addImpl(n.get().doubleValue());
+                }
+            }
+
+            @Override
+            public synchronized void remove(@Nullable Object val) {
+                Maybe<Number> n = toNumber(val, false);
+                if (n.isPresent() && count > 0) {
+                    count--;
+                    if (count == 0) {
+                        clearImpl();
+                    } else {
+                        removeImpl(n.get().doubleValue());
+                    }
+                }
+            }
+
+            @Override
+            public synchronized T get() {
+                if (count==0) return cast(valueToReportIfNoSensors, typeToken);
+                return cast(getImpl(count), typeToken);
+            }
+
+            private Maybe<Number> toNumber(@Nullable Object val, boolean logIfNonNumber) {
+                Maybe<Number> coercedVal = TypeCoercions.tryCoerce(val, Number.class);
+                if (coercedVal.isPresentAndNonNull()) {
+                    return coercedVal;
+                }
+                if (val != null && logIfNonNumber && !loggedNonNumber) {
+                    loggedNonNumber = true;
+                    LOG.warn("Input to numeric aggregator is not a number: "+val+" ("+val.getClass()+")");
+                }
+                return Maybe.ofDisallowingNull(defaultValueForUnreportedSensors);
+            }
+
+            protected abstract void addImpl(double val);
+            protected abstract void removeImpl(double val);
+            protected abstract void clearImpl();
+            protected abstract Number getImpl(int count);
+        }
+
+        /**
+         * Accumulator for aggregations of the sum. A running sum loses precision when values cancel out (e.g. removing 
+         * 1e17 from 1e17+1 gives 0), and drifts over many updates, so it is recomputed from the values when a value 
+         * is large compared with the resulting sum, and otherwise after as many updates as there are values 
+         * (keeping updates amortised O(1)). NaN and infinite values are counted separately, so the sum recovers once 
+         * they are removed.
+         */
+        protected abstract class SumAccumulator extends BasicAccumulator {
+            private final Multiset<Double> finiteVals = HashMultiset.create();
+            private int nanCount;
+            private int positiveInfinityCount;
+            private int negativeInfinityCount;
+            private double sum;
+            private int updatesSinceRecompute;
+            private boolean stale;
+
+            @Override
+            protected void addImpl(double val) {
+                if (Double.isNaN(val)) {
+                    nanCount++;
+                } else if (val == Double.POSITIVE_INFINITY) {
+                    positiveInfinityCount++;
+                } else if (val == Double.NEGATIVE_INFINITY) {
+                    negativeInfinityCount++;
+                } else {
+                    finiteVals.add(normalize(val));
+                    sum += val;
+                    onSumChanged(val);
+                }
+            }
+
+            @Override
+            protected void removeImpl(double val) {
+                if (Double.isNaN(val)) {
+                    if (nanCount > 0) nanCount--;
+                } else if (val == Double.POSITIVE_INFINITY) {
+                    if (positiveInfinityCount > 0) positiveInfinityCount--;
+                } else if (val == Double.NEGATIVE_INFINITY) {
+                    if (negativeInfinityCount > 0) negativeInfinityCount--;
+                } else if (finiteVals.remove(normalize(val))) {
+                    sum -= val;
+                    onSumChanged(val);
+                }
+            }
+
+            @Override
+            protected void clearImpl() {
+                finiteVals.clear();
+                nanCount = 0;
+                positiveInfinityCount = 0;
+                negativeInfinityCount = 0;
+                sum = 0d;
+                updatesSinceRecompute = 0;
+                stale = false;
+            }
+
+            /** The sum of the values, as {@link ComputingSum#applyImpl(Collection)} would give. */
+            protected double getSum() {
+                if (nanCount > 0 || (positiveInfinityCount > 0 && negativeInfinityCount > 0)) return Double.NaN;
+                if (positiveInfinityCount > 0) return Double.POSITIVE_INFINITY;
+                if (negativeInfinityCount > 0) return Double.NEGATIVE_INFINITY;
+                if (stale) {
+                    double result = 0d;
+                    for (Multiset.Entry<Double> entry : finiteVals.entrySet()) {
+                        for (int i = 0; i < entry.getCount(); i++) {
+                            result += entry.getElement();
+                        }
+                    }
+                    sum = result;
+                    updatesSinceRecompute = 0;
+                    stale = false;
+                }
+                return sum;
+            }
+
+            private void onSumChanged(double val) {
+                updatesSinceRecompute++;
+                if (updatesSinceRecompute > Math.max(finiteVals.size(), SUM_MIN_UPDATES_BEFORE_RECOMPUTE)
+                        || Double.isInfinite(sum) || Math.abs(val) > SUM_CANCELLATION_RATIO * Math.abs(sum)) {
+                    stale = true;
+                }
+            }
+
+            private double normalize(double val) {
+                // so that 0.0 and -0.0 are the same value in the multiset
+                return (val == 0d) ? 0d : val;
+            }
+        }
+
+        /** Accumulator for aggregations that need all the values, kept sorted. */
+        protected abstract class SortedAccumulator extends BasicAccumulator {
+            protected final TreeMultiset<Double> vals = TreeMultiset.create();
+
+            @Override protected void addImpl(double val) { vals.add(val); }
+            @Override protected void removeImpl(double val) { vals.remove(val); }
+            @Override protected void clearImpl() { vals.clear(); }
+        }
     }
 
     @Beta
-    protected static class ComputingSum<T extends Number> extends BasicComputingNumber<T> {
+    protected static class ComputingSum<T extends Number> extends BasicComputingNumber<T> implements IncrementalComputingNumber<T> {
         public ComputingSum(Number defaultValueForUnreportedSensors, Number valueToReportIfNoSensors, TypeToken<T> typeToken) {
             super(defaultValueForUnreportedSensors, valueToReportIfNoSensors, typeToken);
         }
@@ -174,10 +368,36 @@ public class MathAggregatorFunctions {
             }
             return result;
         }
+        @Override
+        public Accumulator<T> newAccumulator() {
+            return new SumAccumulator() {
+                @Override protected Number getImpl(int count) { return getSum(); }
+            };
+        }
+    }
+
+    @Beta
+    protected static class ComputingCount<T extends Number> extends BasicComputingNumber<T> implements IncrementalComputingNumber<T> {
+        public ComputingCount(Number defaultValueForUnreportedSensors, Number valueToReportIfNoSensors, TypeToken<T> typeToken) {
+            super(defaultValueForUnreportedSensors, valueToReportIfNoSensors, typeToken);
+        }
+        @Override
+        public Number applyImpl(Collection<Number> vals) {
+            return vals.size();
+        }
+        @Override
+        public Accumulator<T> newAccumulator() {
+            return new BasicAccumulator() {
+                @Override protected void addImpl(double val) {}
+                @Override protected void removeImpl(double val) {}
+                @Override protected void clearImpl() {}
+                @Override protected Number getImpl(int count) { return count; }
+            };
+        }
     }
 
     @Beta
-    protected static class ComputingAverage<T extends Number> extends BasicComputingNumber<T> {
+    protected static class ComputingAverage<T extends Number> extends BasicComputingNumber<T> implements IncrementalComputingNumber<T> {
         public ComputingAverage(Number defaultValueForUnreportedSensors, Number valueToReportIfNoSensors, TypeToken<T> typeToken) {
             super(defaultValueForUnreportedSensors, valueToReportIfNoSensors, typeToken);
         }
@@ -189,10 +409,16 @@ public class MathAggregatorFunctions {
             }
             return (sum / vals.size());
         }
+        @Override
+        public Accumulator<T> newAccumulator() {
+            return new SumAccumulator() {
+                @Override protected Number getImpl(int count) { return getSum() / count; }
+            };
+        }
     }
 
     @Beta
-    protected static class ComputingMin<T extends Number> extends BasicComputingNumber<T> {
+    protected static class ComputingMin<T extends Number> extends BasicComputingNumber<T> implements IncrementalComputingNumber<T> {
         public ComputingMin(Number defaultValueForUnreportedSensors, Number valueToReportIfNoSensors, TypeToken<T> typeToken) {
             super(defaultValueForUnreportedSensors, valueToReportIfNoSensors, typeToken);
         }
@@ -204,10 +430,16 @@ public class MathAggregatorFunctions {
             }
             return result;
         }
+        @Override
+        public Accumulator<T> newAccumulator() {
+            return new SortedAccumulator() {
+                @Override protected Number getImpl(int count) { return vals.firstEntry().getElement(); }
+            };
+        }
     }
 
     @Beta
-    protected static class ComputingMax<T extends Number> extends BasicComputingNumber<T> {
+    protected static class ComputingMax<T extends Number> extends BasicComputingNumber<T> implements IncrementalComputingNumber<T> {
         public ComputingMax(Number defaultValueForUnreportedSensors, Number valueToReportIfNoSensors, TypeToken<T> typeToken) {
             super(defaultValueForUnreportedSensors, valueToReportIfNoSensors, typeToken);
         }
@@ -219,6 +451,57 @@ public class MathAggregatorFunctions {
             }
             return result;
         }
+        @Override
+        public Accumulator<T> newAccumulator() {
+            return new SortedAccumulator() {
+                @Override protected Number getImpl(int count) { return vals.lastEntry().getElement(); }
+            };
+        }
+    }
+
+    @Beta
+    protected static class ComputingPercentile<T extends Number> extends BasicComputingNumber<T> implements IncrementalComputingNumber<T> {
+        private final double percentile;
+
+        public ComputingPercentile(double percentile, Number defaultValueForUnreportedSensors, Number valueToReportIfNoSensors, TypeToken<T> typeToken) {
+            super(defaultValueForUnreportedSensors, valueToReportIfNoSensors, typeToken);
+            Preconditions.checkArgument(percentile >= 0 && percentile <= 100, "percentile must be between 0 and 100, not %s", percentile);
+            this.percentile = percentile;
+        }
+        @Override
+        public Number applyImpl(Collection<Number> vals) {
+            List<Double> sorted = new ArrayList<>(vals.size());
+            for (Number val : vals) {
+                sorted.add(val.doubleValue());
+            }
+            Collections.sort(sorted);
+            double rank = percentile / 100 * (sorted.size() - 1);
+            int lower = (int) Math.floor(rank);
+            int upper = (int) Math.ceil(rank);
+            return interpolate(sorted.get(lower), sorted.get(upper), rank - lower);
+        }
+        @Override
+        public Accumulator<T> newAccumulator() {
+            return new SortedAccumulator() {
+                @Override protected Number getImpl(int count) {
+                    double rank = percentile / 100 * (count - 1);
+                    int lower = (int) Math.floor(rank);
+                    int upper = (int) Math.ceil(rank);
+                    Double lowerVal = null;
+                    int index = 0;
+                    for (Multiset.Entry<Double> entry : vals.entrySet()) {
+                        index += entry.getCount();
+                        if (lowerVal == null && index > lower) lowerVal = entry.getElement();
+                        if (index > upper) return interpolate(lowerVal, entry.getElement(), rank - lower);
+                    }
+                    // only if values were removed which had not been added
+                    return vals.isEmpty() ? null : vals.lastEntry().getElement();
+                }
+            };
+        }
+        private static double interpolate(double lower, double upper, double fraction) {
+            return lower + (upper - lower) * fraction;
+        }
     }
 
     protected static <N extends Number> N cast(Number n, TypeToken<? extends N> numberType) {
@@ -18,15 +18,13 @@
  */
 package org.apache.brooklyn.enricher.stock;
 
-import java.util.Iterator;
-import java.util.LinkedList;
-
 import org.apache.brooklyn.api.catalog.Catalog;
 import org.apache.brooklyn.api.entity.EntityLocal;
 import org.apache.brooklyn.api.sensor.Sensor;
 import org.apache.brooklyn.api.sensor.SensorEvent;
 import org.apache.brooklyn.config.ConfigKey;
 import org.apache.brooklyn.core.config.ConfigKeys;
+import org.apache.brooklyn.util.collections.TimeWindowedDoubles;
 import org.apache.brooklyn.util.time.Duration;
 
 import com.google.common.base.Function;
@@ -53,6 +51,10 @@ import com.google.common.base.Function;
  * the average is no longer meaningful.
  * <p>
  * The default average when no data has been received is 0, with a confidence of 0
+ * <p>
+ * Values are held in a {@link TimeWindowedDoubles}, so the cost of each event does not grow with
+ * the number of values in the window; set {@link #WINDOW_RESOLUTION} to also bound the memory used
+ * for frequently updated sensors.
  */
 @Catalog(name = "YAML Rolling Average", description = "Transforms sensor data into a rolling average based on a time window.")
 public class YamlRollingTimeWindowMeanEnricher<T extends Number> extends AbstractTransformer<T,Double> {
@@ -63,6 +65,13 @@ public class YamlRollingTimeWindowMeanEnricher<T extends Number> extends Abstrac
             "Duration for which this window should store data, default one minute", 
             Duration.ONE_MINUTE);
 
+    public static ConfigKey<Duration> WINDOW_RESOLUTION = ConfigKeys.newConfigKey(
+            Duration.class, 
+            "enricher.window.resolution",
+            "Values arriving within this period of the previous value are merged into it (as their time-weighted mean), "
+            + "trading accuracy for memory; default zero, keeping every value", 
+            Duration.ZERO);
+
     public static ConfigKey<Double> CONFIDENCE_REQUIRED_TO_PUBLISH = ConfigKeys.newDoubleConfigKey(
             "enricher.window.confidenceRequired",
             "Minimum confidence level (ie period covered) required to publish a rolling average", 
@@ -84,8 +93,7 @@ public class YamlRollingTimeWindowMeanEnricher<T extends Number> extends Abstrac
         
     }
     
-    private final LinkedList<T> values = new LinkedList<T>();
-    private final LinkedList<Long> timestamps = new LinkedList<Long>();
+    private transient TimeWindowedDoubles values;
     volatile ConfidenceQualifiedNumber lastAverage = new ConfidenceQualifiedNumber(0d,0d);
     
     @Override
@@ -105,8 +113,7 @@ public class YamlRollingTimeWindowMeanEnricher<T extends Number> extends Abstrac
                 if (event.getValue()==null) {
                     return null;
                 }
-                values.addLast(event.getValue());
-                timestamps.addLast(eventTime);
+                addValue(event.getValue(), eventTime);
                 if (eventTime>0) {
                     ConfidenceQualifiedNumber average = getAverage(eventTime, 0);
 
@@ -124,71 +131,56 @@ public class YamlRollingTimeWindowMeanEnricher<T extends Number> extends Abstrac
         };
     }
     
-    public ConfidenceQualifiedNumber getAverage(long fromTime, long graceAllowed) {
-        if (timestamps.isEmpty()) {
-            return lastAverage = new ConfidenceQualifiedNumber(lastAverage.value, 0.0d);
-        }
-        
-        long firstTimestamp = -1;
-        Iterator<Long> ti = timestamps.iterator();
-        while (ti.hasNext()) {
-            firstTimestamp = ti.next();
-            if (firstTimestamp>0) break;
-        }
-        if (firstTimestamp<=0) {
-            // no values with reasonable timestamps
-            return lastAverage = new ConfidenceQualifiedNumber(values.get(values.size()-1).doubleValue(), 0.0d);
+    protected synchronized TimeWindowedDoubles getValues() {
+        if (values == null) {
+            values = new TimeWindowedDoubles(getConfig(WINDOW_DURATION), getConfig(WINDOW_RESOLUTION));
         }
+        return values;
+    }
 
-        long lastTimestamp = timestamps.get(timestamps.size()-1);
-
-        long now = fromTime;
-        if (lastTimestamp > fromTime - graceAllowed) {
-            // without this, if the computation takes place X seconds after the publish,
-            // we treat X seconds as time for which we have no confidence in the data
-            now = lastTimestamp;
+    protected void addValue(Number value, long timestamp) {
+        TimeWindowedDoubles values = getValues();
+        if (timestamp > 0 && values.getLastTimestamp() <= 0) {
+            // discard values without reasonable timestamps, now that we have one
+            values.clear();
         }
-        pruneValues(now);
-        
+        values.add(value.doubleValue(), timestamp);
+    }
+
+    public ConfidenceQualifiedNumber getAverage(long fromTime, long graceAllowed) {
+        TimeWindowedDoubles values = getValues();
         Duration timePeriod = getConfig(WINDOW_DURATION);
-        long windowStart = Math.max(now-timePeriod.toMilliseconds(), firstTimestamp);
-        long windowEnd = Math.max(now-timePeriod.toMilliseconds(), lastTimestamp);
-        Double confidence = ((double)(windowEnd - windowStart)) / timePeriod.toMilliseconds();
-        if (confidence <= 0.0000001d) {
-            // not enough timestamps in window 
-            double lastValue = values.get(values.size()-1).doubleValue();
-            return lastAverage = new ConfidenceQualifiedNumber(lastValue, 0.0d);
-        }
+        values.setWindow(timePeriod);
         
-        long start = windowStart;
-        long end;
-        double weightedAverage = 0.0d;
-        
-        Iterator<T> valuesIter = values.iterator();
-        Iterator<Long> timestampsIter = timestamps.iterator();
-        while (valuesIter.hasNext()) {
-            // Ignores null and out-of-date values (and also values that are received out-of-order, but that shouldn't happen!)
-            Number val = valuesIter.next();
-            Long timestamp = timestampsIter.next();
-            if (val!=null && timestamp >= start) {
-                end = timestamp;
-                weightedAverage += ((end - start) / (confidence * timePeriod.toMilliseconds())) * val.doubleValue();
-                start = timestamp;
+        synchronized (values) {
+            if (values.isEmpty()) {
+                return lastAverage = new ConfidenceQualifiedNumber(lastAverage.value, 0.0d);
             }
-        }
-        
-        return lastAverage = new ConfidenceQualifiedNumber(weightedAverage, confidence);
-    }
-    
-    /**
-     * Discards out-of-date values, but keeps at least one value.
-     */
-    private void pruneValues(long now) {
-        // keep one value from before the period, so that we can tell the window's start time
-        Duration timePeriod = getConfig(WINDOW_DURATION);
-        while(timestamps.size() > 1 && timestamps.get(1) < (now - timePeriod.toMilliseconds())) {
-            timestamps.removeFirst();
-            values.removeFirst();
+            
+            long lastTimestamp = values.getLastTimestamp();
+            if (lastTimestamp<=0) {
+                // no values with reasonable timestamps
+                return lastAverage = new ConfidenceQualifiedNumber(values.getLastValue(), 0.0d);
+            }
+            
+            long now = fromTime;
+            if (lastTimestamp > fromTime - graceAllowed) {
+                // without this, if the computation takes place X seconds after the publish,
+                // we treat X seconds as time for which we have no confidence in the data
+                now = lastTimestamp;
+            }
+            // discards out-of-date values, but keeps one value from before the period, so that we can tell the window's start time
+            values.prune(now);
+            
+            long windowStart = Math.max(now-timePeriod.toMilliseconds(), values.getFirstTimestamp());
+            long windowEnd = Math.max(now-timePeriod.toMilliseconds(), lastTimestamp);
+            Double confidence = ((double)(windowEnd - windowStart)) / timePeriod.toMilliseconds();
+            if (confidence <= 0.0000001d) {
+                // not enough timestamps in window 
+                return lastAverage = new ConfidenceQualifiedNumber(values.getLastValue(), 0.0d);
+            }
+            
+            return lastAverage = new ConfidenceQualifiedNumber(values.getMeanSince(windowStart), confidence);
         }
     }
 }
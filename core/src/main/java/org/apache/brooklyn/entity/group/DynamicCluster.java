@@ -208,6 +208,16 @@ public interface DynamicCluster extends AbstractGroup, Cluster, MemberReplaceabl
             .defaultValue(0)
             .build();
 
+    @Beta
+    @SetFromFlag("resizeWaveSize")
+    ConfigKey<Integer> RESIZE_WAVE_SIZE = ConfigKeys.builder(Integer.class)
+            .name("dynamiccluster.resize.waveSize")
+            .description("[Beta] If set, growing the cluster creates members in parallel and starts them in waves of at most this " +
+                    "many (with starts still bounded by maxConcurrentChildCommands); the cluster's mutex is then held only while " +
+                    "choosing locations and members, so shrinks and replacements of other members can proceed concurrently. " +
+                    "Any value null or less than or equal to zero means members are created one at a time and started together")
+            .build();
+
     AttributeSensor<List<Location>> SUB_LOCATIONS = new BasicAttributeSensor<List<Location>>(
             new TypeToken<List<Location>>() {},
             "dynamiccluster.subLocations", "Locations for each availability zone to use");
@@ -225,6 +235,12 @@ public interface DynamicCluster extends AbstractGroup, Cluster, MemberReplaceabl
     AttributeSensor<Boolean> CLUSTER_ONE_AND_ALL_MEMBERS_UP = Sensors.newBooleanSensor(
             "cluster.one_and_all.members.up", "True if the cluster is running, there is at least one member, and all members are service.isUp");
 
+    AttributeSensor<Integer> MEMBERS_STARTING = Sensors.newIntegerSensor(
+            "dynamiccluster.members.starting", "Number of members currently being created or started by a resize or replacement");
+
+    AttributeSensor<Integer> MEMBERS_STOPPING = Sensors.newIntegerSensor(
+            "dynamiccluster.members.stopping", "Number of members currently being stopped by a resize or replacement");
+
     /**
      * Changes the cluster size by the given number.
      *
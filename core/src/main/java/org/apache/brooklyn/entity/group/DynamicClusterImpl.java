@@ -41,6 +41,7 @@ import org.apache.brooklyn.api.entity.Entity;
 import org.apache.brooklyn.api.entity.EntitySpec;
 import org.apache.brooklyn.api.entity.Group;
 import org.apache.brooklyn.api.location.Location;
+import org.apache.brooklyn.api.location.MachineManagementMixins.ProvisionsMachinesInBatches;
 import org.apache.brooklyn.api.location.MachineProvisioningLocation;
 import org.apache.brooklyn.api.location.NoMachinesAvailableException;
 import org.apache.brooklyn.api.mgmt.Task;
@@ -92,12 +93,15 @@ import com.google.common.base.Predicates;
 import com.google.common.base.Supplier;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableMultiset;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Iterables;
 import com.google.common.collect.LinkedHashMultimap;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Multimap;
+import com.google.common.collect.Multimaps;
+import com.google.common.collect.Multiset;
 import com.google.common.collect.Sets;
 import com.google.common.reflect.TypeToken;
 import com.google.common.util.concurrent.ListenableFuture;
@@ -172,6 +176,12 @@ public class DynamicClusterImpl extends AbstractGroupImpl implements DynamicClus
      */
     protected final Object mutex = new Object[0];
 
+    /** Members chosen by a {@link #RESIZE_WAVE_SIZE resize in waves} but not yet created, so not yet in {@link #getCurrentSize()}. */
+    private final AtomicInteger pendingAdditions = new AtomicInteger();
+
+    /** Members being replaced outside of the {@link #mutex}, so not to be picked by concurrent shrinks or replacements. */
+    private final Set<Entity> membersBeingReplaced = Sets.newConcurrentHashSet();
+
     /** @deprecated since 0.10.0 uses DefaultRemovalStrategy instead. Maintained for rebinding */
     @Deprecated
     private static final Function<Collection<Entity>, Entity> defaultRemovalStrategy = new Function<Collection<Entity>, Entity>() {
@@ -625,32 +635,58 @@ public class DynamicClusterImpl extends AbstractGroupImpl implements DynamicClus
 
     @Override
     public Integer resize(Integer desiredSize) {
+        int waveSize = getResizeWaveSize();
+        if (waveSize > 0) {
+            try {
+                resizeInWaves(desiredSize, 0, waveSize);
+            } catch (Exception e) {
+                throw propagateResizeFailure(e);
+            }
+            return getCurrentSize();
+        }
         synchronized (mutex) {
             int originalSize = getCurrentSize();
             int delta = desiredSize - originalSize;
-            if (delta != 0) {
-                LOG.info("Resize {} from {} to {}", new Object[] {this, originalSize, desiredSize});
-            } else {
-                if (LOG.isDebugEnabled()) LOG.debug("Resize no-op {} from {} to {}", new Object[] {this, originalSize, desiredSize});
-            }
-            // If we managed to grow at all, then expect no exception.
-            // Otherwise, if failed because NoMachinesAvailable, then propagate as InsufficientCapacityException.
-            // This tells things like the AutoScalerPolicy to not keep retrying.
+            logResize(originalSize, desiredSize);
             try {
-                resizeByDelta(delta);
+                resizeByDelta(delta, waveSize);
             } catch (Exception e) {
-                Exceptions.propagateIfFatal(e);
-                NoMachinesAvailableException nmae = Exceptions.getFirstThrowableOfType(e, NoMachinesAvailableException.class);
-                if (nmae != null) {
-                    throw new Resizable.InsufficientCapacityException("Failed to resize", e);
-                } else {
-                    throw Exceptions.propagate(e);
-                }
+                throw propagateResizeFailure(e);
             }
         }
         return getCurrentSize();
     }
 
+    private void logResize(int originalSize, int desiredSize) {
+        if (desiredSize != originalSize) {
+            LOG.info("Resize {} from {} to {}", new Object[] {this, originalSize, desiredSize});
+        } else {
+            if (LOG.isDebugEnabled()) LOG.debug("Resize no-op {} from {} to {}", new Object[] {this, originalSize, desiredSize});
+        }
+    }
+
+    private RuntimeException propagateResizeFailure(Exception e) {
+        // If we managed to grow at all, then expect no exception.
+        // Otherwise, if failed because NoMachinesAvailable, then propagate as InsufficientCapacityException.
+        // This tells things like the AutoScalerPolicy to not keep retrying.
+        Exceptions.propagateIfFatal(e);
+        NoMachinesAvailableException nmae = Exceptions.getFirstThrowableOfType(e, NoMachinesAvailableException.class);
+        if (nmae != null) {
+            throw new Resizable.InsufficientCapacityException("Failed to resize", e);
+        } else {
+            throw Exceptions.propagate(e);
+        }
+    }
+
+    /**
+     * @return the {@link #RESIZE_WAVE_SIZE}, or 0 if members should not be added in waves; read once per
+     *         operation, so that a concurrent change to the config does not apply to only part of it
+     */
+    protected int getResizeWaveSize() {
+        Integer result = config().get(RESIZE_WAVE_SIZE);
+        return (result == null || result <= 0) ? 0 : result;
+    }
+
     /**
      * {@inheritDoc}
      *
@@ -665,12 +701,13 @@ public class DynamicClusterImpl extends AbstractGroupImpl implements DynamicClus
             throw new NoSuchElementException("In "+this+", entity "+memberId+" cannot be resolved, so not replacing");
         }
 
+        Location memberLoc = null;
+        boolean inWaves = getResizeWaveSize() > 0;
         synchronized (mutex) {
             if (!getMembers().contains(member)) {
                 throw new NoSuchElementException("In "+this+", entity "+member+" is not a member so not replacing");
             }
 
-            Location memberLoc = null;
             if (isAvailabilityZoneEnabled()) {
                 // this member's location could be a machine provisioned by a sub-location, or the actual sub-location
                 List<Location> subLocations = findSubLocations(getLocation(true));
@@ -707,8 +744,20 @@ public class DynamicClusterImpl extends AbstractGroupImpl implements DynamicClus
                 memberLoc = getLocation(false);
             }
 
-            Entity replacement = replaceMember(member, memberLoc, ImmutableMap.of());
+            if (!inWaves) {
+                Entity replacement = replaceMemberUnsynchronized(member, memberLoc, ImmutableMap.of());
+                return replacement.getId();
+            }
+            // otherwise replace it without the mutex, so that other members can be replaced or removed concurrently
+            if (!membersBeingReplaced.add(member)) {
+                throw new IllegalStateException("In "+this+", entity "+member+" is already being replaced");
+            }
+        }
+        try {
+            Entity replacement = replaceMemberUnsynchronized(member, memberLoc, ImmutableMap.of());
             return replacement.getId();
+        } finally {
+            membersBeingReplaced.remove(member);
         }
     }
 
@@ -716,25 +765,32 @@ public class DynamicClusterImpl extends AbstractGroupImpl implements DynamicClus
      * @throws StopFailedRuntimeException If stop failed, after successfully starting replacement
      */
     protected Entity replaceMember(Entity member, @Nullable Location memberLoc, Map<?, ?> extraFlags) {
+        if (getResizeWaveSize() > 0) {
+            return replaceMemberUnsynchronized(member, memberLoc, extraFlags);
+        }
         synchronized (mutex) {
-            ReferenceWithError<Optional<Entity>> added = addInSingleLocation(memberLoc, extraFlags);
+            return replaceMemberUnsynchronized(member, memberLoc, extraFlags);
+        }
+    }
 
-            if (!added.getWithoutError().isPresent()) {
-                String msg = String.format("In %s, failed to grow, to replace %s; not removing", this, member);
-                if (added.hasError())
-                    throw new IllegalStateException(msg, added.getError());
-                throw new IllegalStateException(msg);
-            }
+    private Entity replaceMemberUnsynchronized(Entity member, @Nullable Location memberLoc, Map<?, ?> extraFlags) {
+        ReferenceWithError<Optional<Entity>> added = addInSingleLocation(memberLoc, extraFlags);
 
-            try {
-                stopAndRemoveNode(member);
-            } catch (Exception e) {
-                Exceptions.propagateIfFatal(e);
-                throw new StopFailedRuntimeException("replaceMember failed to stop and remove old member "+member.getId(), e);
-            }
+        if (!added.getWithoutError().isPresent()) {
+            String msg = String.format("In %s, failed to grow, to replace %s; not removing", this, member);
+            if (added.hasError())
+                throw new IllegalStateException(msg, added.getError());
+            throw new IllegalStateException(msg);
+        }
 
-            return added.getWithError().get();
+        try {
+            stopAndRemoveNode(member);
+        } catch (Exception e) {
+            Exceptions.propagateIfFatal(e);
+            throw new StopFailedRuntimeException("replaceMember failed to stop and remove old member "+member.getId(), e);
         }
+
+        return added.getWithError().get();
     }
 
     protected Multimap<Location, Entity> getMembersByLocation() {
@@ -786,6 +842,13 @@ public class DynamicClusterImpl extends AbstractGroupImpl implements DynamicClus
      */
     @Override
     public Collection<Entity> resizeByDelta(int delta) {
+        return resizeByDelta(delta, getResizeWaveSize());
+    }
+
+    private Collection<Entity> resizeByDelta(int delta, int waveSize) {
+        if (waveSize > 0) {
+            return resizeInWaves(null, delta, waveSize);
+        }
         synchronized (mutex) {
             if (delta > 0) {
                 return grow(delta);
@@ -799,10 +862,25 @@ public class DynamicClusterImpl extends AbstractGroupImpl implements DynamicClus
 
     /** <strong>Note</strong> for sub-classes; this method can be called while synchronized on {@link #mutex}. */
     protected Collection<Entity> grow(int delta) {
+        List<Location> chosenLocations = chooseLocationsForGrowth(delta);
+
+        // create and start the entities.
+        // if any fail, then propagate the error.
+        ReferenceWithError<Collection<Entity>> result = addInEachLocation(chosenLocations, ImmutableMap.of());
+        return result.getWithError();
+    }
+
+    /**
+     * Chooses the locations for {@code delta} new members (a null location meaning the member spec's own),
+     * capped at {@link #MAX_SIZE}.
+     * <p>
+     * <strong>Note</strong> for sub-classes; this method is called while synchronized on {@link #mutex}.
+     */
+    protected List<Location> chooseLocationsForGrowth(int delta) {
         Preconditions.checkArgument(delta > 0, "Must call grow with positive delta.");
         Integer maxSize = config().get(MAX_SIZE);
         if (maxSize != null) {
-            Integer currentSize = getCurrentSize();
+            Integer currentSize = getCurrentSize() + pendingAdditions.get();
             final int desiredSize = currentSize + delta;
             if (currentSize >= maxSize) {
                 throw new Resizable.InsufficientCapacityException(
@@ -842,10 +920,90 @@ public class DynamicClusterImpl extends AbstractGroupImpl implements DynamicClus
             chosenLocations = Collections.nCopies(delta, getLocation(false));
         }
 
-        // create and start the entities.
-        // if any fail, then propagate the error.
-        ReferenceWithError<Collection<Entity>> result = addInEachLocation(chosenLocations, ImmutableMap.of());
-        return result.getWithError();
+        // let locations which can create several machines at once know how many to expect
+        for (Multiset.Entry<Location> entry : ImmutableMultiset.copyOf(Iterables.filter(chosenLocations, Predicates.notNull())).entrySet()) {
+            if (entry.getElement() instanceof ProvisionsMachinesInBatches) {
+                ((ProvisionsMachinesInBatches) entry.getElement()).expectObtains(entry.getCount());
+            }
+        }
+        return chosenLocations;
+    }
+
+    /**
+     * Resizes either to {@code desiredSize} (if non-null) or by {@code delta}, holding the {@link #mutex} only while
+     * choosing the locations of new members or picking the members to remove. New members are then created in
+     * parallel and started in waves of {@code waveSize}, and removed members stopped, without holding it.
+     */
+    protected Collection<Entity> resizeInWaves(@Nullable Integer desiredSize, int delta, int waveSize) {
+        List<Location> chosenLocations = ImmutableList.of();
+        Collection<Entity> removedEntities = ImmutableList.of();
+        synchronized (mutex) {
+            if (desiredSize != null) {
+                int originalSize = getCurrentSize() + pendingAdditions.get();
+                delta = desiredSize - originalSize;
+                logResize(originalSize, desiredSize);
+            }
+            if (delta > 0) {
+                chosenLocations = chooseLocationsForGrowth(delta);
+                pendingAdditions.addAndGet(chosenLocations.size());
+                adjustInFlight(MEMBERS_STARTING, chosenLocations.size());
+            } else if (delta < 0) {
+                removedEntities = pickAndRemoveMembers(Math.min(-delta, getCurrentSize()));
+            }
+        }
+        if (!chosenLocations.isEmpty()) {
+            return growInWaves(chosenLocations, waveSize);
+        } else if (!removedEntities.isEmpty()) {
+            return stopRemovedMembers(removedEntities);
+        } else {
+            return ImmutableList.<Entity>of();
+        }
+    }
+
+    /**
+     * Creates and starts members in the given locations, a wave at a time, stopping early if a wave has no successes.
+     * Expects {@link #pendingAdditions} and {@link #MEMBERS_STARTING} to already include all these locations.
+     */
+    private Collection<Entity> growInWaves(List<Location> locations, int waveSize) {
+        List<Entity> added = Lists.newArrayList();
+        List<Throwable> errors = Lists.newArrayList();
+        int notCreated = locations.size();
+        int notStarted = locations.size();
+        try {
+            for (List<Location> wave : Lists.partition(locations, waveSize)) {
+                Map<Entity, Location> created;
+                try {
+                    created = createNodes(wave, ImmutableMap.of(), true);
+                } finally {
+                    notCreated -= wave.size();
+                    pendingAdditions.addAndGet(-wave.size());
+                }
+                ReferenceWithError<Collection<Entity>> result = startNodes(created);
+                notStarted -= wave.size();
+                adjustInFlight(MEMBERS_STARTING, -wave.size());
+
+                added.addAll(result.getWithoutError());
+                if (result.hasError()) {
+                    errors.add(result.getError());
+                    if (result.getWithoutError().isEmpty()) {
+                        LOG.warn("Cluster {} failed to start any of a wave of {} members; not starting remaining {}", new Object[] {this, wave.size(), notStarted});
+                        break;
+                    }
+                }
+            }
+        } finally {
+            pendingAdditions.addAndGet(-notCreated);
+            adjustInFlight(MEMBERS_STARTING, -notStarted);
+        }
+        if (errors.isEmpty()) {
+            return added;
+        }
+        throw Exceptions.propagate(Exceptions.create(errors));
+    }
+
+    private void adjustInFlight(AttributeSensor<Integer> sensor, final int delta) {
+        if (delta == 0) return;
+        sensors().modify(sensor, (Integer old) -> Maybe.of((old == null ? 0 : old) + delta));
     }
 
     /** <strong>Note</strong> for sub-clases; this method can be called while synchronized on {@link #mutex}. */
@@ -861,13 +1019,19 @@ public class DynamicClusterImpl extends AbstractGroupImpl implements DynamicClus
         if (delta==0) return ImmutableList.<Entity>of();
 
         Collection<Entity> removedEntities = pickAndRemoveMembers(delta * -1);
+        return stopRemovedMembers(removedEntities);
+    }
 
+    /** Stops (in parallel, throttled) and then discards members already removed by {@link #pickAndRemoveMembers(int)}. */
+    @SuppressWarnings("unchecked")
+    protected Collection<Entity> stopRemovedMembers(Collection<Entity> removedEntities) {
         // FIXME symmetry in order of added as child, managed, started, and added to group
         final Iterable<Entity> removedStartables = (Iterable<Entity>) (Iterable<?>) Iterables.filter(removedEntities, Startable.class);
         ImmutableList.Builder<Task<?>> tasks = ImmutableList.builder();
         for (Entity member : removedStartables) {
             tasks.add(newThrottledEffectorTask(member, Startable.STOP, Collections.emptyMap()));
         }
+        adjustInFlight(MEMBERS_STOPPING, removedEntities.size());
         try {
             DynamicTasks.get( Tasks.parallel(tasks.build()) );
             return removedEntities;
@@ -877,6 +1041,7 @@ public class DynamicClusterImpl extends AbstractGroupImpl implements DynamicClus
             for (Entity removedEntity : removedEntities) {
                 discardNode(removedEntity);
             }
+            adjustInFlight(MEMBERS_STOPPING, -removedEntities.size());
         }
     }
 
@@ -896,14 +1061,75 @@ public class DynamicClusterImpl extends AbstractGroupImpl implements DynamicClus
     }
 
     protected ReferenceWithError<Collection<Entity>> addInEachLocation(Iterable<Location> locations, Map<?,?> flags) {
-        List<Entity> addedEntities = Lists.newArrayList();
-        Map<Entity, Location> addedEntityLocations = Maps.newLinkedHashMap();
+        List<Location> locationsList = Lists.newArrayList(locations);
+        adjustInFlight(MEMBERS_STARTING, locationsList.size());
+        try {
+            return startNodes(createNodes(locationsList, flags, false));
+        } finally {
+            adjustInFlight(MEMBERS_STARTING, -locationsList.size());
+        }
+    }
+
+    /**
+     * Adds a node in each location, returning each node's location. If {@code parallel} (when
+     * {@link #RESIZE_WAVE_SIZE resizing in waves}) the nodes are created in parallel, except for the first member
+     * of an empty cluster which is created before the rest. If any creation fails, the nodes that were created are discarded.
+     */
+    protected Map<Entity, Location> createNodes(List<Location> locations, final Map<?,?> flags, boolean parallel) {
+        Map<Entity, Location> result = Maps.newLinkedHashMap();
+        List<Location> remaining = locations;
+        if (parallel && locations.size() > 1) {
+            synchronized (mutex) {
+                if (getMembers().isEmpty()) {
+                    // the first member may use a different spec, and be needed by the others when they start
+                    Location loc = locations.get(0);
+                    result.put(addNode(loc, flags), loc);
+                    remaining = locations.subList(1, locations.size());
+                }
+            }
+            List<Task<Entity>> tasks = Lists.newArrayList();
+            for (final Location loc : remaining) {
+                tasks.add(Tasks.<Entity>builder().displayName("creating node"+(loc != null ? " in "+loc : ""))
+                        .body(new Callable<Entity>() {
+                            @Override public Entity call() {
+                                return addNode(loc, flags);
+                            }
+                        }).build());
+            }
+            Task<List<?>> creation = Tasks.parallel("creating "+tasks.size()+" node"+Strings.s(tasks.size())+" (parallel)", tasks);
+            TaskTags.markInessential(creation);
+            DynamicTasks.queueIfPossible(creation).orSubmitAsync(this);
+
+            Exception failure = null;
+            for (int i = 0; i < tasks.size(); i++) {
+                try {
+                    result.put(tasks.get(i).get(), remaining.get(i));
+                } catch (Exception e) {
+                    Exceptions.propagateIfFatal(e);
+                    if (failure == null) failure = e;
+                }
+            }
+            if (failure != null) {
+                LOG.warn("Cluster "+this+" failed to create node; discarding the "+result.size()+" created: "+failure);
+                cleanupFailedNodes(result.keySet());
+                throw Exceptions.propagate(failure);
+            }
+        } else {
+            for (Location loc : locations) {
+                result.put(addNode(loc, flags), loc);
+            }
+        }
+        return result;
+    }
+
+    /** Starts the given nodes (in parallel, throttled), quarantining or cleaning up any that fail. */
+    protected ReferenceWithError<Collection<Entity>> startNodes(Map<Entity, Location> addedEntityLocations) {
+        List<Entity> addedEntities = Lists.newArrayList(addedEntityLocations.keySet());
         Map<Entity, Task<?>> tasks = Maps.newLinkedHashMap();
 
-        for (Location loc : locations) {
-            Entity entity = addNode(loc, flags);
-            addedEntities.add(entity);
-            addedEntityLocations.put(entity, loc);
+        for (Map.Entry<Entity, Location> entry : addedEntityLocations.entrySet()) {
+            Entity entity = entry.getKey();
+            Location loc = entry.getValue();
             if (entity instanceof Startable) {
                 // First members are used when subsequent members need some attributes from them
                 // before they start; make sure they're in the first batch.
@@ -1010,6 +1236,17 @@ public class DynamicClusterImpl extends AbstractGroupImpl implements DynamicClus
 
     @Override
     public Entity addNode(@Nullable Location loc, Map<?, ?> extraFlags) {
+        synchronized (mutex) {
+            // the first member may use a different spec (see createNode), so create it with the mutex held
+            // until it is a member, so that nodes being added concurrently do not also see an empty cluster
+            if (getMembers().isEmpty()) {
+                return addNodeUnsynchronized(loc, extraFlags);
+            }
+        }
+        return addNodeUnsynchronized(loc, extraFlags);
+    }
+
+    private Entity addNodeUnsynchronized(@Nullable Location loc, Map<?, ?> extraFlags) {
         // In case subclasses are foolish and do not call super.init() when overriding.
         initialiseMemberId();
         Map<?, ?> createFlags = MutableMap.builder()
@@ -1063,6 +1300,11 @@ public class DynamicClusterImpl extends AbstractGroupImpl implements DynamicClus
 
         if (isAvailabilityZoneEnabled()) {
             Multimap<Location, Entity> membersByLocation = getMembersByLocation();
+            if (!membersBeingReplaced.isEmpty()) {
+                Multimap<Location, Entity> notBeingReplaced = LinkedHashMultimap.create(
+                        Multimaps.filterValues(membersByLocation, Predicates.not(Predicates.in(membersBeingReplaced))));
+                if (notBeingReplaced.size() >= delta) membersByLocation = notBeingReplaced;
+            }
             List<Entity> entities = getZonePlacementStrategy().entitiesToRemove(membersByLocation, delta);
 
             Preconditions.checkState(entities.size() == delta, "Incorrect num entity chosen for removal from %s (%s when expected %s)",
@@ -1090,6 +1332,11 @@ public class DynamicClusterImpl extends AbstractGroupImpl implements DynamicClus
         // TODO inefficient impl
         Collection<Entity> members = getMembers();
         if (members.isEmpty()) return Maybe.absent();
+        if (!membersBeingReplaced.isEmpty()) {
+            // prefer members not concurrently being replaced
+            Collection<Entity> notBeingReplaced = MutableList.copyOf(Iterables.filter(members, Predicates.not(Predicates.in(membersBeingReplaced))));
+            if (!notBeingReplaced.isEmpty()) members = notBeingReplaced;
+        }
 
         if (LOG.isDebugEnabled()) LOG.debug("Removing a node from {}", this);
         Entity entity = getRemovalStrategy().apply(members);
@@ -1111,6 +1358,7 @@ public class DynamicClusterImpl extends AbstractGroupImpl implements DynamicClus
 
     protected void stopAndRemoveNode(Entity member) {
         removeMember(member);
+        adjustInFlight(MEMBERS_STOPPING, 1);
         try {
             if (member instanceof Startable) {
                 Task<?> task = newThrottledEffectorTask(member, Startable.STOP, Collections.<String, Object>emptyMap());
@@ -1118,6 +1366,7 @@ public class DynamicClusterImpl extends AbstractGroupImpl implements DynamicClus
             }
         } finally {
             Entities.unmanage(member);
+            adjustInFlight(MEMBERS_STOPPING, -1);
         }
     }
 
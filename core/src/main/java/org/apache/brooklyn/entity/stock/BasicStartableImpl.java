@@ -25,6 +25,7 @@ import java.util.List;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.google.common.base.Function;
 import com.google.common.base.Predicates;
 import com.google.common.collect.Iterables;
 import com.google.common.collect.Lists;
@@ -42,28 +43,39 @@ import org.apache.brooklyn.core.entity.trait.Startable;
 import org.apache.brooklyn.core.entity.trait.StartableMethods;
 import org.apache.brooklyn.core.location.Locations;
 import org.apache.brooklyn.util.collections.QuorumCheck;
+import org.apache.brooklyn.util.core.task.DynamicTasks;
 import org.apache.brooklyn.util.exceptions.Exceptions;
+import org.apache.brooklyn.util.guava.Maybe;
 
 public class BasicStartableImpl extends AbstractStartableImpl implements BasicStartable {
 
     private static final Logger log = LoggerFactory.getLogger(BasicStartableImpl.class);
 
     @Override
-    protected void doStart(Collection<? extends Location> locations) {
+    protected void doStart(final Collection<? extends Location> locations) {
         // essentially does StartableMethods.start(this, locations),
         // but optionally filters locations for each child
 
-        Locations.LocationsFilter filter = getConfig(LOCATIONS_FILTER);
+        final Locations.LocationsFilter filter = getConfig(LOCATIONS_FILTER);
         Iterable<Entity> startables = StartableMethods.filterStartableManagedEntities(getChildren());
         if (!Iterables.isEmpty(startables)) {
+            Function<Entity, Collection<? extends Location>> childLocations = new Function<Entity, Collection<? extends Location>>() {
+                @Override
+                public Collection<? extends Location> apply(Entity entity) {
+                    if (filter == null) return locations;
+                    Collection<? extends Location> l2 = filter.filterForContext(new ArrayList<Location>(locations), entity);
+                    log.debug("Child " + entity + " of " + BasicStartableImpl.this + " being started in filtered location list: " + l2);
+                    return l2;
+                }
+            };
+            Maybe<Task<Void>> ordered = StartableMethods.startingChildrenInDependencyOrder(this, startables, childLocations);
+            if (ordered.isPresent()) {
+                DynamicTasks.get(ordered.get(), this);
+                return;
+            }
             List<Task<?>> tasks = Lists.newArrayListWithCapacity(Iterables.size(startables));
             for (final Entity entity : startables) {
-                Collection<? extends Location> l2 = locations;
-                if (filter != null) {
-                    l2 = filter.filterForContext(new ArrayList<Location>(locations), entity);
-                    log.debug("Child " + entity + " of " + this + " being started in filtered location list: " + l2);
-                }
-                tasks.add(Entities.invokeEffectorWithArgs(this, entity, Startable.START, l2));
+                tasks.add(Entities.invokeEffectorWithArgs(this, entity, Startable.START, childLocations.apply(entity)));
             }
             for (Task<?> t : tasks) {
                 t.getUnchecked();
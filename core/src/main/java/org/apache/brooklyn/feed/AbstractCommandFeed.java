@@ -189,7 +189,7 @@ public abstract class AbstractCommandFeed extends AbstractFeed {
         }
     }
     
-    private static class CommandPollIdentifier {
+    protected static class CommandPollIdentifier {
         final Supplier<String> command;
         final Supplier<Map<String, String>> env;
 
@@ -198,6 +198,14 @@ public abstract class AbstractCommandFeed extends AbstractFeed {
             this.env = checkNotNull(env, "env");
         }
 
+        public Supplier<String> getCommandSupplier() {
+            return command;
+        }
+
+        public Supplier<Map<String, String>> getEnvSupplier() {
+            return env;
+        }
+
         @Override
         public int hashCode() {
             return Objects.hashCode(command, env);
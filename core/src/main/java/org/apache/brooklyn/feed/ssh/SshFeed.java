@@ -18,15 +18,28 @@
  */
 package org.apache.brooklyn.feed.ssh;
 
+import com.google.common.annotations.VisibleForTesting;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.LinkedHashMultimap;
 import com.google.common.collect.Lists;
+import com.google.common.collect.SetMultimap;
+import com.google.common.primitives.Ints;
 import org.apache.brooklyn.api.mgmt.TaskAdaptable;
 import org.apache.brooklyn.api.mgmt.TaskFactory;
 import org.apache.brooklyn.config.ConfigKey;
+import org.apache.brooklyn.core.config.ConfigKeys;
 import org.apache.brooklyn.core.entity.BrooklynConfigKeys;
+import org.apache.brooklyn.core.feed.AttributePollHandler;
+import org.apache.brooklyn.core.feed.DelegatingPollHandler;
+import org.apache.brooklyn.core.feed.PollHandler;
 import org.apache.brooklyn.core.location.Locations;
 import org.apache.brooklyn.feed.CommandPollConfig;
+import org.apache.brooklyn.location.ssh.SshHelperAgent;
 import org.apache.brooklyn.location.ssh.SshMachineLocation;
+import org.apache.brooklyn.util.collections.MutableList;
+import org.apache.brooklyn.util.collections.MutableMap;
+import org.apache.brooklyn.util.collections.MutableSet;
 import org.apache.brooklyn.util.core.config.ConfigBag;
 import org.apache.brooklyn.util.core.internal.ssh.SshTool;
 import org.apache.brooklyn.util.core.task.DynamicTasks;
@@ -35,9 +48,12 @@ import org.apache.brooklyn.util.core.task.ssh.internal.PlainSshExecTaskFactory;
 import org.apache.brooklyn.util.core.task.system.ProcessTaskFactory;
 import org.apache.brooklyn.util.core.task.system.ProcessTaskStub.ScriptReturnType;
 import org.apache.brooklyn.util.core.task.system.ProcessTaskWrapper;
+import org.apache.brooklyn.util.exceptions.Exceptions;
 import org.apache.brooklyn.util.guava.Maybe;
 import org.apache.brooklyn.util.os.Os;
 import org.apache.brooklyn.util.text.Identifiers;
+import org.apache.brooklyn.util.text.StringEscapes.BashStringEscapes;
+import org.apache.brooklyn.util.time.Duration;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -45,6 +61,8 @@ import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeoutException;
 
 /**
  * Provides a feed of attribute values, by polling over ssh.
@@ -78,13 +96,31 @@ import java.util.Map;
  * }
  * </pre>
  * 
+ * With {@link Builder#batchPolls()}, polls for different commands which are due at the same period
+ * are run as one remote script each period, rather than as a separate ssh exec per command.
+ * With {@link Builder#useHelperAgent()}, commands are sent to a persistent {@link SshHelperAgent} on the machine
+ * (falling back to a plain exec if the request could not be sent to the agent), which is much cheaper for frequent polls.
+ * 
  * @author aled
  */
 public class SshFeed extends org.apache.brooklyn.feed.AbstractCommandFeed {
     public static final Logger log = LoggerFactory.getLogger(SshFeed.class);
 
+    public static final ConfigKey<Boolean> BATCH_POLLS = ConfigKeys.newBooleanConfigKey("batchPolls",
+            "Whether polls with the same period (and no conditions or other triggers) should be merged into a single remote script "
+            + "each period, with the output of each command demultiplexed to its sensors", false);
+
+    public static final ConfigKey<Boolean> USE_HELPER_AGENT = ConfigKeys.newBooleanConfigKey("useHelperAgent",
+            "Whether to run polls through a persistent helper agent on the machine, reusing one ssh channel, "
+            + "rather than opening a new exec channel for each poll; commands are run with bash, without the usual script header", false);
+
+    /** Time a command run on the helper agent is allowed before the poll is reported as failed */
+    private static final Duration HELPER_AGENT_EXEC_TIMEOUT = Duration.ONE_MINUTE;
+
     public static class Builder extends org.apache.brooklyn.feed.AbstractCommandFeed.Builder<SshFeed, Builder> {
         private List<CommandPollConfig<?>> polls = Lists.newArrayList();
+        private boolean batchPolls = false;
+        private boolean useHelperAgent = false;
 
         @Override
         public Builder poll(CommandPollConfig<?> config) {
@@ -97,6 +133,18 @@ public class SshFeed extends org.apache.brooklyn.feed.AbstractCommandFeed {
             return polls;
         }
 
+        public Builder batchPolls() { return batchPolls(true); }
+        public Builder batchPolls(boolean val) {
+            this.batchPolls = val;
+            return self();
+        }
+
+        public Builder useHelperAgent() { return useHelperAgent(true); }
+        public Builder useHelperAgent(boolean val) {
+            this.useHelperAgent = val;
+            return self();
+        }
+
         @Override
         protected Builder self() {
            return this;
@@ -120,12 +168,219 @@ public class SshFeed extends org.apache.brooklyn.feed.AbstractCommandFeed {
 
     public SshFeed(final Builder builder) {
         super(builder);
+        config().set(BATCH_POLLS, builder.batchPolls);
+        config().set(USE_HELPER_AGENT, builder.useHelperAgent);
+    }
+
+    @Override
+    protected void preStart() {
+        if (!Boolean.TRUE.equals(config().get(BATCH_POLLS)) || config().get(COMMAND_URL)!=null) {
+            super.preStart();
+            return;
+        }
+
+        SetMultimap<CommandPollIdentifier, CommandPollConfig<?>> polls = getConfig(POLLS);
+        SetMultimap<CommandPollIdentifier, CommandPollConfig<?>> unbatched = LinkedHashMultimap.create();
+        Map<Long, List<CommandPollIdentifier>> batches = MutableMap.of();
+        for (CommandPollIdentifier identifier : polls.keySet()) {
+            Long period = getBatchablePeriod(polls.get(identifier));
+            if (period == null) {
+                unbatched.putAll(identifier, polls.get(identifier));
+            } else {
+                batches.computeIfAbsent(period, p -> MutableList.of()).add(identifier);
+            }
+        }
+
+        for (List<CommandPollIdentifier> batch : batches.values()) {
+            if (batch.size() == 1) {
+                unbatched.putAll(batch.get(0), polls.get(batch.get(0)));
+                continue;
+            }
+            Map<CommandPollIdentifier, PollHandler<SshPollValue>> handlers = MutableMap.of();
+            Set<CommandPollConfig<?>> configs = MutableSet.of();
+            for (CommandPollIdentifier identifier : batch) {
+                Set<AttributePollHandler<? super SshPollValue>> identifierHandlers = MutableSet.of();
+                for (CommandPollConfig<?> config : polls.get(identifier)) {
+                    identifierHandlers.add(new AttributePollHandler<SshPollValue>(config, entity, this));
+                }
+                handlers.put(identifier, new DelegatingPollHandler<SshPollValue>(identifierHandlers));
+                configs.addAll(polls.get(identifier));
+            }
+            getPoller().schedulePoll(this, configs, () -> execBatch(batch), new BatchedPollHandler(handlers));
+        }
+
+        if (!unbatched.isEmpty()) {
+            getPoller().scheduleFeed(this, unbatched, pollInfo -> () -> exec(pollInfo.getCommandSupplier().get(), pollInfo.getEnvSupplier().get()));
+        }
+    }
+
+    /** the period for polls which can be batched, or null if any are conditional or triggered by other sensors */
+    private static Long getBatchablePeriod(Set<CommandPollConfig<?>> configs) {
+        long period = Long.MAX_VALUE;
+        for (CommandPollConfig<?> config : configs) {
+            if (config.getCondition() != null || config.getOtherTriggers() != null) return null;
+            if (config.getPeriod() > 0) period = Math.min(period, config.getPeriod());
+        }
+        return period < Long.MAX_VALUE ? period : null;
+    }
+
+    /** Runs the given commands in one remote script, returning the result of each command. */
+    protected Map<CommandPollIdentifier, SshPollValue> execBatch(List<CommandPollIdentifier> batch) throws IOException {
+        List<String> commands = MutableList.of();
+        List<Map<String, String>> envs = MutableList.of();
+        for (CommandPollIdentifier identifier : batch) {
+            commands.add(identifier.getCommandSupplier().get());
+            envs.add(identifier.getEnvSupplier().get());
+        }
+        String delimiter = "BROOKLYN-SSH-FEED-" + Identifiers.makeRandomId(8);
+        SshPollValue combined = exec(batchScript(delimiter, commands, envs), ImmutableMap.<String, String>of());
+        List<SshPollValue> values = demultiplexBatch(combined, delimiter, commands.size());
+        if (log.isTraceEnabled()) log.trace("Ssh polling for {}, ran batch of {} commands in one exec", getMachine(), commands.size());
+
+        Map<CommandPollIdentifier, SshPollValue> result = MutableMap.of();
+        for (int i = 0; i < batch.size(); i++) {
+            result.put(batch.get(i), values.get(i));
+        }
+        return result;
+    }
+
+    /**
+     * Script running each command in its own subshell (with its own environment), writing its stdout,
+     * stderr and exit code between lines containing the given delimiter.
+     */
+    @VisibleForTesting
+    static String batchScript(String delimiter, List<String> commands, List<Map<String, String>> envs) {
+        StringBuilder script = new StringBuilder();
+        script.append("BROOKLYN_SSH_FEED_ERR=$(mktemp 2>/dev/null || echo /tmp/brooklyn-ssh-feed-$$.err)\n");
+        for (int i = 0; i < commands.size(); i++) {
+            script.append("echo '").append(delimiter).append("-BEGIN-").append(i).append("'\n");
+            script.append("(\n");
+            Map<String, String> env = envs.get(i);
+            if (env != null) {
+                for (Map.Entry<String, String> entry : env.entrySet()) {
+                    script.append("export ").append(entry.getKey()).append("=").append(BashStringEscapes.wrapBash(entry.getValue())).append("\n");
+                }
+            }
+            script.append(commands.get(i)).append("\n");
+            script.append(") 2>\"$BROOKLYN_SSH_FEED_ERR\" </dev/null\n");
+            script.append("BROOKLYN_SSH_FEED_RC=$?\n");
+            script.append("echo\n");
+            script.append("echo '").append(delimiter).append("-STDERR-").append(i).append("'\n");
+            script.append("cat \"$BROOKLYN_SSH_FEED_ERR\"\n");
+            script.append("echo\n");
+            script.append("echo \"").append(delimiter).append("-END-").append(i).append(" $BROOKLYN_SSH_FEED_RC\"\n");
+        }
+        script.append("rm -f \"$BROOKLYN_SSH_FEED_ERR\"\n");
+        return script.toString();
+    }
+
+    /**
+     * Splits the output of a {@link #batchScript(String, List, List)} into the result of each command;
+     * any command whose output is incomplete (e.g. because the script failed) gets exit status -1 and the stderr of the script.
+     */
+    @VisibleForTesting
+    static List<SshPollValue> demultiplexBatch(SshPollValue combined, String delimiter, int count) {
+        String out = combined.getStdout() != null ? combined.getStdout() : "";
+        List<SshPollValue> result = MutableList.of();
+        for (int i = 0; i < count; i++) {
+            String begin = delimiter + "-BEGIN-" + i + "\n";
+            String stderrStart = "\n" + delimiter + "-STDERR-" + i + "\n";
+            String end = "\n" + delimiter + "-END-" + i + " ";
+            int beginIndex = out.indexOf(begin);
+            int stderrIndex = beginIndex >= 0 ? out.indexOf(stderrStart, beginIndex + begin.length()) : -1;
+            int endIndex = stderrIndex >= 0 ? out.indexOf(end, stderrIndex + stderrStart.length()) : -1;
+            Integer exitStatus = null;
+            if (endIndex >= 0) {
+                int eol = out.indexOf('\n', endIndex + end.length());
+                exitStatus = Ints.tryParse(out.substring(endIndex + end.length(), eol >= 0 ? eol : out.length()).trim());
+            }
+            if (exitStatus == null) {
+                result.add(new SshPollValue(combined.getMachine(), -1, null, combined.getStderr()));
+            } else {
+                result.add(new SshPollValue(combined.getMachine(), exitStatus,
+                        out.substring(beginIndex + begin.length(), stderrIndex),
+                        out.substring(stderrIndex + stderrStart.length(), endIndex)));
+            }
+        }
+        return result;
+    }
+
+    /** Passes the result for each command in a batch to the handlers for that command. */
+    private static class BatchedPollHandler implements PollHandler<Map<CommandPollIdentifier, SshPollValue>> {
+        private final Map<CommandPollIdentifier, PollHandler<SshPollValue>> handlers;
+
+        BatchedPollHandler(Map<CommandPollIdentifier, PollHandler<SshPollValue>> handlers) {
+            this.handlers = handlers;
+        }
+
+        @Override
+        public boolean checkSuccess(Map<CommandPollIdentifier, SshPollValue> val) {
+            // success is determined per command
+            return true;
+        }
+
+        @Override
+        public void onSuccess(Map<CommandPollIdentifier, SshPollValue> val) {
+            for (Map.Entry<CommandPollIdentifier, PollHandler<SshPollValue>> entry : handlers.entrySet()) {
+                SshPollValue value = val.get(entry.getKey());
+                PollHandler<SshPollValue> handler = entry.getValue();
+                try {
+                    if (handler.checkSuccess(value)) {
+                        handler.onSuccess(value);
+                    } else {
+                        handler.onFailure(value);
+                    }
+                } catch (Exception e) {
+                    Exceptions.propagateIfFatal(e);
+                    handler.onException(e);
+                }
+            }
+        }
+
+        @Override
+        public void onFailure(Map<CommandPollIdentifier, SshPollValue> val) {
+            onSuccess(val);
+        }
+
+        @Override
+        public void onException(Exception exception) {
+            for (PollHandler<SshPollValue> handler : handlers.values()) {
+                handler.onException(exception);
+            }
+        }
+
+        @Override
+        public String getDescription() {
+            List<String> descriptions = MutableList.of();
+            for (PollHandler<SshPollValue> handler : handlers.values()) {
+                descriptions.add(handler.getDescription());
+            }
+            return "batch" + descriptions;
+        }
     }
 
     @Override
     protected SshPollValue exec(String command, Map<String,String> env) throws IOException {
         SshMachineLocation machine = (SshMachineLocation)getMachine();
         if (log.isTraceEnabled()) log.trace("Ssh polling for {}, executing {} with env {}", new Object[] {machine, command, env});
+
+        if (Boolean.TRUE.equals(config().get(USE_HELPER_AGENT))) {
+            SshHelperAgent agent = machine.getHelperAgent();
+            if (agent != null) {
+                try {
+                    SshHelperAgent.Result result = agent.exec(command, env, HELPER_AGENT_EXEC_TIMEOUT);
+                    return new SshPollValue(machine, result.getExitCode(), result.getStdout(), result.getStderr());
+                } catch (SshHelperAgent.UndeliveredRequestException e) {
+                    log.debug("Ssh helper agent on {} unavailable for {}, falling back to exec: {}", new Object[] {machine, this, e});
+                } catch (TimeoutException e) {
+                    // the command may still be running, so do not run it again
+                    throw new IOException("Timeout running command on ssh helper agent on "+machine, e);
+                } catch (InterruptedException e) {
+                    throw Exceptions.propagate(e);
+                }
+            }
+        }
+
         ProcessTaskFactory<String> tf = new PlainSshExecTaskFactory<String>(machine, command)
                 .environmentVariables(env)
                 .summary("ssh-feed")
@@ -0,0 +1,315 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.brooklyn.location.ssh;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.apache.brooklyn.api.mgmt.ManagementContext;
+import org.apache.brooklyn.api.mgmt.Task;
+import org.apache.brooklyn.core.mgmt.BrooklynTaskTags;
+import org.apache.brooklyn.util.collections.MutableMap;
+import org.apache.brooklyn.util.core.internal.ssh.ShellTool;
+import org.apache.brooklyn.util.core.task.Tasks;
+import org.apache.brooklyn.util.exceptions.Exceptions;
+import org.apache.brooklyn.util.text.StringEscapes.BashStringEscapes;
+import org.apache.brooklyn.util.time.Duration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.annotations.Beta;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.MoreObjects;
+import com.google.common.collect.ImmutableList;
+
+/**
+ * A long-lived shell loop on an {@link SshMachineLocation}, reading requests from its stdin and writing
+ * responses to its stdout over a single ssh channel, so frequently repeated commands (e.g. sensor polls)
+ * do not pay the cost of opening a new channel and session for each one.
+ * <p>
+ * Each request is one line {@code <id> <base64 script>}; the agent runs each script with bash in the background,
+ * so a slow request does not hold up others, and replies with one line {@code <id> <exit code> <base64 stdout> <base64 stderr>}
+ * when it completes. Responses are matched to requests by id.
+ * <p>
+ * Obtain one with {@link SshMachineLocation#getHelperAgent()}. The agent's channel is held open by a task in the
+ * machine's management context. If a request could not be sent, it fails with an {@link UndeliveredRequestException}
+ * and callers can safely fall back to a plain exec; any other failure means the command may have run.
+ */
+@Beta
+public class SshHelperAgent implements Closeable {
+
+    private static final Logger LOG = LoggerFactory.getLogger(SshHelperAgent.class);
+
+    // requests run in background subshells; the lock directory stops their response lines from interleaving
+    @VisibleForTesting
+    static final String AGENT_SCRIPT =
+            "t=$(mktemp -d 2>/dev/null || echo /tmp/brooklyn-helper-agent-$$) ; mkdir -p \"$t\"\n" +
+            "while read -r id payload; do\n" +
+            "  [ \"$id\" = \"exit\" ] && break\n" +
+            "  (\n" +
+            "    d=\"$t/$id\" ; mkdir -p \"$d\"\n" +
+            "    printf '%s' \"$payload\" | base64 -d > \"$d/s\"\n" +
+            "    bash \"$d/s\" > \"$d/o\" 2> \"$d/e\" < /dev/null\n" +
+            "    rc=$?\n" +
+            "    r=\"$id $rc $(base64 < \"$d/o\" | tr -d '\\n') $(base64 < \"$d/e\" | tr -d '\\n')\"\n" +
+            "    until mkdir \"$t/lock\" 2>/dev/null; do sleep 0.01; done\n" +
+            "    echo \"$r\"\n" +
+            "    rmdir \"$t/lock\"\n" +
+            "    rm -rf \"$d\"\n" +
+            "  ) &\n" +
+            "done\n" +
+            "rm -rf \"$t\"\n";
+
+    /** Indicates the request was not sent to the agent, so the command was not run. */
+    public static class UndeliveredRequestException extends IOException {
+        private static final long serialVersionUID = 2318043254817396581L;
+
+        public UndeliveredRequestException(String message) {
+            super(message);
+        }
+    }
+
+    public static class Result {
+        private final int exitCode;
+        private final String stdout;
+        private final String stderr;
+
+        public Result(int exitCode, String stdout, String stderr) {
+            this.exitCode = exitCode;
+            this.stdout = stdout;
+            this.stderr = stderr;
+        }
+        public int getExitCode() {
+            return exitCode;
+        }
+        public String getStdout() {
+            return stdout;
+        }
+        public String getStderr() {
+            return stderr;
+        }
+    }
+
+    private final SshMachineLocation machine;
+    private final AtomicReference<OutputStream> stdin = new AtomicReference<OutputStream>();
+    private final Map<Long, CompletableFuture<Result>> pending = new ConcurrentHashMap<Long, CompletableFuture<Result>>();
+    private final AtomicLong nextId = new AtomicLong();
+    private volatile boolean alive = false;
+    private volatile long lastResponseTime;
+    private volatile Task<?> task;
+
+    public SshHelperAgent(SshMachineLocation machine) {
+        this.machine = machine;
+    }
+
+    /** Starts the agent in a task of the machine's management context, waiting up to the given time for its channel to be open. */
+    public SshHelperAgent start(Duration timeout) throws IOException {
+        ManagementContext mgmt = machine.getManagementContext();
+        if (mgmt == null || mgmt.getExecutionManager() == null) {
+            throw new IOException("No management context for "+machine+"; cannot run ssh helper agent");
+        }
+        alive = true;
+        final OutputStream responses = new LineDispatchingOutputStream();
+        task = mgmt.getExecutionManager().submit(Tasks.<Void>builder().dynamic(false).tag(BrooklynTaskTags.TRANSIENT_TASK_TAG)
+                .displayName("ssh helper agent on "+machine.getAddress().getHostAddress())
+                .body(new Callable<Void>() {
+                    @Override public Void call() {
+                        try {
+                            int result = machine.execCommands(MutableMap.of(
+                                            ShellTool.PROP_IN_STREAM_CALLBACK.getName(), stdin,
+                                            ShellTool.PROP_OUT_STREAM.getName(), responses,
+                                            SshMachineLocation.NO_STDOUT_LOGGING.getName(), true),
+                                    "ssh helper agent", ImmutableList.of(AGENT_SCRIPT));
+                            if (LOG.isDebugEnabled()) LOG.debug("Ssh helper agent on {} exited with code {}", machine, result);
+                        } catch (Exception e) {
+                            if (LOG.isDebugEnabled()) LOG.debug("Ssh helper agent on "+machine+" failed: "+e);
+                        } finally {
+                            terminated();
+                        }
+                        return null;
+                    }})
+                .build());
+
+        long deadline = System.currentTimeMillis() + timeout.toMilliseconds();
+        synchronized (stdin) {
+            while (stdin.get() == null && alive) {
+                long remaining = deadline - System.currentTimeMillis();
+                if (remaining <= 0) {
+                    close();
+                    throw new IOException("Timeout starting ssh helper agent on "+machine);
+                }
+                try {
+                    stdin.wait(Math.min(remaining, 100));
+                } catch (InterruptedException e) {
+                    close();
+                    throw Exceptions.propagate(e);
+                }
+            }
+        }
+        if (!alive) throw new IOException("Ssh helper agent on "+machine+" exited during start-up");
+        return this;
+    }
+
+    public boolean isAlive() {
+        return alive;
+    }
+
+    /**
+     * Runs the command on the agent, with the given environment.
+     * If it does not complete in time, a {@link TimeoutException} is thrown (the command may still be running); the agent is
+     * also closed if it has not responded to anything in that time.
+     * 
+     * @throws UndeliveredRequestException if the request was not sent, so the command has not run
+     * @throws IOException if the agent failed after the request was sent, so the command may have run
+     */
+    public Result exec(String command, Map<String, String> env, Duration timeout) throws IOException, TimeoutException, InterruptedException {
+        if (!alive) throw new UndeliveredRequestException("Ssh helper agent on "+machine+" is not running");
+        StringBuilder script = new StringBuilder();
+        if (env != null) {
+            for (Map.Entry<String, String> entry : env.entrySet()) {
+                script.append("export ").append(entry.getKey()).append("=").append(BashStringEscapes.wrapBash(entry.getValue())).append("\n");
+            }
+        }
+        script.append(command).append("\n");
+
+        long id = nextId.incrementAndGet();
+        CompletableFuture<Result> future = new CompletableFuture<Result>();
+        pending.put(id, future);
+        long sentTime = System.currentTimeMillis();
+        try {
+            OutputStream in = stdin.get();
+            synchronized (this) {
+                if (!alive || in == null) throw new UndeliveredRequestException("Ssh helper agent on "+machine+" is not running");
+                // a failed write may still have delivered the request; that is reported as a plain IOException
+                in.write((id+" "+Base64.getEncoder().encodeToString(script.toString().getBytes(StandardCharsets.UTF_8))+"\n").getBytes(StandardCharsets.UTF_8));
+                in.flush();
+            }
+            return future.get(timeout.toMilliseconds(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            // other requests are not held up by this one, so only close the agent if it seems to have stalled
+            if (lastResponseTime < sentTime) {
+                LOG.debug("Timeout after {} waiting for ssh helper agent on {}, with no other responses; closing it", timeout, machine);
+                close();
+            } else {
+                LOG.debug("Timeout after {} waiting for ssh helper agent on {} to run command", timeout, machine);
+            }
+            throw e;
+        } catch (UndeliveredRequestException e) {
+            throw e;
+        } catch (ExecutionException e) {
+            throw new IOException("Ssh helper agent on "+machine+" failed", e.getCause());
+        } catch (IOException e) {
+            close();
+            throw e;
+        } finally {
+            pending.remove(id);
+        }
+    }
+
+    @Override
+    public void close() {
+        if (!alive) return;
+        alive = false;
+        OutputStream in = stdin.get();
+        if (in != null) {
+            try {
+                synchronized (this) {
+                    in.write("exit\n".getBytes(StandardCharsets.UTF_8));
+                    in.flush();
+                }
+                in.close();
+            } catch (IOException e) {
+                if (LOG.isTraceEnabled()) LOG.trace("Error closing ssh helper agent on "+machine+" (ignoring): "+e);
+            }
+        }
+        Task<?> t = task;
+        if (t != null) t.cancel(true);
+        terminated();
+    }
+
+    private void terminated() {
+        alive = false;
+        synchronized (stdin) {
+            stdin.notifyAll();
+        }
+        for (CompletableFuture<Result> future : pending.values()) {
+            future.completeExceptionally(new IOException("Ssh helper agent on "+machine+" terminated"));
+        }
+    }
+
+    @VisibleForTesting
+    void onResponse(String line) {
+        String[] parts = line.split(" ", -1);
+        if (parts.length != 4) {
+            if (LOG.isTraceEnabled()) LOG.trace("Ignoring unexpected output from ssh helper agent on {}: {}", machine, line);
+            return;
+        }
+        CompletableFuture<Result> future;
+        try {
+            future = pending.get(Long.parseLong(parts[0]));
+        } catch (NumberFormatException e) {
+            if (LOG.isTraceEnabled()) LOG.trace("Ignoring unexpected output from ssh helper agent on {}: {}", machine, line);
+            return;
+        }
+        lastResponseTime = System.currentTimeMillis();
+        if (future == null) return;
+        try {
+            future.complete(new Result(Integer.parseInt(parts[1]), decode(parts[2]), decode(parts[3])));
+        } catch (Exception e) {
+            future.completeExceptionally(e);
+        }
+    }
+
+    private static String decode(String base64) {
+        return new String(Base64.getMimeDecoder().decode(base64), StandardCharsets.UTF_8);
+    }
+
+    /** Stdout of the agent, passing each complete line to {@link #onResponse(String)}. */
+    private class LineDispatchingOutputStream extends OutputStream {
+        private final ByteArrayOutputStream line = new ByteArrayOutputStream();
+
+        @Override
+        public synchronized void write(int b) {
+            if (b == '\n') {
+                onResponse(new String(line.toByteArray(), StandardCharsets.UTF_8).trim());
+                line.reset();
+            } else {
+                line.write(b);
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return MoreObjects.toStringHelper(this).add("machine", machine).add("alive", alive).add("pending", pending.size()).toString();
+    }
+}
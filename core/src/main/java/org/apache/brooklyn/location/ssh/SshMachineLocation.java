@@ -20,10 +20,9 @@ package org.apache.brooklyn.location.ssh;
 
 import static org.apache.brooklyn.util.JavaGroovyEquivalents.groovyTruth;
 
+import java.io.ByteArrayOutputStream;
 import java.io.Closeable;
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
@@ -33,6 +32,7 @@ import java.io.Reader;
 import java.net.InetAddress;
 import java.net.InetSocketAddress;
 import java.net.Socket;
+import java.nio.charset.StandardCharsets;
 import java.security.KeyPair;
 import java.util.HashMap;
 import java.util.List;
@@ -97,6 +97,7 @@ import org.apache.brooklyn.util.ssh.BashCommandsConfigurable;
 import org.apache.brooklyn.util.stream.KnownSizeInputStream;
 import org.apache.brooklyn.util.stream.ReaderInputStream;
 import org.apache.brooklyn.util.stream.StreamGobbler;
+import org.apache.brooklyn.util.text.StringEscapes.BashStringEscapes;
 import org.apache.brooklyn.util.text.Strings;
 import org.apache.brooklyn.util.time.Duration;
 import org.slf4j.Logger;
@@ -107,6 +108,7 @@ import com.google.common.base.Function;
 import com.google.common.base.MoreObjects;
 import com.google.common.base.Preconditions;
 import com.google.common.base.Predicate;
+import com.google.common.base.Stopwatch;
 import com.google.common.base.Supplier;
 import com.google.common.base.Throwables;
 import com.google.common.cache.CacheBuilder;
@@ -120,6 +122,8 @@ import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Iterables;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
+import com.google.common.hash.Hashing;
+import com.google.common.io.Files;
 import com.google.common.net.HostAndPort;
 import com.google.common.reflect.TypeToken;
 
@@ -227,13 +231,20 @@ public class SshMachineLocation extends AbstractMachineLocation implements Machi
     public static final ConfigKey<Boolean> CLOSE_CONNECTION = ConfigKeys.newBooleanConfigKey("close", "Close the SSH connection after use", false);
     public static final ConfigKey<String> UNIQUE_ID = ConfigKeys.newStringConfigKey("unique", "Unique ID for the SSH connection");
 
+    public static final ConfigKey<Duration> HELPER_AGENT_RETRY_DELAY = ConfigKeys.newConfigKey(Duration.class, "helperAgentRetryDelay",
+            "Time to wait after failing to start an ssh helper agent before trying to start another", Duration.ONE_MINUTE);
+
+    public static final ConfigKey<Boolean> COPY_SKIP_IF_UNCHANGED = ConfigKeys.newBooleanConfigKey("copySkipIfUnchanged",
+            "Whether copying a local file should first compare its SHA-256 checksum with that of the destination file, "
+            + "and not upload it if they match (e.g. when re-running install steps on many machines)", false);
+
     /**
      * Specifies config keys where a change in the value does not require a new SshTool instance,
      * i.e. they can be specified per command on the tool
      */
     // TODO: Fully specify.
     public static final Set<ConfigKey<?>> REUSABLE_SSH_PROPS = ImmutableSet.<ConfigKey<?>>of(
-            STDOUT, STDERR, SCRIPT_DIR, CLOSE_CONNECTION,
+            STDOUT, STDERR, SCRIPT_DIR, CLOSE_CONNECTION, COPY_SKIP_IF_UNCHANGED,
             SshTool.PROP_SCRIPT_HEADER, SshTool.PROP_PERMISSIONS, SshTool.PROP_LAST_MODIFICATION_DATE,
             SshTool.PROP_LAST_ACCESS_DATE, SshTool.PROP_OWNER_UID, SshTool.PROP_SSH_RETRY_DELAY);
 
@@ -265,6 +276,10 @@ public class SshMachineLocation extends AbstractMachineLocation implements Machi
     private transient LoadingCache<Map<String, ?>, Pool<SshTool>> sshPoolCacheOrNull;
 
     private transient volatile boolean loggedLegcySshToolClassConfig;
+
+    private transient volatile SshHelperAgent helperAgent;
+    private transient volatile long helperAgentLastFailureTime;
+    private final transient Object helperAgentMutex = new Object();
     
     public SshMachineLocation() {
         this(MutableMap.of());
@@ -481,8 +496,46 @@ public class SshMachineLocation extends AbstractMachineLocation implements Machi
         if (cleanupTaskRef != null) {
             cleanupTaskRef.cancel(false);
         }
+        SshHelperAgent helperAgentRef = helperAgent;
+        if (helperAgentRef != null) {
+            helperAgentRef.close();
+        }
         cleanupTask = null;
         sshPoolCacheOrNull = null;
+        helperAgent = null;
+    }
+
+    /**
+     * Returns a running {@link SshHelperAgent} on this machine, for running frequent short commands over one
+     * persistent channel, starting one if there is none (or the previous one has died).
+     * Returns null if an agent could not be started (in which case another is not attempted until
+     * {@link #HELPER_AGENT_RETRY_DELAY} has passed); callers should then use a plain exec.
+     */
+    @Beta
+    @Nullable
+    public SshHelperAgent getHelperAgent() {
+        SshHelperAgent agent = helperAgent;
+        if (agent != null && agent.isAlive()) return agent;
+        synchronized (helperAgentMutex) {
+            agent = helperAgent;
+            if (agent != null && agent.isAlive()) return agent;
+            Duration retryDelay = getConfig(HELPER_AGENT_RETRY_DELAY);
+            if (helperAgentLastFailureTime > 0 && System.currentTimeMillis() - helperAgentLastFailureTime < retryDelay.toMilliseconds()) {
+                return null;
+            }
+            try {
+                helperAgent = new SshHelperAgent(this).start(Duration.ONE_MINUTE);
+                helperAgentLastFailureTime = 0;
+                LOG.debug("Started ssh helper agent on {}", this);
+                return helperAgent;
+            } catch (Exception e) {
+                Exceptions.propagateIfFatal(e);
+                helperAgent = null;
+                helperAgentLastFailureTime = System.currentTimeMillis();
+                LOG.debug("Unable to start ssh helper agent on "+this+" (will not retry for "+retryDelay+"): "+e);
+                return null;
+            }
+        }
     }
 
     @Override
@@ -779,14 +832,69 @@ public class SshMachineLocation extends AbstractMachineLocation implements Machi
     public int copyTo(File src, String destination) {
         return copyTo(MutableMap.<String,Object>of(), src, destination);
     }
-    public int copyTo(Map<String,?> props, File src, String destination) {
+    /**
+     * Copies the local file to the given destination, the ssh tool reading it directly from the file
+     * (so that retries can re-read or resume it). If {@link #COPY_SKIP_IF_UNCHANGED} is set in the
+     * props or on this location, the copy is skipped if the destination already has the same checksum.
+     * The size and throughput of the transfer are recorded as a {@link BrooklynTaskTags#FILE_TRANSFER_TAG}
+     * on the current task.
+     */
+    public int copyTo(final Map<String,?> props, final File src, final String destination) {
         Preconditions.checkNotNull(address, "Host address must be specified for scp");
         Preconditions.checkArgument(src.exists(), "File %s must exist for scp", src.getPath());
+        Stopwatch stopwatch = Stopwatch.createStarted();
+        long size = src.length();
+        if (isCopySkipIfUnchanged(props)) {
+            String localChecksum = checksumLocal(src);
+            String remoteChecksum = checksumRemote(destination);
+            if (localChecksum.equals(remoteChecksum)) {
+                LOG.debug("Skipping copy of {} to {}:{}, already present with checksum {}", new Object[] { src, this, destination, localChecksum });
+                recordFileTransfer(destination, size, Duration.of(stopwatch), true);
+                return 0;
+            }
+        }
+        int result = execSsh(props, new Function<ShellTool,Integer>() {
+            @Override
+            public Integer apply(ShellTool ssh) {
+                return ((SshTool) ssh).copyToServer(props, src, destination);
+            }});
+        recordFileTransfer(destination, size, Duration.of(stopwatch), false);
+        return result;
+    }
+
+    protected boolean isCopySkipIfUnchanged(Map<String,?> props) {
+        Object val = props.get(COPY_SKIP_IF_UNCHANGED.getName());
+        if (val != null) return TypeCoercions.coerce(val, Boolean.class);
+        return Boolean.TRUE.equals(getConfig(COPY_SKIP_IF_UNCHANGED));
+    }
+
+    protected String checksumLocal(File src) {
         try {
-            return copyTo(props, new FileInputStream(src), src.length(), destination);
-        } catch (FileNotFoundException e) {
-            throw Throwables.propagate(e);
+            return Files.asByteSource(src).hash(Hashing.sha256()).toString();
+        } catch (IOException e) {
+            throw Exceptions.propagate(e);
+        }
+    }
+
+    /** @return the SHA-256 of the remote file as lower-case hex, or null if it does not exist or cannot be computed */
+    protected String checksumRemote(String destination) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        String path = BashStringEscapes.wrapBash(destination);
+        int result = execCommands(MutableMap.of("out", out, NO_STDOUT_LOGGING.getName(), true, NO_STDERR_LOGGING.getName(), true),
+                "checksum "+destination, ImmutableList.of(
+                        "test -f "+path+" && ( sha256sum "+path+" 2>/dev/null || shasum -a 256 "+path+" )"));
+        if (result != 0) return null;
+        String stdout = Strings.trim(new String(out.toByteArray(), StandardCharsets.UTF_8));
+        if (Strings.isBlank(stdout)) return null;
+        return stdout.split("\\s+")[0].toLowerCase();
+    }
+
+    protected void recordFileTransfer(String destination, long size, Duration duration, boolean skipped) {
+        if (LOG.isDebugEnabled()) {
+            LOG.debug("Copy to {}:{} of {} bytes {} in {}{}", new Object[] { this, destination, size, skipped ? "skipped" : "done",
+                    duration, skipped ? "" : " ("+Strings.makeSizeString(size * 1000 / Math.max(1, duration.toMilliseconds()))+"/s)" });
         }
+        Tasks.addTagDynamically(BrooklynTaskTags.tagForFileTransfer(destination, size, duration, skipped));
     }
     public int copyTo(Reader src, String destination) {
         return copyTo(MutableMap.<String,Object>of(), src, destination);
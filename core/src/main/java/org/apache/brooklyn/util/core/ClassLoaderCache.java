@@ -0,0 +1,146 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.brooklyn.util.core;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import javax.annotation.Nullable;
+
+import org.apache.brooklyn.util.guava.Maybe;
+
+import com.google.common.annotations.Beta;
+import com.google.common.base.MoreObjects;
+import com.google.common.base.Objects;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.common.collect.ImmutableList;
+
+/**
+ * Bounded cache of the results of {@link ClassLoaderUtils#loadClass(String)}, both classes found and 
+ * misses, keyed by the catalog item (and search path) of the calling entity, the calling class loader,
+ * the bundle white list and the class name.
+ * <p>
+ * The same names are resolved many times on rebind and deploy, and a miss can mean trying every 
+ * white-listed bundle. Results depend on which bundles and types are installed, so the owner 
+ * (see {@link org.apache.brooklyn.core.mgmt.ha.OsgiManager#getClassLoaderCache()}) must call 
+ * {@link #invalidateAll()} whenever they change.
+ */
+@Beta
+public class ClassLoaderCache {
+
+    public static final int DEFAULT_MAX_SIZE = 10000;
+    
+    private final Cache<Key, Maybe<Class<?>>> cache;
+    
+    /** incremented on each invalidation, so that loads which overlap an invalidation are not cached */
+    private final AtomicLong generation = new AtomicLong();
+    
+    public ClassLoaderCache() {
+        this(DEFAULT_MAX_SIZE);
+    }
+    
+    public ClassLoaderCache(int maxSize) {
+        cache = CacheBuilder.newBuilder()
+                .maximumSize(maxSize)
+                .recordStats()
+                .build();
+    }
+    
+    /**
+     * Returns the cached result for the given key, or else the result of the given loader
+     * (caching it unless the cache was invalidated while loading).
+     */
+    public Maybe<Class<?>> get(@Nullable ClassLoader classLoader, @Nullable String whiteList, @Nullable String catalogItemId, 
+            @Nullable List<String> catalogItemIdSearchPath, String className, Supplier<Maybe<Class<?>>> loader) {
+        Key key = new Key(classLoader, whiteList, catalogItemId, catalogItemIdSearchPath, className);
+        Maybe<Class<?>> result = cache.getIfPresent(key);
+        if (result != null) {
+            return result;
+        }
+        long generationBeforeLoad = generation.get();
+        result = loader.get();
+        synchronized (generation) {
+            if (generation.get() == generationBeforeLoad) {
+                cache.put(key, result);
+            }
+        }
+        return result;
+    }
+    
+    /** Discards all results; to be called whenever bundles or types are added or removed. */
+    public void invalidateAll() {
+        synchronized (generation) {
+            generation.incrementAndGet();
+            cache.invalidateAll();
+        }
+    }
+    
+    public long size() {
+        return cache.size();
+    }
+    
+    /** Hit and miss counts (and rates) since this cache was created. */
+    public CacheStats getStats() {
+        return cache.stats();
+    }
+    
+    @Override
+    public String toString() {
+        CacheStats stats = getStats();
+        return MoreObjects.toStringHelper(this)
+                .add("size", size())
+                .add("hits", stats.hitCount())
+                .add("misses", stats.missCount())
+                .add("hitRate", stats.hitRate())
+                .add("invalidations", generation.get())
+                .toString();
+    }
+    
+    private static class Key {
+        private final ClassLoader classLoader;
+        private final String whiteList;
+        private final String catalogItemId;
+        private final List<String> catalogItemIdSearchPath;
+        private final String className;
+        
+        Key(ClassLoader classLoader, String whiteList, String catalogItemId, List<String> catalogItemIdSearchPath, String className) {
+            this.classLoader = classLoader;
+            this.whiteList = whiteList;
+            this.catalogItemId = catalogItemId;
+            this.catalogItemIdSearchPath = (catalogItemIdSearchPath != null) ? ImmutableList.copyOf(catalogItemIdSearchPath) : ImmutableList.<String>of();
+            this.className = className;
+        }
+        
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof Key)) return false;
+            Key o = (Key) obj;
+            return classLoader == o.classLoader && Objects.equal(whiteList, o.whiteList) && Objects.equal(catalogItemId, o.catalogItemId)
+                    && catalogItemIdSearchPath.equals(o.catalogItemIdSearchPath) && className.equals(o.className);
+        }
+        
+        @Override
+        public int hashCode() {
+            return Objects.hashCode(System.identityHashCode(classLoader), whiteList, catalogItemId, catalogItemIdSearchPath, className);
+        }
+    }
+}
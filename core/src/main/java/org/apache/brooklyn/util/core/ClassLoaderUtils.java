@@ -262,7 +262,19 @@ public class ClassLoaderUtils {
         return loadClass(name, dispatcher, className);
     }
     
-    private <T> Maybe<T> loadClass(String name, LoaderDispatcher<T> dispatcher, String className) {
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    private <T> Maybe<T> loadClass(final String name, final LoaderDispatcher<T> dispatcher, final String className) {
+        ClassLoaderCache cache = getClassLoaderCache();
+        if (cache == null || dispatcher != ClassLoaderDispatcher.INSTANCE) {
+            return loadClassUncached(name, dispatcher, className);
+        }
+        String catalogItemId = (entity != null) ? entity.getCatalogItemId() : null;
+        List<String> searchPath = (catalogItemId != null) ? entity.getCatalogItemIdSearchPath() : null;
+        return (Maybe) cache.get(classLoader, System.getProperty(WHITE_LIST_KEY, WHITE_LIST_DEFAULT), catalogItemId, searchPath, className,
+                () -> (Maybe<Class<?>>) loadClassUncached(name, dispatcher, className));
+    }
+    
+    private <T> Maybe<T> loadClassUncached(String name, LoaderDispatcher<T> dispatcher, String className) {
         Maybe<T> cls;
         if (entity != null && mgmt != null) {
             String catalogItemId = entity.getCatalogItemId();
@@ -411,6 +423,16 @@ public class ClassLoaderUtils {
         return p.apply(bundle);
     }
 
+    private ClassLoaderCache getClassLoaderCache() {
+        if (mgmt != null) {
+            Maybe<OsgiManager> osgiManager = ((ManagementContextInternal)mgmt).getOsgiManager();
+            if (osgiManager.isPresent()) {
+                return osgiManager.get().getClassLoaderCache();
+            }
+        }
+        return null;
+    }
+
     private Framework getFramework() {
         if (mgmt != null) {
             Maybe<OsgiManager> osgiManager = ((ManagementContextInternal)mgmt).getOsgiManager();
@@ -69,6 +69,10 @@ public class SshjClientConnection implements SshAction<SSHClient> {
         protected long connectTimeout;
         protected long sessionTimeout;
         protected boolean strictHostKeyChecking;
+        protected boolean shareConnection;
+        protected int maxChannels = 8;
+        protected long keepAliveInterval;
+        protected long idleTimeout = 60*1000;
 
         public Builder hostAndPort(HostAndPort hostAndPort) {
             this.hostAndPort = hostAndPort;
@@ -122,6 +126,30 @@ public class SshjClientConnection implements SshAction<SSHClient> {
             return this;
         }
 
+        /** whether to multiplex channels over one transport shared with all other connections to the same host with the same credentials */
+        public Builder shareConnection(boolean val) {
+            this.shareConnection = val;
+            return this;
+        }
+
+        /** maximum number of channels open at once over a shared connection */
+        public Builder maxChannels(int val) {
+            this.maxChannels = val;
+            return this;
+        }
+
+        /** interval in millis between keepalive messages, or {@code 0} to not send any */
+        public Builder keepAliveInterval(long val) {
+            this.keepAliveInterval = val;
+            return this;
+        }
+
+        /** how long in millis a shared connection is kept open after it was last used */
+        public Builder idleTimeout(long val) {
+            this.idleTimeout = val;
+            return this;
+        }
+
         public SshjClientConnection build() {
             return new SshjClientConnection(this);
         }
@@ -141,8 +169,13 @@ public class SshjClientConnection implements SshAction<SSHClient> {
     private final boolean strictHostKeyChecking;
     private final int connectTimeout;
     private final int sessionTimeout;
-    
+    private final boolean shareConnection;
+    private final int maxChannels;
+    private final int keepAliveIntervalSeconds;
+    private final long idleTimeout;
+
     SSHClient ssh;
+    private SshjSharedConnections.SharedConnection sharedConnection;
 
     private SshjClientConnection(Builder builder) {
         this.hostAndPort = checkNotNull(builder.hostAndPort);
@@ -154,6 +187,11 @@ public class SshjClientConnection implements SshAction<SSHClient> {
         this.strictHostKeyChecking = builder.strictHostKeyChecking;
         this.connectTimeout = checkInt("connectTimeout", builder.connectTimeout, Integer.MAX_VALUE);
         this.sessionTimeout = checkInt("sessionTimeout", builder.sessionTimeout, Integer.MAX_VALUE);
+        this.shareConnection = builder.shareConnection;
+        this.maxChannels = builder.maxChannels;
+        if (maxChannels <= 0) throw new IllegalArgumentException("maxChannels must be positive, not "+maxChannels);
+        this.keepAliveIntervalSeconds = checkInt("keepAliveInterval", (builder.keepAliveInterval + 999) / 1000, Integer.MAX_VALUE);
+        this.idleTimeout = builder.idleTimeout;
     }
 
     static Integer checkInt(String context, long value, Integer ifTooLarge) {
@@ -174,6 +212,14 @@ public class SshjClientConnection implements SshAction<SSHClient> {
 
     @Override
     public void clear() {
+        if (sharedConnection != null) {
+            // leave the transport open for others; it is closed when idle
+            if (LOG.isTraceEnabled()) LOG.trace("Releasing shared SshjClientConnection {} ({})", this, System.identityHashCode(this));
+            SshjSharedConnections.getInstance().release(sharedConnection);
+            sharedConnection = null;
+            ssh = null;
+            return;
+        }
         if (ssh != null && ssh.isConnected()) {
             try {
                 if (LOG.isTraceEnabled()) LOG.trace("Disconnecting SshjClientConnection {} ({})", this, System.identityHashCode(this));
@@ -202,8 +248,30 @@ public class SshjClientConnection implements SshAction<SSHClient> {
 
     @Override
     public SSHClient create() throws Exception {
+        if (shareConnection) {
+            if (LOG.isTraceEnabled()) LOG.trace("Acquiring shared SshjClientConnection {} ({})", this, System.identityHashCode(this));
+            sharedConnection = SshjSharedConnections.getInstance().acquire(this);
+            ssh = sharedConnection.client;
+            return ssh;
+        }
         if (LOG.isTraceEnabled()) LOG.trace("Connecting SshjClientConnection {} ({})", this, System.identityHashCode(this));
         ssh = new net.schmizz.sshj.SSHClient();
+        connectAndAuthenticate(ssh);
+        return ssh;
+    }
+
+    /**
+     * Reserves a channel for an exec or sftp operation; when sharing a connection this blocks until fewer than
+     * the maximum number of channels are open on the shared transport. The returned handle must be run
+     * when the operation is finished. Nested reservations on the same thread share the one channel.
+     */
+    Runnable reserveChannel() throws InterruptedException {
+        SshjSharedConnections.SharedConnection shared = sharedConnection;
+        if (shared == null) return () -> {};
+        return shared.reserveChannel();
+    }
+
+    void connectAndAuthenticate(SSHClient ssh) throws Exception {
         if (!strictHostKeyChecking) {
             ssh.addHostKeyVerifier(new PromiscuousVerifier());
         }
@@ -213,6 +281,10 @@ public class SshjClientConnection implements SshAction<SSHClient> {
         if (sessionTimeout != 0) {
             ssh.setTimeout(sessionTimeout);
         }
+        if (keepAliveIntervalSeconds > 0) {
+            // must be set before connecting, which starts the keepalive thread
+            ssh.getConnection().getKeepAlive().setKeepAliveInterval(keepAliveIntervalSeconds);
+        }
         ssh.connect(hostAndPort.getHost(), hostAndPort.getPortOrDefault(22));
         
         if (password != null) {
@@ -286,8 +358,6 @@ public class SshjClientConnection implements SshAction<SSHClient> {
                 ssh.authPublickey(username);
             }
         }
-        
-        return ssh;
     }
 
     /**
@@ -320,6 +390,26 @@ public class SshjClientConnection implements SshAction<SSHClient> {
         return sessionTimeout;
     }
 
+    /**
+     * @return whether the transport is shared with other connections to the same host with the same credentials
+     */
+    public boolean isSharedConnection() {
+        return shareConnection;
+    }
+
+    int getMaxChannels() {
+        return maxChannels;
+    }
+
+    long getIdleTimeout() {
+        return idleTimeout;
+    }
+
+    SshjSharedConnections.ConnectionKey getConnectionKey() {
+        return new SshjSharedConnections.ConnectionKey(hostAndPort, username, password, privateKeyData, privateKeyFile,
+                privateKeyPassphrase, strictHostKeyChecking);
+    }
+
     /**
      * 
      * @return the current ssh or {@code null} if not connected
@@ -355,6 +445,7 @@ public class SshjClientConnection implements SshAction<SSHClient> {
                 .add("privateKeyFile", privateKeyFile)
                 .add("privateKey", (privateKeyData != null ? "xxxxxx" : null))
                 .add("connectTimeout", connectTimeout)
-                .add("sessionTimeout", sessionTimeout).toString();
+                .add("sessionTimeout", sessionTimeout)
+                .add("shared", shareConnection).toString();
     }
 }
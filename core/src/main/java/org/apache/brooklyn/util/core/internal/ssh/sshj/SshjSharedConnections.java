@@ -0,0 +1,283 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.brooklyn.util.core.internal.ssh.sshj;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import net.schmizz.sshj.SSHClient;
+
+import org.apache.brooklyn.util.collections.MutableList;
+import org.apache.brooklyn.util.collections.MutableMap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.annotations.Beta;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.MoreObjects;
+import com.google.common.base.Objects;
+import com.google.common.net.HostAndPort;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * Authenticated ssh transports shared by {@link SshjClientConnection} instances configured to share connections,
+ * keyed by host, user and credentials. Exec and sftp channels for all such connections are multiplexed over
+ * the one transport, with at most a configured number of channels open at once (servers typically refuse more
+ * than {@code MaxSessions}, 10 by default for OpenSSH, per connection).
+ * <p>
+ * Transports are reference counted, and are disconnected once they have been unreferenced for longer than
+ * their idle timeout.
+ */
+@Beta
+public class SshjSharedConnections {
+
+    private static final Logger LOG = LoggerFactory.getLogger(SshjSharedConnections.class);
+
+    private static final long EVICTION_CHECK_PERIOD_MILLIS = 5*1000;
+
+    private static final SshjSharedConnections INSTANCE = new SshjSharedConnections();
+
+    public static SshjSharedConnections getInstance() {
+        return INSTANCE;
+    }
+
+    static class ConnectionKey {
+        final HostAndPort hostAndPort;
+        final String username;
+        final String password;
+        final String privateKeyData;
+        final File privateKeyFile;
+        final String privateKeyPassphrase;
+        final boolean strictHostKeyChecking;
+
+        ConnectionKey(HostAndPort hostAndPort, String username, String password, String privateKeyData, File privateKeyFile,
+                String privateKeyPassphrase, boolean strictHostKeyChecking) {
+            this.hostAndPort = hostAndPort;
+            this.username = username;
+            this.password = password;
+            this.privateKeyData = privateKeyData;
+            this.privateKeyFile = privateKeyFile;
+            this.privateKeyPassphrase = privateKeyPassphrase;
+            this.strictHostKeyChecking = strictHostKeyChecking;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof ConnectionKey)) return false;
+            ConnectionKey that = (ConnectionKey) o;
+            return strictHostKeyChecking == that.strictHostKeyChecking && Objects.equal(hostAndPort, that.hostAndPort)
+                    && Objects.equal(username, that.username) && Objects.equal(password, that.password)
+                    && Objects.equal(privateKeyData, that.privateKeyData) && Objects.equal(privateKeyFile, that.privateKeyFile)
+                    && Objects.equal(privateKeyPassphrase, that.privateKeyPassphrase);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hashCode(hostAndPort, username, password, privateKeyData, privateKeyFile);
+        }
+
+        @Override
+        public String toString() {
+            // credentials deliberately excluded
+            return username+"@"+hostAndPort;
+        }
+    }
+
+    static class SharedConnection {
+        final ConnectionKey key;
+        final Semaphore channels;
+        final int maxChannels;
+        final long idleTimeoutMillis;
+        /** count of channels held by the current thread, so nested actions on the same thread do not deadlock waiting for a second channel */
+        final ThreadLocal<int[]> channelsHeldByThread = ThreadLocal.withInitial(() -> new int[1]);
+
+        // guarded by SshjSharedConnections.connections
+        int references;
+        long lastReleasedNanos = System.nanoTime();
+
+        // guarded by this
+        SSHClient client;
+
+        SharedConnection(ConnectionKey key, int maxChannels, long idleTimeoutMillis) {
+            this.key = key;
+            this.maxChannels = maxChannels;
+            this.channels = new Semaphore(maxChannels, true);
+            this.idleTimeoutMillis = idleTimeoutMillis;
+        }
+
+        Runnable reserveChannel() throws InterruptedException {
+            int[] held = channelsHeldByThread.get();
+            if (held[0] == 0) {
+                if (!channels.tryAcquire()) {
+                    if (LOG.isTraceEnabled()) LOG.trace("Waiting for one of {} channels on shared ssh connection {}", maxChannels, key);
+                    channels.acquire();
+                }
+            }
+            held[0]++;
+            return () -> {
+                held[0]--;
+                if (held[0] == 0) channels.release();
+            };
+        }
+
+        @Override
+        public String toString() {
+            return MoreObjects.toStringHelper(this).add("key", key).add("references", references)
+                    .add("channelsInUse", maxChannels - channels.availablePermits()).toString();
+        }
+    }
+
+    private final Map<ConnectionKey, SharedConnection> connections = MutableMap.of();
+    private final AtomicLong connectCount = new AtomicLong();
+    private final AtomicLong reuseCount = new AtomicLong();
+    private ScheduledExecutorService evictor;
+
+    @VisibleForTesting
+    SshjSharedConnections() {}
+
+    /**
+     * Returns the transport shared by connections with the same host, user and credentials as the given connection,
+     * connecting and authenticating a new one if there is none or the existing one has been disconnected.
+     * Each successful call must be matched by a call to {@link #release(SharedConnection)}.
+     */
+    SharedConnection acquire(SshjClientConnection connection) throws Exception {
+        SharedConnection shared;
+        synchronized (connections) {
+            shared = connections.computeIfAbsent(connection.getConnectionKey(),
+                    k -> new SharedConnection(k, connection.getMaxChannels(), connection.getIdleTimeout()));
+            shared.references++;
+            if (evictor == null) {
+                evictor = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder()
+                        .setNameFormat("brooklyn-sshj-shared-connection-evictor-%d").setDaemon(true).build());
+                evictor.scheduleWithFixedDelay(this::evictIdle, EVICTION_CHECK_PERIOD_MILLIS, EVICTION_CHECK_PERIOD_MILLIS, TimeUnit.MILLISECONDS);
+            }
+        }
+        try {
+            synchronized (shared) {
+                if (shared.client == null || !shared.client.isConnected() || !shared.client.isAuthenticated()) {
+                    if (shared.client != null) {
+                        if (LOG.isDebugEnabled()) LOG.debug("Shared ssh connection {} no longer connected; reconnecting", shared.key);
+                        disconnectQuietly(shared.client);
+                        shared.client = null;
+                    }
+                    SSHClient client = new SSHClient();
+                    try {
+                        connection.connectAndAuthenticate(client);
+                    } catch (Exception e) {
+                        disconnectQuietly(client);
+                        throw e;
+                    }
+                    shared.client = client;
+                    connectCount.incrementAndGet();
+                    if (LOG.isTraceEnabled()) LOG.trace("Opened shared ssh connection {}", shared);
+                } else {
+                    reuseCount.incrementAndGet();
+                }
+                return shared;
+            }
+        } catch (Exception e) {
+            release(shared);
+            throw e;
+        }
+    }
+
+    /** Releases a reference obtained by {@link #acquire(SshjClientConnection)}; the transport is kept open until it has been idle for its timeout. */
+    void release(SharedConnection shared) {
+        synchronized (connections) {
+            shared.references--;
+            if (shared.references <= 0) {
+                shared.references = 0;
+                shared.lastReleasedNanos = System.nanoTime();
+            }
+        }
+    }
+
+    @VisibleForTesting
+    void evictIdle() {
+        List<SharedConnection> evicted = MutableList.of();
+        long now = System.nanoTime();
+        synchronized (connections) {
+            Iterator<SharedConnection> si = connections.values().iterator();
+            while (si.hasNext()) {
+                SharedConnection shared = si.next();
+                if (shared.references == 0 && TimeUnit.NANOSECONDS.toMillis(now - shared.lastReleasedNanos) >= shared.idleTimeoutMillis) {
+                    si.remove();
+                    evicted.add(shared);
+                }
+            }
+        }
+        for (SharedConnection shared : evicted) {
+            synchronized (shared) {
+                if (LOG.isDebugEnabled()) LOG.debug("Closing idle shared ssh connection {}", shared.key);
+                disconnectQuietly(shared.client);
+                shared.client = null;
+            }
+        }
+    }
+
+    /** Disconnects all shared transports, including those still referenced; subsequent use will reconnect. */
+    public void closeAll() {
+        List<SharedConnection> all;
+        synchronized (connections) {
+            all = MutableList.copyOf(connections.values());
+            connections.clear();
+        }
+        for (SharedConnection shared : all) {
+            synchronized (shared) {
+                disconnectQuietly(shared.client);
+                shared.client = null;
+            }
+        }
+    }
+
+    /** Number of transports currently held open (whether or not in use). */
+    public int getOpenConnectionCount() {
+        synchronized (connections) {
+            return connections.size();
+        }
+    }
+
+    /** Total number of transports which have been connected and authenticated. */
+    public long getConnectCount() {
+        return connectCount.get();
+    }
+
+    /** Total number of times an already-authenticated transport has been reused rather than connecting a new one. */
+    public long getReuseCount() {
+        return reuseCount.get();
+    }
+
+    private static void disconnectQuietly(SSHClient client) {
+        if (client == null) return;
+        try {
+            if (client.isConnected()) client.disconnect();
+        } catch (IOException e) {
+            if (LOG.isDebugEnabled()) LOG.debug("<< exception disconnecting shared ssh connection: {}", e.getMessage());
+        }
+    }
+}
@@ -22,9 +22,11 @@ import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.*;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
+import com.google.common.hash.Hashing;
+import com.google.common.hash.HashingInputStream;
+import com.google.common.io.ByteStreams;
 import com.google.common.io.CountingOutputStream;
 import com.google.common.net.HostAndPort;
-import com.google.common.primitives.Ints;
 import net.schmizz.sshj.common.SecurityUtils;
 import net.schmizz.sshj.connection.ConnectionException;
 import net.schmizz.sshj.connection.channel.direct.PTYMode;
@@ -33,12 +35,15 @@ import net.schmizz.sshj.connection.channel.direct.Session.Command;
 import net.schmizz.sshj.connection.channel.direct.Session.Shell;
 import net.schmizz.sshj.connection.channel.direct.SessionChannel;
 import net.schmizz.sshj.sftp.FileAttributes;
+import net.schmizz.sshj.sftp.OpenMode;
+import net.schmizz.sshj.sftp.RemoteFile;
 import net.schmizz.sshj.sftp.SFTPClient;
 import net.schmizz.sshj.transport.TransportException;
 import net.schmizz.sshj.xfer.FileSystemFile;
 import net.schmizz.sshj.xfer.InMemorySourceFile;
 import net.schmizz.sshj.xfer.LocalDestFile;
 import org.apache.brooklyn.api.mgmt.Task;
+import org.apache.brooklyn.config.ConfigKey;
 import org.apache.brooklyn.core.BrooklynFeatureEnablement;
 import org.apache.brooklyn.util.core.internal.ssh.BackoffLimitedRetryHandler;
 import org.apache.brooklyn.util.core.internal.ssh.ShellTool;
@@ -50,6 +55,7 @@ import org.apache.brooklyn.util.exceptions.RuntimeTimeoutException;
 import org.apache.brooklyn.util.repeat.Repeater;
 import org.apache.brooklyn.util.stream.KnownSizeInputStream;
 import org.apache.brooklyn.util.stream.StreamGobbler;
+import org.apache.brooklyn.util.text.StringEscapes.BashStringEscapes;
 import org.apache.brooklyn.util.text.Strings;
 import org.apache.brooklyn.util.time.Duration;
 import org.apache.brooklyn.util.time.Time;
@@ -58,7 +64,11 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.*;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
 import java.util.Collections;
+import java.util.EnumSet;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.Callable;
@@ -69,6 +79,7 @@ import java.util.concurrent.atomic.AtomicReference;
 import static com.google.common.base.Preconditions.checkNotNull;
 import static com.google.common.base.Throwables.getCausalChain;
 import static com.google.common.collect.Iterables.any;
+import static org.apache.brooklyn.core.config.ConfigKeys.newConfigKey;
 
 /**
  * For ssh and scp-style commands, using the sshj library.
@@ -99,6 +110,25 @@ public class SshjTool extends SshAbstractTool implements SshTool {
         SecurityUtils.setRegisterBouncyCastle(true);
     }
 
+    public static final ConfigKey<Boolean> PROP_SHARE_CONNECTION = newConfigKey("shareConnection",
+            "Whether to multiplex exec and sftp channels over one authenticated connection shared by all sshj tools "
+            + "for the same host, user and credentials, rather than opening a connection per tool; "
+            + "reduces handshake latency and load on the server's MaxStartups when running many commands in parallel", false);
+    public static final ConfigKey<Integer> PROP_MAX_CHANNELS_PER_CONNECTION = newConfigKey("maxChannelsPerConnection",
+            "Maximum number of channels open at once over a shared connection, further operations waiting for one to close; "
+            + "should be no more than the server's MaxSessions (default 10 for OpenSSH)", 8);
+    public static final ConfigKey<Long> PROP_KEEP_ALIVE_INTERVAL = newConfigKey("keepAliveInterval",
+            "Interval in millis between keepalive messages sent over the connection (rounded up to seconds); if 0 then none are sent", 0L);
+    public static final ConfigKey<Long> PROP_SHARED_CONNECTION_IDLE_TIMEOUT = newConfigKey("sharedConnectionIdleTimeout",
+            "Time in millis a shared connection is kept open once no tool is using it", Duration.ONE_MINUTE.toMilliseconds());
+    public static final ConfigKey<Boolean> PROP_RESUME_UPLOADS = newConfigKey("resumeUploads",
+            "Whether a retried copy of a file or byte array continues from the end of the part already written by the failed attempt, "
+            + "rather than starting again; the part written is first checked against the SHA-256 of the same part of the source "
+            + "(using sha256sum or shasum on the server), starting again if it differs or cannot be checked", false);
+
+    /** Number of sftp writes sent ahead of their acknowledgements when resuming an upload */
+    private static final int RESUME_MAX_UNCONFIRMED_WRITES = 16;
+
     protected final int sshTries;
     protected final long sshTriesTimeout;
     protected final BackoffLimitedRetryHandler backoffLimitedRetryHandler;
@@ -136,6 +166,10 @@ public class SshjTool extends SshAbstractTool implements SshTool {
         protected int sshTries = 4;  //allow 4 tries by default, much safer
         protected long sshTriesTimeout = 2*60*1000;  //allow 2 minutes by default (so if too slow trying sshTries times, abort anyway)
         protected long sshRetryDelay = 50L;
+        protected boolean shareConnection;
+        protected int maxChannelsPerConnection = PROP_MAX_CHANNELS_PER_CONNECTION.getDefaultValue();
+        protected long keepAliveInterval;
+        protected long sharedConnectionIdleTimeout = PROP_SHARED_CONNECTION_IDLE_TIMEOUT.getDefaultValue();
 
         @Override
         public B from(Map<String,?> props) {
@@ -145,6 +179,10 @@ public class SshjTool extends SshAbstractTool implements SshTool {
             sshRetryDelay = getOptionalVal(props, PROP_SSH_RETRY_DELAY);
             connectTimeout = getOptionalVal(props, PROP_CONNECT_TIMEOUT);
             sessionTimeout = getOptionalVal(props, PROP_SESSION_TIMEOUT);
+            shareConnection = getOptionalVal(props, PROP_SHARE_CONNECTION);
+            maxChannelsPerConnection = getOptionalVal(props, PROP_MAX_CHANNELS_PER_CONNECTION);
+            keepAliveInterval = getOptionalVal(props, PROP_KEEP_ALIVE_INTERVAL);
+            sharedConnectionIdleTimeout = getOptionalVal(props, PROP_SHARED_CONNECTION_IDLE_TIMEOUT);
             return self();
         }
         public B connectTimeout(int val) {
@@ -162,6 +200,18 @@ public class SshjTool extends SshAbstractTool implements SshTool {
         public B sshRetryDelay(long val) {
             this.sshRetryDelay = val; return self();
         }
+        public B shareConnection(boolean val) {
+            this.shareConnection = val; return self();
+        }
+        public B maxChannelsPerConnection(int val) {
+            this.maxChannelsPerConnection = val; return self();
+        }
+        public B keepAliveInterval(long val) {
+            this.keepAliveInterval = val; return self();
+        }
+        public B sharedConnectionIdleTimeout(long val) {
+            this.sharedConnectionIdleTimeout = val; return self();
+        }
         @Override
         @SuppressWarnings("unchecked")
         public T build() {
@@ -190,6 +240,10 @@ public class SshjTool extends SshAbstractTool implements SshTool {
                 .strictHostKeyChecking(strictHostKeyChecking)
                 .connectTimeout(builder.connectTimeout)
                 .sessionTimeout(builder.sessionTimeout)
+                .shareConnection(builder.shareConnection)
+                .maxChannels(builder.maxChannelsPerConnection)
+                .keepAliveInterval(builder.keepAliveInterval)
+                .idleTimeout(builder.sharedConnectionIdleTimeout)
                 .build();
 
         if (LOG.isTraceEnabled()) LOG.trace("Created SshTool {} ({})", this, System.identityHashCode(this));
@@ -225,7 +279,8 @@ public class SshjTool extends SshAbstractTool implements SshTool {
 
     @Override
     public int copyToServer(java.util.Map<String,?> props, byte[] contents, String pathAndFileOnRemoteServer) {
-        return copyToServer(props, newInputStreamSupplier(contents), contents.length, pathAndFileOnRemoteServer);
+        acquire(new PutFileAction(props, pathAndFileOnRemoteServer, newInputStreamSupplier(contents), contents.length, true));
+        return 0;
     }
 
     @Override
@@ -253,11 +308,12 @@ public class SshjTool extends SshAbstractTool implements SshTool {
 
     @Override
     public int copyToServer(Map<String,?> props, File localFile, String pathAndFileOnRemoteServer) {
-        return copyToServer(props, newInputStreamSupplier(localFile), (int)localFile.length(), pathAndFileOnRemoteServer);
+        acquire(new PutFileAction(props, pathAndFileOnRemoteServer, localFile));
+        return 0;
     }
 
     private int copyToServer(Map<String,?> props, Supplier<InputStream> contentsSupplier, long length, String pathAndFileOnRemoteServer) {
-        acquire(new PutFileAction(props, pathAndFileOnRemoteServer, contentsSupplier, length));
+        acquire(new PutFileAction(props, pathAndFileOnRemoteServer, contentsSupplier, length, false));
         return 0; // TODO Can we assume put will have thrown exception if failed? Rather than exit code != 0?
     }
 
@@ -607,6 +663,24 @@ public class SshjTool extends SshAbstractTool implements SshTool {
     }
 
     protected <T, C extends SshAction<T>> T acquire(C action, int sshTries, Duration sshTriesTimeout) {
+        if (action == sshClientConnection) {
+            return acquireWithRetries(action, sshTries, sshTriesTimeout);
+        }
+        // when sharing a connection, limit the number of channels open over it at once
+        Runnable channelRelease;
+        try {
+            channelRelease = sshClientConnection.reserveChannel();
+        } catch (InterruptedException e) {
+            throw Exceptions.propagate(e);
+        }
+        try {
+            return acquireWithRetries(action, sshTries, sshTriesTimeout);
+        } finally {
+            channelRelease.run();
+        }
+    }
+
+    private <T, C extends SshAction<T>> T acquireWithRetries(C action, int sshTries, Duration sshTriesTimeout) {
         Stopwatch stopwatch = Stopwatch.createStarted();
 
         for (int i = 0; i < sshTries; i++) {
@@ -735,9 +809,23 @@ public class SshjTool extends SshAbstractTool implements SshTool {
         private final long lastAccessDate;
         private final int uid;
         private final Supplier<InputStream> contentsSupplier;
-        private final Integer length;
+        private final File localFile;
+        private final long length;
+        /** whether the contents can be re-read from an offset, so a failed attempt can be resumed */
+        private final boolean resumable;
+        private int attempts;
+        /** set once the remote file has been opened (and truncated) by an attempt, so anything there is ours */
+        private volatile boolean uploadStarted;
+
+        PutFileAction(Map<String,?> props, String path, File localFile) {
+            this(props, path, localFile, newInputStreamSupplier(localFile), localFile.length(), true);
+        }
+
+        PutFileAction(Map<String,?> props, String path, Supplier<InputStream> contentsSupplier, long length, boolean rereadable) {
+            this(props, path, null, contentsSupplier, length, rereadable);
+        }
 
-        PutFileAction(Map<String,?> props, String path, Supplier<InputStream> contentsSupplier, long length) {
+        private PutFileAction(Map<String,?> props, String path, File localFile, Supplier<InputStream> contentsSupplier, long length, boolean rereadable) {
             String permissions = getOptionalVal(props, PROP_PERMISSIONS);
             long lastModificationDateVal = getOptionalVal(props, PROP_LAST_MODIFICATION_DATE);
             long lastAccessDateVal = getOptionalVal(props, PROP_LAST_ACCESS_DATE);
@@ -751,7 +839,9 @@ public class SshjTool extends SshAbstractTool implements SshTool {
             this.uid = getOptionalVal(props, PROP_OWNER_UID);
             this.path = checkNotNull(path, "path");
             this.contentsSupplier = checkNotNull(contentsSupplier, "contents");
-            this.length = Ints.checkedCast(checkNotNull(length, "size"));
+            this.localFile = localFile;
+            this.length = length;
+            this.resumable = rereadable && Boolean.TRUE.equals(getOptionalVal(props, PROP_RESUME_UPLOADS));
         }
 
         @Override
@@ -764,20 +854,14 @@ public class SshjTool extends SshAbstractTool implements SshTool {
         public Void create() throws Exception {
             final AtomicReference<InputStream> inputStreamRef = new AtomicReference<InputStream>();
             sftp = acquire(sftpConnection);
+            long resumeFrom = (attempts++ > 0 && resumable && uploadStarted) ? getResumeOffset() : 0;
             try {
-                sftp.put(new InMemorySourceFile() {
-                    @Override public String getName() {
-                        return path;
-                    }
-                    @Override public long getLength() {
-                        return length;
-                    }
-                    @Override public InputStream getInputStream() throws IOException {
-                        InputStream contents = contentsSupplier.get();
-                        inputStreamRef.set(contents);
-                        return contents;
-                    }
-                }, path);
+                if (resumeFrom > 0) {
+                    LOG.debug("Resuming upload of {} to {} from byte {} of {} (attempt {})", new Object[] {localFile!=null ? localFile : "contents", path, resumeFrom, length, attempts});
+                    resumeUpload(resumeFrom, inputStreamRef);
+                } else {
+                    upload(inputStreamRef);
+                }
                 sftp.chmod(path, permissionsMask);
                 if (uid != -1) {
                     sftp.chown(path, uid);
@@ -793,12 +877,99 @@ public class SshjTool extends SshAbstractTool implements SshTool {
             return null;
         }
 
+        private void upload(final AtomicReference<InputStream> inputStreamRef) throws IOException {
+            sftp.put(new InMemorySourceFile() {
+                @Override public String getName() {
+                    return path;
+                }
+                @Override public long getLength() {
+                    return length;
+                }
+                @Override public InputStream getInputStream() throws IOException {
+                    // sftp opens (and truncates) the remote file before asking for the contents
+                    uploadStarted = true;
+                    InputStream contents = contentsSupplier.get();
+                    inputStreamRef.set(contents);
+                    return contents;
+                }
+            }, path);
+        }
+
+        /**
+         * size of the partial file left by a previous attempt, or 0 if the upload must start again;
+         * as pipelined writes can complete out of order, the size alone does not mean everything before it was written,
+         * so the contents are compared by checksum
+         */
+        private long getResumeOffset() throws IOException {
+            FileAttributes existing = sftp.statExistence(path);
+            if (existing == null) return 0;
+            long size = existing.getSize();
+            if (size <= 0 || size >= length) return 0;
+            String remoteChecksum = checksumRemotePrefix(path, size);
+            if (remoteChecksum == null) {
+                LOG.debug("Unable to checksum partial upload of {} at {}; starting upload again", path, host);
+                return 0;
+            }
+            String localChecksum;
+            try (InputStream contents = contentsSupplier.get()) {
+                HashingInputStream hashing = new HashingInputStream(Hashing.sha256(), ByteStreams.limit(contents, size));
+                if (ByteStreams.exhaust(hashing) != size) return 0;
+                localChecksum = hashing.hash().toString();
+            }
+            if (!localChecksum.equals(remoteChecksum)) {
+                LOG.debug("Partial upload of {} at {} differs from source; starting upload again", path, host);
+                return 0;
+            }
+            return size;
+        }
+
+        private void resumeUpload(long offset, AtomicReference<InputStream> inputStreamRef) throws IOException {
+            InputStream contents;
+            if (localFile != null) {
+                // position the channel rather than reading through the part already sent
+                FileChannel channel = FileChannel.open(localFile.toPath(), StandardOpenOption.READ);
+                channel.position(offset);
+                contents = Channels.newInputStream(channel);
+                inputStreamRef.set(contents);
+            } else {
+                contents = contentsSupplier.get();
+                inputStreamRef.set(contents);
+                ByteStreams.skipFully(contents, offset);
+            }
+            RemoteFile remote = sftp.open(path, EnumSet.of(OpenMode.WRITE));
+            try {
+                OutputStream out = remote.new RemoteFileOutputStream(offset, RESUME_MAX_UNCONFIRMED_WRITES);
+                ByteStreams.copy(contents, out);
+                out.close();
+            } finally {
+                closeWhispering(remote, this);
+            }
+        }
+
         @Override
         public String toString() {
             return "Put(path=[" + path + " "+length+"])";
         }
     }
 
+    /** SHA-256 (as lower-case hex) of the first given number of bytes of the remote file, or null if it cannot be computed */
+    private String checksumRemotePrefix(String path, long length) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try {
+            int result = execCommands(ImmutableMap.of(PROP_OUT_STREAM.getName(), out, PROP_ERR_STREAM.getName(), new ByteArrayOutputStream()),
+                    ImmutableList.of("head -c "+length+" "+BashStringEscapes.wrapBash(path)+" | ( sha256sum 2>/dev/null || shasum -a 256 )"),
+                    ImmutableMap.<String, Object>of());
+            if (result != 0) return null;
+        } catch (Exception e) {
+            Exceptions.propagateIfFatal(e);
+            LOG.debug("Failed to checksum "+path+" at "+host+": "+e);
+            return null;
+        }
+        String stdout = Strings.trim(new String(out.toByteArray(), Charsets.UTF_8));
+        if (Strings.isBlank(stdout)) return null;
+        return stdout.split("\\s+")[0].toLowerCase();
+    }
+
     // TODO simpler not to use predicates (this seems not to be used)
     @VisibleForTesting
     Predicate<String> causalChainHasMessageContaining(final Exception from) {
@@ -1122,7 +1293,9 @@ public class SshjTool extends SshAbstractTool implements SshTool {
         return org.bouncycastle.util.Strings.toUTF8ByteArray(string);
     }
 
-    private Supplier<InputStream> newInputStreamSupplier(final byte[] contents) {
+    /** supplies the contents for each attempt at an upload (and for checking a partial upload before resuming it) */
+    @VisibleForTesting
+    protected Supplier<InputStream> newInputStreamSupplier(final byte[] contents) {
         return new Supplier<InputStream>() {
             @Override public InputStream get() {
                 return new ByteArrayInputStream(contents);
@@ -1130,7 +1303,9 @@ public class SshjTool extends SshAbstractTool implements SshTool {
         };
     }
 
-    private Supplier<InputStream> newInputStreamSupplier(final File file) {
+    /** @see #newInputStreamSupplier(byte[]) */
+    @VisibleForTesting
+    protected Supplier<InputStream> newInputStreamSupplier(final File file) {
         return new Supplier<InputStream>() {
             @Override public InputStream get() {
                 try {
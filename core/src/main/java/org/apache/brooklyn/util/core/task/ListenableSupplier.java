@@ -0,0 +1,42 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.brooklyn.util.core.task;
+
+import com.google.common.annotations.Beta;
+import com.google.common.util.concurrent.ListenableFuture;
+
+/**
+ * A deferred value which can be waited for without a thread being held while it is not available,
+ * typically by subscribing to be notified when it changes (such as {@code attributeWhenReady}).
+ * <p>
+ * {@link ValueResolver} prefers this to running a task to wait for the value (see {@link ValueResolver#async(boolean)}):
+ * the caller still waits for the result, but no other thread is used to do so.
+ */
+@Beta
+public interface ListenableSupplier<T> {
+
+    /**
+     * Starts waiting for the value, returning a future which is completed when it is available
+     * (or failed, if it never will be); cancelling the future stops waiting.
+     * <p>
+     * Invoked in a task in the execution context which is resolving the value, and must not block.
+     */
+    ListenableFuture<T> getListenable();
+
+}
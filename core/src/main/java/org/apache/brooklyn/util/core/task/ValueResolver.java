@@ -53,6 +53,7 @@ import com.google.common.annotations.Beta;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.google.common.reflect.TypeToken;
+import com.google.common.util.concurrent.ListenableFuture;
 
 import javax.annotation.Nullable;
 
@@ -135,6 +136,8 @@ public class ValueResolver<T> implements DeferredSupplier<T>, Iterable<Maybe<Obj
     Duration timeout;
     boolean immediately;
     boolean recursive = true;
+    /** whether to wait for {@link ListenableSupplier}s via their future rather than in a task */
+    boolean async = false;
 
     boolean isTransientTask = true;
     
@@ -187,6 +190,7 @@ public class ValueResolver<T> implements DeferredSupplier<T>, Iterable<Maybe<Obj
 
         timeout = parent.timeout;
         immediately = parent.immediately;
+        async = parent.async;
         if (parentTimer!=null && parentTimer.isExpired())
             expired = true;
 
@@ -343,6 +347,18 @@ public class ValueResolver<T> implements DeferredSupplier<T>, Iterable<Maybe<Obj
         return this;
     }
 
+    /**
+     * Whether values which can be waited for without holding a thread (a {@link ListenableSupplier}, such as
+     * {@code $brooklyn:attributeWhenReady}) should be, rather than by running a task to wait for them; default false.
+     * The caller still waits for the value (subject to any {@link #timeout(Duration)}), but no other thread does.
+     * Tasks (e.g. from {@code DependentConfiguration.attributeWhenReady}) are always run, so their result is kept.
+     */
+    @Beta
+    public ValueResolver<T> async(boolean val) {
+        this.async = val;
+        return this;
+    }
+
     /**
      * Whether the value should be resolved recursively. When true the result of
      * the resolving will be resolved again recursively until the value is an immediate object.
@@ -502,6 +518,17 @@ public class ValueResolver<T> implements DeferredSupplier<T>, Iterable<Maybe<Obj
                 }
             }
 
+            Maybe<ListenableSupplier<?>> listenable = async && !isEvaluatingImmediately() ? getListenableSupplier(v) : Maybe.<ListenableSupplier<?>>absent();
+            if (listenable.isPresent()) {
+                if (exec==null) {
+                    return Maybe.absent("Value for '"+getDescription()+"' requested but no execution context available");
+                }
+                Maybe<?> vm = getListenably(listenable.get(), timer);
+                if (vm.isAbsent()) return (Maybe<T>)vm;
+                v = vm.get();
+                return recursive ? new ValueResolver(v, typeT, this).getMaybe() : (Maybe<T>) Maybe.of(v);
+            }
+
             if (v instanceof Task) {
                 //if it's a task, we make sure it is submitted
                 Task<?> task = (Task<?>) v;
@@ -708,6 +735,39 @@ public class ValueResolver<T> implements DeferredSupplier<T>, Iterable<Maybe<Obj
         }
     }
 
+    private static Maybe<ListenableSupplier<?>> getListenableSupplier(Object v) {
+        if (v instanceof ListenableSupplier) return Maybe.<ListenableSupplier<?>>of((ListenableSupplier<?>)v);
+        return Maybe.absent();
+    }
+
+    /** starts waiting in our execution context (so the subscriber is the entity whose value this is), then waits here for the result */
+    @SuppressWarnings("unchecked")
+    private Maybe<?> getListenably(final ListenableSupplier<?> supplier, final CountdownTimer timer) throws Exception {
+        Task<ListenableFuture<?>> start = Tasks.<ListenableFuture<?>>builder().dynamic(false)
+                .displayName("Subscribing for dependent value")
+                .description(getDescription())
+                .tag(BrooklynTaskTags.TRANSIENT_TASK_TAG)
+                .body(new Callable<ListenableFuture<?>>() {
+                    @Override
+                    public ListenableFuture<?> call() {
+                        return supplier.getListenable();
+                    }
+                })
+                .build();
+        final ListenableFuture<Object> future = (ListenableFuture<Object>) exec.get(start);
+        try {
+            return Tasks.withBlockingDetails("Waiting for " + getDescription(), new Callable<Maybe<Object>>() {
+                @Override
+                public Maybe<Object> call() {
+                    return Durations.get(future, timer);
+                }
+            });
+        } finally {
+            // stops waiting (e.g. removing subscriptions) if we timed out; no-op if done
+            future.cancel(true);
+        }
+    }
+
     // whether value resolution supports deep resolution
     /** @deprecated since 1.0.0 use {@link #supportsDeepResolution(Object, TypeToken)} */
     @Beta @Deprecated
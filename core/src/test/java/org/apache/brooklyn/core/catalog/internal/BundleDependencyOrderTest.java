@@ -0,0 +1,88 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.brooklyn.core.catalog.internal;
+
+import static org.testng.Assert.assertEquals;
+
+import java.util.List;
+import java.util.Map;
+
+import org.apache.brooklyn.util.collections.MutableMap;
+import org.testng.annotations.Test;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+
+public class BundleDependencyOrderTest {
+
+    @Test
+    public void testParseNames() {
+        assertEquals(BundleDependencyOrder.parseNames(null), ImmutableList.of());
+        assertEquals(BundleDependencyOrder.parseNames("a"), ImmutableList.of("a"));
+        assertEquals(BundleDependencyOrder.parseNames("a;singleton:=true"), ImmutableList.of("a"));
+        assertEquals(BundleDependencyOrder.parseNames("a;b;version=\"[1,2)\",c;resolution:=optional, d"), ImmutableList.of("a", "b", "c", "d"));
+    }
+
+    @Test
+    public void testIndependentBundlesInOneWave() {
+        Map<String, Map<String, String>> headers = MutableMap.of();
+        headers.put("a", bundle("a", null, null, "org.a"));
+        headers.put("b", bundle("b", null, null, "org.b"));
+        assertEquals(BundleDependencyOrder.computeWaves(headers), ImmutableList.of(ImmutableList.of("a", "b")));
+    }
+
+    @Test
+    public void testOrdersByRequireBundleAndImportPackage() {
+        Map<String, Map<String, String>> headers = MutableMap.of();
+        headers.put("c", bundle("c", null, "org.b;version=\"[1,2)\"", null));
+        headers.put("b", bundle("b", "a", null, "org.b;version=1.0"));
+        headers.put("a", bundle("a", null, "org.osgi.framework", "org.a"));
+        headers.put("d", bundle("d", "other", "org.other", null));
+        List<List<String>> waves = BundleDependencyOrder.computeWaves(headers);
+        assertEquals(waves, ImmutableList.of(ImmutableList.of("a", "d"), ImmutableList.of("b"), ImmutableList.of("c")));
+    }
+
+    @Test
+    public void testCycleStartedTogether() {
+        Map<String, Map<String, String>> headers = MutableMap.of();
+        headers.put("a", bundle("a", null, "org.b", "org.a"));
+        headers.put("b", bundle("b", null, "org.a", "org.b"));
+        headers.put("c", bundle("c", null, null, "org.c"));
+        headers.put("d", bundle("d", null, null, null));
+        headers.put("e", null);
+        assertEquals(BundleDependencyOrder.computeWaves(headers),
+                ImmutableList.of(ImmutableList.of("c", "d", "e"), ImmutableList.of("a", "b")));
+    }
+
+    @Test
+    public void testSelfImportIgnored() {
+        Map<String, Map<String, String>> headers = MutableMap.of();
+        headers.put("a", bundle("a", "a", "org.a", "org.a"));
+        assertEquals(BundleDependencyOrder.computeWaves(headers), ImmutableList.of(ImmutableList.of("a")));
+    }
+
+    private static Map<String, String> bundle(String symbolicName, String requireBundle, String importPackage, String exportPackage) {
+        ImmutableMap.Builder<String, String> result = ImmutableMap.builder();
+        result.put("Bundle-SymbolicName", symbolicName);
+        if (requireBundle != null) result.put("Require-Bundle", requireBundle);
+        if (importPackage != null) result.put("Import-Package", importPackage);
+        if (exportPackage != null) result.put("Export-Package", exportPackage);
+        return result.build();
+    }
+}
@@ -0,0 +1,136 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.brooklyn.core.catalog.internal;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.Set;
+
+import org.apache.brooklyn.api.typereg.BrooklynTypeRegistry.RegisteredTypeKind;
+import org.apache.brooklyn.api.typereg.RegisteredType;
+import org.apache.brooklyn.core.test.BrooklynMgmtUnitTestSupport;
+import org.apache.brooklyn.core.typereg.BasicBrooklynTypeRegistry;
+import org.apache.brooklyn.core.typereg.BasicTypeImplementationPlan;
+import org.apache.brooklyn.core.typereg.JavaClassNameTypePlanTransformer;
+import org.apache.brooklyn.core.typereg.RegisteredTypes;
+import org.apache.brooklyn.util.os.Os;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+
+public class TypeRegistryStartupCacheTest extends BrooklynMgmtUnitTestSupport {
+
+    public static class NoArg {
+    }
+
+    public static class OtherNoArg {
+    }
+
+    private File file;
+
+    @BeforeMethod(alwaysRun=true)
+    @Override
+    public void setUp() throws Exception {
+        super.setUp();
+        file = Os.newTempFile(getClass(), ".json");
+        file.delete();
+    }
+
+    @AfterMethod(alwaysRun=true)
+    @Override
+    public void tearDown() throws Exception {
+        try {
+            super.tearDown();
+        } finally {
+            if (file != null) file.delete();
+        }
+    }
+
+    @Test
+    public void testResolvesFromSnapshotWhenKeyMatches() {
+        RegisteredType type = newUnresolvedType(NoArg.class);
+        registry().addToLocalUnpersistedTypeRegistry(type, false);
+        assertTrue(mgmt.getCatalog().validateTypes(ImmutableList.of(type)).isEmpty());
+        assertEquals(mgmt.getTypeRegistry().get(type.getId()).getKind(), RegisteredTypeKind.BEAN);
+
+        new TypeRegistryStartupCache(mgmt, file).save("key1", ImmutableList.of(type));
+        assertTrue(file.exists());
+
+        // as after a restart, when the bundle has been parsed again but not validated
+        RegisteredType reparsed = newUnresolvedType(NoArg.class);
+        registry().addToLocalUnpersistedTypeRegistry(reparsed, true);
+        assertEquals(mgmt.getTypeRegistry().get(type.getId()).getKind(), RegisteredTypeKind.UNRESOLVED);
+
+        TypeRegistryStartupCache cache = new TypeRegistryStartupCache(mgmt, file);
+        assertFalse(cache.load("key2"));
+        assertTrue(cache.load("key1"));
+        Set<RegisteredType> remaining = cache.resolveFromSnapshot(ImmutableList.of(reparsed));
+        assertTrue(remaining.isEmpty(), "remaining="+remaining);
+
+        RegisteredType resolved = mgmt.getTypeRegistry().get(type.getId());
+        assertEquals(resolved.getKind(), RegisteredTypeKind.BEAN);
+        assertTrue(resolved.getSuperTypes().contains(NoArg.class), "supertypes="+resolved.getSuperTypes());
+        assertEquals(RegisteredTypes.peekActualJavaType(resolved), NoArg.class);
+    }
+
+    @Test
+    public void testChangedPlanIsNotResolvedFromSnapshot() {
+        RegisteredType type = newUnresolvedType(NoArg.class);
+        registry().addToLocalUnpersistedTypeRegistry(type, false);
+        assertTrue(mgmt.getCatalog().validateTypes(ImmutableList.of(type)).isEmpty());
+        new TypeRegistryStartupCache(mgmt, file).save("key1", ImmutableList.of(type));
+
+        RegisteredType changed = newUnresolvedType(OtherNoArg.class);
+        registry().addToLocalUnpersistedTypeRegistry(changed, true);
+
+        TypeRegistryStartupCache cache = new TypeRegistryStartupCache(mgmt, file);
+        assertTrue(cache.load("key1"));
+        assertEquals(cache.resolveFromSnapshot(ImmutableList.of(changed)), ImmutableSet.of(changed));
+        assertEquals(mgmt.getTypeRegistry().get(type.getId()).getKind(), RegisteredTypeKind.UNRESOLVED);
+    }
+
+    @Test
+    public void testMissingOrCorruptSnapshotIgnored() throws Exception {
+        TypeRegistryStartupCache cache = new TypeRegistryStartupCache(mgmt, file);
+        assertFalse(cache.load("key1"));
+
+        Files.write(file.toPath(), "not json".getBytes());
+        assertFalse(cache.load("key1"));
+        RegisteredType type = newUnresolvedType(NoArg.class);
+        assertEquals(cache.resolveFromSnapshot(ImmutableList.of(type)).size(), 1);
+    }
+
+    private BasicBrooklynTypeRegistry registry() {
+        return (BasicBrooklynTypeRegistry) mgmt.getTypeRegistry();
+    }
+
+    private RegisteredType newUnresolvedType(Class<?> javaType) {
+        return RegisteredTypes.copyResolved(RegisteredTypeKind.UNRESOLVED,
+            RegisteredTypes.bean("startup-cache-test", "1.0", new BasicTypeImplementationPlan(JavaClassNameTypePlanTransformer.FORMAT, javaType.getName())),
+            true);
+    }
+
+}
@@ -25,6 +25,7 @@ import java.util.Collections;
 import java.util.List;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicReference;
@@ -41,6 +42,7 @@ import org.apache.brooklyn.core.test.entity.TestEntity;
 import org.apache.brooklyn.test.Asserts;
 import org.apache.brooklyn.util.collections.MutableList;
 import org.apache.brooklyn.util.collections.MutableMap;
+import org.apache.brooklyn.util.core.task.BasicExecutionManager;
 import org.apache.brooklyn.util.core.task.BasicTask;
 import org.apache.brooklyn.util.exceptions.Exceptions;
 import org.apache.brooklyn.util.javalang.JavaClassNames;
@@ -60,6 +62,7 @@ import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.util.concurrent.Callables;
+import com.google.common.util.concurrent.ListenableFuture;
 
 /** Tests the standalone routines in dependent configuration.
  * See e.g. LocalEntitiesTest for tests of attributeWhenReady etc.
@@ -319,6 +322,99 @@ public class DependentConfigurationTest extends BrooklynAppUnitTestSupport {
         assertEquals(t.get(), "myentity");
     }
 
+    @Test
+    public void testAttributeWhenReadyRunAsync() throws Exception {
+        ListenableFuture<String> future = submit(new Callable<ListenableFuture<String>>() {
+            @Override
+            public ListenableFuture<String> call() {
+                return DependentConfiguration.builder()
+                        .attributeWhenReady(entity, TestEntity.SEQUENCE)
+                        .postProcess(Functions.toStringFunction())
+                        .runAsync();
+            }}).get(TIMEOUT_MS, TimeUnit.MILLISECONDS);
+
+        assertNotDoneContinually(future);
+
+        entity.sensors().set(TestEntity.SEQUENCE, 1);
+        assertEquals(future.get(TIMEOUT_MS, TimeUnit.MILLISECONDS), "1");
+    }
+
+    @Test
+    public void testAttributeWhenReadyRunAsyncWithAbort() throws Exception {
+        ListenableFuture<String> future = submit(new Callable<ListenableFuture<String>>() {
+            @Override
+            public ListenableFuture<String> call() {
+                return DependentConfiguration.builder()
+                        .attributeWhenReady(entity, TestEntity.NAME)
+                        .abortIf(entity2, TestEntity.SEQUENCE, Predicates.equalTo(1))
+                        .runAsync();
+            }}).get(TIMEOUT_MS, TimeUnit.MILLISECONDS);
+
+        entity2.sensors().set(TestEntity.SEQUENCE, 321);
+        assertNotDoneContinually(future);
+
+        entity2.sensors().set(TestEntity.SEQUENCE, 1);
+        try {
+            future.get(TIMEOUT_MS, TimeUnit.MILLISECONDS);
+            fail();
+        } catch (ExecutionException e) {
+            if (!e.toString().contains("Aborted waiting for ready")) throw e;
+        }
+    }
+
+    @Test
+    public void testAttributeWhenReadyRunAsyncTimesOut() throws Exception {
+        ListenableFuture<String> future = submit(new Callable<ListenableFuture<String>>() {
+            @Override
+            public ListenableFuture<String> call() {
+                return DependentConfiguration.builder()
+                        .attributeWhenReady(entity, TestEntity.NAME)
+                        .timeout(Duration.millis(SHORT_WAIT_MS))
+                        .onTimeoutReturn("default")
+                        .runAsync();
+            }}).get(TIMEOUT_MS, TimeUnit.MILLISECONDS);
+
+        assertEquals(future.get(TIMEOUT_MS, TimeUnit.MILLISECONDS), "default");
+    }
+
+    @Test
+    public void testAttributeWhenReadyRunAsyncSubmitsNoTasksWhileWaiting() throws Exception {
+        ListenableFuture<String> future = submit(new Callable<ListenableFuture<String>>() {
+            @Override
+            public ListenableFuture<String> call() {
+                return DependentConfiguration.builder()
+                        .attributeWhenReady(entity, TestEntity.NAME)
+                        .runAsync();
+            }}).get(TIMEOUT_MS, TimeUnit.MILLISECONDS);
+
+        long tasksSubmitted = ((BasicExecutionManager) mgmt.getExecutionManager()).getTotalTasksSubmitted();
+        assertNotDoneContinually(future);
+        assertEquals(((BasicExecutionManager) mgmt.getExecutionManager()).getTotalTasksSubmitted(), tasksSubmitted);
+
+        entity.sensors().set(TestEntity.NAME, "myval");
+        assertEquals(future.get(TIMEOUT_MS, TimeUnit.MILLISECONDS), "myval");
+    }
+
+    @Test
+    public void testConfigResolvesAttributeWhenReadyTaskAndKeepsItsResult() throws Exception {
+        Task<String> attributeWhenReady = DependentConfiguration.attributeWhenReady(entity, TestEntity.NAME);
+        entity2.config().set(TestEntity.CONF_NAME, attributeWhenReady);
+        Task<String> t = submit(new Callable<String>() {
+            @Override
+            public String call() {
+                return entity2.config().get(TestEntity.CONF_NAME);
+            }});
+
+        assertNotDoneContinually(t);
+
+        entity.sensors().set(TestEntity.NAME, "myval");
+        assertEquals(assertDoneEventually(t), "myval");
+        // the task itself is run, so its result is kept rather than waited for again on the next read
+        assertEquals(attributeWhenReady.get(Duration.ONE_SECOND), "myval");
+        entity.sensors().set(TestEntity.NAME, null);
+        assertEquals(entity2.config().get(TestEntity.CONF_NAME), "myval");
+    }
+
     @Test
     public void testAttributeWhenReadyAbortsWhenOnFireByDefault() {
         log.info("starting test "+JavaClassNames.niceClassAndMethod());
@@ -426,6 +522,17 @@ public class DependentConfigurationTest extends BrooklynAppUnitTestSupport {
             }
         });
     }
+
+    private void assertNotDoneContinually(final Future<?> f) {
+        Asserts.succeedsContinually(ImmutableMap.of("timeout", SHORT_WAIT_MS), new Callable<Void>() {
+            @Override public Void call() throws Exception {
+                if (f.isDone()) {
+                    fail("future unexpectedly done: f="+f+"; result="+f.get());
+                }
+                return null;
+            }
+        });
+    }
     
     private <T> T assertDoneEventually(final Task<T> t) throws Exception {
         final AtomicReference<ExecutionException> exception = new AtomicReference<ExecutionException>();
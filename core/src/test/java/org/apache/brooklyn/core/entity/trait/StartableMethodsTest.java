@@ -19,16 +19,24 @@
 package org.apache.brooklyn.core.entity.trait;
 
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
 import static org.testng.Assert.fail;
 
 import org.apache.brooklyn.api.entity.EntitySpec;
 import org.apache.brooklyn.api.mgmt.Task;
+import org.apache.brooklyn.api.sensor.AttributeSensor;
+import org.apache.brooklyn.core.entity.BrooklynConfigKeys;
 import org.apache.brooklyn.core.entity.Entities;
 import org.apache.brooklyn.core.entity.trait.StartableMethods;
 import org.apache.brooklyn.core.entity.trait.FailingEntity.RecordingEventListener;
 import org.apache.brooklyn.core.location.SimulatedLocation;
+import org.apache.brooklyn.core.sensor.DependentConfiguration;
+import org.apache.brooklyn.core.sensor.Sensors;
 import org.apache.brooklyn.core.test.BrooklynAppUnitTestSupport;
 import org.apache.brooklyn.core.test.entity.TestEntity;
+import org.apache.brooklyn.entity.stock.BasicStartable;
+import org.apache.brooklyn.test.Asserts;
 import org.apache.brooklyn.util.core.task.Tasks;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
@@ -124,4 +132,41 @@ public class StartableMethodsTest extends BrooklynAppUnitTestSupport {
             Entities.unmanage(entity);
         }
     }
+
+    @Test
+    public void testStartingChildrenWaitsForLatchDependency() throws Exception {
+        AttributeSensor<Boolean> go = Sensors.newBooleanSensor("test.go");
+        AttributeSensor<Boolean> never = Sensors.newBooleanSensor("test.never");
+        BasicStartable upstream = app.createAndManageChild(EntitySpec.create(BasicStartable.class)
+                .configure(BrooklynConfigKeys.START_LATCH, DependentConfiguration.attributeWhenReady(app, go)));
+        // TestEntity ignores its latch, so it is only held back by the dependency ordering,
+        // until the upstream entity has started (as the sensor it waits on is never set)
+        entity = app.createAndManageChild(EntitySpec.create(TestEntity.class)
+                .configure(BrooklynConfigKeys.START_LATCH, DependentConfiguration.attributeWhenReady(upstream, never)));
+
+        final Task<?> task = Entities.submit(app, StartableMethods.startingChildren(app, ImmutableList.of(loc))).asTask();
+        Asserts.succeedsContinually(new Runnable() {
+            @Override public void run() {
+                assertFalse(entity.getCallHistory().contains("start"));
+                assertFalse(task.isDone());
+            }});
+
+        app.sensors().set(go, true);
+        task.get();
+        assertTrue(entity.getCallHistory().contains("start"));
+    }
+
+    @Test
+    public void testStartingChildrenWithCyclicLatchesStartsAll() throws Exception {
+        AttributeSensor<Boolean> never = Sensors.newBooleanSensor("test.never");
+        entity = app.createAndManageChild(EntitySpec.create(TestEntity.class));
+        entity2 = app.createAndManageChild(EntitySpec.create(TestEntity.class)
+                .configure(BrooklynConfigKeys.START_LATCH, DependentConfiguration.attributeWhenReady(entity, never)));
+        entity.config().set(BrooklynConfigKeys.START_LATCH, DependentConfiguration.attributeWhenReady(entity2, never));
+
+        Entities.submit(app, StartableMethods.startingChildren(app, ImmutableList.of(loc))).asTask().get();
+
+        assertTrue(entity.getCallHistory().contains("start"));
+        assertTrue(entity2.getCallHistory().contains("start"));
+    }
 }
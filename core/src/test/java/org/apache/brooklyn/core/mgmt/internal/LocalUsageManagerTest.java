@@ -20,12 +20,25 @@
 package org.apache.brooklyn.core.mgmt.internal;
 
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertNull;
 import static org.testng.Assert.assertTrue;
 
+import java.util.Date;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.apache.brooklyn.api.location.Location;
+import org.apache.brooklyn.core.entity.Entities;
+import org.apache.brooklyn.core.entity.lifecycle.Lifecycle;
 import org.apache.brooklyn.core.internal.BrooklynProperties;
+import org.apache.brooklyn.core.mgmt.usage.ApplicationUsage;
+import org.apache.brooklyn.core.mgmt.usage.LocationUsage;
 import org.apache.brooklyn.core.mgmt.usage.RecordingUsageListener;
 import org.apache.brooklyn.core.mgmt.usage.UsageListener;
 import org.apache.brooklyn.core.mgmt.usage.UsageManager;
@@ -33,6 +46,11 @@ import org.apache.brooklyn.core.test.BrooklynAppUnitTestSupport;
 import org.apache.brooklyn.core.test.entity.LocalManagementContextForTests;
 import org.apache.brooklyn.core.test.entity.TestApplication;
 import org.apache.brooklyn.test.Asserts;
+import org.apache.brooklyn.util.collections.MutableMap;
+import org.apache.brooklyn.util.core.task.ScheduledTask;
+import org.apache.brooklyn.util.exceptions.Exceptions;
+import org.apache.brooklyn.util.time.Duration;
+import org.apache.brooklyn.util.time.Time;
 import org.testng.annotations.AfterMethod;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
@@ -111,6 +129,170 @@ public class LocalUsageManagerTest extends BrooklynAppUnitTestSupport {
         replaceManagementContext(LocalManagementContextForTests.newInstance(brooklynProperties));
     }
 
+    @Test
+    public void testListenerSeesEachAppsEventsInOrderThroughBoundedQueue() throws Exception {
+        // slow enough that the queue fills, so the concurrent recorders wait for space
+        final RecordingUsageListener listener = new RecordingUsageListener() {
+            @Override
+            public void onApplicationEvent(ApplicationMetadata app, ApplicationUsage.ApplicationEvent event) {
+                Time.sleep(Duration.millis(1));
+                super.onApplicationEvent(app, event);
+            }
+        };
+        BrooklynProperties brooklynProperties = BrooklynProperties.Factory.newEmpty();
+        brooklynProperties.put(UsageManager.USAGE_LISTENERS, ImmutableList.of(listener));
+        brooklynProperties.put(UsageManager.USAGE_LISTENER_QUEUE_CAPACITY, 2);
+        brooklynProperties.put(UsageManager.USAGE_LISTENER_BATCH_SIZE, 3);
+        replaceManagementContext(LocalManagementContextForTests.newInstance(brooklynProperties));
+
+        final int numApps = 4;
+        final int numEvents = 25;
+        List<TestApplication> apps = Lists.newArrayList();
+        for (int i = 0; i < numApps; i++) {
+            apps.add(TestApplication.Factory.newManagedInstanceForTests(mgmt));
+        }
+        final List<Lifecycle> states = Lists.newArrayList();
+        for (int i = 0; i < numEvents; i++) {
+            states.add((i % 3 == 0) ? Lifecycle.STARTING : (i % 3 == 1) ? Lifecycle.RUNNING : Lifecycle.STOPPED);
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(numApps);
+        try {
+            final CountDownLatch startLatch = new CountDownLatch(1);
+            List<Future<?>> futures = Lists.newArrayList();
+            for (final TestApplication eachApp : apps) {
+                futures.add(executor.submit(new Callable<Void>() {
+                    @Override public Void call() throws Exception {
+                        startLatch.await();
+                        for (Lifecycle state : states) {
+                            mgmt.getUsageManager().recordApplicationEvent(eachApp, state);
+                        }
+                        return null;
+                    }}));
+            }
+            startLatch.countDown();
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        final LocalUsageManager usageManager = (LocalUsageManager) mgmt.getUsageManager();
+        Asserts.succeedsEventually(new Runnable() {
+            @Override public void run() {
+                LocalUsageManager.ListenerMetrics metrics = usageManager.getListenerMetrics().get(listener);
+                assertEquals(metrics.getQueueSize(), 0, "metrics="+metrics);
+                assertEquals(metrics.getDelivered(), listener.getEvents().size(), "metrics="+metrics);
+            }});
+        LocalUsageManager.ListenerMetrics metrics = usageManager.getListenerMetrics().get(listener);
+        assertEquals(metrics.getDropped(), 0, "metrics="+metrics);
+
+        // events for different apps interleave, but each app's are delivered in the order they were recorded
+        for (TestApplication eachApp : apps) {
+            List<Lifecycle> appStates = Lists.newArrayList();
+            for (List<?> event : listener.getApplicationEvents()) {
+                if (((UsageListener.ApplicationMetadata) event.get(1)).getApplicationId().equals(eachApp.getId())) {
+                    appStates.add(((ApplicationUsage.ApplicationEvent) event.get(2)).getState());
+                }
+            }
+            assertTrue(appStates.size() >= numEvents, "app="+eachApp+"; states="+appStates);
+            assertEquals(appStates.subList(appStates.size() - numEvents, appStates.size()), states, "app="+eachApp);
+        }
+    }
+
+    @Test
+    public void testFullQueueDropsEventsForSlowListenerButStillRecordsThem() throws Exception {
+        BlockingUsageListener listener = new BlockingUsageListener();
+        BrooklynProperties brooklynProperties = BrooklynProperties.Factory.newEmpty();
+        brooklynProperties.put(UsageManager.USAGE_LISTENERS, ImmutableList.of(listener));
+        brooklynProperties.put(UsageManager.USAGE_LISTENER_QUEUE_CAPACITY, 1);
+        brooklynProperties.put(UsageManager.USAGE_LISTENER_QUEUE_FULL_TIMEOUT, Duration.millis(10));
+        replaceManagementContext(LocalManagementContextForTests.newInstance(brooklynProperties));
+        try {
+            app = TestApplication.Factory.newManagedInstanceForTests(mgmt);
+            int eventsBefore = mgmt.getUsageManager().getApplicationUsage(app.getId()).getEvents().size();
+            for (int i = 0; i < 5; i++) {
+                mgmt.getUsageManager().recordApplicationEvent(app, Lifecycle.RUNNING);
+            }
+            
+            assertEquals(mgmt.getUsageManager().getApplicationUsage(app.getId()).getEvents().size(), eventsBefore + 5);
+            LocalUsageManager.ListenerMetrics metrics = ((LocalUsageManager) mgmt.getUsageManager()).getListenerMetrics().get(listener);
+            assertTrue(metrics.getDropped() > 0, "metrics="+metrics);
+        } finally {
+            listener.latch.countDown();
+        }
+    }
+
+    @Test
+    public void testCompactsOldEventsWhenRecordingEvents() throws Exception {
+        BrooklynProperties brooklynProperties = BrooklynProperties.Factory.newEmpty();
+        brooklynProperties.put(UsageManager.USAGE_RAW_EVENTS_RETENTION, Duration.millis(1));
+        replaceManagementContext(LocalManagementContextForTests.newInstance(brooklynProperties));
+        app = TestApplication.Factory.newManagedInstanceForTests(mgmt);
+        
+        for (int i = 0; i < 5; i++) {
+            Time.sleep(Duration.millis(10));
+            mgmt.getUsageManager().recordApplicationEvent(app, (i % 2 == 0) ? Lifecycle.RUNNING : Lifecycle.STOPPED);
+        }
+        
+        // the last event is kept as its period has not ended, and the one before it as its period ended within the retention
+        ApplicationUsage usage = mgmt.getUsageManager().getApplicationUsage(app.getId());
+        assertEquals(usage.getEvents().size(), 2, "events="+usage.getEvents());
+        assertEquals(usage.getEvents().get(1).getState(), Lifecycle.RUNNING, "events="+usage.getEvents());
+        assertFalse(usage.getRollups().isEmpty());
+    }
+
+    @Test
+    public void testCompactUsageCompactsRecordsNotGettingEvents() throws Exception {
+        BrooklynProperties brooklynProperties = BrooklynProperties.Factory.newEmpty();
+        brooklynProperties.put(UsageManager.USAGE_RAW_EVENTS_RETENTION, Duration.ONE_DAY);
+        replaceManagementContext(LocalManagementContextForTests.newInstance(brooklynProperties));
+        Date longAgo = new Date(System.currentTimeMillis() - Duration.days(3).toMilliseconds());
+        Date recently = new Date(System.currentTimeMillis() - Duration.ONE_HOUR.toMilliseconds());
+        
+        ApplicationUsage appUsage = new ApplicationUsage("myappid", "myappname", "myapptype", MutableMap.<String,String>of());
+        appUsage.addEvent(new ApplicationUsage.ApplicationEvent(longAgo, Lifecycle.RUNNING));
+        appUsage.addEvent(new ApplicationUsage.ApplicationEvent(new Date(longAgo.getTime() + 1000), Lifecycle.STOPPED));
+        appUsage.addEvent(new ApplicationUsage.ApplicationEvent(recently, Lifecycle.RUNNING));
+        mgmt.getStorage().<String, ApplicationUsage>getMap(LocalUsageManager.APPLICATION_USAGE_KEY).put("myappid", appUsage);
+        LocationUsage locUsage = new LocationUsage("mylocid", MutableMap.<String,String>of());
+        locUsage.addEvent(new LocationUsage.LocationEvent(longAgo, Lifecycle.CREATED, "myentityid", "myentitytype", "myappid", null));
+        locUsage.addEvent(new LocationUsage.LocationEvent(recently, Lifecycle.DESTROYED, "myentityid", "myentitytype", "myappid", null));
+        mgmt.getStorage().<String, LocationUsage>getMap(LocalUsageManager.LOCATION_USAGE_KEY).put("mylocid", locUsage);
+        
+        ((LocalUsageManager) mgmt.getUsageManager()).compactUsage();
+        
+        appUsage = mgmt.getUsageManager().getApplicationUsage("myappid");
+        assertEquals(appUsage.getEvents().size(), 2, "events="+appUsage.getEvents());
+        assertEquals(appUsage.getRollups().size(), 1, "rollups="+appUsage.getRollups());
+        
+        // the period of the first event ended within the retention
+        locUsage = mgmt.getUsageManager().getLocationUsage("mylocid");
+        assertEquals(locUsage.getEvents().size(), 2, "events="+locUsage.getEvents());
+        assertEquals(locUsage.getRollups(), ImmutableList.of());
+    }
+
+    @Test
+    public void testCompactionScheduledOnlyWithRetentionAndCancelledOnTerminate() throws Exception {
+        assertNull(((LocalUsageManager) mgmt.getUsageManager()).getCompactionTask());
+        
+        BrooklynProperties brooklynProperties = BrooklynProperties.Factory.newEmpty();
+        brooklynProperties.put(UsageManager.USAGE_RAW_EVENTS_RETENTION, Duration.ONE_DAY);
+        LocalManagementContext mgmt2 = LocalManagementContextForTests.newInstance(brooklynProperties);
+        try {
+            ScheduledTask task = ((LocalUsageManager) mgmt2.getUsageManager()).getCompactionTask();
+            assertNotNull(task);
+            assertTrue(task.isSubmitted(), "task="+task);
+            assertFalse(task.isDone(), "task="+task);
+            
+            mgmt2.terminate();
+            assertTrue(task.isCancelled(), "task="+task);
+        } finally {
+            Entities.destroyAll(mgmt2);
+        }
+    }
+
     private void assertUsageListenerCalledWhenApplicationStarted() {
         app = TestApplication.Factory.newManagedInstanceForTests(mgmt);
         app.start(ImmutableList.<Location>of());
@@ -122,6 +304,21 @@ public class LocalUsageManagerTest extends BrooklynAppUnitTestSupport {
             }});
     }
 
+    /** Does not return from the first notification until the latch is released. */
+    public static class BlockingUsageListener extends RecordingUsageListener {
+        final CountDownLatch latch = new CountDownLatch(1);
+        
+        @Override
+        public void onApplicationEvent(ApplicationMetadata app, ApplicationUsage.ApplicationEvent event) {
+            try {
+                latch.await();
+            } catch (InterruptedException e) {
+                throw Exceptions.propagate(e);
+            }
+            super.onApplicationEvent(app, event);
+        }
+    }
+
     public static class RecordingStaticUsageListener extends RecordingUsageListener implements UsageListener {
         private static final List<RecordingStaticUsageListener> STATIC_INSTANCES = Lists.newCopyOnWriteArrayList();
 
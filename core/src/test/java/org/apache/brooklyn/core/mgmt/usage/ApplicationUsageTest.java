@@ -0,0 +1,113 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.brooklyn.core.mgmt.usage;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+import java.util.Date;
+
+import org.apache.brooklyn.core.entity.lifecycle.Lifecycle;
+import org.apache.brooklyn.core.mgmt.usage.ApplicationUsage.ApplicationEvent;
+import org.apache.brooklyn.util.collections.MutableMap;
+import org.testng.annotations.Test;
+
+import com.google.common.collect.ImmutableList;
+
+public class ApplicationUsageTest {
+
+    private static final long HOUR = 60*60*1000L;
+    // 2020-01-01T00:00:00Z
+    private static final long DAY = 1577836800000L;
+
+    private ApplicationUsage newUsage() {
+        return new ApplicationUsage("myappid", "myappname", "myapptype", MutableMap.<String,String>of());
+    }
+
+    private Date at(long hours) {
+        return new Date(DAY + hours*HOUR);
+    }
+
+    @Test
+    public void testGetEventsInRangeIncludesNeighbours() throws Exception {
+        ApplicationUsage usage = newUsage();
+        for (int i = 0; i <= 40; i += 10) {
+            usage.addEvent(new ApplicationEvent(at(i), Lifecycle.RUNNING));
+        }
+
+        assertEquals(usage.getEvents(at(15), at(25)), ImmutableList.of(
+                new ApplicationEvent(at(10), Lifecycle.RUNNING),
+                new ApplicationEvent(at(20), Lifecycle.RUNNING),
+                new ApplicationEvent(at(30), Lifecycle.RUNNING)));
+        assertEquals(usage.getEvents(at(10), at(20)), ImmutableList.of(
+                new ApplicationEvent(at(10), Lifecycle.RUNNING),
+                new ApplicationEvent(at(20), Lifecycle.RUNNING),
+                new ApplicationEvent(at(30), Lifecycle.RUNNING)));
+        assertEquals(usage.getEvents(at(50), at(60)), ImmutableList.of(
+                new ApplicationEvent(at(40), Lifecycle.RUNNING)));
+        assertEquals(usage.getEvents(at(-20), at(-10)), ImmutableList.of(
+                new ApplicationEvent(at(0), Lifecycle.RUNNING)));
+    }
+
+    @Test
+    public void testCompactRollsUpOldEventsPerDayAndState() throws Exception {
+        ApplicationUsage usage = newUsage();
+        usage.addEvent(new ApplicationEvent(at(22), Lifecycle.RUNNING));
+        usage.addEvent(new ApplicationEvent(at(26), Lifecycle.STOPPED));
+        usage.addEvent(new ApplicationEvent(at(30), Lifecycle.RUNNING));
+
+        assertTrue(usage.compact(at(48)));
+
+        // the latest event is kept, as its period has not ended
+        assertEquals(usage.getEvents(), ImmutableList.of(new ApplicationEvent(at(30), Lifecycle.RUNNING)));
+        assertEquals(usage.getRollups(), ImmutableList.of(
+                new UsageRollup(at(0), Lifecycle.RUNNING, null, at(22), at(24), 2*HOUR),
+                new UsageRollup(at(24), Lifecycle.RUNNING, null, at(24), at(26), 2*HOUR),
+                new UsageRollup(at(24), Lifecycle.STOPPED, null, at(26), at(30), 4*HOUR)));
+        assertEquals(usage.getRollups(at(25), at(27)).size(), 2);
+
+        assertFalse(usage.compact(at(48)));
+    }
+
+    @Test
+    public void testCompactMergesIntoExistingRollups() throws Exception {
+        ApplicationUsage usage = newUsage();
+        usage.addEvent(new ApplicationEvent(at(1), Lifecycle.RUNNING));
+        usage.addEvent(new ApplicationEvent(at(2), Lifecycle.RUNNING));
+        usage.compact(at(3));
+        usage.addEvent(new ApplicationEvent(at(5), Lifecycle.STOPPED));
+        usage.compact(at(6));
+
+        assertEquals(usage.getRollups(), ImmutableList.of(
+                new UsageRollup(at(0), Lifecycle.RUNNING, null, at(1), at(5), 4*HOUR)));
+        assertEquals(usage.getEvents(), ImmutableList.of(new ApplicationEvent(at(5), Lifecycle.STOPPED)));
+    }
+
+    @Test
+    public void testCompactKeepsEventsWithinRetention() throws Exception {
+        ApplicationUsage usage = newUsage();
+        usage.addEvent(new ApplicationEvent(at(1), Lifecycle.RUNNING));
+        usage.addEvent(new ApplicationEvent(at(5), Lifecycle.STOPPED));
+
+        assertFalse(usage.compact(at(4)));
+        assertEquals(usage.getEvents().size(), 2);
+        assertEquals(usage.getRollups(), ImmutableList.of());
+    }
+}
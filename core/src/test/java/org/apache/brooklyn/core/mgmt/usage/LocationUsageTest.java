@@ -0,0 +1,113 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.brooklyn.core.mgmt.usage;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+import java.util.Date;
+
+import org.apache.brooklyn.core.entity.lifecycle.Lifecycle;
+import org.apache.brooklyn.core.mgmt.usage.LocationUsage.LocationEvent;
+import org.apache.brooklyn.util.collections.MutableMap;
+import org.testng.annotations.Test;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Iterables;
+
+public class LocationUsageTest {
+
+    private static final long HOUR = 60*60*1000L;
+    // 2020-01-01T00:00:00Z
+    private static final long DAY = 1577836800000L;
+
+    private LocationUsage newUsage() {
+        return new LocationUsage("mylocid", MutableMap.<String,String>of());
+    }
+
+    private LocationEvent newEvent(long hours, Lifecycle state, String appId) {
+        return new LocationEvent(at(hours), state, "myentityid", "myentitytype", appId, null);
+    }
+
+    private Date at(long hours) {
+        return new Date(DAY + hours*HOUR);
+    }
+
+    @Test
+    public void testCompactRollsUpOldEventsPerDayStateAndApplication() throws Exception {
+        LocationUsage usage = newUsage();
+        usage.addEvent(newEvent(20, Lifecycle.CREATED, "app1"));
+        usage.addEvent(newEvent(22, Lifecycle.RUNNING, "app1"));
+        usage.addEvent(newEvent(26, Lifecycle.RUNNING, "app2"));
+        usage.addEvent(newEvent(30, Lifecycle.DESTROYED, "app2"));
+
+        assertTrue(usage.compact(at(48)));
+
+        // the latest event is kept, as its period has not ended
+        assertEquals(usage.getEvents(), ImmutableList.of(newEvent(30, Lifecycle.DESTROYED, "app2")));
+        assertEquals(usage.getRollups(), ImmutableList.of(
+                new UsageRollup(at(0), Lifecycle.CREATED, "app1", at(20), at(22), 2*HOUR),
+                new UsageRollup(at(0), Lifecycle.RUNNING, "app1", at(22), at(24), 2*HOUR),
+                new UsageRollup(at(24), Lifecycle.RUNNING, "app1", at(24), at(26), 2*HOUR),
+                new UsageRollup(at(24), Lifecycle.RUNNING, "app2", at(26), at(30), 4*HOUR)));
+        assertEquals(usage.getRollups(at(0), at(21)).size(), 1);
+        assertEquals(usage.getRollups(at(25), at(27)).size(), 2);
+        assertEquals(usage.getEvents(at(25), at(27)), ImmutableList.of(newEvent(30, Lifecycle.DESTROYED, "app2")));
+
+        assertFalse(usage.compact(at(48)));
+    }
+
+    @Test
+    public void testHistoryQueriesIncludeCompactedEvents() throws Exception {
+        LocationUsage usage = newUsage();
+        assertNull(usage.getFirstDate());
+        assertNull(usage.getLastEvent());
+        assertFalse(usage.hasApplication("app1"));
+
+        usage.addEvent(newEvent(1, Lifecycle.RUNNING, "app1"));
+        usage.addEvent(newEvent(2, Lifecycle.RUNNING, "app2"));
+        usage.addEvent(newEvent(5, Lifecycle.STOPPED, "app2"));
+        assertEquals(usage.getFirstDate(), at(1));
+        assertEquals(usage.getLastEvent(), newEvent(5, Lifecycle.STOPPED, "app2"));
+        assertTrue(usage.hasApplication("app1"));
+
+        usage.compact(at(6));
+
+        // app1 now appears only in the rollups
+        assertEquals(usage.getEvents(), ImmutableList.of(newEvent(5, Lifecycle.STOPPED, "app2")));
+        assertEquals(usage.getFirstDate(), at(1));
+        assertEquals(usage.getLastEvent(), newEvent(5, Lifecycle.STOPPED, "app2"));
+        assertTrue(usage.hasApplication("app1"));
+        assertTrue(usage.hasApplication("app2"));
+        assertFalse(usage.hasApplication("app3"));
+    }
+
+    @Test
+    public void testNullApplicationIdRecordedAsEmpty() throws Exception {
+        LocationUsage usage = newUsage();
+        usage.addEvent(newEvent(1, Lifecycle.RUNNING, null));
+        usage.addEvent(newEvent(2, Lifecycle.STOPPED, "app1"));
+        usage.compact(at(3));
+
+        assertEquals(Iterables.getOnlyElement(usage.getRollups()).getApplicationId(), "");
+        assertTrue(usage.hasApplication(""));
+    }
+}
@@ -0,0 +1,137 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.brooklyn.core.objs;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.brooklyn.api.entity.EntitySpec;
+import org.apache.brooklyn.api.mgmt.Task;
+import org.apache.brooklyn.api.policy.PolicySpec;
+import org.apache.brooklyn.core.policy.AbstractPolicy;
+import org.apache.brooklyn.core.test.BrooklynAppUnitTestSupport;
+import org.apache.brooklyn.core.test.entity.TestEntity;
+import org.apache.brooklyn.test.Asserts;
+import org.apache.brooklyn.util.collections.MutableList;
+import org.apache.brooklyn.util.core.task.BasicExecutionManager;
+import org.apache.brooklyn.util.time.Duration;
+import org.apache.brooklyn.util.time.Time;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.google.common.collect.ImmutableList;
+
+public class AdjunctSchedulerTest extends BrooklynAppUnitTestSupport {
+
+    public static class MyPolicy extends AbstractPolicy {
+    }
+
+    private TestEntity entity;
+    private MyPolicy policy;
+    
+    @BeforeMethod(alwaysRun=true)
+    @Override
+    public void setUp() throws Exception {
+        super.setUp();
+        entity = app.createAndManageChild(EntitySpec.create(TestEntity.class));
+        policy = entity.policies().add(PolicySpec.create(MyPolicy.class));
+    }
+
+    @Test
+    public void testRunsJobsOneAtATimeInOrder() throws Exception {
+        final List<Integer> order = Collections.synchronizedList(MutableList.<Integer>of());
+        final AtomicInteger concurrent = new AtomicInteger();
+        final AtomicInteger maxConcurrent = new AtomicInteger();
+        List<Task<?>> tasks = MutableList.of();
+        for (int i = 0; i < 10; i++) {
+            final int index = i;
+            tasks.add(policy.getScheduler().submit("job "+i, new Runnable() {
+                @Override public void run() {
+                    int now = concurrent.incrementAndGet();
+                    maxConcurrent.set(Math.max(maxConcurrent.get(), now));
+                    Time.sleep(Duration.millis(10));
+                    order.add(index);
+                    concurrent.decrementAndGet();
+                }}));
+        }
+        for (Task<?> task : tasks) {
+            task.get(Asserts.DEFAULT_LONG_TIMEOUT);
+        }
+        assertEquals(order, ImmutableList.of(0, 1, 2, 3, 4, 5, 6, 7, 8, 9));
+        assertEquals(maxConcurrent.get(), 1);
+        assertEquals(policy.getScheduler().getRunCount(), 10L);
+        assertEquals(policy.getScheduler().getPendingCount(), 0);
+    }
+
+    @Test
+    public void testRunsJobAfterDelayInEntityContext() throws Exception {
+        final CountDownLatch latch = new CountDownLatch(1);
+        final long start = System.currentTimeMillis();
+        Task<?> task = policy.getScheduler().schedule("delayed job", new Runnable() {
+            @Override public void run() {
+                latch.countDown();
+            }}, Duration.millis(100));
+        
+        assertTrue(latch.await(Asserts.DEFAULT_LONG_TIMEOUT.toMilliseconds(), TimeUnit.MILLISECONDS));
+        assertTrue(System.currentTimeMillis() - start >= 100);
+        task.get(Asserts.DEFAULT_LONG_TIMEOUT);
+        assertTrue(mgmt.getExecutionManager().getTasksWithTag(entity).contains(task), "task="+task);
+    }
+
+    @Test
+    public void testSuspendCancelsPendingJobs() throws Exception {
+        final AtomicInteger runs = new AtomicInteger();
+        Task<?> task = policy.getScheduler().schedule("delayed job", new Runnable() {
+            @Override public void run() {
+                runs.incrementAndGet();
+            }}, Duration.millis(500));
+        
+        policy.suspend();
+        assertTrue(task.isCancelled());
+        assertEquals(policy.getScheduler().getPendingCount(), 0);
+        
+        policy.resume();
+        policy.getScheduler().submit("job after resume", new Runnable() {
+            @Override public void run() {
+                runs.incrementAndGet();
+            }}).get(Asserts.DEFAULT_LONG_TIMEOUT);
+        Time.sleep(Duration.millis(600));
+        assertEquals(runs.get(), 1);
+    }
+
+    @Test
+    public void testDestroyClosesScheduler() throws Exception {
+        policy.getScheduler().submit("job", new Runnable() {
+            @Override public void run() {
+            }}).get(Asserts.DEFAULT_LONG_TIMEOUT);
+        BasicExecutionManager em = (BasicExecutionManager) mgmt.getExecutionManager();
+        assertTrue(em.getSchedulerByTag().containsKey("adjunct-scheduler-"+policy.getId()));
+        
+        entity.policies().remove(policy);
+        assertTrue(policy.getScheduler().isClosed());
+        assertFalse(em.getSchedulerByTag().containsKey("adjunct-scheduler-"+policy.getId()));
+    }
+}
@@ -0,0 +1,83 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.brooklyn.core.test.qa.performance;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.brooklyn.api.entity.EntitySpec;
+import org.apache.brooklyn.api.sensor.AttributeSensor;
+import org.apache.brooklyn.api.sensor.EnricherSpec;
+import org.apache.brooklyn.core.sensor.Sensors;
+import org.apache.brooklyn.core.test.entity.TestEntity;
+import org.apache.brooklyn.enricher.stock.YamlRollingTimeWindowMeanEnricher;
+import org.apache.brooklyn.test.performance.PerformanceTestDescriptor;
+import org.apache.brooklyn.util.collections.TimeWindowedDoubles;
+import org.apache.brooklyn.util.time.Duration;
+import org.testng.annotations.Test;
+
+/**
+ * Measures the per-event cost of the rolling time-window enrichers, which should not depend on
+ * the number of values held in the window.
+ */
+public class RollingWindowPerformanceTest extends AbstractPerformanceTest {
+
+    private static final int NUM_ITERATIONS = 100000;
+    
+    @Test(groups={"Integration", "Acceptance"})
+    public void testAddToFullWindow() {
+        // one value per millisecond, so the window holds 100000 values
+        final TimeWindowedDoubles values = new TimeWindowedDoubles(Duration.seconds(100));
+        final AtomicLong time = new AtomicLong();
+        for (int i = 0; i < 100000; i++) {
+            values.add(i, time.incrementAndGet());
+        }
+        
+        measure(PerformanceTestDescriptor.create()
+                .summary("RollingWindowPerformanceTest.testAddToFullWindow")
+                .iterations(NUM_ITERATIONS)
+                .minAcceptablePerSecond(1000000 * PERFORMANCE_EXPECTATION)
+                .job(new Runnable() {
+                    @Override public void run() {
+                        long now = time.incrementAndGet();
+                        values.add(now % 100, now);
+                        values.getMeanSince(now - 100000);
+                    }}));
+    }
+    
+    @Test(groups={"Integration", "Acceptance"})
+    public void testRollingMeanEnricher() {
+        final AttributeSensor<Double> avgSensor = Sensors.newDoubleSensor("avg");
+        final TestEntity entity = app.createAndManageChild(EntitySpec.create(TestEntity.class)
+                .enricher(EnricherSpec.create(YamlRollingTimeWindowMeanEnricher.class)
+                        .configure(YamlRollingTimeWindowMeanEnricher.SOURCE_SENSOR, TestEntity.SEQUENCE)
+                        .configure(YamlRollingTimeWindowMeanEnricher.TARGET_SENSOR, avgSensor)
+                        .configure(YamlRollingTimeWindowMeanEnricher.WINDOW_DURATION, Duration.ONE_MINUTE)));
+        final AtomicInteger iter = new AtomicInteger();
+        
+        measure(PerformanceTestDescriptor.create()
+                .summary("RollingWindowPerformanceTest.testRollingMeanEnricher")
+                .iterations(NUM_ITERATIONS)
+                .minAcceptablePerSecond(1000 * PERFORMANCE_EXPECTATION)
+                .job(new Runnable() {
+                    @Override public void run() {
+                        entity.sensors().set(TestEntity.SEQUENCE, iter.getAndIncrement() % 100);
+                    }}));
+    }
+}
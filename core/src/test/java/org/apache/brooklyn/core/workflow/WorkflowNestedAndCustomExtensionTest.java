@@ -266,6 +266,37 @@ public class WorkflowNestedAndCustomExtensionTest extends RebindTestFixture<Test
         Asserts.assertEquals(output, MutableList.of(child1.getId(), child2.getId()));
     }
 
+    @Test
+    public void testForeachConcurrentlyPreservesTargetOrder() throws Exception {
+        Object output = invokeWorkflowStepsWithLogging(MutableList.of(Iterables.getOnlyElement(Yamls.parseAll(Strings.lines(
+                "type: workflow",
+                "steps:",
+                "  - step: foreach x in 1..5",
+                "    concurrency: 3",
+                "    steps:",
+                // later elements finish first
+                "    - let integer d = 60 - ${x} * 10",
+                "    - sleep ${d}ms",
+                "    - let integer r = ${x} * 2",
+                "    - return ${r}",
+                ""
+        )))));
+        Asserts.assertEquals(output, MutableList.of(2, 4, 6, 8, 10));
+    }
+
+    @Test
+    public void testForeachRequiresList() throws Exception {
+        Asserts.assertFailsWith(() -> invokeWorkflowStepsWithLogging(MutableList.of(Iterables.getOnlyElement(Yamls.parseAll(Strings.lines(
+                        "type: workflow",
+                        "steps:",
+                        "  - step: foreach x in ${entity}",
+                        "    steps:",
+                        "    - return ${x}",
+                        ""
+                ))))),
+                e -> Asserts.expectedFailureContainsIgnoreCase(e, "must be a list"));
+    }
+
     @Test
     public void testWorkflowConcurrencyComputation() throws Exception {
         Asserts.assertEquals(WorkflowConcurrencyParser.parse("3").apply(2d), 3d);
@@ -26,6 +26,7 @@ import java.util.Map;
 import java.util.Set;
 
 import org.apache.brooklyn.api.entity.EntitySpec;
+import org.apache.brooklyn.api.sensor.EnricherSpec;
 import org.apache.brooklyn.api.sensor.AttributeSensor;
 import org.apache.brooklyn.api.sensor.Enricher;
 import org.apache.brooklyn.api.sensor.SensorEvent;
@@ -44,6 +45,7 @@ import org.apache.brooklyn.util.collections.MutableMap;
 import org.apache.brooklyn.util.collections.MutableSet;
 import org.apache.brooklyn.util.guava.Functionals;
 import org.apache.brooklyn.util.text.StringFunctions;
+import org.apache.brooklyn.util.time.Duration;
 import org.testng.Assert;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
@@ -319,6 +321,48 @@ public class EnrichersTest extends BrooklynAppUnitTestSupport {
         EntityAsserts.assertAttributeEqualsEventually(group, NUM2, 5);
     }
 
+    @Test
+    public void testAggregatingPercentileUpdatesAsMembersChange() {
+        group.addMember(entity);
+        group.addMember(entity2);
+        group.enrichers().add(EnricherSpec.create(Aggregator.class)
+                .configure(Aggregator.SOURCE_SENSOR, NUM1)
+                .configure(Aggregator.TARGET_SENSOR, NUM2)
+                .configure(Aggregator.FROM_MEMBERS, true)
+                .configure(Aggregator.TRANSFORMATION_UNTYPED, "median"));
+        
+        entity.sensors().set(NUM1, 1);
+        entity2.sensors().set(NUM1, 5);
+        EntityAsserts.assertAttributeEqualsEventually(group, NUM2, 3);
+        
+        entity.sensors().set(NUM1, 9);
+        EntityAsserts.assertAttributeEqualsEventually(group, NUM2, 7);
+        
+        group.removeMember(entity);
+        EntityAsserts.assertAttributeEqualsEventually(group, NUM2, 5);
+    }
+
+    @Test
+    public void testAggregatingWithPublishMinPeriod() {
+        group.addMember(entity);
+        group.enrichers().add(Enrichers.builder()
+                .aggregating(NUM1)
+                .publishing(NUM2)
+                .fromMembers()
+                .computingSum()
+                .build()
+                .configure(AbstractAggregator.PUBLISH_MIN_PERIOD, Duration.millis(500)));
+        RecordingSensorEventListener<Integer> listener = new RecordingSensorEventListener<>();
+        app.subscriptions().subscribe(group, NUM2, listener);
+        
+        for (int i = 1; i <= 10; i++) {
+            entity.sensors().set(NUM1, i);
+        }
+        EntityAsserts.assertAttributeEqualsEventually(group, NUM2, 10);
+        // changes within the period are published together, after the initial publication
+        Asserts.assertTrue(listener.getEvents().size() <= 3, "events="+listener.getEvents());
+    }
+
     @Test
     public void testAggregatingExcludingBlankString() {
         group.addMember(entity);
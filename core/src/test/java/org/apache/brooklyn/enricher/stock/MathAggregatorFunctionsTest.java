@@ -25,6 +25,7 @@ import static org.testng.Assert.assertTrue;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
+import java.util.Random;
 
 import org.apache.brooklyn.test.LogWatcher;
 import org.apache.brooklyn.util.collections.MutableList;
@@ -160,4 +161,124 @@ public class MathAggregatorFunctionsTest {
         assertEquals(func.apply(MutableList.<Number>of(1, 3, 5)), (Integer)5);
         assertEquals(func.apply(MutableList.<Number>of(3, null, 1)), (Integer)3);
     }
+    
+    @Test
+    public void testCount() throws Exception {
+        Function<Collection<? extends Number>, Integer> func = MathAggregatorFunctions.computingCount(null, 0, TypeToken.of(Integer.class));
+        assertEquals(func.apply(MutableList.<Number>of(1, 3, 5)), (Integer)3);
+        assertEquals(func.apply(MutableList.<Number>of(3, null, 1)), (Integer)2);
+        assertEquals(func.apply(MutableList.<Number>of()), (Integer)0);
+    }
+    
+    @Test
+    public void testPercentile() throws Exception {
+        Function<Collection<? extends Number>, Double> median = MathAggregatorFunctions.computingPercentile(50, null, null, doubleTypeToken);
+        assertEquals(median.apply(MutableList.<Number>of(5, 1, 3)), (Double)3d);
+        assertEquals(median.apply(MutableList.<Number>of(4, 1, 3, 2)), (Double)2.5d);
+        
+        Function<Collection<? extends Number>, Double> p90 = MathAggregatorFunctions.computingPercentile(90, null, null, doubleTypeToken);
+        assertEquals(p90.apply(MutableList.<Number>of(1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11)), (Double)10d);
+        assertEquals(p90.apply(MutableList.<Number>of(7)), (Double)7d);
+    }
+    
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testAccumulatorsMatchFunctions() throws Exception {
+        List<Function<Collection<? extends Number>, Double>> funcs = new ArrayList<>();
+        funcs.add(MathAggregatorFunctions.computingSum(null, -1, doubleTypeToken));
+        funcs.add(MathAggregatorFunctions.computingCount(null, -1, doubleTypeToken));
+        funcs.add(MathAggregatorFunctions.computingAverage(null, -1, doubleTypeToken));
+        funcs.add(MathAggregatorFunctions.computingMin(null, -1, doubleTypeToken));
+        funcs.add(MathAggregatorFunctions.computingMax(null, -1, doubleTypeToken));
+        funcs.add(MathAggregatorFunctions.computingPercentile(50, null, -1, doubleTypeToken));
+        funcs.add(MathAggregatorFunctions.computingPercentile(95, null, -1, doubleTypeToken));
+        
+        Random random = new Random(0);
+        for (Function<Collection<? extends Number>, Double> func : funcs) {
+            MathAggregatorFunctions.Accumulator<Double> accumulator = ((MathAggregatorFunctions.IncrementalComputingNumber<Double>) (Object) func).newAccumulator();
+            assertEquals(accumulator.get(), (Double)(-1d), "func="+func);
+            
+            List<Number> vals = new ArrayList<>();
+            for (int i = 0; i < 200; i++) {
+                if (!vals.isEmpty() && random.nextInt(3) == 0) {
+                    accumulator.remove(vals.remove(random.nextInt(vals.size())));
+                } else {
+                    Integer val = (random.nextInt(10) == 0) ? null : random.nextInt(20);
+                    vals.add(val);
+                    accumulator.add(val);
+                }
+                assertEquals(accumulator.get(), func.apply(vals), 0.000001, "func="+func+"; vals="+vals);
+            }
+            for (Number val : ImmutableList.copyOf(vals)) {
+                vals.remove(val);
+                accumulator.remove(val);
+            }
+            assertEquals(accumulator.get(), (Double)(-1d), "func="+func);
+        }
+    }
+    
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testSumAccumulatorsRecoverAfterCancellation() throws Exception {
+        MathAggregatorFunctions.Accumulator<Double> sum = ((MathAggregatorFunctions.IncrementalComputingNumber<Double>) 
+                MathAggregatorFunctions.computingSum(null, -1, doubleTypeToken)).newAccumulator();
+        MathAggregatorFunctions.Accumulator<Double> average = ((MathAggregatorFunctions.IncrementalComputingNumber<Double>) 
+                MathAggregatorFunctions.computingAverage(null, -1, doubleTypeToken)).newAccumulator();
+        for (MathAggregatorFunctions.Accumulator<Double> accumulator : ImmutableList.of(sum, average)) {
+            accumulator.add(1e17);
+            accumulator.add(1);
+            accumulator.add(2);
+            accumulator.remove(1e17);
+        }
+        // a running sum would have lost the small values when adding 1e17, leaving 0 once it is removed
+        assertEquals(sum.get(), (Double)3d);
+        assertEquals(average.get(), (Double)1.5d);
+    }
+    
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testSumAccumulatorsRecoverAfterNonFiniteValuesRemoved() throws Exception {
+        MathAggregatorFunctions.Accumulator<Double> sum = ((MathAggregatorFunctions.IncrementalComputingNumber<Double>) 
+                MathAggregatorFunctions.computingSum(null, -1, doubleTypeToken)).newAccumulator();
+        MathAggregatorFunctions.Accumulator<Double> average = ((MathAggregatorFunctions.IncrementalComputingNumber<Double>) 
+                MathAggregatorFunctions.computingAverage(null, -1, doubleTypeToken)).newAccumulator();
+        for (MathAggregatorFunctions.Accumulator<Double> accumulator : ImmutableList.of(sum, average)) {
+            accumulator.add(2);
+            accumulator.add(4);
+            accumulator.add(Double.NaN);
+            assertTrue(accumulator.get().isNaN(), "val="+accumulator.get());
+            accumulator.remove(Double.NaN);
+            
+            accumulator.add(Double.POSITIVE_INFINITY);
+            assertEquals(accumulator.get(), (Double)Double.POSITIVE_INFINITY);
+            accumulator.add(Double.NEGATIVE_INFINITY);
+            assertTrue(accumulator.get().isNaN(), "val="+accumulator.get());
+            accumulator.remove(Double.POSITIVE_INFINITY);
+            assertEquals(accumulator.get(), (Double)Double.NEGATIVE_INFINITY);
+            accumulator.remove(Double.NEGATIVE_INFINITY);
+        }
+        assertEquals(sum.get(), (Double)6d);
+        assertEquals(average.get(), (Double)3d);
+    }
+    
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testSumAccumulatorDoesNotDriftOverManyUpdates() throws Exception {
+        Function<Collection<? extends Number>, Double> func = MathAggregatorFunctions.computingSum(null, -1, doubleTypeToken);
+        MathAggregatorFunctions.Accumulator<Double> accumulator = ((MathAggregatorFunctions.IncrementalComputingNumber<Double>) (Object) func).newAccumulator();
+        
+        Random random = new Random(0);
+        List<Number> vals = new ArrayList<>();
+        for (int i = 0; i < 100000; i++) {
+            if (vals.size() > 10 && random.nextBoolean()) {
+                accumulator.remove(vals.remove(random.nextInt(vals.size())));
+            } else {
+                double val = random.nextDouble() * Math.pow(10, random.nextInt(12));
+                vals.add(val);
+                accumulator.add(val);
+            }
+        }
+        double expected = func.apply(vals);
+        assertEquals(accumulator.get(), expected, Math.abs(expected) * 1e-12, "vals="+vals.size());
+    }
 }
@@ -97,6 +97,7 @@ import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Iterables;
 import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
 
 
 public class DynamicClusterTest extends AbstractDynamicClusterOrFabricTest {
@@ -1435,6 +1436,116 @@ public class DynamicClusterTest extends AbstractDynamicClusterOrFabricTest {
         Assert.assertEquals(Iterables.size(Iterables.filter(Entities.descendantsAndSelf(app), TestEntity.class)), 3);
     }
 
+    @Test
+    public void testResizeInWaves() throws Exception {
+        DynamicCluster cluster = app.createAndManageChild(EntitySpec.create(DynamicCluster.class)
+                .configure(DynamicCluster.MEMBER_SPEC, EntitySpec.create(TestEntity.class))
+                .configure(DynamicCluster.INITIAL_SIZE, 1)
+                .configure(DynamicCluster.RESIZE_WAVE_SIZE, 3)
+                .configure(DynamicCluster.MAX_CONCURRENT_CHILD_COMMANDS, 2));
+        cluster.start(ImmutableList.of(loc));
+
+        cluster.resize(8);
+        assertEquals(cluster.getCurrentSize(), (Integer)8);
+        Set<Integer> memberIds = Sets.newHashSet();
+        for (Entity member : cluster.getMembers()) {
+            assertEquals(member.sensors().get(Attributes.SERVICE_UP), Boolean.TRUE, "member="+member);
+            memberIds.add(member.config().get(CLUSTER_MEMBER_ID));
+        }
+        assertEquals(memberIds, ImmutableSet.of(0, 1, 2, 3, 4, 5, 6, 7));
+        assertEquals(cluster.sensors().get(DynamicCluster.MEMBERS_STARTING), (Integer)0);
+
+        cluster.resize(2);
+        assertEquals(cluster.getCurrentSize(), (Integer)2);
+        assertEquals(Iterables.size(Iterables.filter(Entities.descendantsAndSelf(app), TestEntity.class)), 2);
+        assertEquals(cluster.sensors().get(DynamicCluster.MEMBERS_STOPPING), (Integer)0);
+    }
+
+    @Test
+    public void testResizeInWavesDoesNotBlockShrinkingOtherMembers() throws Exception {
+        final CountDownLatch executingLatch = new CountDownLatch(2);
+        final CountDownLatch continuationLatch = new CountDownLatch(1);
+        Function<Collection<Entity>, Entity> removalStrategy = new Function<Collection<Entity>, Entity>() {
+            @Override public Entity apply(Collection<Entity> contenders) {
+                return Iterables.find(contenders, Predicates.not(Predicates.instanceOf(BlockingEntity.class)));
+            }
+        };
+
+        final DynamicCluster cluster = app.createAndManageChild(EntitySpec.create(DynamicCluster.class)
+                .configure(DynamicCluster.INITIAL_SIZE, 1)
+                .configure(DynamicCluster.RESIZE_WAVE_SIZE, 5)
+                .configure(DynamicCluster.REMOVAL_STRATEGY, removalStrategy)
+                .configure(DynamicCluster.FIRST_MEMBER_SPEC, EntitySpec.create(TestEntity.class))
+                .configure(DynamicCluster.MEMBER_SPEC, EntitySpec.create(BlockingEntity.class)
+                        .configure(BlockingEntity.STARTUP_LATCH, continuationLatch)
+                        .configure(BlockingEntity.EXECUTING_STARTUP_NOTIFICATION_LATCH, executingLatch)));
+        cluster.start(ImmutableList.of(loc));
+        final Entity first = Iterables.getOnlyElement(cluster.getMembers());
+
+        Thread thread = new Thread(new Runnable() {
+                @Override public void run() {
+                    cluster.resize(3);
+                }});
+
+        try {
+            // wait for both new members to be starting
+            thread.start();
+            assertTrue(executingLatch.await(TIMEOUT_MS, TimeUnit.MILLISECONDS));
+            assertEquals(cluster.sensors().get(DynamicCluster.MEMBERS_STARTING), (Integer)2);
+
+            // the mutex is not held while they start, so the first member can be removed meanwhile
+            assertEquals(cluster.resizeByDelta(-1), ImmutableList.of(first));
+            assertFalse(cluster.getMembers().contains(first));
+
+            continuationLatch.countDown();
+            thread.join(TIMEOUT_MS);
+            assertFalse(thread.isAlive());
+            assertEquals(cluster.getCurrentSize(), (Integer)2);
+            assertEquals(cluster.sensors().get(DynamicCluster.MEMBERS_STARTING), (Integer)0);
+        } finally {
+            continuationLatch.countDown();
+            thread.interrupt();
+        }
+    }
+
+    @Test
+    public void testConcurrentResizesInWavesCreateOneFirstMember() throws Exception {
+        final DynamicCluster cluster = app.createAndManageChild(EntitySpec.create(DynamicCluster.class)
+                .configure(DynamicCluster.INITIAL_SIZE, 0)
+                .configure(DynamicCluster.RESIZE_WAVE_SIZE, 5)
+                .configure(DynamicCluster.FIRST_MEMBER_SPEC, EntitySpec.create(TestEntity.class).displayName("first"))
+                .configure(DynamicCluster.MEMBER_SPEC, EntitySpec.create(TestEntity.class).displayName("other")));
+        cluster.start(ImmutableList.of(loc));
+
+        List<Thread> threads = Lists.newArrayList();
+        for (int i = 0; i < 4; i++) {
+            threads.add(new Thread(new Runnable() {
+                    @Override public void run() {
+                        cluster.resizeByDelta(3);
+                    }}));
+        }
+        try {
+            for (Thread thread : threads) {
+                thread.start();
+            }
+            for (Thread thread : threads) {
+                thread.join(TIMEOUT_MS);
+                assertFalse(thread.isAlive());
+            }
+        } finally {
+            for (Thread thread : threads) {
+                thread.interrupt();
+            }
+        }
+
+        assertEquals(cluster.getCurrentSize(), (Integer)12);
+        int firstMembers = 0;
+        for (Entity member : cluster.getMembers()) {
+            if ("first".equals(member.getDisplayName())) firstMembers++;
+        }
+        assertEquals(firstMembers, 1, "members="+cluster.getMembers());
+    }
+
     @ImplementedBy(ThrowOnAsyncStartEntityImpl.class)
     public interface ThrowOnAsyncStartEntity extends TestEntity {
         ConfigKey<Integer> MAX_CONCURRENCY = ConfigKeys.newConfigKey(Integer.class, "concurrency", "max concurrency", 1);
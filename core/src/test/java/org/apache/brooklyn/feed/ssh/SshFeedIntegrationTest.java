@@ -145,6 +145,42 @@ public class SshFeedIntegrationTest extends BrooklynAppUnitTestSupport {
             Predicates.compose(Predicates.equalTo("hello"), StringFunctions.trim()));
     }
 
+    @Test(groups="Integration")
+    public void testBatchedPollsReturnEachStdoutAndExitStatus() throws Exception {
+        feed = SshFeed.builder()
+                .entity(entity)
+                .machine(machine)
+                .batchPolls()
+                .poll(new CommandPollConfig<String>(SENSOR_STRING)
+                        .command("echo hello")
+                        .onSuccess(SshValueFunctions.stdout()))
+                .poll(new CommandPollConfig<Integer>(SENSOR_INT)
+                        .command("echo oops >&2; exit 123")
+                        .checkSuccess(Predicates.alwaysTrue())
+                        .onSuccess(SshValueFunctions.exitStatus()))
+                .build();
+
+        EntityAsserts.assertAttributeEqualsEventually(entity, SENSOR_INT, 123);
+        EntityAsserts.assertAttributeEventually(entity, SENSOR_STRING, 
+            Predicates.compose(Predicates.equalTo("hello"), StringFunctions.trim()));
+    }
+
+    @Test(groups="Integration")
+    public void testReturnsSshStdoutUsingHelperAgent() throws Exception {
+        feed = SshFeed.builder()
+                .entity(entity)
+                .machine(machine)
+                .useHelperAgent()
+                .poll(new CommandPollConfig<String>(SENSOR_STRING)
+                        .command("echo hello")
+                        .onSuccess(SshValueFunctions.stdout()))
+                .build();
+        
+        EntityAsserts.assertAttributeEventually(entity, SENSOR_STRING, 
+            Predicates.compose(Predicates.equalTo("hello"), StringFunctions.trim()));
+        Assert.assertNotNull(machine.getHelperAgent());
+    }
+
     @Test(groups="Integration")
     public void testReturnsSshStderr() throws Exception {
         final String cmd = "thiscommanddoesnotexist";
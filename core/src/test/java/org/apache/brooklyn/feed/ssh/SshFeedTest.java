@@ -19,6 +19,8 @@
 package org.apache.brooklyn.feed.ssh;
 
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
 
 import java.util.List;
 import java.util.Map;
@@ -45,6 +47,7 @@ import com.google.common.base.Functions;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Iterables;
 import com.google.common.collect.Lists;
 
 public class SshFeedTest extends BrooklynAppUnitTestSupport {
@@ -165,6 +168,56 @@ public class SshFeedTest extends BrooklynAppUnitTestSupport {
             }});
     }
 
+    @Test
+    public void testSingleCallWhenBatched() throws Exception {
+        final RecordingSshMachineLocation recordingMachine = mgmt.getLocationManager().createLocation(LocationSpec.create(RecordingSshMachineLocation.class));
+        app.start(ImmutableList.of(recordingMachine));
+        
+        final String cmd = "myCommand";
+        final String cmd2 = "myCommand2";
+        
+        feed = SshFeed.builder()
+                .period(Duration.PRACTICALLY_FOREVER)
+                .entity(entity)
+                .batchPolls()
+                .poll(new SshPollConfig<String>(SENSOR_STRING)
+                        .command(cmd)
+                        .onSuccess(Functions.constant("success")))
+                .poll(new SshPollConfig<String>(SENSOR_STRING2)
+                        .env(ImmutableMap.of("mykey", "myval"))
+                        .command(cmd2)
+                        .onSuccess(Functions.constant("success")))
+                .build();
+        
+        // Expect one exec of a script containing both commands
+        Asserts.succeedsEventually(new Runnable() {
+            @Override
+            public void run() {
+                assertEquals(RecordingSshMachineLocation.execScriptCalls.size(), 1);
+            }});
+        String script = Iterables.getOnlyElement(RecordingSshMachineLocation.execScriptCalls.get(0));
+        assertTrue(script.contains("\n"+cmd+"\n"), script);
+        assertTrue(script.contains("\n"+cmd2+"\n"), script);
+        assertTrue(script.contains("export mykey=\"myval\""), script);
+    }
+
+    @Test
+    public void testDemultiplexBatch() throws Exception {
+        String out = "T-BEGIN-0\nhello\n\nT-STDERR-0\n\nT-END-0 0\n"
+                + "T-BEGIN-1\n\nT-STDERR-1\noops\n\nT-END-1 3\n";
+        List<SshPollValue> values = SshFeed.demultiplexBatch(new SshPollValue(null, 0, out, ""), "T", 3);
+        
+        assertEquals(values.get(0).getExitStatus(), 0);
+        assertEquals(values.get(0).getStdout(), "hello\n");
+        assertEquals(values.get(0).getStderr(), "");
+        assertEquals(values.get(1).getExitStatus(), 3);
+        assertEquals(values.get(1).getStdout(), "");
+        assertEquals(values.get(1).getStderr(), "oops\n");
+        // no output for the third, e.g. if the script was killed
+        assertEquals(values.get(2).getExitStatus(), -1);
+        assertNull(values.get(2).getStdout());
+    }
+
     public static class RecordingSshMachineLocation extends SshMachineLocation {
         public static List<List<String>> execScriptCalls = Lists.newCopyOnWriteArrayList();
 
@@ -32,6 +32,11 @@ import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 import org.apache.brooklyn.api.location.Location;
 import org.apache.brooklyn.api.location.LocationSpec;
@@ -57,6 +62,7 @@ import org.apache.brooklyn.util.net.Networking;
 import org.apache.brooklyn.util.net.Urls;
 import org.apache.brooklyn.util.os.Os;
 import org.apache.brooklyn.util.stream.Streams;
+import org.apache.brooklyn.util.text.Identifiers;
 import org.apache.brooklyn.util.time.Duration;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -67,6 +73,7 @@ import com.google.common.base.Charsets;
 import com.google.common.base.Preconditions;
 import com.google.common.base.Predicate;
 import com.google.common.base.Predicates;
+import com.google.common.base.Stopwatch;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.io.Files;
@@ -104,6 +111,13 @@ public class SshMachineLocationIntegrationTest extends SshMachineLocationTest {
         super.testSshExecCommands();
     }
     
+    // Overridden just to make it integration (because `newHost()` returns a real ssh'ing host)
+    @Test(groups="Integration")
+    @Override
+    public void testCopyToRecordsFileTransferOnTask() throws Exception {
+        super.testCopyToRecordsFileTransferOnTask();
+    }
+    
     @Test(groups="Integration")
     public void testIsSshableWhenTrue() throws Exception {
         assertTrue(host.isSshable());
@@ -332,6 +346,86 @@ public class SshMachineLocationIntegrationTest extends SshMachineLocationTest {
         }
     }
     
+    @Test(groups="Integration")
+    public void testCopyToSkipsUnchangedFile() throws Exception {
+        File src = Os.newTempFile(getClass(), "txt");
+        String dest = Os.mergePaths(Os.tmp(), "brooklyn-copy-skip-"+Identifiers.makeRandomId(8)+".txt");
+        Map<String, ?> props = ImmutableMap.of(SshMachineLocation.COPY_SKIP_IF_UNCHANGED.getName(), true);
+        try {
+            Files.write("contents1", src, Charsets.UTF_8);
+            assertEquals(host.copyTo(props, src, dest), 0);
+
+            try (LogWatcher watcher = new LogWatcher(ImmutableList.of(SshMachineLocation.class.getName()), 
+                    ch.qos.logback.classic.Level.DEBUG, EventPredicates.containsMessage("Skipping copy"))) {
+                assertEquals(host.copyTo(props, src, dest), 0);
+                watcher.assertHasEvent();
+
+                Files.write("contents2", src, Charsets.UTF_8);
+                watcher.clearEvents();
+                assertEquals(host.copyTo(props, src, dest), 0);
+                assertTrue(watcher.getEvents().isEmpty(), "events="+watcher.getEvents());
+            }
+            assertEquals(Files.toString(new File(dest), Charsets.UTF_8), "contents2");
+        } finally {
+            src.delete();
+            new File(dest).delete();
+        }
+    }
+
+    @Test(groups="Integration")
+    public void testHelperAgentRunsCommandsAndIsRestarted() throws Exception {
+        SshHelperAgent agent = host.getHelperAgent();
+        assertNotNull(agent);
+        try {
+            SshHelperAgent.Result result = agent.exec("echo $MYVAR; echo myerr >&2; exit 3", ImmutableMap.of("MYVAR", "my val"), Duration.ONE_MINUTE);
+            assertEquals(result.getExitCode(), 3);
+            assertEquals(result.getStdout(), "my val\n");
+            assertEquals(result.getStderr(), "myerr\n");
+            
+            // reused while alive
+            assertEquals(host.getHelperAgent(), agent);
+            assertEquals(agent.exec("echo second", null, Duration.ONE_MINUTE).getStdout(), "second\n");
+            
+            agent.close();
+            assertFalse(agent.isAlive());
+            SshHelperAgent agent2 = host.getHelperAgent();
+            assertNotNull(agent2);
+            assertFalse(agent2 == agent);
+            assertEquals(agent2.exec("echo third", null, Duration.ONE_MINUTE).getStdout(), "third\n");
+        } finally {
+            host.close();
+        }
+    }
+
+    @Test(groups="Integration")
+    public void testHelperAgentRunsSlowCommandWithoutHoldingUpOthers() throws Exception {
+        final SshHelperAgent agent = host.getHelperAgent();
+        assertNotNull(agent);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<SshHelperAgent.Result> slow = executor.submit(new Callable<SshHelperAgent.Result>() {
+                @Override public SshHelperAgent.Result call() throws Exception {
+                    return agent.exec("sleep 10; echo slow", null, Duration.ONE_MINUTE);
+                }});
+            Stopwatch stopwatch = Stopwatch.createStarted();
+            assertEquals(agent.exec("echo fast", null, Duration.ONE_MINUTE).getStdout(), "fast\n");
+            assertTrue(stopwatch.elapsed(TimeUnit.SECONDS) < 10, "elapsed="+stopwatch);
+            assertFalse(slow.isDone());
+
+            // a timed-out command is reported, without closing an agent that is still responding
+            try {
+                agent.exec("sleep 10", null, Duration.millis(100));
+                Asserts.shouldHaveFailedPreviously();
+            } catch (TimeoutException e) {
+                // expected
+            }
+            assertEquals(slow.get().getStdout(), "slow\n");
+        } finally {
+            executor.shutdownNow();
+            host.close();
+        }
+    }
+
     @Test(groups="Integration")
     public void testTurningOffLoggingStdoutAndStderr() {
         super.testTurningOffLoggingStdoutAndStderr();
@@ -26,6 +26,7 @@ import static org.testng.Assert.assertSame;
 import static org.testng.Assert.assertTrue;
 
 import java.io.ByteArrayOutputStream;
+import java.io.File;
 import java.io.OutputStream;
 import java.util.List;
 import java.util.Map;
@@ -40,6 +41,7 @@ import org.apache.brooklyn.api.location.LocationSpec;
 import org.apache.brooklyn.api.location.MachineDetails;
 import org.apache.brooklyn.api.location.MachineLocation;
 import org.apache.brooklyn.api.location.PortRange;
+import org.apache.brooklyn.api.mgmt.Task;
 import org.apache.brooklyn.core.BrooklynLogging;
 import org.apache.brooklyn.core.effector.EffectorBody;
 import org.apache.brooklyn.core.effector.EffectorTaskTest;
@@ -52,8 +54,10 @@ import org.apache.brooklyn.core.location.BasicMachineDetails;
 import org.apache.brooklyn.core.location.BasicOsDetails;
 import org.apache.brooklyn.core.location.Machines;
 import org.apache.brooklyn.core.location.PortRanges;
+import org.apache.brooklyn.core.mgmt.BrooklynTaskTags;
 import org.apache.brooklyn.core.test.BrooklynAppUnitTestSupport;
 import org.apache.brooklyn.core.test.entity.TestApplication;
+import org.apache.brooklyn.test.Asserts;
 import org.apache.brooklyn.test.LogWatcher;
 import org.apache.brooklyn.test.LogWatcher.EventPredicates;
 import org.apache.brooklyn.util.collections.MutableMap;
@@ -63,16 +67,19 @@ import org.apache.brooklyn.util.core.internal.ssh.RecordingSshTool.CustomRespons
 import org.apache.brooklyn.util.core.internal.ssh.sshj.SshjTool;
 import org.apache.brooklyn.util.core.task.BasicExecutionContext;
 import org.apache.brooklyn.util.core.task.BasicExecutionManager;
+import org.apache.brooklyn.util.core.task.Tasks;
 import org.apache.brooklyn.util.guava.Maybe;
 import org.apache.brooklyn.util.net.Networking;
 import org.apache.brooklyn.util.os.Os;
 import org.apache.brooklyn.util.stream.Streams;
+import org.apache.brooklyn.util.text.Identifiers;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.testng.annotations.AfterMethod;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
+import com.google.common.base.Charsets;
 import com.google.common.base.Joiner;
 import com.google.common.base.Optional;
 import com.google.common.base.Predicate;
@@ -81,6 +88,8 @@ import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Iterables;
+import com.google.common.hash.Hashing;
+import com.google.common.io.Files;
 
 import ch.qos.logback.classic.spi.ILoggingEvent;
 
@@ -309,6 +318,47 @@ public class SshMachineLocationTest extends BrooklynAppUnitTestSupport {
         assertEquals(host.obtainPort(PortRanges.fromString("8000+")), 8001);
     }
     
+    @Test
+    public void testCopyToRecordsFileTransferOnTask() throws Exception {
+        final File src = Os.newTempFile(getClass(), "txt");
+        final String dest = Os.mergePaths(Os.tmp(), "brooklyn-copy-metrics-"+Identifiers.makeRandomId(8)+".txt");
+        try {
+            Files.write("contents1", src, Charsets.UTF_8);
+            String checksum = Files.asByteSource(src).hash(Hashing.sha256()).toString();
+            RecordingSshTool.setCustomResponse(".*sha256sum.*", new CustomResponse(0, checksum+"  "+dest, ""));
+
+            Task<Integer> copy = mgmt.getExecutionManager().submit(Tasks.<Integer>builder().displayName("copy")
+                    .body(() -> host.copyTo(src, dest)).build());
+            assertEquals(copy.get(), Integer.valueOf(0));
+            Map<?,?> transfer = getFileTransferTag(copy);
+            assertEquals(transfer.get("destination"), dest);
+            assertEquals(transfer.get("bytes"), src.length());
+            assertEquals(transfer.get("skipped"), false);
+            assertTrue(((Long) transfer.get("durationMillis")) >= 0, "transfer="+transfer);
+            assertTrue(((Long) transfer.get("bytesPerSecond")) > 0, "transfer="+transfer);
+
+            // the destination now has the same checksum (real or stubbed), so the copy is skipped
+            Task<Integer> skippedCopy = mgmt.getExecutionManager().submit(Tasks.<Integer>builder().displayName("copy again")
+                    .body(() -> host.copyTo(ImmutableMap.of(SshMachineLocation.COPY_SKIP_IF_UNCHANGED.getName(), true), src, dest)).build());
+            assertEquals(skippedCopy.get(), Integer.valueOf(0));
+            Map<?,?> skippedTransfer = getFileTransferTag(skippedCopy);
+            assertEquals(skippedTransfer.get("skipped"), true);
+            assertEquals(skippedTransfer.get("bytesPerSecond"), 0L);
+        } finally {
+            src.delete();
+            new File(dest).delete();
+        }
+    }
+
+    private Map<?,?> getFileTransferTag(Task<?> task) {
+        for (Object tag : task.getTags()) {
+            if (tag instanceof Map && ((Map<?,?>)tag).containsKey(BrooklynTaskTags.FILE_TRANSFER_TAG)) {
+                return (Map<?,?>) ((Map<?,?>)tag).get(BrooklynTaskTags.FILE_TRANSFER_TAG);
+            }
+        }
+        throw Asserts.fail("No "+BrooklynTaskTags.FILE_TRANSFER_TAG+" tag on "+task+"; tags="+task.getTags());
+    }
+
     @Test
     public void testDoesNotLogPasswordsInEnvironmentVariables() {
         List<String> loggerNames = ImmutableList.of(
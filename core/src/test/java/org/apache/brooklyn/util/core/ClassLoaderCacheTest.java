@@ -0,0 +1,118 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.brooklyn.util.core;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import org.apache.brooklyn.util.guava.Maybe;
+import org.testng.annotations.Test;
+
+import com.google.common.collect.ImmutableList;
+
+public class ClassLoaderCacheTest {
+
+    private final ClassLoader loader = getClass().getClassLoader();
+    
+    private static class CountingLoader implements Supplier<Maybe<Class<?>>> {
+        final AtomicInteger count = new AtomicInteger();
+        final Maybe<Class<?>> result;
+        
+        CountingLoader(Maybe<Class<?>> result) {
+            this.result = result;
+        }
+        
+        @Override
+        public Maybe<Class<?>> get() {
+            count.incrementAndGet();
+            return result;
+        }
+    }
+    
+    @Test
+    public void testCachesFoundClassesAndMisses() throws Exception {
+        ClassLoaderCache cache = new ClassLoaderCache();
+        CountingLoader found = new CountingLoader(Maybe.<Class<?>>of(String.class));
+        CountingLoader missing = new CountingLoader(Maybe.<Class<?>>absentNull());
+        
+        for (int i = 0; i < 3; i++) {
+            assertEquals(cache.get(loader, null, null, null, "java.lang.String", found).get(), String.class);
+            assertFalse(cache.get(loader, null, null, null, "no.such.Class", missing).isPresent());
+        }
+        assertEquals(found.count.get(), 1);
+        assertEquals(missing.count.get(), 1);
+        assertEquals(cache.getStats().hitCount(), 4);
+        assertEquals(cache.getStats().missCount(), 2);
+    }
+    
+    @Test
+    public void testKeyedByCatalogItemAndWhiteList() throws Exception {
+        ClassLoaderCache cache = new ClassLoaderCache();
+        CountingLoader found = new CountingLoader(Maybe.<Class<?>>of(String.class));
+        
+        cache.get(loader, null, null, null, "java.lang.String", found);
+        cache.get(loader, null, "my.item:1.0", ImmutableList.of("other.item:1.0"), "java.lang.String", found);
+        cache.get(loader, null, "my.item:1.0", ImmutableList.of("other.item:1.0"), "java.lang.String", found);
+        cache.get(loader, null, "my.item:1.0", null, "java.lang.String", found);
+        cache.get(loader, "my.bundle", null, null, "java.lang.String", found);
+        assertEquals(found.count.get(), 4);
+    }
+    
+    @Test
+    public void testInvalidateAll() throws Exception {
+        ClassLoaderCache cache = new ClassLoaderCache();
+        CountingLoader missing = new CountingLoader(Maybe.<Class<?>>absentNull());
+        
+        cache.get(loader, null, null, null, "no.such.Class", missing);
+        cache.invalidateAll();
+        cache.get(loader, null, null, null, "no.such.Class", missing);
+        assertEquals(missing.count.get(), 2);
+    }
+    
+    @Test
+    public void testDoesNotCacheLoadOverlappingInvalidation() throws Exception {
+        final ClassLoaderCache cache = new ClassLoaderCache();
+        final AtomicInteger count = new AtomicInteger();
+        Supplier<Maybe<Class<?>>> invalidatingLoader = () -> {
+            count.incrementAndGet();
+            // e.g. a bundle installed while we were searching
+            cache.invalidateAll();
+            return Maybe.absentNull();
+        };
+        
+        cache.get(loader, null, null, null, "no.such.Class", invalidatingLoader);
+        assertEquals(cache.size(), 0);
+        cache.get(loader, null, null, null, "no.such.Class", invalidatingLoader);
+        assertEquals(count.get(), 2);
+    }
+    
+    @Test
+    public void testBounded() throws Exception {
+        ClassLoaderCache cache = new ClassLoaderCache(10);
+        CountingLoader missing = new CountingLoader(Maybe.<Class<?>>absentNull());
+        for (int i = 0; i < 100; i++) {
+            cache.get(loader, null, null, null, "no.such.Class"+i, missing);
+        }
+        assertEquals(missing.count.get(), 100);
+        assertFalse(cache.size() > 10, "size="+cache.size());
+    }
+}
@@ -37,6 +37,7 @@ import org.apache.brooklyn.api.catalog.CatalogItem.CatalogBundle;
 import org.apache.brooklyn.api.entity.Entity;
 import org.apache.brooklyn.api.entity.EntitySpec;
 import org.apache.brooklyn.api.mgmt.ManagementContext;
+import org.apache.brooklyn.api.typereg.RegisteredType;
 import org.apache.brooklyn.core.BrooklynVersion;
 import org.apache.brooklyn.core.catalog.internal.CatalogBundleDto;
 import org.apache.brooklyn.core.catalog.internal.CatalogEntityItemDto;
@@ -49,6 +50,9 @@ import org.apache.brooklyn.core.mgmt.internal.LocalManagementContext;
 import org.apache.brooklyn.core.mgmt.internal.ManagementContextInternal;
 import org.apache.brooklyn.core.mgmt.osgi.OsgiStandaloneTest;
 import org.apache.brooklyn.core.test.entity.LocalManagementContextForTests;
+import org.apache.brooklyn.core.typereg.BasicBrooklynTypeRegistry;
+import org.apache.brooklyn.core.typereg.BasicTypeImplementationPlan;
+import org.apache.brooklyn.core.typereg.RegisteredTypes;
 import org.apache.brooklyn.entity.stock.BasicEntity;
 import org.apache.brooklyn.test.Asserts;
 import org.apache.brooklyn.test.support.TestResourceUnavailableException;
@@ -225,6 +229,54 @@ public class ClassLoaderUtilsTest {
         assertLoadSucceeds(bundle.getSymbolicName() + ":" + classname, clazz, cluMgmt, cluClass, cluEntity);
     }
 
+    @Test
+    public void testCachedLookupsEvictedOnBundleInstallAndUninstall() throws Exception {
+        String bundlePath = OsgiStandaloneTest.BROOKLYN_TEST_OSGI_ENTITIES_PATH;
+        String bundleUrl = OsgiStandaloneTest.BROOKLYN_TEST_OSGI_ENTITIES_URL;
+        String classname = OsgiTestResources.BROOKLYN_TEST_OSGI_ENTITIES_SIMPLE_ENTITY;
+
+        TestResourceUnavailableException.throwIfResourceUnavailable(getClass(), bundlePath);
+
+        mgmt = LocalManagementContextForTests.builder(true).enableOsgiReusable().build();
+        ClassLoaderCache cache = ((ManagementContextInternal)mgmt).getOsgiManager().get().getClassLoaderCache();
+        System.setProperty(ClassLoaderUtils.WHITE_LIST_KEY, OsgiTestResources.BROOKLYN_TEST_OSGI_ENTITIES_SYMBOLIC_NAME_FULL);
+        ClassLoaderUtils cluMgmt = new ClassLoaderUtils(getClass(), mgmt);
+
+        // the miss is cached, but must be forgotten when the bundle is installed
+        assertLoadFails(cluMgmt, classname);
+        assertTrue(cache.size() > 0, "size="+cache.size());
+        Bundle bundle = installBundle(mgmt, bundleUrl, true);
+        assertEquals(cache.size(), 0);
+        assertLoadSucceeds(cluMgmt, classname, bundle.loadClass(classname));
+        assertTrue(cache.size() > 0, "size="+cache.size());
+
+        // and likewise the class found, when the bundle is uninstalled
+        bundle.uninstall();
+        assertEquals(cache.size(), 0);
+        assertLoadFails(cluMgmt, classname);
+    }
+
+    @Test
+    public void testCachedLookupsEvictedOnTypeRegistryChange() throws Exception {
+        String classname = "org.apache.brooklyn.this.name.does.not.Exist";
+        RegisteredType type = RegisteredTypes.bean("item.A", "1", new BasicTypeImplementationPlan("ignore", null));
+
+        mgmt = LocalManagementContextForTests.builder(true).enableOsgiReusable().build();
+        ClassLoaderCache cache = ((ManagementContextInternal)mgmt).getOsgiManager().get().getClassLoaderCache();
+        BasicBrooklynTypeRegistry typeRegistry = (BasicBrooklynTypeRegistry) mgmt.getTypeRegistry();
+        ClassLoaderUtils cluMgmt = new ClassLoaderUtils(getClass(), mgmt);
+
+        assertLoadFails(cluMgmt, classname);
+        assertTrue(cache.size() > 0, "size="+cache.size());
+        typeRegistry.addToLocalUnpersistedTypeRegistry(type, false);
+        assertEquals(cache.size(), 0);
+
+        assertLoadFails(cluMgmt, classname);
+        assertTrue(cache.size() > 0, "size="+cache.size());
+        typeRegistry.delete(type);
+        assertEquals(cache.size(), 0);
+    }
+
     @Test
     public void testLoadClassInOsgiCore() throws Exception {
         Class<?> clazz = BasicEntity.class;
@@ -19,8 +19,11 @@
 package org.apache.brooklyn.util.core.internal.ssh.sshj;
 
 import com.google.common.base.Stopwatch;
+import com.google.common.base.Strings;
+import com.google.common.base.Supplier;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
+import com.google.common.io.Files;
 import net.schmizz.concurrent.ExceptionChainer;
 import net.schmizz.sshj.common.SSHException;
 import net.schmizz.sshj.common.StreamCopier;
@@ -31,6 +34,8 @@ import net.schmizz.sshj.transport.TransportException;
 import net.schmizz.sshj.userauth.UserAuthException;
 import org.apache.brooklyn.core.BrooklynFeatureEnablement;
 import org.apache.brooklyn.test.Asserts;
+import org.apache.brooklyn.test.LogWatcher;
+import org.apache.brooklyn.test.LogWatcher.EventPredicates;
 import org.apache.brooklyn.util.core.internal.ssh.ShellTool;
 import org.apache.brooklyn.util.core.internal.ssh.SshException;
 import org.apache.brooklyn.util.core.internal.ssh.SshTool;
@@ -59,6 +64,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
 
@@ -488,4 +494,115 @@ public class SshjToolIntegrationTest extends SshToolAbstractIntegrationTest {
         log.info("ENDING");
     }
 
+    @Test(groups = {"Integration"})
+    public void testResumesFailedUploadOfFile() throws Exception {
+        String contents = Strings.repeat("0123456789abcdef\n", 6250);
+        File localFile = new File(localFilePath);
+        Files.write(contents, localFile, StandardCharsets.UTF_8);
+        SshjTool localtool = newToolFailingFirstUpload(32768, false);
+
+        try (LogWatcher watcher = newUploadLogWatcher()) {
+            localtool.copyToServer(ImmutableMap.of(SshjTool.PROP_RESUME_UPLOADS.getName(), true), localFile, remoteFilePath);
+            watcher.assertHasEvent(EventPredicates.containsMessage("from byte 32768 of "+contents.length()));
+        }
+        assertRemoteFileContents(remoteFilePath, contents);
+    }
+
+    @Test(groups = {"Integration"})
+    public void testResumesFailedUploadOfBytes() throws Exception {
+        String contents = Strings.repeat("0123456789abcdef\n", 6250);
+        SshjTool localtool = newToolFailingFirstUpload(32768, false);
+
+        try (LogWatcher watcher = newUploadLogWatcher()) {
+            localtool.copyToServer(ImmutableMap.of(SshjTool.PROP_RESUME_UPLOADS.getName(), true), contents.getBytes(StandardCharsets.UTF_8), remoteFilePath);
+            watcher.assertHasEvent(EventPredicates.containsMessage("from byte 32768 of "+contents.length()));
+        }
+        assertRemoteFileContents(remoteFilePath, contents);
+    }
+
+    @Test(groups = {"Integration"})
+    public void testRestartsUploadIfPartialFileDiffers() throws Exception {
+        String contents = Strings.repeat("0123456789abcdef\n", 6250);
+        SshjTool localtool = newToolFailingFirstUpload(32768, true);
+
+        try (LogWatcher watcher = newUploadLogWatcher()) {
+            localtool.copyToServer(ImmutableMap.of(SshjTool.PROP_RESUME_UPLOADS.getName(), true), contents.getBytes(StandardCharsets.UTF_8), remoteFilePath);
+            watcher.assertHasEvent(EventPredicates.containsMessage("differs from source"));
+            assertTrue(watcher.getEvents(EventPredicates.containsMessage("Resuming upload")).isEmpty(), "events="+watcher.getEvents());
+        }
+        assertRemoteFileContents(remoteFilePath, contents);
+    }
+
+    @Test(groups = {"Integration"})
+    public void testDoesNotResumeUploadByDefault() throws Exception {
+        String contents = Strings.repeat("0123456789abcdef\n", 6250);
+        SshjTool localtool = newToolFailingFirstUpload(32768, false);
+
+        try (LogWatcher watcher = newUploadLogWatcher()) {
+            localtool.copyToServer(ImmutableMap.<String,Object>of(), contents.getBytes(StandardCharsets.UTF_8), remoteFilePath);
+            assertTrue(watcher.getEvents().isEmpty(), "events="+watcher.getEvents());
+        }
+        assertRemoteFileContents(remoteFilePath, contents);
+    }
+
+    private LogWatcher newUploadLogWatcher() {
+        return new LogWatcher(SshjTool.class.getName(), ch.qos.logback.classic.Level.DEBUG,
+                EventPredicates.matchingRegexes("(Resuming upload|Partial upload|Unable to checksum partial upload).*"));
+    }
+
+    /**
+     * Creates a tool whose first upload fails after the given number of bytes have been sent,
+     * leaving a partial file of exactly that size; if {@code corrupt} then the bytes sent are zeroed.
+     */
+    private SshjTool newToolFailingFirstUpload(final long failAfter, final boolean corrupt) {
+        final AtomicBoolean failed = new AtomicBoolean();
+        SshjTool localtool = new SshjTool(ImmutableMap.of("sshTries", 3, "host", "localhost", "privateKeyFile", SSH_DEFAULT_KEYFILE)) {
+            @Override
+            protected Supplier<InputStream> newInputStreamSupplier(byte[] contents) {
+                return failFirst(super.newInputStreamSupplier(contents));
+            }
+            @Override
+            protected Supplier<InputStream> newInputStreamSupplier(File file) {
+                return failFirst(super.newInputStreamSupplier(file));
+            }
+            private Supplier<InputStream> failFirst(final Supplier<InputStream> supplier) {
+                return new Supplier<InputStream>() {
+                    @Override public InputStream get() {
+                        InputStream result = supplier.get();
+                        return failed.compareAndSet(false, true) ? new FailingInputStream(result, failAfter, corrupt) : result;
+                    }
+                };
+            }
+        };
+        tools.add(localtool);
+        localtool.connect();
+        return localtool;
+    }
+
+    private static class FailingInputStream extends FilterInputStream {
+        private final long failAfter;
+        private final boolean corrupt;
+        private long count;
+
+        FailingInputStream(InputStream in, long failAfter, boolean corrupt) {
+            super(in);
+            this.failAfter = failAfter;
+            this.corrupt = corrupt;
+        }
+        @Override
+        public int read() throws IOException {
+            byte[] buf = new byte[1];
+            return (read(buf, 0, 1) < 0) ? -1 : (buf[0] & 0xff);
+        }
+        @Override
+        public int read(byte[] buf, int off, int len) throws IOException {
+            if (count >= failAfter) throw new IOException("Simulating upload failure after "+count+" bytes");
+            int result = super.read(buf, off, (int) Math.min(len, failAfter - count));
+            if (result > 0) {
+                if (corrupt) Arrays.fill(buf, off, off + result, (byte) 0);
+                count += result;
+            }
+            return result;
+        }
+    }
 }
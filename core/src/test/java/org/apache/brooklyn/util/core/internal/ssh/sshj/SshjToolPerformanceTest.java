@@ -18,13 +18,28 @@
  */
 package org.apache.brooklyn.util.core.internal.ssh.sshj;
 
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
+import org.apache.brooklyn.test.Asserts;
+import org.apache.brooklyn.util.collections.MutableList;
+import org.apache.brooklyn.util.collections.MutableMap;
 import org.apache.brooklyn.util.core.internal.ssh.SshTool;
 import org.apache.brooklyn.util.core.internal.ssh.SshToolAbstractPerformanceTest;
 import org.apache.brooklyn.util.core.internal.ssh.sshj.SshjTool;
+import org.apache.brooklyn.util.time.Time;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.testng.annotations.AfterMethod;
 import org.testng.annotations.Test;
 
+import com.google.common.base.Stopwatch;
+import com.google.common.collect.ImmutableList;
+
 /**
  * Test the performance of different variants of invoking the sshj tool.
  * 
@@ -32,11 +47,60 @@ import org.testng.annotations.Test;
  */
 public class SshjToolPerformanceTest extends SshToolAbstractPerformanceTest {
 
+    private static final Logger LOG = LoggerFactory.getLogger(SshjToolPerformanceTest.class);
+
+    @AfterMethod(alwaysRun=true)
+    public void closeSharedConnections() throws Exception {
+        SshjSharedConnections.getInstance().closeAll();
+    }
+
     @Override
     protected SshTool newSshTool(Map<String,?> flags) {
         return new SshjTool(flags);
     }
     
+    @Test(groups = {"Integration"})
+    public void testParallelSmallCommandsWithSharedConnection() throws Exception {
+        long connectsBefore = SshjSharedConnections.getInstance().getConnectCount();
+        runParallelCommands(true, "shared-connection", 50, 20);
+        // all tools should have multiplexed over the one connection
+        Asserts.assertEquals(SshjSharedConnections.getInstance().getConnectCount() - connectsBefore, 1L);
+    }
+
+    @Test(groups = {"Integration"})
+    public void testParallelSmallCommandsWithoutSharedConnection() throws Exception {
+        runParallelCommands(false, "separate-connections", 50, 20);
+    }
+
+    private void runParallelCommands(final boolean shareConnection, String context, int numTools, int parallelism) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(parallelism);
+        try {
+            Stopwatch stopwatch = Stopwatch.createStarted();
+            List<Future<Integer>> results = MutableList.of();
+            for (int i = 0; i < numTools; i++) {
+                results.add(executor.submit(new Callable<Integer>() {
+                    @Override public Integer call() {
+                        SshTool tool = newSshTool(MutableMap.of("host", "localhost",
+                                SshjTool.PROP_SHARE_CONNECTION.getName(), shareConnection,
+                                SshjTool.PROP_MAX_CHANNELS_PER_CONNECTION.getName(), 8));
+                        tool.connect();
+                        try {
+                            return tool.execScript(MutableMap.<String,Object>of(), ImmutableList.of("true"));
+                        } finally {
+                            tool.disconnect();
+                        }
+                    }}));
+            }
+            for (Future<Integer> result : results) {
+                Asserts.assertEquals(result.get(), (Integer) 0);
+            }
+            LOG.info("Executing {}; {} tools with parallelism {}; took {}; connects {}", new Object[] {context, numTools, parallelism,
+                    Time.makeTimeStringRounded(stopwatch), SshjSharedConnections.getInstance().getConnectCount()});
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
     // Need to have at least one test method here (rather than just inherited) for eclipse to recognize it
     @Test(enabled = false)
     public void testDummy() throws Exception {
@@ -0,0 +1,141 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.brooklyn.launcher;
+
+import static org.testng.Assert.assertEquals;
+
+import java.util.Map;
+
+import org.apache.brooklyn.api.entity.Application;
+import org.apache.brooklyn.api.entity.Entity;
+import org.apache.brooklyn.api.mgmt.ha.HighAvailabilityMode;
+import org.apache.brooklyn.core.catalog.internal.CatalogInitialization;
+import org.apache.brooklyn.core.internal.BrooklynProperties;
+import org.apache.brooklyn.core.mgmt.persist.PersistMode;
+import org.apache.brooklyn.core.server.BrooklynServerConfig;
+import org.apache.brooklyn.core.test.entity.LocalManagementContextForTests;
+import org.apache.brooklyn.entity.stock.BasicEntity;
+import org.apache.brooklyn.util.osgi.VersionedName;
+import org.apache.brooklyn.util.text.Identifiers;
+import org.osgi.framework.Constants;
+import org.testng.annotations.Test;
+
+import com.google.common.base.Joiner;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Iterables;
+
+/**
+ * Rebinds persisted bundles which depend on each other, with {@link BrooklynServerConfig#CATALOG_STARTUP_PARALLELISM}
+ * set so that {@link CatalogInitialization} installs them concurrently and starts them in waves.
+ */
+public class BrooklynLauncherRebindCatalogParallelStartupTest extends AbstractBrooklynLauncherRebindTest {
+
+    @Override
+    protected boolean useOsgi() {
+        return true;
+    }
+
+    @Override
+    protected boolean reuseOsgi() {
+        return true;
+    }
+
+    private BrooklynLauncher newLauncherForTests(int parallelism) {
+        BrooklynProperties brooklynProperties = LocalManagementContextForTests.builder(true).setOsgiEnablementAndReuse(useOsgi(), reuseOsgi()).buildProperties();
+        brooklynProperties.put(BrooklynServerConfig.CATALOG_STARTUP_PARALLELISM, parallelism);
+        return newLauncherForTests(PersistMode.AUTO, HighAvailabilityMode.DISABLED, brooklynProperties)
+                .globalBrooklynPropertiesFile(null)
+                .catalogInitialization(new CatalogInitialization(CATALOG_EMPTY_INITIAL));
+    }
+
+    @Test
+    public void testRebindsInterdependentBundlesConcurrently() throws Exception {
+        // a chain base <- middle <- top, each requiring the bundle and extending the type of the one before, and one standalone
+        String prefix = "org.example.testParallelStartup"+Identifiers.makeRandomId(4);
+        VersionedName base = new VersionedName("parallel-base", "1.0.0");
+        VersionedName middle = new VersionedName("parallel-middle", "1.0.0");
+        VersionedName top = new VersionedName("parallel-top", "1.0.0");
+        VersionedName other = new VersionedName("parallel-other", "1.0.0");
+        
+        BundleFile baseBundle = bundleBuilder()
+                .name(prefix+".base", "1.0.0")
+                .catalogBom(createCatalogYaml(ImmutableList.of(), ImmutableList.of(base)))
+                .build();
+        BundleFile middleBundle = bundleBuilder()
+                .name(prefix+".middle", "1.0.0")
+                .catalogBom(createCatalogYamlExtending(middle, base))
+                .manifestLines(ImmutableMap.of(Constants.REQUIRE_BUNDLE, baseBundle.getVersionedName().getSymbolicName()))
+                .build();
+        BundleFile topBundle = bundleBuilder()
+                .name(prefix+".top", "1.0.0")
+                .catalogBom(createCatalogYamlExtending(top, middle))
+                .manifestLines(ImmutableMap.of(Constants.REQUIRE_BUNDLE, middleBundle.getVersionedName().getSymbolicName()))
+                .build();
+        BundleFile otherBundle = bundleBuilder()
+                .name(prefix+".other", "1.0.0")
+                .catalogBom(createCatalogYaml(ImmutableList.of(), ImmutableList.of(other)))
+                .build();
+
+        // persisted with dependents first, so the order comes from the manifests
+        newPersistedStateInitializer()
+                .bundle(topBundle)
+                .bundle(middleBundle)
+                .bundle(otherBundle)
+                .bundle(baseBundle)
+                .initState();
+
+        Map<BundleFile, VersionedName> typesByBundle = ImmutableMap.of(baseBundle, base, middleBundle, middle, topBundle, top, otherBundle, other);
+        BrooklynLauncher launcher = newLauncherForTests(4);
+        launcher.start();
+        assertRebindsBundles(launcher, typesByBundle);
+        
+        Application app = createAndStartApplication(launcher.getManagementContext(), "services: [ { type: '"+top+"' } ]");
+        Entity entity = Iterables.getOnlyElement(app.getChildren());
+        assertEquals(entity.getCatalogItemId(), top.toString());
+        assertEquals(entity.getEntityType().getName(), BasicEntity.class.getName());
+        launcher.terminate();
+
+        // and again, from the state persisted by brooklyn itself
+        BrooklynLauncher newLauncher = newLauncherForTests(4);
+        newLauncher.start();
+        assertRebindsBundles(newLauncher, typesByBundle);
+        newLauncher.terminate();
+    }
+
+    private void assertRebindsBundles(BrooklynLauncher launcher, Map<BundleFile, VersionedName> typesByBundle) {
+        assertHealthyMaster(launcher);
+        assertCatalogConsistsOfIds(launcher, typesByBundle.values());
+        for (Map.Entry<BundleFile, VersionedName> entry : typesByBundle.entrySet()) {
+            assertManagedBundle(launcher, entry.getKey().getVersionedName(), ImmutableSet.of(entry.getValue()));
+        }
+    }
+
+    private String createCatalogYamlExtending(VersionedName item, VersionedName supertype) {
+        return Joiner.on("\n").join(
+                "brooklyn.catalog:",
+                "  items:",
+                "    - id: "+item.getSymbolicName(),
+                "      version: "+item.getVersionString(),
+                "      itemType: entity",
+                "      item:",
+                "        type: "+supertype);
+    }
+}
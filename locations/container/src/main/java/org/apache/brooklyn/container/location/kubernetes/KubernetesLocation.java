@@ -27,11 +27,13 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
 
 import com.google.common.base.Functions;
 import com.google.common.base.Joiner;
 import com.google.common.base.Optional;
+import com.google.common.base.Predicate;
 import com.google.common.base.Predicates;
 import com.google.common.base.Stopwatch;
 import com.google.common.base.Throwables;
@@ -81,6 +83,7 @@ import org.apache.brooklyn.util.core.internal.ssh.SshTool;
 import org.apache.brooklyn.util.core.text.TemplateProcessor;
 import org.apache.brooklyn.util.exceptions.Exceptions;
 import org.apache.brooklyn.util.exceptions.ReferenceWithError;
+import org.apache.brooklyn.util.guava.Maybe;
 import org.apache.brooklyn.util.net.Networking;
 import org.apache.brooklyn.util.repeat.Repeater;
 import org.apache.brooklyn.util.stream.Streams;
@@ -165,6 +168,7 @@ public class KubernetesLocation extends AbstractLocation implements MachineProvi
     private static final Logger LOG = LoggerFactory.getLogger(KubernetesLocation.class);
     public static final String ADDRESS_KEY = "address";
     private ConfigBag currentConfig;
+    private final transient Map<String, KubernetesPodWatcher> podWatchers = new ConcurrentHashMap<>();
 
     public KubernetesLocation() {
         super();
@@ -195,6 +199,35 @@ public class KubernetesLocation extends AbstractLocation implements MachineProvi
         return client;
     }
 
+    /**
+     * Returns the watcher shared by all waits for pods in the given namespace, starting it if necessary;
+     * or null if {@link #WATCH_PODS} is disabled or the watch could not be started, in which case callers poll.
+     */
+    protected KubernetesPodWatcher getPodWatcher(final String namespace) {
+        if (!Boolean.TRUE.equals(getConfig(WATCH_PODS))) return null;
+        try {
+            return podWatchers.computeIfAbsent(namespace, ns -> new KubernetesPodWatcher(getClient(), ns, getConfig(WATCH_RESYNC_PERIOD)));
+        } catch (Exception e) {
+            Exceptions.propagateIfFatal(e);
+            LOG.warn("Unable to watch pods in namespace " + namespace + "; will poll instead: " + e);
+            LOG.debug("Trace for failure to watch pods in namespace " + namespace, e);
+            return null;
+        }
+    }
+
+    protected void closePodWatcher(String namespace) {
+        KubernetesPodWatcher watcher = podWatchers.remove(namespace);
+        if (watcher != null) watcher.close();
+    }
+
+    @Override
+    public void onManagementStopped() {
+        for (String namespace : MutableList.copyOf(podWatchers.keySet())) {
+            closePodWatcher(namespace);
+        }
+        super.onManagementStopped();
+    }
+
     @Override
     public KubernetesMachineLocation obtain(Map<?, ?> flags) {
         ConfigBag setupRaw = ConfigBag.newInstanceExtending(config().getBag(), flags);
@@ -306,6 +339,7 @@ public class KubernetesLocation extends AbstractLocation implements MachineProvi
             try (KubernetesClient client = getClient()) {
                 if (client.namespaces().withName(name).get() != null &&
                         !client.namespaces().withName(name).get().getStatus().getPhase().equals(PHASE_TERMINATING)) {
+                    closePodWatcher(name);
                     client.namespaces().withName(name).delete();
                     ExitCondition exitCondition = new ExitCondition() {
                         @Override
@@ -615,6 +649,11 @@ public class KubernetesLocation extends AbstractLocation implements MachineProvi
     }
 
     protected Pod getPod(final String namespace, final String name) {
+        KubernetesPodWatcher watcher = getPodWatcher(namespace);
+        if (watcher != null) {
+            return waitForPod(watcher, Predicates.and(KubernetesPodWatcher.named(name), KubernetesPodWatcher.hasPodIp()),
+                    "Cannot find pod with name: " + name);
+        }
         try (KubernetesClient client = getClient()) {
             ExitCondition exitCondition = new ExitCondition() {
                 @Override
@@ -634,6 +673,11 @@ public class KubernetesLocation extends AbstractLocation implements MachineProvi
     }
 
     protected Pod getPod(final String namespace, final Map<String, String> metadata) {
+        KubernetesPodWatcher watcher = getPodWatcher(namespace);
+        if (watcher != null) {
+            return waitForPod(watcher, Predicates.and(KubernetesPodWatcher.withLabels(metadata), KubernetesPodWatcher.hasPodIp()),
+                    "Cannot find pod with metadata: " + Joiner.on(" ").withKeyValueSeparator("=").join(metadata));
+        }
         try (KubernetesClient client = getClient()) {
             ExitCondition exitCondition = new ExitCondition() {
                 @Override
@@ -1074,6 +1118,17 @@ public class KubernetesLocation extends AbstractLocation implements MachineProvi
         }
     }
 
+    protected Pod waitForPod(KubernetesPodWatcher watcher, Predicate<? super Pod> condition, String failureMessage) {
+        Duration timeout = Duration.FIVE_MINUTES;
+        Maybe<Pod> result = watcher.waitFor(condition, timeout);
+        if (result.isAbsent()) {
+            String err = String.format("Exit condition unsatisfied after %s: %s", timeout, failureMessage);
+            LOG.info("{} (rethrowing)", err);
+            throw new IllegalStateException(err);
+        }
+        return result.get();
+    }
+
     public interface ExitCondition extends Callable<Boolean> {
         String getFailureMessage();
     }
@@ -174,6 +174,19 @@ public interface KubernetesLocationConfig extends CloudLocationConfig {
             .defaultValue(KubernetesClientRegistryImpl.INSTANCE)
             .build();
 
+    ConfigKey<Boolean> WATCH_PODS = ConfigKeys.builder(Boolean.class)
+            .name("watchPods")
+            .description("Whether to wait for pods using a watch shared per namespace, rather than by polling")
+            .defaultValue(true)
+            .build();
+
+    ConfigKey<Duration> WATCH_RESYNC_PERIOD = ConfigKeys.builder(Duration.class)
+            .name("watchResyncPeriod")
+            .description("How often the pod watch re-checks its cache against the API server, in case events are missed")
+            .defaultValue(Duration.ONE_MINUTE)
+            .constraint(Predicates.<Duration>notNull())
+            .build();
+
     ConfigKey<String> LOGIN_USER = ConfigKeys.builder(String.class)
             .name("loginUser")
             .description("Override the user who logs in initially to perform setup")
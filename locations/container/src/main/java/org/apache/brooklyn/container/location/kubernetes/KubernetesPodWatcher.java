@@ -0,0 +1,165 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.brooklyn.container.location.kubernetes;
+
+import java.io.Closeable;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.brooklyn.util.exceptions.Exceptions;
+import org.apache.brooklyn.util.guava.Maybe;
+import org.apache.brooklyn.util.time.CountdownTimer;
+import org.apache.brooklyn.util.time.Duration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.annotations.Beta;
+import com.google.common.base.Joiner;
+import com.google.common.base.Predicate;
+
+import io.fabric8.kubernetes.api.model.Pod;
+import io.fabric8.kubernetes.client.KubernetesClient;
+import io.fabric8.kubernetes.client.informers.ResourceEventHandler;
+import io.fabric8.kubernetes.client.informers.SharedIndexInformer;
+
+/**
+ * Keeps a cache of the pods in a namespace up to date using a single watch, so that waiting for a pod
+ * to reach some state is driven by events rather than by repeatedly querying the API server.
+ * <p>
+ * One watcher is shared by all waits on the same namespace; see {@link KubernetesLocation#getPodWatcher(String)}.
+ * The watcher owns the given client, closing it when the watcher is closed.
+ */
+@Beta
+public class KubernetesPodWatcher implements Closeable {
+
+    private static final Logger LOG = LoggerFactory.getLogger(KubernetesPodWatcher.class);
+
+    private final KubernetesClient client;
+    private final String namespace;
+    private final Object mutex = new Object();
+    private final SharedIndexInformer<Pod> informer;
+
+    public KubernetesPodWatcher(KubernetesClient client, String namespace, Duration resyncPeriod) {
+        this.client = client;
+        this.namespace = namespace;
+        this.informer = client.pods().inNamespace(namespace).inform(new ResourceEventHandler<Pod>() {
+            @Override
+            public void onAdd(Pod pod) {
+                changed();
+            }
+            @Override
+            public void onUpdate(Pod oldPod, Pod newPod) {
+                changed();
+            }
+            @Override
+            public void onDelete(Pod pod, boolean deletedFinalStateUnknown) {
+                changed();
+            }
+        }, resyncPeriod.toMilliseconds());
+        LOG.debug("Watching pods in namespace {}", namespace);
+    }
+
+    private void changed() {
+        synchronized (mutex) {
+            mutex.notifyAll();
+        }
+    }
+
+    public String getNamespace() {
+        return namespace;
+    }
+
+    /** The pods currently in the namespace, as last reported by the watch. */
+    public List<Pod> getPods() {
+        return informer.getIndexer().list();
+    }
+
+    /**
+     * Waits until a pod in the namespace satisfies the given condition, returning that pod,
+     * or absent if none does within the timeout.
+     */
+    public Maybe<Pod> waitFor(Predicate<? super Pod> condition, Duration timeout) {
+        CountdownTimer timer = CountdownTimer.newInstanceStarted(timeout);
+        synchronized (mutex) {
+            while (true) {
+                for (Pod pod : getPods()) {
+                    if (condition.apply(pod)) return Maybe.of(pod);
+                }
+                if (timer.isExpired()) {
+                    return Maybe.absent("No pod in namespace "+namespace+" matching "+condition+" after "+timeout);
+                }
+                try {
+                    mutex.wait(Math.max(1, timer.getDurationRemaining().toMilliseconds()));
+                } catch (InterruptedException e) {
+                    throw Exceptions.propagate(e);
+                }
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        LOG.debug("Stopping watch of pods in namespace {}", namespace);
+        try {
+            informer.stop();
+        } finally {
+            client.close();
+        }
+    }
+
+    public static Predicate<Pod> named(final String name) {
+        return new Predicate<Pod>() {
+            @Override
+            public boolean apply(Pod pod) {
+                return pod.getMetadata() != null && name.equals(pod.getMetadata().getName());
+            }
+            @Override
+            public String toString() {
+                return "named("+name+")";
+            }
+        };
+    }
+
+    public static Predicate<Pod> withLabels(final Map<String, String> labels) {
+        return new Predicate<Pod>() {
+            @Override
+            public boolean apply(Pod pod) {
+                Map<String, String> actual = (pod.getMetadata() == null) ? null : pod.getMetadata().getLabels();
+                return actual != null && actual.entrySet().containsAll(labels.entrySet());
+            }
+            @Override
+            public String toString() {
+                return "withLabels("+Joiner.on(" ").withKeyValueSeparator("=").join(labels)+")";
+            }
+        };
+    }
+
+    public static Predicate<Pod> hasPodIp() {
+        return new Predicate<Pod>() {
+            @Override
+            public boolean apply(Pod pod) {
+                return pod.getStatus() != null && pod.getStatus().getPodIP() != null;
+            }
+            @Override
+            public String toString() {
+                return "hasPodIp()";
+            }
+        };
+    }
+}
@@ -0,0 +1,124 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.brooklyn.container.location.kubernetes;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.brooklyn.util.guava.Maybe;
+import org.apache.brooklyn.util.time.Duration;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.google.common.base.Predicates;
+import com.google.common.collect.ImmutableMap;
+
+import io.fabric8.kubernetes.api.model.Pod;
+import io.fabric8.kubernetes.api.model.PodBuilder;
+import io.fabric8.kubernetes.client.KubernetesClient;
+import io.fabric8.kubernetes.client.server.mock.KubernetesServer;
+
+public class KubernetesPodWatcherTest {
+
+    private static final String NAMESPACE = "test-namespace";
+
+    private KubernetesServer server;
+    private KubernetesClient client;
+    private KubernetesPodWatcher watcher;
+    private ExecutorService executor;
+
+    @BeforeMethod(alwaysRun = true)
+    public void setUp() throws Exception {
+        server = new KubernetesServer(false, true);
+        server.before();
+        client = server.getClient();
+        watcher = new KubernetesPodWatcher(client, NAMESPACE, Duration.ONE_MINUTE);
+        executor = Executors.newCachedThreadPool();
+    }
+
+    @AfterMethod(alwaysRun = true)
+    public void tearDown() throws Exception {
+        try {
+            if (executor != null) executor.shutdownNow();
+            if (watcher != null) watcher.close();
+        } finally {
+            if (server != null) server.after();
+        }
+    }
+
+    @Test
+    public void testWaitForReturnsExistingPod() throws Exception {
+        client.pods().inNamespace(NAMESPACE).create(newPod("pod1", ImmutableMap.of("app", "a"), "10.0.0.1"));
+
+        Maybe<Pod> result = watcher.waitFor(KubernetesPodWatcher.named("pod1"), Duration.THIRTY_SECONDS);
+
+        assertEquals(result.get().getStatus().getPodIP(), "10.0.0.1");
+    }
+
+    @Test
+    public void testWaitForNotifiedWhenPodUpdated() throws Exception {
+        client.pods().inNamespace(NAMESPACE).create(newPod("pod1", ImmutableMap.of("app", "a"), null));
+
+        Future<Maybe<Pod>> future = executor.submit(new Callable<Maybe<Pod>>() {
+            @Override
+            public Maybe<Pod> call() {
+                return watcher.waitFor(Predicates.and(KubernetesPodWatcher.withLabels(ImmutableMap.of("app", "a")), KubernetesPodWatcher.hasPodIp()),
+                        Duration.THIRTY_SECONDS);
+            }});
+        Thread.sleep(100);
+        assertFalse(future.isDone());
+
+        client.pods().inNamespace(NAMESPACE).createOrReplace(newPod("pod1", ImmutableMap.of("app", "a"), "10.0.0.2"));
+
+        Maybe<Pod> result = future.get(30, TimeUnit.SECONDS);
+        assertEquals(result.get().getMetadata().getName(), "pod1");
+        assertEquals(result.get().getStatus().getPodIP(), "10.0.0.2");
+    }
+
+    @Test
+    public void testWaitForTimesOut() throws Exception {
+        client.pods().inNamespace(NAMESPACE).create(newPod("pod1", ImmutableMap.of("app", "a"), null));
+
+        Maybe<Pod> result = watcher.waitFor(KubernetesPodWatcher.named("pod2"), Duration.millis(100));
+
+        assertTrue(result.isAbsent());
+    }
+
+    private Pod newPod(String name, Map<String, String> labels, String podIp) {
+        return new PodBuilder()
+                .withNewMetadata()
+                .withName(name)
+                .withNamespace(NAMESPACE)
+                .withLabels(labels)
+                .endMetadata()
+                .withNewStatus()
+                .withPodIP(podIp)
+                .endStatus()
+                .build();
+    }
+}
@@ -18,6 +18,7 @@
  */
 package org.apache.brooklyn.location.jclouds;
 
+import com.google.common.annotations.Beta;
 import com.google.common.base.Predicates;
 import com.google.common.base.Supplier;
 import com.google.common.collect.ImmutableSet;
@@ -33,21 +34,27 @@ import org.apache.brooklyn.util.core.ClassLoaderUtils;
 import org.apache.brooklyn.util.core.config.ConfigBag;
 import org.apache.brooklyn.util.guava.Maybe;
 import org.apache.brooklyn.util.javalang.Reflections;
+import org.apache.brooklyn.util.time.Duration;
 import org.jclouds.Constants;
 import org.jclouds.Context;
 import org.jclouds.ContextBuilder;
 import org.jclouds.compute.ComputeService;
 import org.jclouds.compute.ComputeServiceContext;
+import org.jclouds.compute.domain.Hardware;
+import org.jclouds.compute.domain.Image;
 import org.jclouds.config.ContextLinking;
 import org.jclouds.domain.Credentials;
 import org.jclouds.encryption.bouncycastle.config.BouncyCastleCryptoModule;
 import org.jclouds.logging.slf4j.config.SLF4JLoggingModule;
 import org.jclouds.sshj.config.SshjSshClientModule;
 
+import java.lang.ref.WeakReference;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
+import java.util.Set;
+import java.util.WeakHashMap;
 import java.util.concurrent.ConcurrentHashMap;
 
 import static com.google.common.base.Preconditions.checkNotNull;
@@ -56,6 +63,8 @@ public abstract class AbstractComputeServiceRegistry implements ComputeServiceRe
 
     private final Map<Map<?, ?>, ComputeService> cachedComputeServices = new ConcurrentHashMap<>();
 
+    private static final Map<ComputeService, Catalogue> catalogues = new WeakHashMap<>();
+
     @Override
     public ComputeService findComputeService(ConfigBag conf, boolean allowReuse) {
         JCloudsPropertiesBuilder propertiesBuilder = new JCloudsPropertiesBuilder(conf)
@@ -139,6 +148,93 @@ public abstract class AbstractComputeServiceRegistry implements ComputeServiceRe
         }
     }
 
+    /**
+     * Returns the catalogue of images and hardware profiles for the given compute service, shared by all
+     * locations which use that compute service, whichever registry supplied it (normally all locations with
+     * the same cloud account, region and endpoint, as compute services are reused by {@link #findComputeService(ConfigBag, boolean)}).
+     */
+    @Beta
+    public static Catalogue getCatalogue(ComputeService computeService) {
+        synchronized (catalogues) {
+            return catalogues.computeIfAbsent(computeService, Catalogue::new);
+        }
+    }
+
+    /**
+     * Images and hardware profiles of a compute service, loaded on demand and kept for as long as each
+     * caller allows, so that looking them up does not require listing them from the cloud every time.
+     * Large providers may have tens of thousands of images, taking seconds to list.
+     */
+    @Beta
+    public static class Catalogue {
+        // weak, as the catalogue is the value in a weak map keyed by the compute service
+        private final WeakReference<ComputeService> computeService;
+        private final Map<String, Image> images = new ConcurrentHashMap<>();
+        private final Map<String, Long> imageLoadTimes = new ConcurrentHashMap<>();
+        private volatile Set<? extends Image> allImages;
+        private volatile long allImagesLoadTime;
+        private volatile Set<? extends Hardware> hardwareProfiles;
+        private volatile long hardwareProfilesLoadTime;
+
+        protected Catalogue(ComputeService computeService) {
+            this.computeService = new WeakReference<>(computeService);
+        }
+
+        private ComputeService computeService() {
+            return checkNotNull(computeService.get(), "computeService no longer available");
+        }
+
+        /** Returns the image with the given id, or null if there is none, loading it if not loaded within the given time. */
+        public Image getImage(String imageId, Duration maxAge) {
+            Long loaded = imageLoadTimes.get(imageId);
+            if (loaded != null && !isExpired(loaded, maxAge)) {
+                return images.get(imageId);
+            }
+            Image result = computeService().getImage(imageId);
+            if (result != null) {
+                images.put(imageId, result);
+                imageLoadTimes.put(imageId, System.nanoTime());
+            }
+            return result;
+        }
+
+        public Set<? extends Image> listImages(Duration maxAge) {
+            Set<? extends Image> result = allImages;
+            if (result == null || isExpired(allImagesLoadTime, maxAge)) {
+                result = computeService().listImages();
+                allImagesLoadTime = System.nanoTime();
+                allImages = result;
+                for (Image image : result) {
+                    images.put(image.getId(), image);
+                    imageLoadTimes.put(image.getId(), allImagesLoadTime);
+                }
+            }
+            return result;
+        }
+
+        public Set<? extends Hardware> listHardwareProfiles(Duration maxAge) {
+            Set<? extends Hardware> result = hardwareProfiles;
+            if (result == null || isExpired(hardwareProfilesLoadTime, maxAge)) {
+                result = computeService().listHardwareProfiles();
+                hardwareProfilesLoadTime = System.nanoTime();
+                hardwareProfiles = result;
+            }
+            return result;
+        }
+
+        /** Discards everything loaded, so it is reloaded on next use. */
+        public void invalidate() {
+            images.clear();
+            imageLoadTimes.clear();
+            allImages = null;
+            hardwareProfiles = null;
+        }
+
+        private static boolean isExpired(long loadTimeNanos, Duration maxAge) {
+            return maxAge == null || System.nanoTime() - loadTimeNanos >= maxAge.toNanoseconds();
+        }
+    }
+
     protected String getProviderFromConfig(ConfigBag conf) {
         String rawProvider = checkNotNull(conf.get(CLOUD_PROVIDER), "provider must not be null");
         return DeserializingJcloudsRenamesProvider.INSTANCE.applyJcloudsRenames(rawProvider);
@@ -42,6 +42,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.Set;
+import java.util.TreeMap;
 import java.util.concurrent.Callable;
 import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
@@ -137,6 +138,7 @@ import org.jclouds.compute.domain.OperatingSystem;
 import org.jclouds.compute.domain.OsFamily;
 import org.jclouds.compute.domain.Template;
 import org.jclouds.compute.domain.TemplateBuilder;
+import org.jclouds.compute.domain.internal.TemplateImpl;
 import org.jclouds.compute.options.TemplateOptions;
 import org.jclouds.domain.Credentials;
 import org.jclouds.domain.LocationScope;
@@ -164,6 +166,8 @@ import com.google.common.base.Stopwatch;
 import com.google.common.base.Supplier;
 import com.google.common.base.Suppliers;
 import com.google.common.base.Throwables;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
@@ -202,6 +206,17 @@ public class JcloudsLocation extends AbstractCloudMachineProvisioningLocation im
 
     private final AtomicBoolean listedAvailableTemplatesOnNoSuchTemplate = new AtomicBoolean(false);
 
+    private final transient NodeCreationBatcher nodeCreationBatcher = new NodeCreationBatcher();
+
+    private static final int TEMPLATE_CACHE_MAX_SIZE = 100;
+    private static final Duration TEMPLATE_CACHE_MAX_AGE = Duration.ONE_DAY;
+
+    /** resolved templates, each also expiring after its own {@link #TEMPLATE_CACHE_TTL} */
+    private final transient Cache<String, CachedTemplate> templateCache = CacheBuilder.newBuilder()
+            .maximumSize(TEMPLATE_CACHE_MAX_SIZE)
+            .expireAfterWrite(TEMPLATE_CACHE_MAX_AGE.toMilliseconds(), TimeUnit.MILLISECONDS)
+            .build();
+
     private final Map<String,Map<String, ? extends Object>> tagMapping = Maps.newLinkedHashMap();
 
     @SetFromFlag // so it's persisted
@@ -711,7 +726,7 @@ public class JcloudsLocation extends AbstractCloudMachineProvisioningLocation im
         try {
             LOG.info("Creating VM "+getCreationString(setup)+" in "+this);
 
-            Semaphore machineCreationSemaphore = getMachineCreationSemaphore();
+            final Semaphore machineCreationSemaphore = getMachineCreationSemaphore();
             boolean acquired = machineCreationSemaphore.tryAcquire(0, TimeUnit.SECONDS);
             if (!acquired) {
                 LOG.info("Waiting in {} for machine-creation permit ({} other queuing requests already)", new Object[] {this, machineCreationSemaphore.getQueueLength()});
@@ -721,6 +736,7 @@ public class JcloudsLocation extends AbstractCloudMachineProvisioningLocation im
             } else {
                 LOG.debug("Acquired in {} machine-creation permit immediately", this);
             }
+            boolean permitHeld = true;
             semaphoreTimestamp = Duration.of(provisioningStopwatch);
 
             LoginCredentials userCredentials = null;
@@ -733,50 +749,41 @@ public class JcloudsLocation extends AbstractCloudMachineProvisioningLocation im
                     DefaultAzureArmNetworkCreator.createDefaultNetworkAndAddToTemplateOptionsIfRequired(computeService, setup);
                 }
 
-                // Setup the template
-                template = buildTemplate(computeService, setup, ImmutableList.of(customizersDelegate));
-                boolean expectWindows = isWindows(template, setup);
-                if (!options.skipJcloudsSshing()) {
-                    if (expectWindows) {
-                        // TODO Was this too early to look at template.getImage? e.g. customizeTemplate could subsequently modify it.
-                        LOG.warn("Ignoring invalid configuration for Windows provisioning of "+template.getImage()+": "+USE_JCLOUDS_SSH_INIT.getName()+" should be false");
-                        options = options.toBuilder()
-                                .skipJcloudsSshing(true)
-                                .build();
-                    } else if (options.waitForConnectable()) {
-                        userCredentials = initTemplateForCreateUser(template, setup);
-                    }
+                NodeCreationBatcher.Allocation allocation = null;
+                String batchKey = getBatchKey(setup);
+                if (batchKey != null) {
+                    // Don't hold a permit while waiting for others to join the batch; the leader takes one to create it
+                    machineCreationSemaphore.release();
+                    permitHeld = false;
+                    allocation = allocateFromBatch(computeService, groupId, batchKey, machineCreationSemaphore, customizersDelegate, setup).orNull();
                 }
-
-                templateTimestamp = Duration.of(provisioningStopwatch);
-                // "Name" metadata seems to set the display name; at least in AWS
-                // TODO it would be nice if this salt comes from the location's ID (but we don't know that yet as the ssh machine location isn't created yet)
-                // TODO in softlayer we want to control the suffix of the hostname which is 3 random hex digits
-                template.getOptions().getUserMetadata().put("Name", cloudMachineNamer.generateNewMachineUniqueNameFromGroupId(setup, groupId));
-
-                if (setup.get(JcloudsLocationConfig.INCLUDE_BROOKLYN_USER_METADATA)) {
-                    template.getOptions().getUserMetadata().put("brooklyn-user", System.getProperty("user.name"));
-
-                    Object context = setup.get(CALLER_CONTEXT);
-                    if (context instanceof Entity) {
-                        Entity entity = (Entity)context;
-                        template.getOptions().getUserMetadata().put("brooklyn-app-id", entity.getApplicationId());
-                        template.getOptions().getUserMetadata().put("brooklyn-app-name", entity.getApplication().getDisplayName());
-                        template.getOptions().getUserMetadata().put("brooklyn-entity-id", entity.getId());
-                        template.getOptions().getUserMetadata().put("brooklyn-entity-name", entity.getDisplayName());
-                        template.getOptions().getUserMetadata().put("brooklyn-server-creation-date", Time.makeDateSimpleStampString());
+                if (allocation != null) {
+                    LOG.debug("jclouds obtained node as one of batch of {} for {}", allocation.getBatchSize(), getCreationString(setup));
+                    template = allocation.getTemplate();
+                    userCredentials = allocation.getUserCredentials();
+                    nodes = ImmutableSet.of(allocation.getNode());
+                    templateTimestamp = Duration.of(provisioningStopwatch);
+                } else {
+                    if (!permitHeld) {
+                        machineCreationSemaphore.acquire();
+                        permitHeld = true;
                     }
+                    template = buildTemplate(computeService, setup, ImmutableList.of(customizersDelegate));
+                    userCredentials = prepareTemplate(computeService, template, groupId, true, customizersDelegate, setup);
+                    templateTimestamp = Duration.of(provisioningStopwatch);
+                    LOG.debug("jclouds using template {} / options {} to provision machine in {}",
+                            new Object[] {template, template.getOptions(), getCreationString(setup)});
+                    nodes = computeService.createNodesInGroup(groupId, 1, template);
                 }
-
-                customizeTemplate(computeService, template, customizersDelegate);
-
-                LOG.debug("jclouds using template {} / options {} to provision machine in {}",
-                        new Object[] {template, template.getOptions(), getCreationString(setup)});
-
-                nodes = computeService.createNodesInGroup(groupId, 1, template);
                 provisionTimestamp = Duration.of(provisioningStopwatch);
             } finally {
-                machineCreationSemaphore.release();
+                if (permitHeld) machineCreationSemaphore.release();
+            }
+
+            if (!options.skipJcloudsSshing() && isWindows(template, setup)) {
+                options = options.toBuilder()
+                        .skipJcloudsSshing(true)
+                        .build();
             }
 
             node = Iterables.getOnlyElement(nodes, null);
@@ -1095,6 +1102,10 @@ public class JcloudsLocation extends AbstractCloudMachineProvisioningLocation im
             if (e instanceof RunNodesException && ((RunNodesException)e).getNodeErrors().size() > 0) {
                 node = Iterables.get(((RunNodesException)e).getNodeErrors().keySet(), 0);
             }
+            if (node == null && templateTimestamp != null) {
+                // the cloud may have rejected a cached template (e.g. image since deleted), so resolve it afresh on retry
+                templateCache.invalidateAll();
+            }
             // sometimes AWS nodes come up busted (eg ssh not allowed); just throw it back (and maybe try for another one)
             boolean destroyNode = (node != null) && Boolean.TRUE.equals(setup.get(DESTROY_ON_FAILURE));
 
@@ -1324,7 +1335,120 @@ public class JcloudsLocation extends AbstractCloudMachineProvisioningLocation im
 
     @Override
     public Map<String, Object> getLocationMetrics(Map<String, Object> properties) {
-        return MutableMap.of();
+        return nodeCreationBatcher.getMetrics();
+    }
+
+    @Override
+    public void expectObtains(int count) {
+        Integer batchSize = getConfig(MACHINE_CREATE_BATCH_SIZE);
+        if (batchSize != null && batchSize > 1) {
+            nodeCreationBatcher.expect(count);
+        }
+    }
+
+    /**
+     * Sets up the given template for creating machines for this request: user creation, naming and metadata,
+     * then the customizers. If {@code named} is false, the "Name" metadata is not set, so that jclouds names
+     * each machine when creating several at once.
+     * 
+     * @return the credentials the machines will be created with, or null if they are not known until created
+     */
+    protected LoginCredentials prepareTemplate(ComputeService computeService, Template template, String groupId, boolean named,
+            JcloudsLocationCustomizer customizersDelegate, ConfigBag setup) {
+        LoginCredentials userCredentials = null;
+        ConnectivityResolverOptions options = getConnectivityOptionsBuilder(setup, false).build();
+        if (!options.skipJcloudsSshing()) {
+            if (isWindows(template, setup)) {
+                // TODO Was this too early to look at template.getImage? e.g. customizeTemplate could subsequently modify it.
+                LOG.warn("Ignoring invalid configuration for Windows provisioning of "+template.getImage()+": "+USE_JCLOUDS_SSH_INIT.getName()+" should be false");
+            } else if (options.waitForConnectable()) {
+                userCredentials = initTemplateForCreateUser(template, setup);
+            }
+        }
+
+        // "Name" metadata seems to set the display name; at least in AWS
+        // TODO it would be nice if this salt comes from the location's ID (but we don't know that yet as the ssh machine location isn't created yet)
+        // TODO in softlayer we want to control the suffix of the hostname which is 3 random hex digits
+        if (named) {
+            template.getOptions().getUserMetadata().put("Name", getCloudMachineNamer(setup).generateNewMachineUniqueNameFromGroupId(setup, groupId));
+        }
+
+        if (setup.get(JcloudsLocationConfig.INCLUDE_BROOKLYN_USER_METADATA)) {
+            template.getOptions().getUserMetadata().put("brooklyn-user", System.getProperty("user.name"));
+
+            Object context = setup.get(CALLER_CONTEXT);
+            if (context instanceof Entity) {
+                Entity entity = (Entity)context;
+                template.getOptions().getUserMetadata().put("brooklyn-app-id", entity.getApplicationId());
+                template.getOptions().getUserMetadata().put("brooklyn-app-name", entity.getApplication().getDisplayName());
+                template.getOptions().getUserMetadata().put("brooklyn-entity-id", entity.getId());
+                template.getOptions().getUserMetadata().put("brooklyn-entity-name", entity.getDisplayName());
+                template.getOptions().getUserMetadata().put("brooklyn-server-creation-date", Time.makeDateSimpleStampString());
+            }
+        }
+
+        customizeTemplate(computeService, template, customizersDelegate);
+        return userCredentials;
+    }
+
+    /**
+     * If batching is configured and other requests with the same batch key are expected, obtains a node created
+     * along with theirs in a single call to the cloud; otherwise returns absent. Only the request leading the batch
+     * builds a template, and it takes a machine-creation permit only while creating the nodes.
+     */
+    protected Maybe<NodeCreationBatcher.Allocation> allocateFromBatch(final ComputeService computeService, final String groupId,
+            String batchKey, final Semaphore machineCreationSemaphore, final JcloudsLocationCustomizer customizersDelegate, final ConfigBag setup) {
+        return nodeCreationBatcher.allocate(batchKey, setup.get(MACHINE_CREATE_BATCH_SIZE), setup.get(MACHINE_CREATE_BATCH_WINDOW), count -> {
+            machineCreationSemaphore.acquire();
+            try {
+                Template template = buildTemplate(computeService, setup, ImmutableList.of(customizersDelegate));
+                LoginCredentials userCredentials = prepareTemplate(computeService, template, groupId, count == 1, customizersDelegate, setup);
+                LOG.debug("jclouds using template {} / options {} to provision batch of {} machine(s) in {}",
+                        new Object[] {template, template.getOptions(), count, getCreationString(setup)});
+                Set<? extends NodeMetadata> nodes;
+                try {
+                    nodes = computeService.createNodesInGroup(groupId, count, template);
+                } catch (RunNodesException e) {
+                    if (e.getSuccessfulNodes().isEmpty()) throw e;
+                    LOG.warn("jclouds created only "+e.getSuccessfulNodes().size()+" of "+count+" nodes in batch for "+getCreationString(setup)+": "+e.getMessage());
+                    if (Boolean.TRUE.equals(setup.get(DESTROY_ON_FAILURE))) {
+                        for (NodeMetadata failed : e.getNodeErrors().keySet()) {
+                            releaseNodeSafely(failed);
+                        }
+                    }
+                    nodes = e.getSuccessfulNodes();
+                }
+                return new NodeCreationBatcher.CreatedNodes(nodes, template, userCredentials);
+            } finally {
+                machineCreationSemaphore.release();
+            }
+        });
+    }
+
+    /**
+     * The key for requests which can share a batch, or null if this request cannot be batched. Requests share a
+     * batch only if they would create identical machines: the template (and group, if configured) comes from the
+     * request's configuration, so that must be the same apart from the caller; the caller must also be the same
+     * if it would be recorded on the machine, in its metadata or in a generated group name.
+     * <p>
+     * By default both apply, so the members of a cluster (each a different caller) are not batched unless
+     * {@link JcloudsLocationConfig#INCLUDE_BROOKLYN_USER_METADATA} is false and {@link #GROUP_ID} is set.
+     * jclouds cannot portably change a node's metadata or group once created, so these cannot be set per member.
+     */
+    protected String getBatchKey(ConfigBag setup) {
+        Integer batchSize = setup.get(MACHINE_CREATE_BATCH_SIZE);
+        if (batchSize == null || batchSize <= 1) return null;
+
+        Map<String, String> config = new TreeMap<String, String>();
+        for (Map.Entry<String, Object> entry : setup.getAllConfig().entrySet()) {
+            if (!CALLER_CONTEXT.getName().equals(entry.getKey())) {
+                config.put(entry.getKey(), String.valueOf(entry.getValue()));
+            }
+        }
+        Object context = setup.get(CALLER_CONTEXT);
+        boolean callerRecorded = setup.get(JcloudsLocationConfig.INCLUDE_BROOKLYN_USER_METADATA) || setup.get(GROUP_ID) == null;
+        String caller = (context instanceof Entity) ? ((Entity)context).getId() : String.valueOf(context);
+        return Joiner.on("|").useForNull("").join(callerRecorded ? caller : null, config);
     }
 
     // ------------- constructing the template, etc ------------------------
@@ -1447,6 +1571,74 @@ public class JcloudsLocation extends AbstractCloudMachineProvisioningLocation im
 
     /** returns the jclouds Template which describes the image to be built, for the given config and compute service */
     public Template buildTemplate(ComputeService computeService, ConfigBag config, JcloudsLocationCustomizer customizersDelegate) {
+        String templateCacheKey = getTemplateCacheKey(config, customizersDelegate);
+        Template template = (templateCacheKey != null) ? getCachedTemplate(templateCacheKey) : null;
+        if (template != null) {
+            LOG.debug("jclouds using cached template {} for provisioning in {} for {}", new Object[] {
+                    template, this, getCreationString(config)});
+        } else {
+            template = resolveTemplate(computeService, config, customizersDelegate);
+            if (templateCacheKey != null) {
+                putCachedTemplate(templateCacheKey, new CachedTemplate(copyTemplate(template), config.get(TEMPLATE_CACHE_TTL)));
+            }
+        }
+        TemplateOptions options = template.getOptions();
+
+        // For windows, we need a startup-script to be executed that will enable winrm access.
+        // If there is already conflicting userMetadata, then don't replace it (and just warn).
+        // TODO this injection is hacky and (currently) cloud specific.
+        boolean windows = isWindows(template, config);
+        if (windows) {
+            String initScript = WinRmMachineLocation.getDefaultUserMetadataString(config());
+            String provider = getProvider();
+            if ("google-compute-engine".equals(provider)) {
+                // see https://cloud.google.com/compute/docs/startupscript:
+                // Set "sysprep-specialize-script-cmd" in metadata.
+                String startupScriptKey = "sysprep-specialize-script-cmd";
+                Object metadataMapRaw = config.get(USER_METADATA_MAP);
+                if (metadataMapRaw instanceof Map) {
+                    Map<?,?> metadataMap = (Map<?, ?>) metadataMapRaw;
+                    if (metadataMap.containsKey(startupScriptKey)) {
+                        LOG.warn("Not adding startup-script for Windows VM on "+provider+", because already has key "+startupScriptKey+" in config "+USER_METADATA_MAP.getName());
+                    } else {
+                        Map<Object, Object> metadataMapReplacement = MutableMap.copyOf(metadataMap);
+                        metadataMapReplacement.put(startupScriptKey, initScript);
+                        config.put(USER_METADATA_MAP, metadataMapReplacement);
+                        LOG.debug("Adding startup-script to enable WinRM for Windows VM on "+provider);
+                    }
+                } else if (metadataMapRaw == null) {
+                    Map<String, String> metadataMapReplacement = MutableMap.of(startupScriptKey, initScript);
+                    config.put(USER_METADATA_MAP, metadataMapReplacement);
+                    LOG.debug("Adding startup-script to enable WinRM for Windows VM on "+provider);
+                }
+            } else {
+                // For AWS and vCloudDirector, we just set user_metadata_string.
+                // For Azure-classic, there is no capability to execute a startup script.
+                boolean userMetadataString = config.containsKey(JcloudsLocationConfig.USER_METADATA_STRING);
+                boolean userMetadataMap = config.containsKey(JcloudsLocationConfig.USER_METADATA_MAP);
+                if (!(userMetadataString || userMetadataMap)) {
+                    config.put(JcloudsLocationConfig.USER_METADATA_STRING, WinRmMachineLocation.getDefaultUserMetadataString(config()));
+                    LOG.debug("Adding startup-script to enable WinRM for Windows VM on "+provider);
+                } else {
+                    LOG.warn("Not adding startup-script for Windows VM on "+provider+", because already has config "
+                            +(userMetadataString ? USER_METADATA_STRING.getName() : USER_METADATA_MAP.getName()));
+                }
+            }
+        }
+
+        for (Map.Entry<ConfigKey<?>, ? extends TemplateOptionCustomizer> entry : SUPPORTED_TEMPLATE_OPTIONS_PROPERTIES.entrySet()) {
+            ConfigKey<?> key = entry.getKey();
+            TemplateOptionCustomizer code = entry.getValue();
+            if (config.containsKey(key) && config.get(key) != null) {
+                code.apply(options, config, config.get(key));
+            }
+        }
+
+        return template;
+    }
+
+    /** resolves the image and hardware for the given config, by building a template from the cloud's images and hardware profiles */
+    protected Template resolveTemplate(ComputeService computeService, ConfigBag config, JcloudsLocationCustomizer customizersDelegate) {
         TemplateBuilder templateBuilder = config.get(TEMPLATE_BUILDER);
         if (templateBuilder==null) {
             templateBuilder = new PortableTemplateBuilder<PortableTemplateBuilder<?>>();
@@ -1549,59 +1741,108 @@ public class JcloudsLocation extends AbstractCloudMachineProvisioningLocation im
             throw new IllegalStateException("Unable to match required VM template constraints "+templateBuilder+" when trying to provision VM in "+this+"; "
                 + "see list of images in log. Root cause: "+e, e);
         }
-        TemplateOptions options = template.getOptions();
+        return template;
+    }
 
-        // For windows, we need a startup-script to be executed that will enable winrm access.
-        // If there is already conflicting userMetadata, then don't replace it (and just warn).
-        // TODO this injection is hacky and (currently) cloud specific.
-        boolean windows = isWindows(template, config);
-        if (windows) {
-            String initScript = WinRmMachineLocation.getDefaultUserMetadataString(config());
-            String provider = getProvider();
-            if ("google-compute-engine".equals(provider)) {
-                // see https://cloud.google.com/compute/docs/startupscript:
-                // Set "sysprep-specialize-script-cmd" in metadata.
-                String startupScriptKey = "sysprep-specialize-script-cmd";
-                Object metadataMapRaw = config.get(USER_METADATA_MAP);
-                if (metadataMapRaw instanceof Map) {
-                    Map<?,?> metadataMap = (Map<?, ?>) metadataMapRaw;
-                    if (metadataMap.containsKey(startupScriptKey)) {
-                        LOG.warn("Not adding startup-script for Windows VM on "+provider+", because already has key "+startupScriptKey+" in config "+USER_METADATA_MAP.getName());
-                    } else {
-                        Map<Object, Object> metadataMapReplacement = MutableMap.copyOf(metadataMap);
-                        metadataMapReplacement.put(startupScriptKey, initScript);
-                        config.put(USER_METADATA_MAP, metadataMapReplacement);
-                        LOG.debug("Adding startup-script to enable WinRM for Windows VM on "+provider);
-                    }
-                } else if (metadataMapRaw == null) {
-                    Map<String, String> metadataMapReplacement = MutableMap.of(startupScriptKey, initScript);
-                    config.put(USER_METADATA_MAP, metadataMapReplacement);
-                    LOG.debug("Adding startup-script to enable WinRM for Windows VM on "+provider);
-                }
-            } else {
-                // For AWS and vCloudDirector, we just set user_metadata_string.
-                // For Azure-classic, there is no capability to execute a startup script.
-                boolean userMetadataString = config.containsKey(JcloudsLocationConfig.USER_METADATA_STRING);
-                boolean userMetadataMap = config.containsKey(JcloudsLocationConfig.USER_METADATA_MAP);
-                if (!(userMetadataString || userMetadataMap)) {
-                    config.put(JcloudsLocationConfig.USER_METADATA_STRING, WinRmMachineLocation.getDefaultUserMetadataString(config()));
-                    LOG.debug("Adding startup-script to enable WinRM for Windows VM on "+provider);
-                } else {
-                    LOG.warn("Not adding startup-script for Windows VM on "+provider+", because already has config "
-                            +(userMetadataString ? USER_METADATA_STRING.getName() : USER_METADATA_MAP.getName()));
-                }
-            }
+    private static class CachedTemplate {
+        final Template template;
+        final long expiryNanos;
+
+        CachedTemplate(Template template, Duration ttl) {
+            this.template = template;
+            this.expiryNanos = System.nanoTime() + ttl.toNanoseconds();
         }
 
-        for (Map.Entry<ConfigKey<?>, ? extends TemplateOptionCustomizer> entry : SUPPORTED_TEMPLATE_OPTIONS_PROPERTIES.entrySet()) {
-            ConfigKey<?> key = entry.getKey();
-            TemplateOptionCustomizer code = entry.getValue();
-            if (config.containsKey(key) && config.get(key) != null) {
-                code.apply(options, config, config.get(key));
-            }
+        boolean isExpired() {
+            return System.nanoTime() - expiryNanos >= 0;
         }
+    }
 
-        return template;
+    /**
+     * Returns the key under which a template resolved for this config can be cached, or null if it should not be cached.
+     * The key includes all config used by {@link #resolveTemplate(ComputeService, ConfigBag, JcloudsLocationCustomizer)}.
+     * Templates are not cached when a {@link #TEMPLATE_BUILDER} is supplied, as only its own state (which we cannot 
+     * compare) says what it will build, nor when there are location customizers, either configured or passed in.
+     */
+    protected String getTemplateCacheKey(ConfigBag config, JcloudsLocationCustomizer customizersDelegate) {
+        Duration ttl = config.get(TEMPLATE_CACHE_TTL);
+        if (ttl == null || ttl.toMilliseconds() <= 0) return null;
+        if (config.get(TEMPLATE_BUILDER) != null) return null;
+        if (customizersDelegate != null && (!(customizersDelegate instanceof LocationCustomizerDelegate)
+                || ((LocationCustomizerDelegate) customizersDelegate).hasCustomizers())) {
+            // customizers may change the template builder in ways we cannot tell
+            return null;
+        }
+        Map<String, Object> key = MutableMap.of();
+        key.put("provider", getProvider());
+        key.put("endpoint", config.get(CLOUD_ENDPOINT));
+        key.put("region", config.get(CLOUD_REGION_ID));
+        key.put("identity", config.get(ACCESS_IDENTITY));
+        for (ConfigKey<?> k : SUPPORTED_TEMPLATE_BUILDER_PROPERTIES.keySet()) {
+            Object val = config.containsKey(k) ? config.get(k) : k.getDefaultValue();
+            if (val != null) key.put(k.getName(), val);
+        }
+        key.put(IMAGE_CHOOSER.getName(), config.containsKey(IMAGE_CHOOSER) ? config.getStringKey(IMAGE_CHOOSER.getName()) : null);
+        return key.toString();
+    }
+
+    private Template getCachedTemplate(String key) {
+        CachedTemplate cached = templateCache.getIfPresent(key);
+        if (cached == null) return null;
+        if (cached.isExpired()) {
+            templateCache.asMap().remove(key, cached);
+            return null;
+        }
+        return copyTemplate(cached.template);
+    }
+
+    private void putCachedTemplate(String key, CachedTemplate cached) {
+        // entries can have different TTLs (from per-machine flags), so sweep expired ones here rather than in the cache
+        templateCache.asMap().values().removeIf(CachedTemplate::isExpired);
+        templateCache.put(key, cached);
+    }
+
+    /** copies the template, with its own copy of the (mutable) options */
+    static Template copyTemplate(Template template) {
+        return new TemplateImpl(template.getImage(), template.getHardware(), template.getLocation(), template.getOptions().clone());
+    }
+
+    /** Discards all cached templates and images, so they are resolved afresh from the cloud for the next machine. */
+    public void invalidateTemplateCache() {
+        templateCache.invalidateAll();
+        AbstractComputeServiceRegistry.getCatalogue(getComputeService()).invalidate();
+    }
+
+    /** Looks up the image, from the catalogue shared by locations using the same compute service if {@link #TEMPLATE_CACHE_TTL} is set. */
+    protected Image getImage(ComputeService computeService, String imageId, ConfigBag config) {
+        Duration ttl = getCatalogueMaxAge(config);
+        if (ttl != null) {
+            return AbstractComputeServiceRegistry.getCatalogue(computeService).getImage(imageId, ttl);
+        }
+        return computeService.getImage(imageId);
+    }
+
+    /** Lists the images, from the catalogue shared by locations using the same compute service if {@link #TEMPLATE_CACHE_TTL} is set. */
+    protected Set<? extends Image> listImages(ComputeService computeService, ConfigBag config) {
+        Duration ttl = getCatalogueMaxAge(config);
+        if (ttl != null) {
+            return AbstractComputeServiceRegistry.getCatalogue(computeService).listImages(ttl);
+        }
+        return computeService.listImages();
+    }
+
+    /** Lists the hardware profiles, from the catalogue shared by locations using the same compute service if {@link #TEMPLATE_CACHE_TTL} is set. */
+    protected Set<? extends Hardware> listHardwareProfiles(ComputeService computeService, ConfigBag config) {
+        Duration ttl = getCatalogueMaxAge(config);
+        if (ttl != null) {
+            return AbstractComputeServiceRegistry.getCatalogue(computeService).listHardwareProfiles(ttl);
+        }
+        return computeService.listHardwareProfiles();
+    }
+
+    private Duration getCatalogueMaxAge(ConfigBag config) {
+        Duration ttl = config.get(TEMPLATE_CACHE_TTL);
+        return (ttl != null && ttl.toMilliseconds() > 0) ? ttl : null;
     }
 
 
@@ -1690,13 +1931,13 @@ public class JcloudsLocation extends AbstractCloudMachineProvisioningLocation im
             m1.putStringKey("anyOwner", true);
         }
         ComputeService computeServiceLessRestrictive = getComputeService(m1);
-        Set<? extends Image> imgs = computeServiceLessRestrictive.listImages();
+        Set<? extends Image> imgs = listImages(computeServiceLessRestrictive, m1);
         LOG.info(""+imgs.size()+" available images at "+this);
         for (Image img: imgs) {
             LOG.info(" Image: "+img);
         }
 
-        Set<? extends Hardware> profiles = computeServiceLessRestrictive.listHardwareProfiles();
+        Set<? extends Hardware> profiles = listHardwareProfiles(computeServiceLessRestrictive, m1);
         LOG.info(""+profiles.size()+" available profiles at "+this);
         for (Hardware profile: profiles) {
             LOG.info(" Profile: "+profile);
@@ -1781,7 +2022,7 @@ public class JcloudsLocation extends AbstractCloudMachineProvisioningLocation im
     protected LoginCredentials createUser(
             ComputeService computeService, NodeMetadata node, HostAndPort managementHostAndPort,
             LoginCredentials initialCredentials, ConfigBag config) {
-        Image image = (node.getImageId() != null) ? computeService.getImage(node.getImageId()) : null;
+        Image image = (node.getImageId() != null) ? getImage(computeService, node.getImageId(), config) : null;
         CreateUserStatements userCreation = createUserStatements(image, config);
 
         if (!userCreation.statements().isEmpty()) {
@@ -27,12 +27,14 @@ import org.apache.brooklyn.core.config.ConfigKeys;
 import org.apache.brooklyn.location.jclouds.api.JcloudsLocationConfigPublic;
 import org.apache.brooklyn.location.jclouds.domain.JcloudsContext;
 import org.apache.brooklyn.location.jclouds.networking.JcloudsPortForwarderExtension;
+import org.apache.brooklyn.util.time.Duration;
 import org.jclouds.Context;
 import org.jclouds.compute.domain.Image;
 import org.jclouds.compute.domain.OsFamily;
 import org.jclouds.compute.domain.TemplateBuilder;
 import org.jclouds.domain.LoginCredentials;
 
+import com.google.common.annotations.Beta;
 import com.google.common.base.Function;
 import com.google.common.reflect.TypeToken;
 
@@ -78,6 +80,14 @@ public interface JcloudsLocationConfig extends JcloudsLocationConfigPublic {
         "imageChooser", "An image chooser function to control which images are preferred", 
         new BrooklynImageChooser().chooser());
 
+    @Beta
+    public static final ConfigKey<Duration> TEMPLATE_CACHE_TTL = ConfigKeys.newConfigKey(Duration.class,
+        "templateCacheTtl", "How long to reuse a resolved template (image and hardware) for subsequent machines with the same "
+        + "template constraints, and images looked up from the cloud; 0 (the default) resolves them afresh for each machine. "
+        + "Templates are kept for at most a day. Not used when a templateBuilder is supplied, or when location customizers "
+        + "are configured or passed in, as they may change the template per machine",
+        Duration.ZERO);
+
     public static final ConfigKey<OsFamily> OS_FAMILY = ConfigKeys.newConfigKey(OsFamily.class, "osFamily", 
         "OS family, e.g. CentOS, Debian, RHEL, Ubuntu");
     public static final ConfigKey<String> OS_VERSION_REGEX = ConfigKeys.newStringConfigKey("osVersionRegex", 
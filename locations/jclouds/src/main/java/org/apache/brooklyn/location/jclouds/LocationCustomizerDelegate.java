@@ -67,6 +67,16 @@ public class LocationCustomizerDelegate implements JcloudsLocationCustomizer {
         this.machineCustomizers = ImmutableList.of();
     }
 
+    /** Whether there are any customizers to delegate to (looking inside nested delegates), other than machine customizers. */
+    public boolean hasCustomizers() {
+        for (JcloudsLocationCustomizer customizer : customizers) {
+            if (!(customizer instanceof LocationCustomizerDelegate) || ((LocationCustomizerDelegate) customizer).hasCustomizers()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     @Override
     public void customize(JcloudsLocation location, ComputeService computeService, TemplateBuilder templateBuilder) {
         // Then apply any optional app-specific customization.
@@ -0,0 +1,237 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.brooklyn.location.jclouds;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.brooklyn.util.collections.MutableList;
+import org.apache.brooklyn.util.collections.MutableMap;
+import org.apache.brooklyn.util.exceptions.Exceptions;
+import org.apache.brooklyn.util.guava.Maybe;
+import org.apache.brooklyn.util.time.Duration;
+import org.jclouds.compute.domain.NodeMetadata;
+import org.jclouds.compute.domain.Template;
+import org.jclouds.domain.LoginCredentials;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.annotations.Beta;
+import com.google.common.base.Stopwatch;
+
+/**
+ * Groups concurrent machine-creation requests for the same template into a single call to the cloud.
+ * <p>
+ * Requests are only batched while a caller (e.g. a growing cluster, via
+ * {@link JcloudsLocation#expectObtains(int)}) has said more are expected. The first request for a given key
+ * leads the batch: it waits until the batch is full, no more requests are expected, or the window elapses;
+ * then creates one node for each request which has joined, and hands them out. Only the leader builds a
+ * template; each request in the batch is given its own copy of that template, and the leader's credentials,
+ * as that is what the nodes were created with, so callers must only use the same key for requests which would
+ * create identical machines.
+ */
+@Beta
+public class NodeCreationBatcher {
+
+    private static final Logger LOG = LoggerFactory.getLogger(NodeCreationBatcher.class);
+
+    /** Expected requests which have not arrived within this time are forgotten. */
+    private static final Duration EXPECTATION_TIMEOUT = Duration.ONE_MINUTE;
+
+    /** Creates the given number of nodes in a single call to the cloud. */
+    public interface NodeCreator {
+        CreatedNodes createNodes(int count) throws Exception;
+    }
+
+    /** The nodes created for a batch, with the template and credentials they were created with. */
+    public static class CreatedNodes {
+        private final Set<? extends NodeMetadata> nodes;
+        private final Template template;
+        private final LoginCredentials userCredentials;
+
+        public CreatedNodes(Set<? extends NodeMetadata> nodes, Template template, LoginCredentials userCredentials) {
+            this.nodes = nodes;
+            this.template = template;
+            this.userCredentials = userCredentials;
+        }
+    }
+
+    /** A node created for one request in a batch. */
+    public static class Allocation {
+        private final NodeMetadata node;
+        private final Template template;
+        private final LoginCredentials userCredentials;
+        private final int batchSize;
+
+        Allocation(NodeMetadata node, Template template, LoginCredentials userCredentials, int batchSize) {
+            this.node = node;
+            this.template = template;
+            this.userCredentials = userCredentials;
+            this.batchSize = batchSize;
+        }
+        public NodeMetadata getNode() {
+            return node;
+        }
+        /** A copy of the template of the request which led the batch, which the node was created from. */
+        public Template getTemplate() {
+            return template;
+        }
+        /** The user credentials from the template of the request which led the batch. */
+        public LoginCredentials getUserCredentials() {
+            return userCredentials;
+        }
+        public int getBatchSize() {
+            return batchSize;
+        }
+    }
+
+    private static class Batch {
+        final List<CompletableFuture<Allocation>> requests = MutableList.of();
+    }
+
+    private final Object mutex = new Object();
+    // guarded by mutex
+    private int expected;
+    private long expectedUntilNanos;
+    private final Map<String, Batch> openBatches = MutableMap.of();
+
+    private final AtomicLong batchCount = new AtomicLong();
+    private final AtomicLong batchedNodeCount = new AtomicLong();
+    private final AtomicLong totalBatchLatencyMillis = new AtomicLong();
+    private volatile Duration lastBatchLatency;
+    private volatile int lastBatchSize;
+
+    /** Advises that the given number of requests are about to be made. */
+    public void expect(int count) {
+        synchronized (mutex) {
+            if (!isExpecting()) expected = 0;
+            expected += count;
+            expectedUntilNanos = System.nanoTime() + EXPECTATION_TIMEOUT.toNanoseconds();
+        }
+    }
+
+    private boolean isExpecting() {
+        return expected > 0 && System.nanoTime() < expectedUntilNanos;
+    }
+
+    /**
+     * Obtains a node as part of a batch of requests with the same key, or returns absent if no requests are
+     * expected (or batching is disabled), in which case the caller should create its node itself.
+     * If this request leads the batch then the given creator is used to create the nodes for all its requests.
+     */
+    public Maybe<Allocation> allocate(String key, int maxBatchSize, Duration window, NodeCreator creator) {
+        CompletableFuture<Allocation> request = new CompletableFuture<Allocation>();
+        Batch batch;
+        boolean leader;
+        synchronized (mutex) {
+            if (maxBatchSize <= 1 || !isExpecting()) return Maybe.absent();
+            expected--;
+            batch = openBatches.get(key);
+            leader = (batch == null || batch.requests.size() >= maxBatchSize);
+            if (leader) {
+                batch = new Batch();
+                openBatches.put(key, batch);
+            }
+            batch.requests.add(request);
+            mutex.notifyAll();
+        }
+        if (leader) {
+            createBatch(key, batch, maxBatchSize, window, creator);
+        }
+        try {
+            return Maybe.of(request.get());
+        } catch (ExecutionException e) {
+            throw Exceptions.propagate(e.getCause());
+        } catch (InterruptedException e) {
+            throw Exceptions.propagate(e);
+        }
+    }
+
+    private void createBatch(String key, Batch batch, int maxBatchSize, Duration window, NodeCreator creator) {
+        List<CompletableFuture<Allocation>> requests;
+        long deadline = System.nanoTime() + window.toNanoseconds();
+        try {
+            synchronized (mutex) {
+                try {
+                    long remaining;
+                    while (batch.requests.size() < maxBatchSize && isExpecting() && (remaining = deadline - System.nanoTime()) > 0) {
+                        mutex.wait(Math.max(1, TimeUnit.NANOSECONDS.toMillis(remaining)));
+                    }
+                } finally {
+                    // no more requests can join this batch
+                    if (openBatches.get(key) == batch) openBatches.remove(key);
+                    requests = MutableList.copyOf(batch.requests);
+                }
+            }
+        } catch (InterruptedException e) {
+            for (CompletableFuture<Allocation> request : batch.requests) {
+                request.completeExceptionally(e);
+            }
+            return;
+        }
+
+        LOG.debug("Creating batch of {} node(s) for {}", requests.size(), key);
+        Stopwatch stopwatch = Stopwatch.createStarted();
+        try {
+            CreatedNodes created = creator.createNodes(requests.size());
+            List<NodeMetadata> nodes = MutableList.copyOf(created.nodes);
+            Duration latency = Duration.of(stopwatch);
+            batchCount.incrementAndGet();
+            batchedNodeCount.addAndGet(nodes.size());
+            totalBatchLatencyMillis.addAndGet(latency.toMilliseconds());
+            lastBatchLatency = latency;
+            lastBatchSize = requests.size();
+            LOG.debug("Created batch of {} of {} requested node(s) for {} in {}", new Object[] {nodes.size(), requests.size(), key, latency});
+
+            for (int i = 0; i < requests.size(); i++) {
+                if (i < nodes.size()) {
+                    // each gets its own template, as callers may modify its options
+                    Template template = JcloudsLocation.copyTemplate(created.template);
+                    requests.get(i).complete(new Allocation(nodes.get(i), template, created.userCredentials, requests.size()));
+                } else {
+                    requests.get(i).completeExceptionally(new IllegalStateException(
+                            "Only "+nodes.size()+" of "+requests.size()+" nodes created in batch for "+key));
+                }
+            }
+        } catch (Throwable t) {
+            for (CompletableFuture<Allocation> request : requests) {
+                request.completeExceptionally(t);
+            }
+        }
+    }
+
+    /** Metrics on batches created so far, suitable for {@link JcloudsLocation#getLocationMetrics(Map)}. */
+    public Map<String, Object> getMetrics() {
+        MutableMap<String, Object> result = MutableMap.of();
+        long batches = batchCount.get();
+        result.put("machineCreateBatches", batches);
+        result.put("machineCreateBatchedMachines", batchedNodeCount.get());
+        if (batches > 0) {
+            result.put("machineCreateBatchMeanLatency", Duration.millis(totalBatchLatencyMillis.get() / batches));
+            result.put("machineCreateLastBatchLatency", lastBatchLatency);
+            result.put("machineCreateLastBatchSize", lastBatchSize);
+        }
+        return result;
+    }
+}
@@ -30,6 +30,7 @@ import org.apache.brooklyn.core.location.access.BrooklynAccessUtils;
 import org.apache.brooklyn.core.location.access.PortForwardManager;
 import org.apache.brooklyn.core.location.cloud.CloudLocationConfig;
 import org.apache.brooklyn.util.core.internal.ssh.SshTool;
+import org.apache.brooklyn.util.time.Duration;
 import org.jclouds.Constants;
 
 import com.google.common.annotations.Beta;
@@ -216,6 +217,20 @@ public interface JcloudsLocationConfigPublic extends CloudLocationConfig {
     public static final ConfigKey<Integer> MAX_CONCURRENT_MACHINE_DELETIONS = ConfigKeys.newIntegerConfigKey(
             "maxConcurrentMachineDeletions", "Maximum number of concurrent machine-deletions", Integer.MAX_VALUE);
 
+    @Beta
+    public static final ConfigKey<Integer> MACHINE_CREATE_BATCH_SIZE = ConfigKeys.newIntegerConfigKey(
+            "machineCreateBatchSize", "Maximum number of machines to create in a single request to the cloud, "
+            + "when several are expected at once (e.g. when a cluster grows); 1 (the default) creates each machine separately. "
+            + "Only requests with the same configuration are batched, and only from the same caller unless "
+            + "includeBrooklynUserMetadata is false and groupId is set (as machines in a batch share the same metadata, "
+            + "group and credentials); so the members of a cluster, each a different caller, are batched only if "
+            + "includeBrooklynUserMetadata is false and groupId is set", 1);
+
+    @Beta
+    public static final ConfigKey<Duration> MACHINE_CREATE_BATCH_WINDOW = ConfigKeys.newConfigKey(Duration.class,
+            "machineCreateBatchWindow", "How long the first machine-creation of a batch waits for the other expected requests "
+            + "to join it before creating however many have joined", Duration.FIVE_SECONDS);
+
     public static final ConfigKey<Semaphore> MACHINE_CREATION_SEMAPHORE = ConfigKeys.newConfigKey(
             Semaphore.class, "machineCreationSemaphore", "Semaphore for controlling concurrent machine creation", null);
     
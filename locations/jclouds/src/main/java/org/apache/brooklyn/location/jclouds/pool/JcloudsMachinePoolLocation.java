@@ -0,0 +1,418 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.brooklyn.location.jclouds.pool;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.io.Closeable;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.apache.brooklyn.api.location.MachineLocation;
+import org.apache.brooklyn.api.location.MachineProvisioningLocation;
+import org.apache.brooklyn.api.location.NoMachinesAvailableException;
+import org.apache.brooklyn.api.mgmt.Task;
+import org.apache.brooklyn.config.ConfigKey;
+import org.apache.brooklyn.core.config.ConfigKeys;
+import org.apache.brooklyn.core.location.AbstractLocation;
+import org.apache.brooklyn.location.jclouds.JcloudsLocation;
+import org.apache.brooklyn.location.jclouds.JcloudsLocationConfig;
+import org.apache.brooklyn.util.collections.MutableList;
+import org.apache.brooklyn.util.collections.MutableMap;
+import org.apache.brooklyn.util.collections.MutableSet;
+import org.apache.brooklyn.util.core.flags.SetFromFlag;
+import org.apache.brooklyn.util.core.task.ScheduledTask;
+import org.apache.brooklyn.util.core.task.Tasks;
+import org.apache.brooklyn.util.exceptions.Exceptions;
+import org.apache.brooklyn.util.time.Duration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.annotations.Beta;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Maps;
+import com.google.common.reflect.TypeToken;
+
+/**
+ * A location which keeps a number of machines warm for each of its {@link ReusableMachineTemplate}s,
+ * so that {@link #obtain(Map)} can usually hand one out immediately rather than waiting for the cloud.
+ * <p>
+ * Machines are provisioned from the {@link #PROVISIONER} jclouds location. Whenever a machine is handed out
+ * the pool is refilled in the background; if the pool is empty then a machine is provisioned synchronously.
+ * If provisioning in the background fails, the pool is refilled again after {@link #RETRY_DELAY}.
+ * Released machines are returned to the pool if {@link #REUSE_RELEASED_MACHINES} is set and the pool is not
+ * already full, and are otherwise released back to the provisioner.
+ * <p>
+ * The available and in-use machines are persisted, so the pool survives rebind. Refilling only happens
+ * while this location is managed on the primary (e.g. not in hot-standby). Note that {@link #close()} only
+ * stops the refilling, as it is also called when a node is demoted; use {@link #drain()} to release the
+ * idle machines.
+ */
+@Beta
+public class JcloudsMachinePoolLocation extends AbstractLocation implements MachineProvisioningLocation<MachineLocation>, Closeable {
+
+    private static final Logger LOG = LoggerFactory.getLogger(JcloudsMachinePoolLocation.class);
+
+    public static final ConfigKey<JcloudsLocation> PROVISIONER = ConfigKeys.newConfigKey(
+            JcloudsLocation.class,
+            "pool.provisioner",
+            "The jclouds location used to provision the pooled machines");
+
+    @SuppressWarnings("serial")
+    public static final ConfigKey<List<ReusableMachineTemplate>> TEMPLATES = ConfigKeys.newConfigKey(
+            new TypeToken<List<ReusableMachineTemplate>>() {},
+            "pool.templates",
+            "The templates for which machines are kept warm; each must have a unique name",
+            ImmutableList.<ReusableMachineTemplate>of());
+
+    public static final ConfigKey<Integer> POOL_SIZE = ConfigKeys.newIntegerConfigKey(
+            "pool.size",
+            "The number of idle machines to keep for each template",
+            1);
+
+    public static final ConfigKey<Boolean> REUSE_RELEASED_MACHINES = ConfigKeys.newBooleanConfigKey(
+            "pool.reuseReleasedMachines",
+            "Whether released machines are returned to the pool (if it is not full), rather than released to the provisioner",
+            false);
+
+    public static final ConfigKey<Duration> RETRY_DELAY = ConfigKeys.newDurationConfigKey(
+            "pool.retryDelay",
+            "How long to wait before refilling the pool again, after failing to provision a machine for it in the background",
+            Duration.THIRTY_SECONDS);
+
+    public static final ConfigKey<String> TEMPLATE_NAME = ConfigKeys.newStringConfigKey(
+            "pool.template",
+            "The name of the template to obtain a machine for; defaults to the first template");
+
+    private final transient Object mutex = new Object();
+
+    // guarded by mutex; transient, as any provisioning in progress is lost on rebind
+    private final transient Map<String, Integer> pending = MutableMap.of();
+
+    private transient volatile boolean closed;
+
+    private final transient AtomicBoolean retryScheduled = new AtomicBoolean();
+
+    @SetFromFlag
+    protected Set<MachineLocation> available;
+
+    @SetFromFlag
+    protected Set<MachineLocation> inUse;
+
+    /** The name of the template each machine was provisioned for, keyed by machine id. */
+    @SetFromFlag
+    protected Map<String, String> machineTemplates;
+
+    public JcloudsMachinePoolLocation() {
+        this(Maps.newLinkedHashMap());
+    }
+
+    public JcloudsMachinePoolLocation(Map<?,?> properties) {
+        super(properties);
+    }
+
+    @Override
+    public void init() {
+        super.init();
+        if (available == null) available = MutableSet.of();
+        if (inUse == null) inUse = MutableSet.of();
+        if (machineTemplates == null) machineTemplates = MutableMap.of();
+    }
+
+    @Override
+    public void rebind() {
+        super.rebind();
+        synchronized (mutex) {
+            // may be null after rebind, if a machine was unmanaged
+            available.remove(null);
+            inUse.remove(null);
+        }
+    }
+
+    @Override
+    public void onManagementStarted() {
+        super.onManagementStarted();
+        closed = false;
+        refill();
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+    }
+
+    protected JcloudsLocation getProvisioner() {
+        return checkNotNull(getConfig(PROVISIONER), PROVISIONER.getName());
+    }
+
+    protected Map<String, ReusableMachineTemplate> getTemplates() {
+        Map<String, ReusableMachineTemplate> result = MutableMap.of();
+        for (ReusableMachineTemplate template : getConfig(TEMPLATES)) {
+            String name = checkNotNull(template.getName(), "name of template %s", template);
+            checkArgument(!result.containsKey(name), "Duplicate template name %s in %s", name, this);
+            result.put(name, template);
+        }
+        return result;
+    }
+
+    /**
+     * The flags passed to the {@link #PROVISIONER} when provisioning a machine for the given template.
+     * The provisioner changes the template builder it is given, so it is given a copy of the configured template.
+     */
+    protected Map<?, ?> getObtainFlags(ReusableMachineTemplate template) {
+        return MutableMap.of(JcloudsLocationConfig.TEMPLATE_BUILDER, template.copy());
+    }
+
+    public Set<MachineLocation> getAvailable() {
+        synchronized (mutex) {
+            return ImmutableSet.copyOf(available);
+        }
+    }
+
+    public Set<MachineLocation> getInUse() {
+        synchronized (mutex) {
+            return ImmutableSet.copyOf(inUse);
+        }
+    }
+
+    @Override
+    public MachineLocation obtain(Map<?, ?> flags) throws NoMachinesAvailableException {
+        Map<String, ReusableMachineTemplate> templates = getTemplates();
+        Object templateName = flags.get(TEMPLATE_NAME.getName());
+        if (templateName == null) templateName = flags.get(TEMPLATE_NAME);
+        if (templateName == null) templateName = getConfig(TEMPLATE_NAME);
+        if (templateName == null) {
+            if (templates.isEmpty()) throw new IllegalStateException("No templates configured for "+this);
+            templateName = templates.keySet().iterator().next();
+        }
+        ReusableMachineTemplate template = templates.get(templateName.toString());
+        if (template == null) {
+            throw new IllegalArgumentException("Unknown template "+templateName+" for "+this+"; available templates are "+templates.keySet());
+        }
+        Map<?, ?> ignoredFlags = MutableMap.copyOf(flags);
+        ignoredFlags.remove(TEMPLATE_NAME.getName());
+        ignoredFlags.remove(TEMPLATE_NAME);
+        if (ignoredFlags.size() > 0) {
+            LOG.debug("Ignoring flags {} when obtaining pooled machine from {}", ignoredFlags, this);
+        }
+
+        MachineLocation machine = null;
+        synchronized (mutex) {
+            for (MachineLocation candidate : available) {
+                if (template.getName().equals(machineTemplates.get(candidate.getId()))) {
+                    machine = candidate;
+                    break;
+                }
+            }
+            if (machine != null) {
+                available.remove(machine);
+                inUse.add(machine);
+            }
+        }
+        if (machine != null) {
+            LOG.debug("Obtained pooled machine {} for template {} from {}", new Object[] {machine, template.getName(), this});
+        } else {
+            LOG.debug("No pooled machine for template {} in {}; provisioning one", template.getName(), this);
+            machine = getProvisioner().obtain(getObtainFlags(template));
+            synchronized (mutex) {
+                inUse.add(machine);
+                machineTemplates.put(machine.getId(), template.getName());
+            }
+        }
+        requestPersist();
+        refill();
+        return machine;
+    }
+
+    @Override
+    public void release(MachineLocation machine) {
+        boolean reuse;
+        synchronized (mutex) {
+            if (!inUse.remove(machine)) {
+                throw new IllegalStateException("Request to release machine "+machine+", but this machine is not currently allocated by "+this);
+            }
+            String templateName = machineTemplates.get(machine.getId());
+            reuse = !closed && getConfig(REUSE_RELEASED_MACHINES) && templateName != null
+                    && getTemplates().containsKey(templateName)
+                    && countAvailable(templateName) < getConfig(POOL_SIZE);
+            if (reuse) {
+                available.add(machine);
+            } else {
+                machineTemplates.remove(machine.getId());
+            }
+        }
+        requestPersist();
+        if (reuse) {
+            LOG.debug("Returned machine {} to pool {}", machine, this);
+        } else {
+            getProvisioner().release(machine);
+        }
+    }
+
+    /**
+     * Provisions machines in the background for any template with fewer than {@link #POOL_SIZE} idle machines
+     * (counting those already being provisioned), and releases idle machines beyond that or whose template is
+     * no longer configured.
+     */
+    public void refill() {
+        if (closed || !isManaged()) return;
+        Map<String, ReusableMachineTemplate> templates = getTemplates();
+        int poolSize = getConfig(POOL_SIZE);
+        List<MachineLocation> excess = MutableList.of();
+        synchronized (mutex) {
+            Map<String, Integer> counts = MutableMap.of();
+            for (MachineLocation machine : available) {
+                String templateName = machineTemplates.get(machine.getId());
+                int count = (counts.containsKey(templateName) ? counts.get(templateName) : 0) + 1;
+                counts.put(templateName, count);
+                if (templateName == null || !templates.containsKey(templateName) || count > poolSize) {
+                    excess.add(machine);
+                }
+            }
+            for (MachineLocation machine : excess) {
+                available.remove(machine);
+                machineTemplates.remove(machine.getId());
+            }
+            for (ReusableMachineTemplate template : templates.values()) {
+                String name = template.getName();
+                int have = Math.min(poolSize, counts.containsKey(name) ? counts.get(name) : 0);
+                int provisioning = pending.containsKey(name) ? pending.get(name) : 0;
+                for (int i = have + provisioning; i < poolSize; i++) {
+                    pending.put(name, ++provisioning);
+                    provisionInBackground(template);
+                }
+            }
+        }
+        if (excess.size() > 0) {
+            requestPersist();
+            releaseInBackground(excess);
+        }
+    }
+
+    /** Releases all idle machines back to the provisioner; they are not replaced until the next {@link #refill()}. */
+    public void drain() {
+        List<MachineLocation> idle;
+        synchronized (mutex) {
+            idle = MutableList.copyOf(available);
+            available.clear();
+            for (MachineLocation machine : idle) {
+                machineTemplates.remove(machine.getId());
+            }
+        }
+        requestPersist();
+        releaseAll(idle);
+    }
+
+    private void provisionInBackground(final ReusableMachineTemplate template) {
+        getManagementContext().getExecutionManager().submit("Provisioning pooled machine for "+template.getName(), new Runnable() {
+            @Override
+            public void run() {
+                MachineLocation machine = null;
+                try {
+                    machine = getProvisioner().obtain(getObtainFlags(template));
+                } catch (Exception e) {
+                    Exceptions.propagateIfFatal(e);
+                    LOG.warn("Failed to provision pooled machine for template "+template.getName()+" in "+JcloudsMachinePoolLocation.this+" (continuing): "+e, e);
+                } finally {
+                    synchronized (mutex) {
+                        pending.put(template.getName(), pending.get(template.getName()) - 1);
+                        if (machine != null) {
+                            available.add(machine);
+                            machineTemplates.put(machine.getId(), template.getName());
+                        }
+                    }
+                }
+                if (machine != null) {
+                    LOG.debug("Added machine {} for template {} to pool {}", new Object[] {machine, template.getName(), JcloudsMachinePoolLocation.this});
+                    requestPersist();
+                } else {
+                    scheduleRetry();
+                }
+            }
+        });
+    }
+
+    /** Refills the pool after {@link #RETRY_DELAY}, unless a retry is already scheduled. */
+    private void scheduleRetry() {
+        if (closed || !retryScheduled.compareAndSet(false, true)) return;
+        Callable<Task<?>> taskFactory = new Callable<Task<?>>() {
+            @Override public Task<Void> call() {
+                return Tasks.<Void>builder().dynamic(false).displayName("Refilling pool after failure").body(new Callable<Void>() {
+                    @Override
+                    public Void call() {
+                        retryScheduled.set(false);
+                        refill();
+                        return null;
+                    }
+                }).build();
+            }
+        };
+        getManagementContext().getExecutionManager().submit(ScheduledTask.builder(taskFactory)
+                .displayName("Retrying provisioning for pool "+getDisplayName())
+                .tagTransient()
+                .delay(getConfig(RETRY_DELAY))
+                .build());
+    }
+
+    private void releaseInBackground(final Collection<MachineLocation> machines) {
+        getManagementContext().getExecutionManager().submit("Releasing excess pooled machines", new Runnable() {
+            @Override
+            public void run() {
+                releaseAll(machines);
+            }
+        });
+    }
+
+    private void releaseAll(Collection<MachineLocation> machines) {
+        for (MachineLocation machine : machines) {
+            try {
+                LOG.debug("Releasing pooled machine {} from {}", machine, this);
+                getProvisioner().release(machine);
+            } catch (Exception e) {
+                Exceptions.propagateIfFatal(e);
+                LOG.warn("Failed to release pooled machine "+machine+" from "+this+" (continuing): "+e, e);
+            }
+        }
+    }
+
+    // requires mutex
+    private int countAvailable(String templateName) {
+        int result = 0;
+        for (MachineLocation machine : available) {
+            if (templateName.equals(machineTemplates.get(machine.getId()))) result++;
+        }
+        return result;
+    }
+
+    @Override
+    public MachineProvisioningLocation<MachineLocation> newSubLocation(Map<?, ?> newFlags) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Map<String, Object> getProvisioningFlags(Collection<String> tags) {
+        return Maps.<String,Object>newLinkedHashMap();
+    }
+}
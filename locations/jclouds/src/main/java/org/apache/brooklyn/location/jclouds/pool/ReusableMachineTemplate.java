@@ -58,6 +58,20 @@ public class ReusableMachineTemplate extends PortableTemplateBuilder<ReusableMac
     public ReusableMachineTemplate() { strict = false; }
     public ReusableMachineTemplate(String name) { name(name); }
     
+    /** 
+     * Returns a new template which builds the same as this one. Building a template changes the builder 
+     * (e.g. setting the location and image chooser), so use a copy for each machine to leave this one unchanged.
+     */
+    public ReusableMachineTemplate copy() {
+        ReusableMachineTemplate result = new ReusableMachineTemplate();
+        result.copyFrom(this);
+        result.name = name;
+        result.templateOwner = templateOwner;
+        result.description = description;
+        result.strict = strict;
+        return result;
+    }
+
     /** see #getName() */
     public ReusableMachineTemplate name(String name) {
         this.name = name;
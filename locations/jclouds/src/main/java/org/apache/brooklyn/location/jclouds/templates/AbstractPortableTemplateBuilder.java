@@ -412,6 +412,40 @@ public abstract class AbstractPortableTemplateBuilder<T extends AbstractPortable
         return (T)this;
     }
     
+    /**
+     * Sets everything in this template to that of the other, so that it builds the same template but can then be
+     * changed independently (e.g. when customized for one machine); options are cloned, other values are shared.
+     */
+    protected void copyFrom(AbstractPortableTemplateBuilder<?> other) {
+        hardware = other.hardware;
+        image = other.image;
+        template = other.template;
+        locationId = other.locationId;
+        imageId = other.imageId;
+        hardwareId = other.hardwareId;
+        os = other.os;
+        osNameRegex = other.osNameRegex;
+        osDescriptionRegex = other.osDescriptionRegex;
+        osVersionRegex = other.osVersionRegex;
+        osArchitectureRegex = other.osArchitectureRegex;
+        hypervisorRegex = other.hypervisorRegex;
+        is64bit = other.is64bit;
+        imageNameRegex = other.imageNameRegex;
+        imageDescriptionRegex = other.imageDescriptionRegex;
+        imageVersionRegex = other.imageVersionRegex;
+        minCores = other.minCores;
+        minRam = other.minRam;
+        minDisk = other.minDisk;
+        imageCondition = other.imageCondition;
+        imageChooserFunction = other.imageChooserFunction;
+        options = (other.options != null) ? other.options.clone() : null;
+        additionalOptions = new ArrayList<TemplateOptions>();
+        for (TemplateOptions o : other.additionalOptions) additionalOptions.add(o.clone());
+        forceCacheReload = other.forceCacheReload;
+        // the commands only use the values they were given, so can be shared
+        commands = new ArrayList<Function<TemplateBuilder,TemplateBuilder>>(other.commands);
+    }
+
     /** true if the templateBuilder spec is blank (ignoring customization options e.g. tags for the resulting instance) */
     public boolean isBlank() {
         if (commands.isEmpty()) return true;
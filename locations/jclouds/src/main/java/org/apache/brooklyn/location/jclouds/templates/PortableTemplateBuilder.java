@@ -76,6 +76,17 @@ public class PortableTemplateBuilder<T extends PortableTemplateBuilder<?>> exten
         return newJcloudsTemplateBuilder(svc).build();
     }
 
+    /** As {@link AbstractPortableTemplateBuilder#copyFrom(AbstractPortableTemplateBuilder)}; the copy has no compute service attached. */
+    @Override
+    protected void copyFrom(AbstractPortableTemplateBuilder<?> other) {
+        super.copyFrom(other);
+        svc = null;
+        additionalOptionalOptions = new ArrayList<TemplateOptions>();
+        if (other instanceof PortableTemplateBuilder) {
+            for (TemplateOptions o : ((PortableTemplateBuilder<?>) other).additionalOptionalOptions) additionalOptionalOptions.add(o.clone());
+        }
+    }
+
     /** Adds template options which are used for building, but not for matching/filtering. 
      * (eg tags added here will be set on any machine created by this template,
      * but will not be required when matching this template to existing machines) */
@@ -0,0 +1,278 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.brooklyn.location.jclouds;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNotSame;
+import static org.testng.Assert.assertTrue;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+
+import org.apache.brooklyn.api.entity.Entity;
+import org.apache.brooklyn.api.entity.EntitySpec;
+import org.apache.brooklyn.core.test.entity.TestApplication;
+import org.apache.brooklyn.core.test.entity.TestEntity;
+import org.apache.brooklyn.entity.group.DynamicCluster;
+import org.apache.brooklyn.location.jclouds.StubbedComputeServiceRegistry.BasicNodeCreator;
+import org.apache.brooklyn.util.collections.MutableList;
+import org.apache.brooklyn.util.collections.MutableSet;
+import org.apache.brooklyn.util.time.Duration;
+import org.jclouds.compute.RunNodesException;
+import org.jclouds.compute.domain.NodeMetadata;
+import org.jclouds.compute.domain.Template;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.common.util.concurrent.MoreExecutors;
+
+public class JcloudsMachineCreateBatchStubbedTest extends AbstractJcloudsStubbedUnitTest {
+
+    private static class CountingNodeCreator extends BasicNodeCreator {
+        final List<Integer> createCalls = Lists.newCopyOnWriteArrayList();
+        final List<Template> templates = Lists.newCopyOnWriteArrayList();
+
+        @Override
+        public Set<? extends NodeMetadata> createNodesInGroup(String group, int count, Template template) throws RunNodesException {
+            createCalls.add(count);
+            templates.add(template);
+            return super.createNodesInGroup(group, count, template);
+        }
+    }
+
+    private ListeningExecutorService executor;
+    private CountingNodeCreator countingNodeCreator;
+
+    @BeforeMethod(alwaysRun=true)
+    @Override
+    public void setUp() throws Exception {
+        super.setUp();
+        executor = MoreExecutors.listeningDecorator(Executors.newCachedThreadPool());
+        countingNodeCreator = new CountingNodeCreator();
+    }
+
+    @AfterMethod(alwaysRun=true)
+    @Override
+    public void tearDown() throws Exception {
+        try {
+            super.tearDown();
+        } finally {
+            if (executor != null) executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testExpectedObtainsCreatedInOneBatch() throws Exception {
+        initNodeCreatorAndJcloudsLocation(countingNodeCreator, ImmutableMap.of(
+                JcloudsLocation.MACHINE_CREATE_BATCH_SIZE, 10,
+                JcloudsLocation.MACHINE_CREATE_BATCH_WINDOW, Duration.THIRTY_SECONDS));
+
+        jcloudsLocation.expectObtains(3);
+        List<JcloudsSshMachineLocation> obtained = obtainConcurrently(3);
+
+        assertEquals(countingNodeCreator.createCalls, ImmutableList.of(3));
+        Set<String> addresses = MutableSet.of();
+        for (JcloudsSshMachineLocation machine : obtained) {
+            addresses.add(machine.getAddress().getHostAddress());
+        }
+        assertEquals(addresses.size(), 3, "addresses="+addresses);
+        assertEquals(jcloudsLocation.getLocationMetrics(ImmutableMap.of()).get("machineCreateBatches"), 1L);
+        assertEquals(jcloudsLocation.getLocationMetrics(ImmutableMap.of()).get("machineCreateBatchedMachines"), 3L);
+    }
+
+    @Test
+    public void testBatchLimitedToMaxSize() throws Exception {
+        initNodeCreatorAndJcloudsLocation(countingNodeCreator, ImmutableMap.of(
+                JcloudsLocation.MACHINE_CREATE_BATCH_SIZE, 2,
+                JcloudsLocation.MACHINE_CREATE_BATCH_WINDOW, Duration.THIRTY_SECONDS));
+
+        jcloudsLocation.expectObtains(4);
+        obtainConcurrently(4);
+
+        assertEquals(countingNodeCreator.createCalls, ImmutableList.of(2, 2));
+    }
+
+    @Test
+    public void testUnexpectedObtainsNotBatched() throws Exception {
+        initNodeCreatorAndJcloudsLocation(countingNodeCreator, ImmutableMap.of(
+                JcloudsLocation.MACHINE_CREATE_BATCH_SIZE, 10,
+                JcloudsLocation.MACHINE_CREATE_BATCH_WINDOW, Duration.THIRTY_SECONDS));
+
+        obtainConcurrently(2);
+
+        assertEquals(countingNodeCreator.createCalls, ImmutableList.of(1, 1));
+        assertEquals(jcloudsLocation.getLocationMetrics(ImmutableMap.of()).get("machineCreateBatches"), 0L);
+    }
+
+    @Test
+    public void testNotBatchedByDefault() throws Exception {
+        initNodeCreatorAndJcloudsLocation(countingNodeCreator, ImmutableMap.of());
+
+        jcloudsLocation.expectObtains(2);
+        obtainConcurrently(2);
+
+        assertEquals(countingNodeCreator.createCalls, ImmutableList.of(1, 1));
+    }
+
+    @Test
+    public void testBatchedMachinesAreNotGivenTheLeadersName() throws Exception {
+        initNodeCreatorAndJcloudsLocation(countingNodeCreator, ImmutableMap.of(
+                JcloudsLocation.MACHINE_CREATE_BATCH_SIZE, 10,
+                JcloudsLocation.MACHINE_CREATE_BATCH_WINDOW, Duration.THIRTY_SECONDS));
+
+        jcloudsLocation.expectObtains(2);
+        obtainConcurrently(2);
+        obtainMachine();
+
+        assertEquals(countingNodeCreator.createCalls, ImmutableList.of(2, 1));
+        assertFalse(countingNodeCreator.templates.get(0).getOptions().getUserMetadata().containsKey("Name"));
+        assertTrue(countingNodeCreator.templates.get(1).getOptions().getUserMetadata().containsKey("Name"));
+    }
+
+    @Test
+    public void testRequestsFromDifferentCallersNotBatched() throws Exception {
+        initNodeCreatorAndJcloudsLocation(countingNodeCreator, ImmutableMap.of(
+                JcloudsLocation.MACHINE_CREATE_BATCH_SIZE, 10,
+                JcloudsLocation.MACHINE_CREATE_BATCH_WINDOW, Duration.ONE_SECOND));
+
+        jcloudsLocation.expectObtains(2);
+        obtainConcurrently(ImmutableMap.of(JcloudsLocation.CALLER_CONTEXT, "caller1"), ImmutableMap.of(JcloudsLocation.CALLER_CONTEXT, "caller2"));
+
+        assertEquals(countingNodeCreator.createCalls, ImmutableList.of(1, 1));
+    }
+
+    @Test
+    public void testRequestsFromDifferentCallersBatchedIfNotRecorded() throws Exception {
+        initNodeCreatorAndJcloudsLocation(countingNodeCreator, ImmutableMap.of(
+                JcloudsLocation.MACHINE_CREATE_BATCH_SIZE, 10,
+                JcloudsLocation.MACHINE_CREATE_BATCH_WINDOW, Duration.THIRTY_SECONDS,
+                JcloudsLocation.INCLUDE_BROOKLYN_USER_METADATA, false,
+                JcloudsLocation.GROUP_ID, "mygroup"));
+
+        jcloudsLocation.expectObtains(2);
+        obtainConcurrently(ImmutableMap.of(JcloudsLocation.CALLER_CONTEXT, "caller1"), ImmutableMap.of(JcloudsLocation.CALLER_CONTEXT, "caller2"));
+
+        assertEquals(countingNodeCreator.createCalls, ImmutableList.of(2));
+    }
+
+    @Test
+    public void testClusterMembersNotBatchedByDefault() throws Exception {
+        // each member is a different caller, recorded in the machine's metadata and generated group
+        initNodeCreatorAndJcloudsLocation(countingNodeCreator, ImmutableMap.of(
+                JcloudsLocation.MACHINE_CREATE_BATCH_SIZE, 10,
+                JcloudsLocation.MACHINE_CREATE_BATCH_WINDOW, Duration.ONE_SECOND));
+        List<Entity> members = newClusterMembers(2);
+
+        jcloudsLocation.expectObtains(2);
+        obtainConcurrently(ImmutableMap.of(JcloudsLocation.CALLER_CONTEXT, members.get(0)), ImmutableMap.of(JcloudsLocation.CALLER_CONTEXT, members.get(1)));
+
+        assertEquals(countingNodeCreator.createCalls, ImmutableList.of(1, 1));
+        assertEquals(MutableSet.copyOf(brooklynEntityIds(countingNodeCreator.templates)), MutableSet.of(members.get(0).getId(), members.get(1).getId()));
+    }
+
+    @Test
+    public void testClusterMembersBatchedWithoutCallerMetadata() throws Exception {
+        initNodeCreatorAndJcloudsLocation(countingNodeCreator, ImmutableMap.of(
+                JcloudsLocation.MACHINE_CREATE_BATCH_SIZE, 10,
+                JcloudsLocation.MACHINE_CREATE_BATCH_WINDOW, Duration.THIRTY_SECONDS,
+                JcloudsLocation.INCLUDE_BROOKLYN_USER_METADATA, false,
+                JcloudsLocation.GROUP_ID, "mygroup"));
+        List<Entity> members = newClusterMembers(2);
+
+        jcloudsLocation.expectObtains(2);
+        List<JcloudsSshMachineLocation> obtained = obtainConcurrently(
+                ImmutableMap.of(JcloudsLocation.CALLER_CONTEXT, members.get(0)), ImmutableMap.of(JcloudsLocation.CALLER_CONTEXT, members.get(1)));
+
+        assertEquals(countingNodeCreator.createCalls, ImmutableList.of(2));
+        assertEquals(brooklynEntityIds(countingNodeCreator.templates), MutableList.of((String)null));
+
+        // each machine has its own copy of the template the batch was created from
+        Template template1 = obtained.get(0).getOptionalTemplate().get();
+        Template template2 = obtained.get(1).getOptionalTemplate().get();
+        assertNotSame(template1, template2);
+        assertNotSame(template1.getOptions(), template2.getOptions());
+        assertEquals(template1.getOptions().getUserMetadata(), template2.getOptions().getUserMetadata());
+        assertEquals(template1.getImage(), countingNodeCreator.templates.get(0).getImage());
+    }
+
+    @Test
+    public void testWaitingForBatchDoesNotHoldCreationPermit() throws Exception {
+        // A permit held while waiting for the batch to fill would stop the others from joining it
+        initNodeCreatorAndJcloudsLocation(countingNodeCreator, ImmutableMap.of(
+                JcloudsLocation.MACHINE_CREATE_BATCH_SIZE, 10,
+                JcloudsLocation.MACHINE_CREATE_BATCH_WINDOW, Duration.THIRTY_SECONDS,
+                JcloudsLocation.MACHINE_CREATION_SEMAPHORE, new Semaphore(1)));
+
+        jcloudsLocation.expectObtains(3);
+        obtainConcurrently(3);
+
+        assertEquals(countingNodeCreator.createCalls, ImmutableList.of(3));
+    }
+
+    private List<Entity> newClusterMembers(int count) {
+        TestApplication app = managementContext.getEntityManager().createEntity(EntitySpec.create(TestApplication.class));
+        DynamicCluster cluster = app.createAndManageChild(EntitySpec.create(DynamicCluster.class)
+                .configure(DynamicCluster.MEMBER_SPEC, EntitySpec.create(TestEntity.class)));
+        List<Entity> result = MutableList.of();
+        for (int i = 0; i < count; i++) {
+            result.add(cluster.addMemberChild(EntitySpec.create(TestEntity.class)));
+        }
+        return result;
+    }
+
+    private static List<String> brooklynEntityIds(List<Template> templates) {
+        List<String> result = MutableList.of();
+        for (Template template : templates) {
+            result.add(template.getOptions().getUserMetadata().get("brooklyn-entity-id"));
+        }
+        return result;
+    }
+
+    private List<JcloudsSshMachineLocation> obtainConcurrently(int count) throws Exception {
+        List<Map<?, ?>> flags = MutableList.of();
+        for (int i = 0; i < count; i++) {
+            flags.add(ImmutableMap.of());
+        }
+        return obtainConcurrently(flags.toArray(new Map<?, ?>[0]));
+    }
+
+    private List<JcloudsSshMachineLocation> obtainConcurrently(Map<?, ?>... flags) throws Exception {
+        List<ListenableFuture<JcloudsSshMachineLocation>> futures = MutableList.of();
+        for (final Map<?, ?> conf : flags) {
+            futures.add(executor.submit(new Callable<JcloudsSshMachineLocation>() {
+                @Override
+                public JcloudsSshMachineLocation call() throws Exception {
+                    return obtainMachine(conf);
+                }}));
+        }
+        return Futures.allAsList(futures).get();
+    }
+}
@@ -0,0 +1,260 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.brooklyn.location.jclouds;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotSame;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertSame;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.brooklyn.location.jclouds.AbstractComputeServiceRegistry.Catalogue;
+import org.apache.brooklyn.location.jclouds.StubbedComputeServiceRegistry.BasicNodeCreator;
+import org.apache.brooklyn.location.jclouds.StubbedComputeServiceRegistry.NodeCreator;
+import org.apache.brooklyn.location.jclouds.StubbedComputeServiceRegistry.StubbedComputeService;
+import org.apache.brooklyn.location.ssh.SshMachineLocation;
+import org.apache.brooklyn.util.collections.MutableMap;
+import org.apache.brooklyn.util.core.config.ConfigBag;
+import org.apache.brooklyn.util.core.internal.ssh.RecordingSshTool;
+import org.apache.brooklyn.util.time.Duration;
+import org.jclouds.compute.ComputeService;
+import org.jclouds.compute.domain.Hardware;
+import org.jclouds.compute.domain.Image;
+import org.jclouds.compute.domain.NodeMetadata;
+import org.jclouds.compute.domain.Template;
+import org.jclouds.compute.domain.TemplateBuilder;
+import org.jclouds.domain.Location;
+import org.mockito.Mockito;
+import org.testng.annotations.Test;
+
+import com.google.common.base.Predicates;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import com.google.common.primitives.Ints;
+
+public class JcloudsTemplateCacheStubbedTest extends AbstractJcloudsStubbedUnitTest {
+
+    private static class TemplateRecordingNodeCreator extends BasicNodeCreator {
+        final List<Template> templates = Lists.newCopyOnWriteArrayList();
+
+        @Override
+        protected NodeMetadata newNode(String group, Template template) {
+            templates.add(template);
+            return super.newNode(group, template);
+        }
+    }
+
+    /** counts the templates resolved from the cloud, when no {@link JcloudsLocationConfig#TEMPLATE_BUILDER} is supplied */
+    private final AtomicInteger templateBuilders = new AtomicInteger();
+
+    @Test
+    public void testTemplateResolvedOnceWhenCached() throws Exception {
+        initJcloudsLocationWithoutTemplateBuilder(newNodeCreator(), ImmutableMap.of(
+                JcloudsLocationConfig.TEMPLATE_CACHE_TTL, Duration.ONE_MINUTE));
+
+        obtainMachine();
+        obtainMachine();
+        assertEquals(templateBuilders.get(), 1);
+
+        jcloudsLocation.invalidateTemplateCache();
+        obtainMachine();
+        assertEquals(templateBuilders.get(), 2);
+    }
+
+    @Test
+    public void testTemplateNotCachedByDefault() throws Exception {
+        initJcloudsLocationWithoutTemplateBuilder(newNodeCreator(), ImmutableMap.of());
+
+        obtainMachine();
+        obtainMachine();
+        assertEquals(templateBuilders.get(), 2);
+    }
+
+    @Test
+    public void testTemplateNotCachedWhenTemplateBuilderSupplied() throws Exception {
+        TemplateBuilder templateBuilder = Mockito.spy(JcloudsStubTemplateBuilder.create(getProvider(), getRegion()));
+        initNodeCreatorAndJcloudsLocation(newNodeCreator(), ImmutableMap.of(
+                JcloudsLocationConfig.TEMPLATE_BUILDER, templateBuilder,
+                JcloudsLocationConfig.TEMPLATE_CACHE_TTL, Duration.ONE_MINUTE));
+
+        obtainMachine();
+        obtainMachine();
+        Mockito.verify(templateBuilder, Mockito.times(2)).build();
+    }
+
+    @Test
+    public void testTemplateNotCachedWhenCustomizerPassedIn() throws Exception {
+        initJcloudsLocationWithoutTemplateBuilder(newNodeCreator(), ImmutableMap.of(
+                JcloudsLocationConfig.TEMPLATE_CACHE_TTL, Duration.ONE_MINUTE));
+        ComputeService computeService = jcloudsLocation.getComputeService();
+        ConfigBag config = jcloudsLocation.config().getBag();
+        JcloudsLocationCustomizer customizer = new BasicJcloudsLocationCustomizer();
+
+        jcloudsLocation.buildTemplate(computeService, config, customizer);
+        jcloudsLocation.buildTemplate(computeService, config, customizer);
+        assertEquals(templateBuilders.get(), 2);
+
+        jcloudsLocation.buildTemplate(computeService, config, ImmutableList.of(customizer));
+        jcloudsLocation.buildTemplate(computeService, config, ImmutableList.of(customizer));
+        assertEquals(templateBuilders.get(), 4);
+
+        // an empty delegate, as when nothing is configured, does not stop caching
+        jcloudsLocation.buildTemplate(computeService, config, ImmutableList.<JcloudsLocationCustomizer>of());
+        jcloudsLocation.buildTemplate(computeService, config, ImmutableList.<JcloudsLocationCustomizer>of());
+        assertEquals(templateBuilders.get(), 5);
+    }
+
+    @Test
+    public void testCachedTemplateGivenPerMachineOptions() throws Exception {
+        TemplateRecordingNodeCreator recordingNodeCreator = new TemplateRecordingNodeCreator();
+        initJcloudsLocationWithoutTemplateBuilder(recordingNodeCreator, ImmutableMap.of(
+                JcloudsLocationConfig.TEMPLATE_CACHE_TTL, Duration.ONE_MINUTE));
+
+        obtainMachine(ImmutableMap.of(JcloudsLocationConfig.INBOUND_PORTS, ImmutableList.of(22)));
+        obtainMachine(ImmutableMap.of(JcloudsLocationConfig.INBOUND_PORTS, ImmutableList.of(22, 8080)));
+
+        Template first = recordingNodeCreator.templates.get(0);
+        Template second = recordingNodeCreator.templates.get(1);
+        assertSame(second.getImage(), first.getImage());
+        assertNotSame(second.getOptions(), first.getOptions());
+        assertEquals(Ints.asList(first.getOptions().getInboundPorts()), ImmutableList.of(22));
+        assertEquals(Ints.asList(second.getOptions().getInboundPorts()), ImmutableList.of(22, 8080));
+        assertEquals(templateBuilders.get(), 1);
+    }
+
+    @Test
+    public void testCatalogueLoadsImageOnceWithinMaxAge() throws Exception {
+        final Image image = JcloudsStubTemplateBuilder.create(getProvider(), getRegion()).build().getImage();
+        final AtomicInteger lookups = new AtomicInteger();
+        UnsupportedComputeService computeService = new UnsupportedComputeService() {
+            @Override
+            public Image getImage(String id) {
+                lookups.incrementAndGet();
+                return id.equals(image.getId()) ? image : null;
+            }
+        };
+        Catalogue catalogue = AbstractComputeServiceRegistry.getCatalogue(computeService);
+
+        assertSame(catalogue.getImage(image.getId(), Duration.ONE_MINUTE), image);
+        assertSame(catalogue.getImage(image.getId(), Duration.ONE_MINUTE), image);
+        assertEquals(lookups.get(), 1);
+
+        catalogue.getImage(image.getId(), Duration.ZERO);
+        assertEquals(lookups.get(), 2);
+
+        // absent images are not remembered, in case they are added
+        assertNull(catalogue.getImage("does-not-exist", Duration.ONE_MINUTE));
+        assertNull(catalogue.getImage("does-not-exist", Duration.ONE_MINUTE));
+        assertEquals(lookups.get(), 4);
+
+        catalogue.invalidate();
+        catalogue.getImage(image.getId(), Duration.ONE_MINUTE);
+        assertEquals(lookups.get(), 5);
+    }
+
+    @Test
+    public void testLocationsOnSameComputeServiceShareCatalogue() throws Exception {
+        final Image image = JcloudsStubTemplateBuilder.create(getProvider(), getRegion()).build().getImage();
+        final AtomicInteger imageLookups = new AtomicInteger();
+        final AtomicInteger imageListings = new AtomicInteger();
+        final AtomicInteger hardwareListings = new AtomicInteger();
+        final UnsupportedComputeService computeService = new UnsupportedComputeService() {
+            @Override
+            public Image getImage(String id) {
+                imageLookups.incrementAndGet();
+                return image;
+            }
+            @Override
+            public Set<? extends Image> listImages() {
+                imageListings.incrementAndGet();
+                return ImmutableSet.of(image);
+            }
+            @Override
+            public Set<? extends Hardware> listHardwareProfiles() {
+                hardwareListings.incrementAndGet();
+                return ImmutableSet.of();
+            }
+            @Override
+            public Set<? extends Location> listAssignableLocations() {
+                return ImmutableSet.of();
+            }
+        };
+        ComputeServiceRegistry registry = new ComputeServiceRegistry() {
+            @Override
+            public ComputeService findComputeService(ConfigBag conf, boolean allowReuse) {
+                return computeService;
+            }
+        };
+        JcloudsLocation location1 = newLocation(registry);
+        JcloudsLocation location2 = newLocation(registry);
+
+        location1.getImage(location1.getComputeService(), image.getId(), location1.config().getBag());
+        location2.getImage(location2.getComputeService(), image.getId(), location2.config().getBag());
+        assertEquals(imageLookups.get(), 1);
+
+        // as when reporting a template which could not be matched
+        location1.logAvailableTemplates(location1.config().getBag());
+        location2.logAvailableTemplates(location2.config().getBag());
+        assertEquals(imageListings.get(), 1);
+        assertEquals(hardwareListings.get(), 1);
+    }
+
+    /**
+     * As {@link #initNodeCreatorAndJcloudsLocation(NodeCreator, java.util.Map)}, but with the template builder
+     * from the (stubbed) compute service, as when none is supplied, so templates can be cached.
+     */
+    private void initJcloudsLocationWithoutTemplateBuilder(NodeCreator nodeCreator, Map<?, ?> config) {
+        this.nodeCreator = nodeCreator;
+        this.computeServiceRegistry = new ComputeServiceRegistry() {
+            @Override
+            public ComputeService findComputeService(ConfigBag conf, boolean allowReuse) {
+                return new StubbedComputeService(JcloudsTemplateCacheStubbedTest.this.nodeCreator) {
+                    @Override
+                    public TemplateBuilder templateBuilder() {
+                        templateBuilders.incrementAndGet();
+                        return JcloudsStubTemplateBuilder.create(getProvider(), getRegion());
+                    }
+                };
+            }
+        };
+        jcloudsLocation = (JcloudsLocation) managementContext.getLocationRegistry().getLocationManaged(getLocationSpec(), MutableMap.builder()
+                .putAll(config)
+                .put(JcloudsLocationConfig.COMPUTE_SERVICE_REGISTRY, computeServiceRegistry)
+                .put(JcloudsLocationConfig.ACCESS_IDENTITY, "stub-identity")
+                .put(JcloudsLocationConfig.ACCESS_CREDENTIAL, "stub-credential")
+                .put(SshMachineLocation.SSH_TOOL_CLASS, RecordingSshTool.class.getName())
+                .put(JcloudsLocation.POLL_FOR_FIRST_REACHABLE_ADDRESS_PREDICATE, Predicates.alwaysTrue())
+                .put(JcloudsLocationConfig.LOOKUP_AWS_HOSTNAME, Boolean.FALSE)
+                .build());
+    }
+
+    private JcloudsLocation newLocation(ComputeServiceRegistry registry) {
+        return (JcloudsLocation) managementContext.getLocationRegistry().getLocationManaged(getLocationSpec(), ImmutableMap.of(
+                JcloudsLocationConfig.COMPUTE_SERVICE_REGISTRY, registry,
+                JcloudsLocationConfig.ACCESS_IDENTITY, "stub-identity",
+                JcloudsLocationConfig.ACCESS_CREDENTIAL, "stub-credential",
+                JcloudsLocationConfig.TEMPLATE_CACHE_TTL, Duration.ONE_MINUTE));
+    }
+}
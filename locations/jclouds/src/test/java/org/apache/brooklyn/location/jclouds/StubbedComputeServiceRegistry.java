@@ -29,6 +29,7 @@ import org.jclouds.compute.domain.NodeMetadata;
 import org.jclouds.compute.domain.NodeMetadata.Status;
 import org.jclouds.compute.domain.NodeMetadataBuilder;
 import org.jclouds.compute.domain.Template;
+import org.jclouds.compute.domain.TemplateBuilder;
 import org.jclouds.compute.options.TemplateOptions;
 import org.jclouds.domain.LocationBuilder;
 import org.jclouds.domain.LocationScope;
@@ -167,9 +168,21 @@ public class StubbedComputeServiceRegistry implements ComputeServiceRegistry {
     
     static class StubbedComputeService extends UnsupportedComputeService {
         private final NodeCreator nodeCreator;
+        private final String templateBuilderProvider;
+        private final String templateBuilderRegion;
         
         public StubbedComputeService(NodeCreator nodeCreator) {
+            this(nodeCreator, null, null);
+        }
+        public StubbedComputeService(NodeCreator nodeCreator, String templateBuilderProvider, String templateBuilderRegion) {
             this.nodeCreator = nodeCreator;
+            this.templateBuilderProvider = templateBuilderProvider;
+            this.templateBuilderRegion = templateBuilderRegion;
+        }
+        @Override
+        public TemplateBuilder templateBuilder() {
+            if (templateBuilderProvider == null) return super.templateBuilder();
+            return JcloudsStubTemplateBuilder.create(templateBuilderProvider, templateBuilderRegion);
         }
         @Override
         public Set<? extends NodeMetadata> createNodesInGroup(String group, int count, Template template) throws RunNodesException {
@@ -205,6 +218,8 @@ public class StubbedComputeServiceRegistry implements ComputeServiceRegistry {
     
     private final NodeCreator nodeCreator;
     private final boolean allowCloudQueries;
+    private final String templateBuilderProvider;
+    private final String templateBuilderRegion;
     
     public StubbedComputeServiceRegistry(NodeMetadata node) throws Exception {
         this(new SingleNodeCreator(node));
@@ -217,6 +232,20 @@ public class StubbedComputeServiceRegistry implements ComputeServiceRegistry {
     public StubbedComputeServiceRegistry(NodeCreator nodeCreator, boolean allowCloudQueries) throws Exception {
         this.nodeCreator = nodeCreator;
         this.allowCloudQueries = allowCloudQueries;
+        this.templateBuilderProvider = null;
+        this.templateBuilderRegion = null;
+    }
+
+    /**
+     * Does not allow cloud queries, but the compute service gives a {@link JcloudsStubTemplateBuilder} for the given
+     * provider and region, for when the location is not given a template builder (e.g. so that it uses a 
+     * {@link org.apache.brooklyn.location.jclouds.templates.PortableTemplateBuilder}).
+     */
+    public StubbedComputeServiceRegistry(NodeCreator nodeCreator, String templateBuilderProvider, String templateBuilderRegion) throws Exception {
+        this.nodeCreator = nodeCreator;
+        this.allowCloudQueries = false;
+        this.templateBuilderProvider = templateBuilderProvider;
+        this.templateBuilderRegion = templateBuilderRegion;
     }
 
     /**
@@ -233,7 +262,7 @@ public class StubbedComputeServiceRegistry implements ComputeServiceRegistry {
             ComputeService delegate = ComputeServiceRegistryImpl.INSTANCE.findComputeService(conf, allowReuse);
             return new MinimalComputeService(delegate, nodeCreator);
         } else {
-            return new StubbedComputeService(nodeCreator);
+            return new StubbedComputeService(nodeCreator, templateBuilderProvider, templateBuilderRegion);
         }
     }
 }
@@ -0,0 +1,121 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.brooklyn.location.jclouds.pool;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+import java.util.Set;
+
+import org.apache.brooklyn.api.location.LocationSpec;
+import org.apache.brooklyn.api.location.MachineLocation;
+import org.apache.brooklyn.core.internal.BrooklynProperties;
+import org.apache.brooklyn.core.mgmt.rebind.RebindTestFixtureWithApp;
+import org.apache.brooklyn.location.jclouds.AbstractJcloudsLiveTest;
+import org.apache.brooklyn.location.jclouds.JcloudsLocation;
+import org.apache.brooklyn.location.jclouds.JcloudsLocationConfig;
+import org.apache.brooklyn.location.jclouds.StubbedComputeServiceRegistry;
+import org.apache.brooklyn.location.jclouds.StubbedComputeServiceRegistry.BasicNodeCreator;
+import org.apache.brooklyn.location.ssh.SshMachineLocation;
+import org.apache.brooklyn.test.Asserts;
+import org.apache.brooklyn.util.collections.MutableSet;
+import org.apache.brooklyn.util.core.internal.ssh.RecordingSshTool;
+import org.testng.annotations.Test;
+
+import com.google.common.base.Predicates;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+
+/**
+ * Tests that the machines in a {@link JcloudsMachinePoolLocation} are kept across rebind.
+ * It is just a unit test, because it uses the {@link StubbedComputeServiceRegistry}.
+ */
+public class JcloudsMachinePoolLocationRebindTest extends RebindTestFixtureWithApp {
+
+    public static final String PROVIDER = AbstractJcloudsLiveTest.AWS_EC2_PROVIDER;
+    public static final String REGION = "us-east-1";
+    public static final String LOCATION_SPEC = "jclouds:" + PROVIDER + ":" + REGION;
+
+    @Override
+    protected BrooklynProperties createBrooklynProperties() {
+        // Don't let any defaults from brooklyn.properties (except credentials) interfere with test
+        BrooklynProperties result = super.createBrooklynProperties();
+        AbstractJcloudsLiveTest.stripBrooklynProperties(result);
+        return result;
+    }
+
+    @Override
+    protected boolean useLiveManagementContext() {
+        return false;
+    }
+
+    @Test
+    public void testRebindKeepsPooledMachines() throws Exception {
+        JcloudsLocation provisioner = (JcloudsLocation) mgmt().getLocationRegistry().getLocationManaged(LOCATION_SPEC, ImmutableMap.builder()
+                .put(JcloudsLocationConfig.COMPUTE_SERVICE_REGISTRY, new StubbedComputeServiceRegistry(new BasicNodeCreator(), PROVIDER, REGION))
+                .put(JcloudsLocationConfig.ACCESS_IDENTITY, "stub-identity")
+                .put(JcloudsLocationConfig.ACCESS_CREDENTIAL, "stub-credential")
+                .put(SshMachineLocation.SSH_TOOL_CLASS, RecordingSshTool.class.getName())
+                .put(JcloudsLocation.POLL_FOR_FIRST_REACHABLE_ADDRESS_PREDICATE, Predicates.alwaysTrue())
+                .put(JcloudsLocationConfig.LOOKUP_AWS_HOSTNAME, Boolean.FALSE)
+                .build());
+        JcloudsMachinePoolLocation origPool = mgmt().getLocationManager().createLocation(LocationSpec.create(JcloudsMachinePoolLocation.class)
+                .configure(JcloudsMachinePoolLocation.PROVISIONER, provisioner)
+                .configure(JcloudsMachinePoolLocation.TEMPLATES, ImmutableList.of(new ReusableMachineTemplate("small"), new ReusableMachineTemplate("large")))
+                .configure(JcloudsMachinePoolLocation.POOL_SIZE, 1));
+        assertAvailableEventually(origPool, 2);
+        MachineLocation origInUse = origPool.obtain(ImmutableMap.of(JcloudsMachinePoolLocation.TEMPLATE_NAME.getName(), "large"));
+        assertAvailableEventually(origPool, 2);
+        Set<String> origAvailableIds = ids(origPool.getAvailable());
+
+        rebind();
+
+        JcloudsMachinePoolLocation newPool = (JcloudsMachinePoolLocation) mgmt().getLocationManager().getLocation(origPool.getId());
+        assertEquals(ids(newPool.getAvailable()), origAvailableIds);
+        assertEquals(ids(newPool.getInUse()), ImmutableSet.of(origInUse.getId()));
+        assertEquals(newPool.machineTemplates, origPool.machineTemplates);
+        assertEquals(newPool.machineTemplates.get(origInUse.getId()), "large");
+
+        // the pool is still full, so it hands out the pooled machines rather than provisioning more
+        MachineLocation newSmall = newPool.obtain(ImmutableMap.of());
+        assertEquals(newPool.machineTemplates.get(newSmall.getId()), "small");
+        assertTrue(origAvailableIds.contains(newSmall.getId()), "machine="+newSmall+"; available="+origAvailableIds);
+
+        MachineLocation newInUse = (MachineLocation) mgmt().getLocationManager().getLocation(origInUse.getId());
+        newPool.release(newInUse);
+        assertEquals(ids(newPool.getInUse()), ImmutableSet.of(newSmall.getId()));
+    }
+
+    private static Set<String> ids(Iterable<? extends MachineLocation> machines) {
+        Set<String> result = MutableSet.of();
+        for (MachineLocation machine : machines) {
+            result.add(machine.getId());
+        }
+        return result;
+    }
+
+    private void assertAvailableEventually(final JcloudsMachinePoolLocation pool, final int expected) {
+        Asserts.succeedsEventually(new Runnable() {
+            @Override
+            public void run() {
+                assertEquals(pool.getAvailable().size(), expected);
+            }});
+    }
+}
@@ -0,0 +1,202 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.brooklyn.location.jclouds.pool;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.brooklyn.api.location.LocationSpec;
+import org.apache.brooklyn.api.location.MachineLocation;
+import org.apache.brooklyn.location.jclouds.AbstractJcloudsStubbedUnitTest;
+import org.apache.brooklyn.location.jclouds.JcloudsLocationConfig;
+import org.apache.brooklyn.location.jclouds.JcloudsSshMachineLocation;
+import org.apache.brooklyn.location.jclouds.StubbedComputeServiceRegistry;
+import org.apache.brooklyn.location.jclouds.StubbedComputeServiceRegistry.BasicNodeCreator;
+import org.apache.brooklyn.test.Asserts;
+import org.apache.brooklyn.util.time.Duration;
+import org.jclouds.compute.domain.NodeMetadata;
+import org.jclouds.compute.domain.Template;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Lists;
+
+public class JcloudsMachinePoolLocationStubbedTest extends AbstractJcloudsStubbedUnitTest {
+
+    /** Records the templates machines are created with, failing for the first few. */
+    private static class RecordingNodeCreator extends BasicNodeCreator {
+        final List<Template> templates = Lists.newCopyOnWriteArrayList();
+        final AtomicInteger failuresRemaining = new AtomicInteger();
+
+        @Override
+        protected NodeMetadata newNode(String group, Template template) {
+            if (failuresRemaining.getAndDecrement() > 0) {
+                throw new IllegalStateException("Simulated failure creating node");
+            }
+            templates.add(template);
+            return super.newNode(group, template);
+        }
+    }
+
+    private RecordingNodeCreator basicNodeCreator;
+
+    @BeforeMethod(alwaysRun=true)
+    @Override
+    public void setUp() throws Exception {
+        super.setUp();
+        basicNodeCreator = new RecordingNodeCreator();
+        // the pool gives the provisioner each template to build, so it resolves it against the (stubbed) compute service
+        initNodeCreatorAndJcloudsLocation(basicNodeCreator, ImmutableMap.of(
+                JcloudsLocationConfig.COMPUTE_SERVICE_REGISTRY, new StubbedComputeServiceRegistry(basicNodeCreator, getProvider(), getRegion()),
+                JcloudsLocationConfig.MACHINE_CREATE_ATTEMPTS, 1));
+    }
+
+    @Test
+    public void testPoolFilledForEachTemplate() throws Exception {
+        final JcloudsMachinePoolLocation pool = newPool(2, false, "small", "large");
+
+        assertAvailableEventually(pool, 4);
+        assertEquals(basicNodeCreator.created.size(), 4);
+    }
+
+    @Test
+    public void testMachinesProvisionedFromCopiesOfConfiguredTemplate() throws Exception {
+        final JcloudsMachinePoolLocation pool = newPool(2, false, "small");
+        assertAvailableEventually(pool, 2);
+        ReusableMachineTemplate configured = Iterables.getOnlyElement(pool.getConfig(JcloudsMachinePoolLocation.TEMPLATES));
+
+        assertEquals(basicNodeCreator.templates.size(), 2);
+        for (Template template : basicNodeCreator.templates) {
+            assertEquals(template.getOptions().getUserMetadata().get(ReusableMachineTemplate.NAME_METADATA_KEY), "small");
+        }
+        // building a template sets these on the builder, so the provisioner must not have been given the configured one
+        assertNull(configured.getLocationId());
+        assertNull(configured.imageChooser());
+        assertNull(configured.getMinCores());
+    }
+
+    @Test
+    public void testFailedProvisioningRetried() throws Exception {
+        basicNodeCreator.failuresRemaining.set(2);
+        final JcloudsMachinePoolLocation pool = managementContext.getLocationManager().createLocation(LocationSpec.create(JcloudsMachinePoolLocation.class)
+                .configure(JcloudsMachinePoolLocation.PROVISIONER, jcloudsLocation)
+                .configure(JcloudsMachinePoolLocation.TEMPLATES, ImmutableList.of(new ReusableMachineTemplate("small")))
+                .configure(JcloudsMachinePoolLocation.RETRY_DELAY, Duration.millis(10)));
+
+        assertAvailableEventually(pool, 1);
+        assertEquals(basicNodeCreator.failuresRemaining.get(), -1);
+        assertEquals(basicNodeCreator.created.size(), 1);
+    }
+
+    @Test
+    public void testObtainHandsOutWarmMachineAndRefills() throws Exception {
+        final JcloudsMachinePoolLocation pool = newPool(1, false, "small");
+        assertAvailableEventually(pool, 1);
+        MachineLocation warm = Iterables.getOnlyElement(pool.getAvailable());
+
+        MachineLocation machine = pool.obtain(ImmutableMap.of());
+
+        assertEquals(machine, warm);
+        assertEquals(pool.getInUse(), ImmutableSet.of(machine));
+        assertAvailableEventually(pool, 1);
+        assertEquals(basicNodeCreator.created.size(), 2);
+    }
+
+    @Test
+    public void testObtainNamedTemplate() throws Exception {
+        final JcloudsMachinePoolLocation pool = newPool(1, false, "small", "large");
+        assertAvailableEventually(pool, 2);
+
+        MachineLocation machine = pool.obtain(ImmutableMap.of(JcloudsMachinePoolLocation.TEMPLATE_NAME.getName(), "large"));
+
+        assertEquals(pool.machineTemplates.get(machine.getId()), "large");
+    }
+
+    @Test
+    public void testObtainUnknownTemplateFails() throws Exception {
+        final JcloudsMachinePoolLocation pool = newPool(1, false, "small");
+        try {
+            pool.obtain(ImmutableMap.of(JcloudsMachinePoolLocation.TEMPLATE_NAME.getName(), "huge"));
+            Asserts.shouldHaveFailedPreviously();
+        } catch (IllegalArgumentException e) {
+            Asserts.expectedFailureContains(e, "huge");
+        }
+    }
+
+    @Test
+    public void testReleaseDestroysMachineByDefault() throws Exception {
+        final JcloudsMachinePoolLocation pool = newPool(1, false, "small");
+        assertAvailableEventually(pool, 1);
+
+        JcloudsSshMachineLocation machine = (JcloudsSshMachineLocation) pool.obtain(ImmutableMap.of());
+        pool.release(machine);
+
+        assertTrue(basicNodeCreator.destroyed.contains(machine.getJcloudsId()), "destroyed="+basicNodeCreator.destroyed);
+        assertEquals(pool.getInUse(), ImmutableSet.of());
+    }
+
+    @Test
+    public void testReleasedMachineReusedIfPoolNotFull() throws Exception {
+        final JcloudsMachinePoolLocation pool = newPool(1, true, "small");
+        assertAvailableEventually(pool, 1);
+        JcloudsSshMachineLocation first = (JcloudsSshMachineLocation) pool.obtain(ImmutableMap.of());
+        assertAvailableEventually(pool, 1);
+        JcloudsSshMachineLocation second = (JcloudsSshMachineLocation) pool.obtain(ImmutableMap.of());
+        assertAvailableEventually(pool, 1);
+
+        // pool is full, so the first machine is released to the provisioner
+        pool.release(first);
+        assertTrue(basicNodeCreator.destroyed.contains(first.getJcloudsId()), "destroyed="+basicNodeCreator.destroyed);
+
+        // once drained, the second machine goes back into the pool
+        pool.drain();
+        pool.release(second);
+        assertFalse(basicNodeCreator.destroyed.contains(second.getJcloudsId()), "destroyed="+basicNodeCreator.destroyed);
+        assertEquals(pool.getAvailable(), ImmutableSet.of(second));
+    }
+
+    private JcloudsMachinePoolLocation newPool(int size, boolean reuse, String... templateNames) {
+        ImmutableList.Builder<ReusableMachineTemplate> templates = ImmutableList.builder();
+        for (String name : templateNames) {
+            templates.add(new ReusableMachineTemplate(name));
+        }
+        return managementContext.getLocationManager().createLocation(LocationSpec.create(JcloudsMachinePoolLocation.class)
+                .configure(JcloudsMachinePoolLocation.PROVISIONER, jcloudsLocation)
+                .configure(JcloudsMachinePoolLocation.TEMPLATES, templates.build())
+                .configure(JcloudsMachinePoolLocation.POOL_SIZE, size)
+                .configure(JcloudsMachinePoolLocation.REUSE_RELEASED_MACHINES, reuse));
+    }
+
+    private void assertAvailableEventually(final JcloudsMachinePoolLocation pool, final int expected) {
+        Asserts.succeedsEventually(new Runnable() {
+            @Override
+            public void run() {
+                assertEquals(pool.getAvailable().size(), expected);
+            }});
+    }
+}
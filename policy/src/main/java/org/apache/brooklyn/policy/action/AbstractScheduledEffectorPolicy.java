@@ -25,9 +25,6 @@ import java.util.Calendar;
 import java.util.Date;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.apache.brooklyn.api.effector.Effector;
@@ -54,7 +51,6 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.google.common.annotations.Beta;
-import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Preconditions;
 import com.google.common.base.Predicates;
 import com.google.common.collect.ImmutableList;
@@ -127,7 +123,6 @@ public abstract class AbstractScheduledEffectorPolicy extends AbstractPolicy imp
             .build();
 
     protected AtomicBoolean running;
-    protected ScheduledExecutorService executor;
     protected Effector<?> effector;
 
     public AbstractScheduledEffectorPolicy() {
@@ -146,11 +141,7 @@ public abstract class AbstractScheduledEffectorPolicy extends AbstractPolicy imp
     }
 
     public void setup() {
-        if (executor != null) {
-            executor.shutdownNow();
-        }
-        // TODO instead of a custom executor it would be nicer to use scheduled tasks
-        executor = Executors.newSingleThreadScheduledExecutor();
+        cancelScheduledJobs();
         running = new AtomicBoolean(false);
     }
 
@@ -206,13 +197,6 @@ public abstract class AbstractScheduledEffectorPolicy extends AbstractPolicy imp
         }
     }
 
-    @Override
-    public void destroy() {
-        executor.shutdownNow();
-        super.destroy();
-    }
-
-    
     public abstract void start();
 
     protected Effector<?> getEffector() {
@@ -265,7 +249,7 @@ public abstract class AbstractScheduledEffectorPolicy extends AbstractPolicy imp
     }
 
     private void scheduleInExecutor(Duration wait) {
-        executor.schedule(this, wait.toMilliseconds(), TimeUnit.MILLISECONDS);
+        getScheduler().schedule("Scheduled effector invocation", this, wait);
     }
 
     @Override
@@ -324,9 +308,4 @@ public abstract class AbstractScheduledEffectorPolicy extends AbstractPolicy imp
             }
         }
     }
-    
-    @VisibleForTesting
-    public ScheduledExecutorService getExecutor() {
-        return executor;
-    }
 }
@@ -23,10 +23,6 @@ import static org.apache.brooklyn.util.JavaGroovyEquivalents.groovyTruth;
 
 import java.util.Map;
 import java.util.concurrent.Callable;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.ThreadFactory;
-import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.apache.brooklyn.api.catalog.Catalog;
@@ -64,7 +60,6 @@ import com.google.common.base.Function;
 import com.google.common.base.Preconditions;
 import com.google.common.base.Throwables;
 import com.google.common.reflect.TypeToken;
-import com.google.common.util.concurrent.ThreadFactoryBuilder;
 
 import groovy.lang.Closure;
 
@@ -448,7 +443,6 @@ public class AutoScalerPolicy extends AbstractPolicy {
     
     private final AtomicBoolean executorQueued = new AtomicBoolean(false);
     private volatile long executorTime = 0;
-    private volatile ScheduledExecutorService executor;
 
     private SizeHistory recentUnboundedResizes;
 
@@ -539,9 +533,6 @@ public class AutoScalerPolicy extends AbstractPolicy {
         
         long maxResizeStabilizationDelay = Math.max(getResizeUpStabilizationDelay().toMilliseconds(), getResizeDownStabilizationDelay().toMilliseconds());
         recentDesiredResizes = new SizeHistory(maxResizeStabilizationDelay);
-        
-        // TODO Should re-use the execution manager's thread pool, somehow
-        executor = Executors.newSingleThreadScheduledExecutor(newThreadFactory());
     }
 
     public void setMetricLowerBound(Number val) {
@@ -713,19 +704,6 @@ public class AutoScalerPolicy extends AbstractPolicy {
         }
     }
 
-    @Override
-    public void suspend() {
-        super.suspend();
-        // TODO unsubscribe from everything? And resubscribe on resume?
-        if (executor != null) executor.shutdownNow();
-    }
-    
-    @Override
-    public void resume() {
-        super.resume();
-        executor = Executors.newSingleThreadScheduledExecutor(newThreadFactory());
-    }
-    
     @Override
     public void setEntity(EntityLocal entity) {
         if (!config().getRaw(RESIZE_OPERATOR).isPresentAndNonNull()) {
@@ -747,12 +725,6 @@ public class AutoScalerPolicy extends AbstractPolicy {
         subscriptions().subscribe(poolEntity, DynamicCluster.GROUP_SIZE, poolEventHandler);
     }
     
-    private ThreadFactory newThreadFactory() {
-        return new ThreadFactoryBuilder()
-                .setNameFormat("brooklyn-autoscalerpolicy-%d")
-                .build();
-    }
-
     /**
      * Forces an immediate resize (without waiting for stabilization etc) if the current size is 
      * not within the min and max limits. We schedule this so that all resize operations are done
@@ -762,7 +734,7 @@ public class AutoScalerPolicy extends AbstractPolicy {
         if (LOG.isTraceEnabled()) LOG.trace("{} checking pool size on limits changed for {} (between {} and {})", new Object[] {this, poolEntity, min, max});
         
         if (isRunning() && isEntityUp()) {
-            executor.submit(new Runnable() {
+            getScheduler().submit("Auto-scaler resize within new pool size limits", new Runnable() {
                 @Override public void run() {
                     try {
                         int currentSize = getCurrentSizeOperator().apply(entity);
@@ -1024,7 +996,7 @@ public class AutoScalerPolicy extends AbstractPolicy {
             long delay = Math.max(0, (executorTime + getMinPeriodBetweenExecs().toMilliseconds()) - now);
             if (LOG.isTraceEnabled()) LOG.trace("{} scheduling resize in {}ms", this, delay);
             
-            executor.schedule(new Runnable() {
+            getScheduler().schedule("Auto-scaler resize", new Runnable() {
                 @Override public void run() {
                     try {
                         executorTime = System.currentTimeMillis();
@@ -1044,8 +1016,7 @@ public class AutoScalerPolicy extends AbstractPolicy {
                         throw Throwables.propagate(t);
                     }
                 }},
-                delay,
-                TimeUnit.MILLISECONDS);
+                Duration.millis(delay));
         }
     }
 
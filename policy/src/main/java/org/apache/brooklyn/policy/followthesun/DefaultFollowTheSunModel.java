@@ -24,6 +24,7 @@ import java.io.ByteArrayOutputStream;
 import java.io.PrintStream;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.Map;
@@ -54,6 +55,15 @@ public class DefaultFollowTheSunModel<ContainerType, ItemType> implements Follow
     private final Map<ItemType, Location> itemToLocation = new ConcurrentHashMap<ItemType, Location>();
     private final Map<ItemType, Map<? extends ItemType, Double>> itemUsage = new ConcurrentHashMap<ItemType, Map<? extends ItemType,Double>>();
     private final Set<ItemType> immovableItems = Collections.newSetFromMap(new ConcurrentHashMap<ItemType, Boolean>());
+    
+    /*
+     * The usage received by each item, aggregated by the location of the sender, is maintained incrementally:
+     * it is recomputed for an item when its usage is updated, or when one of its senders changes location.
+     * sourceToTargets is the reverse of itemUsage, to find the items affected when a sender moves.
+     * Both are guarded by the itemUsage mutex, as are changes to item locations.
+     */
+    private final Map<ItemType, Map<Location, Double>> directSendsToItemByLocation = new LinkedHashMap<ItemType, Map<Location, Double>>();
+    private final Map<ItemType, Set<ItemType>> sourceToTargets = new HashMap<ItemType, Set<ItemType>>();
 
     public DefaultFollowTheSunModel(String name) {
         this.name = name;
@@ -107,32 +117,11 @@ public class DefaultFollowTheSunModel<ContainerType, ItemType> implements Follow
     }
     
     @Override
-    // FIXME Too expensive to compute; store in a different data structure?
     public Map<ItemType, Map<Location, Double>> getDirectSendsToItemByLocation() {
-        Map<ItemType, Map<Location, Double>> result = new LinkedHashMap<ItemType, Map<Location,Double>>(getNumItems());
-        
-        for (Map.Entry<ItemType, Map<? extends ItemType, Double>> entry : itemUsage.entrySet()) {
-            ItemType targetItem = entry.getKey();
-            Map<? extends ItemType, Double> sources = entry.getValue();
-            if (sources.isEmpty()) continue; // no-one talking to us
-            
-            Map<Location, Double> targetUsageByLocation = new LinkedHashMap<Location, Double>();
-            result.put(targetItem, targetUsageByLocation);
-
-            for (Map.Entry<? extends ItemType, Double> entry2 : sources.entrySet()) {
-                ItemType sourceItem = entry2.getKey();
-                Location sourceLocation = getItemLocation(sourceItem);
-                double usageVal = (entry.getValue() != null) ? entry2.getValue() : 0d;
-                if (sourceLocation == null) continue; // don't know where to attribute this load; e.g. item may have just terminated
-                if (sourceItem.equals(targetItem)) continue; // ignore msgs to self
-                
-                Double usageValTotal = targetUsageByLocation.get(sourceLocation);
-                double newUsageValTotal = (usageValTotal != null ? usageValTotal : 0d) + usageVal;
-                targetUsageByLocation.put(sourceLocation, newUsageValTotal);
-            }
+        synchronized (itemUsage) {
+            // values are never modified once published, so a shallow copy suffices
+            return new LinkedHashMap<ItemType, Map<Location, Double>>(directSendsToItemByLocation);
         }
-        
-        return result;
     }
     
     @Override
@@ -150,8 +139,8 @@ public class DefaultFollowTheSunModel<ContainerType, ItemType> implements Follow
         Location newLocation = (newContainer != null) ? containerToLocation.get(newContainer) : null;
         ContainerType newContainerNonNull = toNonNullContainer(newContainer);
         Location newLocationNonNull = toNonNullLocation(newLocation);
-        ContainerType oldContainer = itemToContainer.put(item, newContainerNonNull);
-        Location oldLocation = itemToLocation.put(item, newLocationNonNull);
+        itemToContainer.put(item, newContainerNonNull);
+        onItemLocationUpdated(item, newLocationNonNull);
     }
     
     @Override
@@ -160,7 +149,7 @@ public class DefaultFollowTheSunModel<ContainerType, ItemType> implements Follow
         containers.add(container);
         containerToLocation.put(container, locationNonNull);
         for (ItemType item : getItemsOnContainer(container)) {
-            itemToLocation.put(item, locationNonNull);
+            onItemLocationUpdated(item, locationNonNull);
         }
     }
     
@@ -181,7 +170,7 @@ public class DefaultFollowTheSunModel<ContainerType, ItemType> implements Follow
         Location locationNonNull = toNonNullLocation(location);
         containerToLocation.put(container, locationNonNull);
         for (ItemType item : getItemsOnContainer(container)) {
-            itemToLocation.put(item, locationNonNull);
+            onItemLocationUpdated(item, locationNonNull);
         }
     }
 
@@ -195,22 +184,37 @@ public class DefaultFollowTheSunModel<ContainerType, ItemType> implements Follow
         Location location = (container != null) ? containerToLocation.get(container) : null;
         ContainerType containerNonNull = toNonNullContainer(container);
         Location locationNonNull = toNonNullLocation(location);
-        ContainerType oldContainer = itemToContainer.put(item, containerNonNull);
-        Location oldLocation = itemToLocation.put(item, locationNonNull);
+        itemToContainer.put(item, containerNonNull);
+        onItemLocationUpdated(item, locationNonNull);
     }
     
     @Override
     public void onItemRemoved(ItemType item) {
         itemToContainer.remove(item);
-        itemToLocation.remove(item);
-        itemUsage.remove(item);
+        synchronized (itemUsage) {
+            itemToLocation.remove(item);
+            removeSources(item, itemUsage.remove(item));
+            directSendsToItemByLocation.remove(item);
+            recomputeTargetsOf(item);
+        }
         immovableItems.remove(item);
     }
     
     @Override
     public void onItemUsageUpdated(ItemType item, Map<? extends ItemType, Double> newValue) {
         if (hasItem(item)) {
-            itemUsage.put(item, newValue);
+            synchronized (itemUsage) {
+                removeSources(item, itemUsage.put(item, newValue));
+                for (ItemType source : newValue.keySet()) {
+                    Set<ItemType> targets = sourceToTargets.get(source);
+                    if (targets == null) {
+                        targets = new LinkedHashSet<ItemType>();
+                        sourceToTargets.put(source, targets);
+                    }
+                    targets.add(item);
+                }
+                recomputeDirectSendsTo(item);
+            }
         } else {
             // Can happen when item removed - get notification of removal and workrate from group and item
             // respectively, so can overtake each other
@@ -259,6 +263,60 @@ public class DefaultFollowTheSunModel<ContainerType, ItemType> implements Follow
         out.flush();
     }
     
+    private void onItemLocationUpdated(ItemType item, Location locationNonNull) {
+        synchronized (itemUsage) {
+            Location oldLocation = itemToLocation.put(item, locationNonNull);
+            if (!locationNonNull.equals(oldLocation)) {
+                recomputeTargetsOf(item);
+            }
+        }
+    }
+    
+    // Callers must hold the itemUsage mutex.
+    private void removeSources(ItemType target, Map<? extends ItemType, Double> oldUsage) {
+        if (oldUsage == null) return;
+        for (ItemType source : oldUsage.keySet()) {
+            Set<ItemType> targets = sourceToTargets.get(source);
+            if (targets != null) {
+                targets.remove(target);
+                if (targets.isEmpty()) sourceToTargets.remove(source);
+            }
+        }
+    }
+    
+    // Callers must hold the itemUsage mutex.
+    private void recomputeTargetsOf(ItemType source) {
+        Set<ItemType> targets = sourceToTargets.get(source);
+        if (targets == null) return;
+        for (ItemType target : targets) {
+            recomputeDirectSendsTo(target);
+        }
+    }
+    
+    // Callers must hold the itemUsage mutex.
+    private void recomputeDirectSendsTo(ItemType targetItem) {
+        Map<? extends ItemType, Double> sources = itemUsage.get(targetItem);
+        if (sources == null || sources.isEmpty()) {
+            // no-one talking to us
+            directSendsToItemByLocation.remove(targetItem);
+            return;
+        }
+        
+        Map<Location, Double> targetUsageByLocation = new LinkedHashMap<Location, Double>();
+        for (Map.Entry<? extends ItemType, Double> entry : sources.entrySet()) {
+            ItemType sourceItem = entry.getKey();
+            Location sourceLocation = getItemLocation(sourceItem);
+            double usageVal = (entry.getValue() != null) ? entry.getValue() : 0d;
+            if (sourceLocation == null) continue; // don't know where to attribute this load; e.g. item may have just terminated
+            if (sourceItem.equals(targetItem)) continue; // ignore msgs to self
+            
+            Double usageValTotal = targetUsageByLocation.get(sourceLocation);
+            double newUsageValTotal = (usageValTotal != null ? usageValTotal : 0d) + usageVal;
+            targetUsageByLocation.put(sourceLocation, newUsageValTotal);
+        }
+        directSendsToItemByLocation.put(targetItem, Collections.unmodifiableMap(targetUsageByLocation));
+    }
+    
     private boolean hasItem(ItemType item) {
         return itemToContainer.containsKey(item);
     }
@@ -287,10 +345,6 @@ public class DefaultFollowTheSunModel<ContainerType, ItemType> implements Follow
         return result;
     }
     
-    private int getNumItems() {
-        return itemToContainer.size();
-    }
-    
     @SuppressWarnings("unchecked")
     private ContainerType nullContainer() {
         return (ContainerType) NULL; // relies on erasure
@@ -23,33 +23,37 @@ import static org.apache.brooklyn.util.JavaGroovyEquivalents.elvis;
 import static org.apache.brooklyn.util.JavaGroovyEquivalents.groovyTruth;
 
 import java.util.Collection;
+import java.util.LinkedList;
+import java.util.List;
 import java.util.Map;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.ThreadFactory;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.Callable;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.apache.brooklyn.api.entity.Entity;
 import org.apache.brooklyn.api.entity.EntityLocal;
 import org.apache.brooklyn.api.location.Location;
 import org.apache.brooklyn.api.location.MachineProvisioningLocation;
+import org.apache.brooklyn.api.mgmt.Task;
 import org.apache.brooklyn.api.sensor.AttributeSensor;
 import org.apache.brooklyn.api.sensor.Sensor;
 import org.apache.brooklyn.api.sensor.SensorEvent;
 import org.apache.brooklyn.api.sensor.SensorEventListener;
 import org.apache.brooklyn.core.entity.Attributes;
 import org.apache.brooklyn.core.policy.AbstractPolicy;
+import org.apache.brooklyn.core.sensor.Sensors;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.apache.brooklyn.policy.followthesun.FollowTheSunPool.ContainerItemPair;
+import org.apache.brooklyn.policy.followthesun.FollowTheSunStrategy.Migration;
 import org.apache.brooklyn.policy.loadbalancing.Movable;
 import org.apache.brooklyn.util.collections.MutableMap;
 import org.apache.brooklyn.util.core.flags.SetFromFlag;
+import org.apache.brooklyn.util.core.task.Tasks;
+import org.apache.brooklyn.util.time.Duration;
 
 import com.google.common.base.Function;
+import com.google.common.base.Stopwatch;
 import com.google.common.collect.Iterables;
-import com.google.common.util.concurrent.ThreadFactoryBuilder;
 
     // removed from catalog because it cannot currently be configured via catalog mechanisms - 
     // PolicySpec.create fails due to no no-arg constructor
@@ -62,9 +66,22 @@ public class FollowTheSunPolicy extends AbstractPolicy {
 
     public static final String NAME = "Follow the Sun (Inter-Geography Latency Optimization)";
 
+    public static final AttributeSensor<Long> PLANNING_TIME = Sensors.newLongSensor("followTheSun.planning.time",
+            "Time taken (in milliseconds) to plan the most recent batch of migrations");
+    
+    public static final AttributeSensor<Integer> MIGRATION_COUNT = Sensors.newIntegerSensor("followTheSun.migration.count",
+            "Number of items successfully migrated in the most recent batch");
+    
+    public static final AttributeSensor<Double> MIGRATION_RATE = Sensors.newDoubleSensor("followTheSun.migration.rate",
+            "Migrations completed per second in the most recent batch");
+    
     @SetFromFlag(defaultVal="100")
     private long minPeriodBetweenExecs;
     
+    /** Maximum number of items migrated at the same time; with the default of 1, each batch is applied sequentially. */
+    @SetFromFlag(defaultVal="1")
+    private int maxConcurrentMigrations;
+    
     @SetFromFlag
     private Function<Entity, Location> locationFinder;
     
@@ -75,7 +92,6 @@ public class FollowTheSunPolicy extends AbstractPolicy {
     
     private FollowTheSunPool poolEntity;
     
-    private volatile ScheduledExecutorService executor;
     private final AtomicBoolean executorQueued = new AtomicBoolean(false);
     private volatile long executorTime = 0;
     private boolean loggedConstraintsIgnored = false;
@@ -134,9 +150,6 @@ public class FollowTheSunPolicy extends AbstractPolicy {
         this.parameters = parameters;
         this.strategy = new FollowTheSunStrategy<Entity, Movable>(model, parameters); // TODO: extract interface, inject impl
         this.locationFinder = elvis(locationFinder, defaultLocationFinder);
-        
-        // TODO Should re-use the execution manager's thread pool, somehow
-        executor = Executors.newSingleThreadScheduledExecutor(newThreadFactory());
     }
     
     @Override
@@ -167,30 +180,22 @@ public class FollowTheSunPolicy extends AbstractPolicy {
     public void suspend() {
         // TODO unsubscribe from everything? And resubscribe on resume?
         super.suspend();
-        if (executor != null) executor.shutdownNow();
         executorQueued.set(false);
     }
     
     @Override
     public void resume() {
         super.resume();
-        executor = Executors.newSingleThreadScheduledExecutor(newThreadFactory());
         executorTime = 0;
         executorQueued.set(false);
     }
     
-    private ThreadFactory newThreadFactory() {
-        return new ThreadFactoryBuilder()
-                .setNameFormat("brooklyn-followthesunpolicy-%d")
-                .build();
-    }
-
     private void scheduleLatencyReductionJig() {
         if (isRunning() && executorQueued.compareAndSet(false, true)) {
             long now = System.currentTimeMillis();
             long delay = Math.max(0, (executorTime + minPeriodBetweenExecs) - now);
             
-            executor.schedule(new Runnable() {
+            getScheduler().schedule("Follow-the-sun latency reduction", new Runnable() {
                 @Override
                 public void run() {
                     try {
@@ -198,7 +203,7 @@ public class FollowTheSunPolicy extends AbstractPolicy {
                         executorQueued.set(false);
                         
                         if (LOG.isTraceEnabled()) LOG.trace("{} executing follow-the-sun migration-strategy", this);
-                        strategy.rebalance();
+                        rebalance();
                         
                     } catch (RuntimeException e) {
                         if (isRunning()) {
@@ -208,9 +213,52 @@ public class FollowTheSunPolicy extends AbstractPolicy {
                         }
                     }
                 }},
-                delay,
-                TimeUnit.MILLISECONDS);
+                Duration.millis(delay));
+        }
+    }
+    
+    private void rebalance() {
+        Stopwatch stopwatch = Stopwatch.createStarted();
+        List<Migration<Entity, Movable>> migrations = strategy.planMigrations();
+        long planningTime = Duration.of(stopwatch).toMilliseconds();
+        if (migrations.isEmpty()) {
+            entity.sensors().set(PLANNING_TIME, planningTime);
+            return;
+        }
+        
+        stopwatch.reset().start();
+        int migrated = 0;
+        if (maxConcurrentMigrations <= 1) {
+            for (Migration<Entity, Movable> migration : migrations) {
+                if (strategy.migrate(migration)) migrated++;
+            }
+        } else {
+            // keep at most maxConcurrentMigrations in progress, waiting for the oldest before starting another
+            LinkedList<Task<Boolean>> inProgress = new LinkedList<Task<Boolean>>();
+            for (final Migration<Entity, Movable> migration : migrations) {
+                if (inProgress.size() >= maxConcurrentMigrations) {
+                    if (inProgress.removeFirst().getUnchecked()) migrated++;
+                }
+                inProgress.add(getExecutionContext().submit(Tasks.<Boolean>builder()
+                        .displayName("Follow-the-sun migration of "+migration.getItem())
+                        .body(new Callable<Boolean>() {
+                            @Override
+                            public Boolean call() {
+                                return strategy.migrate(migration);
+                            }})
+                        .build()));
+            }
+            for (Task<Boolean> task : inProgress) {
+                if (task.getUnchecked()) migrated++;
+            }
         }
+        Duration migrationTime = Duration.of(stopwatch);
+        
+        if (LOG.isDebugEnabled()) LOG.debug("{} migrated {} of {} items in {} (planned in {}ms)", 
+                new Object[] {this, migrated, migrations.size(), migrationTime, planningTime});
+        entity.sensors().set(PLANNING_TIME, planningTime);
+        entity.sensors().set(MIGRATION_COUNT, migrated);
+        entity.sensors().set(MIGRATION_RATE, migrated * 1000d / Math.max(1, migrationTime.toMilliseconds()));
     }
     
     private void onContainerAdded(Entity container, boolean rebalanceNow) {
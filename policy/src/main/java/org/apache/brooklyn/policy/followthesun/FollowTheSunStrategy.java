@@ -21,6 +21,7 @@ package org.apache.brooklyn.policy.followthesun;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -32,6 +33,7 @@ import org.slf4j.LoggerFactory;
 
 import org.apache.brooklyn.policy.loadbalancing.Movable;
 
+import com.google.common.base.MoreObjects;
 import com.google.common.collect.Iterables;
 
 // TODO: extract interface
@@ -53,7 +55,52 @@ public class FollowTheSunStrategy<ContainerType extends Entity, ItemType extends
         this.name = model.getName();
     }
     
+    /**
+     * A planned move of an item to a container in the location generating most of its usage.
+     */
+    public static class Migration<ContainerType, ItemType> {
+        private final ItemType item;
+        private final ContainerType targetContainer;
+        private final Location targetLocation;
+        private final double benefit;
+        
+        public Migration(ItemType item, ContainerType targetContainer, Location targetLocation, double benefit) {
+            this.item = item;
+            this.targetContainer = targetContainer;
+            this.targetLocation = targetLocation;
+            this.benefit = benefit;
+        }
+        
+        public ItemType getItem() { return item; }
+        public ContainerType getTargetContainer() { return targetContainer; }
+        public Location getTargetLocation() { return targetLocation; }
+        /** msgs/sec that would become local to the item by this move */
+        public double getBenefit() { return benefit; }
+        
+        @Override
+        public String toString() {
+            return MoreObjects.toStringHelper(this).add("item", item).add("target", targetContainer).add("benefit", benefit).toString();
+        }
+    }
+    
+    /**
+     * Plans and applies all migrations, one at a time.
+     * 
+     * @see #planMigrations()
+     * @see #migrate(Migration)
+     */
     public void rebalance() {
+        for (Migration<ContainerType, ItemType> migration : planMigrations()) {
+            migrate(migration);
+        }
+    }
+    
+    /**
+     * Plans the migrations for all items, against a single snapshot of the model; the moves 
+     * are returned most beneficial first, and are not applied.
+     */
+    public List<Migration<ContainerType, ItemType>> planMigrations() {
+        List<Migration<ContainerType, ItemType>> result = new ArrayList<Migration<ContainerType, ItemType>>();
         try {
             Set<ItemType> items = model.getItems();
             Map<ItemType, Map<Location, Double>> directSendsToItemByLocation = model.getDirectSendsToItemByLocation();
@@ -128,17 +175,12 @@ public class FollowTheSunStrategy<ContainerType extends Entity, ItemType extends
                 }
                 
                 if (parameters.isTriggered(highestMsgRate, total, nextHighestMsgRate, current)) {
-                    LOG.info("POLICY "+name+" detected "+itemName+" should be in location "+highestLocation+" on "+optimalContainerInHighest+" ("+highestMsgRate+" of "+total+" msgs/sec), migrating");
-                    try {
-                        if (activeContainer.equals(optimalContainerInHighest)) {
-                            //shouldn't happen
-                            LOG.warn("POLICY "+name+" detected "+itemName+" should move to "+optimalContainerInHighest+" ("+highestMsgRate+" of "+total+" msgs/sec) but it is already there with "+current+" msgs/sec");
-                        } else {
-                            item.move(optimalContainerInHighest);
-                            model.onItemMoved(item, optimalContainerInHighest);
-                        }
-                    } catch (Exception e) {
-                        LOG.warn("POLICY "+name+" detected "+itemName+" should be on "+optimalContainerInHighest+", but can't move it: "+e, e);
+                    if (optimalContainerInHighest.equals(activeContainer)) {
+                        //shouldn't happen
+                        LOG.warn("POLICY "+name+" detected "+itemName+" should move to "+optimalContainerInHighest+" ("+highestMsgRate+" of "+total+" msgs/sec) but it is already there with "+current+" msgs/sec");
+                    } else {
+                        LOG.info("POLICY "+name+" detected "+itemName+" should be in location "+highestLocation+" on "+optimalContainerInHighest+" ("+highestMsgRate+" of "+total+" msgs/sec), migrating");
+                        result.add(new Migration<ContainerType, ItemType>(item, optimalContainerInHighest, highestLocation, highestMsgRate - current));
                     }
                 } else {
                     if (LOG.isTraceEnabled()) LOG.trace("POLICY "+name+" detected "+itemName+" need not move to "+optimalContainerInHighest+" ("+highestMsgRate+" of "+total+" msgs/sec not much better than "+current+" at "+activeContainer+")");
@@ -147,6 +189,31 @@ public class FollowTheSunStrategy<ContainerType extends Entity, ItemType extends
         } catch (Exception e) {
             LOG.warn("Error in policy "+name+" (ignoring): "+e, e);
         }
+        Collections.sort(result, new Comparator<Migration<ContainerType, ItemType>>() {
+            @Override
+            public int compare(Migration<ContainerType, ItemType> o1, Migration<ContainerType, ItemType> o2) {
+                return Double.compare(o2.getBenefit(), o1.getBenefit());
+            }
+        });
+        return result;
+    }
+    
+    /**
+     * Moves the item and records the move in the model; errors are logged rather than thrown.
+     * 
+     * @return whether the item was moved
+     */
+    public boolean migrate(Migration<ContainerType, ItemType> migration) {
+        ItemType item = migration.getItem();
+        ContainerType targetContainer = migration.getTargetContainer();
+        try {
+            item.move(targetContainer);
+            model.onItemMoved(item, targetContainer);
+            return true;
+        } catch (Exception e) {
+            LOG.warn("POLICY "+name+" detected "+model.getName(item)+" should be on "+targetContainer+", but can't move it: "+e, e);
+            return false;
+        }
     }
 
     private ContainerType findOptimal(Collection<ContainerType> contenders) {
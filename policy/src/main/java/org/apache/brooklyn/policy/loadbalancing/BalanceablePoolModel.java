@@ -53,6 +53,66 @@ public interface BalanceablePoolModel<ContainerType, ItemType> {
     public boolean isItemMoveable(ItemType item);
     public boolean isItemAllowedIn(ItemType item, Location location);
     
+    /**
+     * Identifies the container with the maximum spare capacity (highThreshold - currentWorkrate),
+     * returns null if none of the model's nodes (other than those excluded) has spare capacity.
+     * <p>
+     * This default scans all containers; implementations are encouraged to keep an index.
+     */
+    public default ContainerType findColdestContainer(Set<ContainerType> excludedContainers, LocationConstraint locationConstraint) {
+        double maxSpareCapacity = 0;
+        ContainerType coldest = null;
+        
+        for (ContainerType c : getPoolContents()) {
+            if (excludedContainers.contains(c))
+                continue;
+            if (locationConstraint != null && !locationConstraint.isPermitted(getLocation(c)))
+                continue;
+            
+            double highThreshold = getHighThreshold(c);
+            double totalWorkrate = getTotalWorkrate(c);
+            double spareCapacity = highThreshold - totalWorkrate;
+            
+            if (highThreshold == -1 || totalWorkrate == -1) {
+                continue; // container presumably has been removed
+            }
+            if (spareCapacity > maxSpareCapacity) {
+                maxSpareCapacity = spareCapacity;
+                coldest = c;
+            }
+        }
+        return coldest;
+    }
+    
+    /**
+     * Identifies the container with the maximum overshoot (currentWorkrate - highThreshold),
+     * returns null if none of the model's nodes (other than those excluded) has an overshoot.
+     * <p>
+     * This default scans all containers; implementations are encouraged to keep an index.
+     */
+    public default ContainerType findHottestContainer(Set<ContainerType> excludedContainers) {
+        double maxOvershoot = 0;
+        ContainerType hottest = null;
+        
+        for (ContainerType c : getPoolContents()) {
+            if (excludedContainers.contains(c))
+                continue;
+            
+            double totalWorkrate = getTotalWorkrate(c);
+            double highThreshold = getHighThreshold(c);
+            double overshoot = totalWorkrate - highThreshold;
+            
+            if (highThreshold == -1 || totalWorkrate == -1) {
+                continue; // container presumably has been removed
+            }
+            if (overshoot > maxOvershoot) {
+                maxOvershoot = overshoot;
+                hottest = c;
+            }
+        }
+        return hottest;
+    }
+    
     // Mutators for keeping the model in-sync with the observed world
     public void onContainerAdded(ContainerType newContainer, double lowThreshold, double highThreshold);
     public void onContainerRemoved(ContainerType oldContainer);
@@ -21,9 +21,13 @@ package org.apache.brooklyn.policy.loadbalancing;
 import java.io.ByteArrayOutputStream;
 import java.io.PrintStream;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.NavigableSet;
 import java.util.Set;
+import java.util.TreeSet;
 import java.util.concurrent.ConcurrentHashMap;
 
 import org.slf4j.Logger;
@@ -53,6 +57,12 @@ public class DefaultBalanceablePoolModel<ContainerType, ItemType> implements Bal
      *  - Unfortunately changing threading model (so have a "rebalancer" thread, and a thread that 
      *    processes events to update the model), get ConcurrentModificationException if don't take
      *    copy of containerToItems.get(node)...
+     *  - With many containers, the strategy's search for the hottest/coldest container (each step summing the 
+     *    workrates of that container's items) dominated. Hence container totals are maintained incrementally 
+     *    as items move and workrates change, and pool containers are kept ordered by spare capacity; 
+     *    see findColdestContainer and findHottestContainer. Both are guarded by the containerToItems mutex.
+     *    Ties between containers with equal spare capacity go to the container added first (previously the 
+     *    first found in the pool's hash-ordered set, which was not stable).
      */
     
     // Concurrent maps cannot have null value; use this to represent when no container is supplied for an item 
@@ -67,6 +77,13 @@ public class DefaultBalanceablePoolModel<ContainerType, ItemType> implements Bal
     private final Map<ItemType, Double> itemToWorkrate = new ConcurrentHashMap<ItemType, Double>();
     private final Set<ItemType> immovableItems = Collections.newSetFromMap(new ConcurrentHashMap<ItemType, Boolean>());
     
+    // Sum of absolute item workrates, for each container that has items; guarded by containerToItems
+    private final Map<ContainerType, Double> containerToWorkrate = new HashMap<ContainerType, Double>();
+    // Pool containers ordered by spare capacity (highThreshold - totalWorkrate); guarded by containerToItems
+    private final NavigableSet<SpareCapacityEntry<ContainerType>> spareCapacityIndex = new TreeSet<SpareCapacityEntry<ContainerType>>();
+    private final Map<ContainerType, SpareCapacityEntry<ContainerType>> containerToSpareCapacityEntry = new HashMap<ContainerType, SpareCapacityEntry<ContainerType>>();
+    private long nextSpareCapacitySequence = 0;
+    
     private volatile double poolLowThreshold = 0;
     private volatile double poolHighThreshold = 0;
     private volatile double currentPoolWorkrate = 0;
@@ -117,13 +134,10 @@ public class DefaultBalanceablePoolModel<ContainerType, ItemType> implements Bal
     }
     
     @Override public double getTotalWorkrate(ContainerType container) {
-        double totalWorkrate = 0;
-        for (ItemType item : getItemsForContainer(container)) {
-            Double workrate = itemToWorkrate.get(item);
-            if (workrate != null)
-                totalWorkrate += Math.abs(workrate);
+        synchronized (containerToItems) {
+            Double result = containerToWorkrate.get(container);
+            return (result != null) ? result : 0;
         }
-        return totalWorkrate;
     }
     
     @Override public Map<ContainerType, Double> getContainerWorkrates() {
@@ -149,6 +163,44 @@ public class DefaultBalanceablePoolModel<ContainerType, ItemType> implements Bal
         return true; // TODO?
     }
     
+    /**
+     * As {@link BalanceablePoolModel#findColdestContainer(Set, LocationConstraint)}; of containers with equal spare capacity,
+     * returns the one added to the pool first (as does {@link #findHottestContainer(Set)}).
+     */
+    @Override
+    public ContainerType findColdestContainer(Set<ContainerType> excludedContainers, LocationConstraint locationConstraint) {
+        synchronized (containerToItems) {
+            SpareCapacityEntry<ContainerType> band = spareCapacityIndex.isEmpty() ? null : spareCapacityIndex.last();
+            while (band != null && band.spareCapacity > 0) {
+                // containers with this spare capacity, in the order they were added
+                SpareCapacityEntry<ContainerType> bandStart = SpareCapacityEntry.first(band.spareCapacity);
+                for (SpareCapacityEntry<ContainerType> entry : spareCapacityIndex.subSet(bandStart, true, band, true)) {
+                    if (excludedContainers.contains(entry.container)) continue;
+                    if (locationConstraint != null && !locationConstraint.isPermitted(getLocation(entry.container))) continue;
+                    return entry.container;
+                }
+                band = spareCapacityIndex.lower(bandStart);
+            }
+            return null;
+        }
+    }
+    
+    /**
+     * As {@link BalanceablePoolModel#findHottestContainer(Set)}; of containers with equal overshoot,
+     * returns the one added to the pool first.
+     */
+    @Override
+    public ContainerType findHottestContainer(Set<ContainerType> excludedContainers) {
+        synchronized (containerToItems) {
+            for (SpareCapacityEntry<ContainerType> entry : spareCapacityIndex) {
+                if (entry.spareCapacity >= 0) break;
+                if (excludedContainers.contains(entry.container)) continue;
+                return entry.container;
+            }
+            return null;
+        }
+    }
+    
     
     // Mutators.
     
@@ -162,9 +214,11 @@ public class DefaultBalanceablePoolModel<ContainerType, ItemType> implements Bal
             return;
         }
         ContainerType newNodeNonNull = toNonNullContainer(newNode);
-        ContainerType oldNode = itemToContainer.put(item, newNodeNonNull);
-        if (oldNode != null && oldNode != NULL_CONTAINER) containerToItems.remove(oldNode, item);
-        if (newNode != null) containerToItems.put(newNode, item);
+        synchronized (containerToItems) {
+            ContainerType oldNode = itemToContainer.put(item, newNodeNonNull);
+            if (oldNode != null && oldNode != NULL_CONTAINER) removeItemFromContainer(item, oldNode);
+            if (newNode != null) addItemToContainer(item, newNode);
+        }
     }
     
     @Override
@@ -179,6 +233,9 @@ public class DefaultBalanceablePoolModel<ContainerType, ItemType> implements Bal
         containerToHighThreshold.put(newContainer, highThreshold);
         poolLowThreshold += lowThreshold;
         poolHighThreshold += highThreshold;
+        synchronized (containerToItems) {
+            updateSpareCapacityIndex(newContainer);
+        }
     }
     
     @Override
@@ -188,6 +245,10 @@ public class DefaultBalanceablePoolModel<ContainerType, ItemType> implements Bal
         Double containerHighThresold = containerToHighThreshold.remove(oldContainer);
         poolLowThreshold -= (containerLowThreshold != null ? containerLowThreshold : 0);
         poolHighThreshold -= (containerHighThresold != null ? containerHighThresold : 0);
+        synchronized (containerToItems) {
+            SpareCapacityEntry<ContainerType> entry = containerToSpareCapacityEntry.remove(oldContainer);
+            if (entry != null) spareCapacityIndex.remove(entry);
+        }
         
         // TODO: assert no orphaned items
     }
@@ -206,36 +267,107 @@ public class DefaultBalanceablePoolModel<ContainerType, ItemType> implements Bal
             immovableItems.add(item);
         
         ContainerType parentContainerNonNull = toNonNullContainer(parentContainer);
-        ContainerType oldNode = itemToContainer.put(item, parentContainerNonNull);
-        if (oldNode != null && oldNode != NULL_CONTAINER) containerToItems.remove(oldNode, item);
-        if (parentContainer != null) containerToItems.put(parentContainer, item);
+        synchronized (containerToItems) {
+            ContainerType oldNode = itemToContainer.put(item, parentContainerNonNull);
+            if (oldNode != null && oldNode != NULL_CONTAINER) removeItemFromContainer(item, oldNode);
+            if (parentContainer != null) addItemToContainer(item, parentContainer);
+        }
     }
     
     @Override
     public void onItemRemoved(ItemType item) {
-        ContainerType oldNode = itemToContainer.remove(item);
-        if (oldNode != null && oldNode != NULL_CONTAINER) containerToItems.remove(oldNode, item);
-        Double workrate = itemToWorkrate.remove(item);
-        if (workrate != null)
-            currentPoolWorkrate -= workrate;
+        synchronized (containerToItems) {
+            ContainerType oldNode = itemToContainer.remove(item);
+            if (oldNode != null && oldNode != NULL_CONTAINER) removeItemFromContainer(item, oldNode);
+            Double workrate = itemToWorkrate.remove(item);
+            if (workrate != null)
+                currentPoolWorkrate -= workrate;
+        }
         immovableItems.remove(item);
     }
     
     @Override
     public void onItemWorkrateUpdated(ItemType item, double newValue) {
-        if (hasItem(item)) {
-            Double oldValue = itemToWorkrate.put(item, newValue);
-            double delta = ( newValue - (oldValue != null ? oldValue : 0) );
-            currentPoolWorkrate += delta;
+        synchronized (containerToItems) {
+            ContainerType container = itemToContainer.get(item);
+            if (container != null) {
+                Double oldValue = itemToWorkrate.put(item, newValue);
+                double delta = ( newValue - (oldValue != null ? oldValue : 0) );
+                currentPoolWorkrate += delta;
+                if (container != NULL_CONTAINER) {
+                    adjustContainerWorkrate(container, Math.abs(newValue) - (oldValue != null ? Math.abs(oldValue) : 0));
+                }
+                return;
+            }
+        }
+        // Can happen when item removed - get notification of removal and workrate from group and item
+        // respectively, so can overtake each other
+        if (LOG.isDebugEnabled()) LOG.debug("Ignoring setting of workrate for unknown item {}, to {}", item, newValue);
+    }
+    
+    // Incrementally maintained totals; callers must hold the containerToItems mutex.
+    
+    private void addItemToContainer(ItemType item, ContainerType container) {
+        if (containerToItems.put(container, item)) {
+            Double workrate = itemToWorkrate.get(item);
+            if (workrate != null) adjustContainerWorkrate(container, Math.abs(workrate));
+        }
+    }
+    
+    private void removeItemFromContainer(ItemType item, ContainerType container) {
+        if (containerToItems.remove(container, item)) {
+            Double workrate = itemToWorkrate.get(item);
+            if (workrate != null) adjustContainerWorkrate(container, -Math.abs(workrate));
+        }
+    }
+    
+    private void adjustContainerWorkrate(ContainerType container, double delta) {
+        if (containerToItems.containsKey(container)) {
+            Double oldTotal = containerToWorkrate.get(container);
+            containerToWorkrate.put(container, (oldTotal != null ? oldTotal : 0) + delta);
         } else {
-            // Can happen when item removed - get notification of removal and workrate from group and item
-            // respectively, so can overtake each other
-            if (LOG.isDebugEnabled()) LOG.debug("Ignoring setting of workrate for unknown item {}, to {}", item, newValue);
+            // reset when empty, so that rounding errors do not accumulate
+            containerToWorkrate.remove(container);
+        }
+        updateSpareCapacityIndex(container);
+    }
+    
+    private void updateSpareCapacityIndex(ContainerType container) {
+        SpareCapacityEntry<ContainerType> oldEntry = containerToSpareCapacityEntry.get(container);
+        if (oldEntry != null) {
+            spareCapacityIndex.remove(oldEntry);
+        } else if (!containers.contains(container)) {
+            return;
         }
+        long sequence = (oldEntry != null) ? oldEntry.sequence : nextSpareCapacitySequence++;
+        SpareCapacityEntry<ContainerType> entry = new SpareCapacityEntry<ContainerType>(container, sequence, 
+                getHighThreshold(container) - getTotalWorkrate(container));
+        containerToSpareCapacityEntry.put(container, entry);
+        spareCapacityIndex.add(entry);
     }
     
-    private boolean hasItem(ItemType item) {
-        return itemToContainer.containsKey(item);
+    /** Ordered by spare capacity, then by when the container was added to the pool. */
+    private static class SpareCapacityEntry<ContainerType> implements Comparable<SpareCapacityEntry<ContainerType>> {
+        final ContainerType container;
+        final long sequence;
+        final double spareCapacity;
+        
+        SpareCapacityEntry(ContainerType container, long sequence, double spareCapacity) {
+            this.container = container;
+            this.sequence = sequence;
+            this.spareCapacity = spareCapacity;
+        }
+        
+        /** Sorts before any container's entry with the given spare capacity. */
+        static <ContainerType> SpareCapacityEntry<ContainerType> first(double spareCapacity) {
+            return new SpareCapacityEntry<ContainerType>(null, Long.MIN_VALUE, spareCapacity);
+        }
+        
+        @Override
+        public int compareTo(SpareCapacityEntry<ContainerType> o) {
+            int result = Double.compare(spareCapacity, o.spareCapacity);
+            return (result != 0) ? result : Long.compare(sequence, o.sequence);
+        }
     }
     
     
@@ -22,10 +22,6 @@ import static org.apache.brooklyn.util.JavaGroovyEquivalents.elvis;
 import static org.apache.brooklyn.util.JavaGroovyEquivalents.groovyTruth;
 
 import java.util.Map;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.ThreadFactory;
-import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.apache.brooklyn.api.entity.Entity;
@@ -42,10 +38,10 @@ import org.apache.brooklyn.policy.autoscaling.AutoScalerPolicy;
 import org.apache.brooklyn.util.collections.MutableMap;
 import org.apache.brooklyn.util.core.flags.SetFromFlag;
 import org.apache.brooklyn.util.exceptions.Exceptions;
+import org.apache.brooklyn.util.time.Duration;
 
 import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableMap;
-import com.google.common.util.concurrent.ThreadFactoryBuilder;
 
 
 /**
@@ -84,7 +80,6 @@ public class LoadBalancingPolicy<NodeType extends Entity, ItemType extends Movab
     private final BalancingStrategy<NodeType, ItemType> strategy;
     private BalanceableWorkerPool poolEntity;
     
-    private volatile ScheduledExecutorService executor;
     private final AtomicBoolean executorQueued = new AtomicBoolean(false);
     private volatile long executorTime = 0;
 
@@ -138,9 +133,6 @@ public class LoadBalancingPolicy<NodeType extends Entity, ItemType extends Movab
         this.highThresholdConfigKeyName = metric.getName()+".threshold.high";
         this.model = model;
         this.strategy = new BalancingStrategy(getDisplayName(), model); // TODO: extract interface, inject impl
-        
-        // TODO Should re-use the execution manager's thread pool, somehow
-        executor = Executors.newSingleThreadScheduledExecutor(newThreadFactory());
     }
     
     @SuppressWarnings("unchecked")
@@ -172,30 +164,22 @@ public class LoadBalancingPolicy<NodeType extends Entity, ItemType extends Movab
     public void suspend() {
         // TODO unsubscribe from everything? And resubscribe on resume?
         super.suspend();
-        if (executor != null) executor.shutdownNow();;
         executorQueued.set(false);
     }
     
     @Override
     public void resume() {
         super.resume();
-        executor = Executors.newSingleThreadScheduledExecutor(newThreadFactory());
         executorTime = 0;
         executorQueued.set(false);
     }
     
-    private ThreadFactory newThreadFactory() {
-        return new ThreadFactoryBuilder()
-                .setNameFormat("brooklyn-followthesunpolicy-%d")
-                .build();
-    }
-
     private void scheduleRebalance() {
         if (isRunning() && executorQueued.compareAndSet(false, true)) {
             long now = System.currentTimeMillis();
             long delay = Math.max(0, (executorTime + minPeriodBetweenExecs) - now);
             
-            executor.schedule(new Runnable() {
+            getScheduler().schedule("Load balancing rebalance", new Runnable() {
                 @Override
                 public void run() {
                     runWithRetries(3);
@@ -264,8 +248,7 @@ public class LoadBalancingPolicy<NodeType extends Entity, ItemType extends Movab
                         }
                     }
                 }},
-                delay,
-                TimeUnit.MILLISECONDS);
+                Duration.millis(delay));
         }
     }
     
@@ -59,7 +59,7 @@ public class PeriodicEffectorPolicyTest extends AbstractEffectorPolicyTest {
         assertCallHistoryEventually(entity, "myEffector", 2);
         
         app.stop();
-        Asserts.assertTrue( ((PeriodicEffectorPolicy)policy).getExecutor().isShutdown(), "Executor should have been shut down");
+        Asserts.assertTrue( ((PeriodicEffectorPolicy)policy).getScheduler().isClosed(), "Scheduler should have been closed");
     }
 
     // Integration because of long wait
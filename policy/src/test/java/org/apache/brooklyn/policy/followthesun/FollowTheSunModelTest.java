@@ -198,4 +198,26 @@ public class FollowTheSunModelTest extends BrooklynAppUnitTestSupport {
         
         assertFalse(model.getDirectSendsToItemByLocation().containsKey(item1));
     }
+    
+    @Test
+    public void testItemUsageUpdatedWhenSenderRemovedOrUsageReplaced() throws Exception {
+        model.onContainerAdded(container1, loc1);
+        model.onContainerAdded(container2, loc2);
+        model.onItemAdded(item1, container1, false);
+        model.onItemAdded(item2, container2, false);
+        model.onItemAdded(item3, container1, false);
+        model.onItemUsageUpdated(item1, ImmutableMap.of(item2, 12d, item3, 13d));
+        
+        model.onItemRemoved(item2);
+        assertEquals(model.getDirectSendsToItemByLocation(),
+                ImmutableMap.of(item1, ImmutableMap.of(loc1, 13d)));
+        
+        model.onItemUsageUpdated(item1, ImmutableMap.of(item3, 5d));
+        model.onContainerLocationUpdated(container1, loc2);
+        assertEquals(model.getDirectSendsToItemByLocation(),
+                ImmutableMap.of(item1, ImmutableMap.of(loc2, 5d)));
+        
+        model.onItemRemoved(item1);
+        assertEquals(model.getDirectSendsToItemByLocation(), ImmutableMap.of());
+    }
 }
@@ -32,6 +32,7 @@ import org.apache.brooklyn.api.location.Location;
 import org.apache.brooklyn.api.sensor.SensorEvent;
 import org.apache.brooklyn.api.sensor.SensorEventListener;
 import org.apache.brooklyn.core.entity.Entities;
+import org.apache.brooklyn.core.entity.EntityAsserts;
 import org.apache.brooklyn.core.location.SimulatedLocation;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -120,6 +121,33 @@ public class FollowTheSunPolicyTest extends AbstractFollowTheSunPolicyTest {
         assertItemDistributionEventually(ImmutableMap.of(containerA, ImmutableList.<MockItemEntity>of(), containerB, ImmutableList.of(item1, item2)));
     }
     
+    @Test
+    public void testMovesItemsConcurrentlyAndPublishesMetrics() throws Exception {
+        pool.policies().remove(policy);
+        
+        MockContainerEntity containerA = newContainer(app, loc1, "A");
+        MockContainerEntity containerB = newContainer(app, loc2, "B");
+        MockItemEntity item1 = newItem(app, containerA, "1");
+        MockItemEntity item2 = newItem(app, containerA, "2");
+        MockItemEntity item3 = newItem(app, containerA, "3");
+        MockItemEntity item4 = newItem(app, containerB, "4");
+        
+        policy = new FollowTheSunPolicy(
+                MutableMap.of("maxConcurrentMigrations", 2),
+                MockItemEntity.ITEM_USAGE_METRIC,
+                model,
+                FollowTheSunParameters.newDefault());
+        pool.policies().add(policy);
+        
+        for (MockItemEntity item : ImmutableList.of(item1, item2, item3)) {
+            item.sensors().set(MockItemEntity.ITEM_USAGE_METRIC, ImmutableMap.<Entity,Double>of(item4, 100d));
+        }
+        
+        assertItemDistributionEventually(ImmutableMap.of(containerA, ImmutableList.<MockItemEntity>of(), containerB, ImmutableList.of(item1, item2, item3, item4)));
+        EntityAsserts.assertAttributeEventuallyNonNull(pool, FollowTheSunPolicy.PLANNING_TIME);
+        EntityAsserts.assertAttributeEventuallyNonNull(pool, FollowTheSunPolicy.MIGRATION_RATE);
+    }
+    
     @Test
     public void testNoopIfDemandIsTiny() throws Exception {
         // Set-up containers and items.
@@ -0,0 +1,87 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.brooklyn.policy.loadbalancing;
+
+import java.util.Random;
+import java.util.Set;
+
+import org.apache.brooklyn.core.test.qa.performance.AbstractPerformanceTest;
+import org.apache.brooklyn.test.performance.PerformanceTestDescriptor;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.google.common.collect.ImmutableSet;
+
+/**
+ * Drives {@link DefaultBalanceablePoolModel} with many containers and items, to check that workrate
+ * updates and the strategy's lookups of hottest/coldest containers do not grow with the pool size.
+ */
+public class LoadBalancingModelPerformanceTest extends AbstractPerformanceTest {
+
+    private static final int NUM_CONTAINERS = 500;
+    private static final int NUM_ITEMS = 20000;
+    private static final int NUM_ITERATIONS = 100000;
+    
+    private DefaultBalanceablePoolModel<String, String> model;
+    private Random random;
+    
+    @BeforeMethod(alwaysRun=true)
+    @Override
+    public void setUp() throws Exception {
+        super.setUp();
+        random = new Random(0);
+        model = new DefaultBalanceablePoolModel<String, String>("perf");
+        for (int i = 0; i < NUM_CONTAINERS; i++) {
+            model.onContainerAdded("container-"+i, 100d, 200d);
+        }
+        for (int i = 0; i < NUM_ITEMS; i++) {
+            model.onItemAdded("item-"+i, "container-"+random.nextInt(NUM_CONTAINERS));
+            model.onItemWorkrateUpdated("item-"+i, random.nextInt(10));
+        }
+    }
+    
+    @Test(groups={"Integration", "Acceptance"})
+    public void testWorkrateUpdates() {
+        measure(PerformanceTestDescriptor.create()
+                .summary("LoadBalancingModelPerformanceTest.testWorkrateUpdates")
+                .iterations(NUM_ITERATIONS)
+                .minAcceptablePerSecond(100000 * PERFORMANCE_EXPECTATION)
+                .job(new Runnable() {
+                    @Override public void run() {
+                        model.onItemWorkrateUpdated("item-"+random.nextInt(NUM_ITEMS), random.nextInt(10));
+                    }}));
+    }
+    
+    @Test(groups={"Integration", "Acceptance"})
+    public void testItemMovesWithHottestAndColdestLookups() {
+        final Set<String> excluded = ImmutableSet.of("container-0");
+        measure(PerformanceTestDescriptor.create()
+                .summary("LoadBalancingModelPerformanceTest.testItemMovesWithHottestAndColdestLookups")
+                .iterations(NUM_ITERATIONS)
+                .minAcceptablePerSecond(50000 * PERFORMANCE_EXPECTATION)
+                .job(new Runnable() {
+                    @Override public void run() {
+                        String hottest = model.findHottestContainer(excluded);
+                        String coldest = model.findColdestContainer(excluded, null);
+                        model.getTotalWorkrate(hottest != null ? hottest : "container-1");
+                        String item = "item-"+random.nextInt(NUM_ITEMS);
+                        model.onItemMoved(item, coldest != null ? coldest : "container-"+random.nextInt(NUM_CONTAINERS));
+                    }}));
+    }
+}
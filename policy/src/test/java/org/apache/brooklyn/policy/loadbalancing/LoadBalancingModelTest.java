@@ -114,4 +114,91 @@ public class LoadBalancingModelTest extends BrooklynAppUnitTestSupport {
         assertEquals(model.getContainerWorkrates(), ImmutableMap.of(container1, 0d, container2, 123d));
         assertEquals(model.getCurrentPoolWorkrate(), 123d);
     }
+    
+    @Test
+    public void testContainerWorkratesTrackItemChanges() throws Exception {
+        model.onContainerAdded(container1, 10d, 20d);
+        model.onContainerAdded(container2, 11d, 21d);
+        model.onItemAdded(item1, container1, false);
+        model.onItemAdded(item2, container1, false);
+        model.onItemWorkrateUpdated(item1, 5d);
+        model.onItemWorkrateUpdated(item2, -3d);
+        assertEquals(model.getTotalWorkrate(container1), 5d+3d, PRECISION);
+        
+        model.onItemWorkrateUpdated(item2, 7d);
+        assertEquals(model.getTotalWorkrate(container1), 5d+7d, PRECISION);
+        
+        model.onItemMoved(item2, container2);
+        assertEquals(model.getTotalWorkrate(container1), 5d, PRECISION);
+        assertEquals(model.getTotalWorkrate(container2), 7d, PRECISION);
+        
+        model.onItemRemoved(item1);
+        assertEquals(model.getTotalWorkrate(container1), 0d);
+        assertEquals(model.getTotalWorkrate(container2), 7d, PRECISION);
+        
+        // workrate received before the item's container is known
+        model.onItemAdded(item3, null, false);
+        model.onItemWorkrateUpdated(item3, 4d);
+        model.onItemMoved(item3, container1);
+        assertEquals(model.getTotalWorkrate(container1), 4d, PRECISION);
+    }
+    
+    @Test
+    public void testFindsColdestAndHottestContainers() throws Exception {
+        model.onContainerAdded(container1, 10d, 20d);
+        model.onContainerAdded(container2, 10d, 20d);
+        model.onItemAdded(item1, container1, false);
+        model.onItemAdded(item2, container2, false);
+        model.onItemWorkrateUpdated(item1, 5d);
+        model.onItemWorkrateUpdated(item2, 15d);
+        
+        assertEquals(model.findColdestContainer(ImmutableSet.<MockContainerEntity>of(), null), container1);
+        assertEquals(model.findColdestContainer(ImmutableSet.of(container1), null), container2);
+        assertEquals(model.findHottestContainer(ImmutableSet.<MockContainerEntity>of()), null);
+        
+        model.onItemWorkrateUpdated(item2, 25d);
+        assertEquals(model.findColdestContainer(ImmutableSet.of(container1), null), null);
+        assertEquals(model.findHottestContainer(ImmutableSet.<MockContainerEntity>of()), container2);
+        assertEquals(model.findHottestContainer(ImmutableSet.of(container2)), null);
+        
+        model.onItemMoved(item2, container1);
+        assertEquals(model.findColdestContainer(ImmutableSet.<MockContainerEntity>of(), null), container2);
+        assertEquals(model.findHottestContainer(ImmutableSet.<MockContainerEntity>of()), container1);
+        
+        model.onContainerRemoved(container1);
+        assertEquals(model.findHottestContainer(ImmutableSet.<MockContainerEntity>of()), null);
+    }
+    
+    @Test
+    public void testEquallyLoadedContainersFoundInOrderAdded() throws Exception {
+        MockContainerEntity container3 = app.addChild(EntitySpec.create(MockContainerEntity.class));
+        model.onContainerAdded(container2, 10d, 20d);
+        model.onContainerAdded(container3, 10d, 20d);
+        model.onContainerAdded(container1, 10d, 20d);
+        model.onItemAdded(item1, container1, false);
+        model.onItemAdded(item2, container2, false);
+        model.onItemAdded(item3, container3, false);
+        model.onItemWorkrateUpdated(item1, 5d);
+        model.onItemWorkrateUpdated(item2, 5d);
+        model.onItemWorkrateUpdated(item3, 5d);
+        
+        assertEquals(model.findColdestContainer(ImmutableSet.<MockContainerEntity>of(), null), container2);
+        assertEquals(model.findColdestContainer(ImmutableSet.of(container2), null), container3);
+        assertEquals(model.findColdestContainer(ImmutableSet.of(container2, container3), null), container1);
+        
+        // a container that is colder still is preferred; once equal again, its position is unchanged
+        model.onItemWorkrateUpdated(item1, 1d);
+        assertEquals(model.findColdestContainer(ImmutableSet.<MockContainerEntity>of(), null), container1);
+        model.onItemWorkrateUpdated(item1, 5d);
+        model.onItemWorkrateUpdated(item2, 6d);
+        model.onItemWorkrateUpdated(item2, 5d);
+        assertEquals(model.findColdestContainer(ImmutableSet.<MockContainerEntity>of(), null), container2);
+        
+        model.onItemWorkrateUpdated(item1, 25d);
+        model.onItemWorkrateUpdated(item2, 25d);
+        model.onItemWorkrateUpdated(item3, 25d);
+        assertEquals(model.findHottestContainer(ImmutableSet.<MockContainerEntity>of()), container2);
+        assertEquals(model.findHottestContainer(ImmutableSet.of(container2)), container3);
+        assertEquals(model.findHottestContainer(ImmutableSet.of(container2, container3)), container1);
+    }
 }
@@ -23,6 +23,7 @@ import static org.apache.brooklyn.rest.util.WebResourceUtils.notFound;
 import java.net.URI;
 import java.util.Date;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import javax.annotation.Nullable;
@@ -35,6 +36,7 @@ import org.apache.brooklyn.core.entity.lifecycle.Lifecycle;
 import org.apache.brooklyn.core.mgmt.usage.ApplicationUsage;
 import org.apache.brooklyn.core.mgmt.usage.LocationUsage;
 import org.apache.brooklyn.core.mgmt.usage.ApplicationUsage.ApplicationEvent;
+import org.apache.brooklyn.core.mgmt.usage.UsageRollup;
 import org.apache.brooklyn.rest.api.UsageApi;
 import org.apache.brooklyn.rest.domain.UsageStatistic;
 import org.apache.brooklyn.rest.domain.UsageStatistics;
@@ -43,7 +45,6 @@ import org.apache.brooklyn.util.exceptions.UserFacingException;
 import org.apache.brooklyn.util.text.Strings;
 import org.apache.brooklyn.util.time.Time;
 
-import com.google.common.base.Objects;
 import com.google.common.base.Predicate;
 import com.google.common.base.Predicates;
 import com.google.common.collect.ImmutableMap;
@@ -105,21 +106,31 @@ public class UsageResource extends AbstractBrooklynRestResource implements Usage
 
     private List<UsageStatistic> retrieveApplicationUsage(ApplicationUsage usage, Date startDate, Date endDate) {
         log.debug("Determining application usage for application {}: dates {} -> {}", new Object[] {usage.getApplicationId(), startDate, endDate});
-        log.trace("Considering application usage events of {}: {}", usage.getApplicationId(), usage.getEvents());
+        List<ApplicationEvent> events = usage.getEvents(startDate, endDate);
+        log.trace("Considering application usage events of {}: {}", usage.getApplicationId(), events);
 
         if (!Entitlements.isEntitled(mgmt().getEntitlementManager(), Entitlements.USAGE, null))
             throw WebResourceUtils.forbidden("User '%s' is not authorized to perform this operation", Entitlements.getEntitlementContext().user());
 
         List<UsageStatistic> result = Lists.newArrayList();
 
+        // Older events may have been compacted to daily totals, which come before the remaining events
+        for (UsageRollup rollup : usage.getRollups(startDate, endDate)) {
+            UsageStatistic statistic = toStatistic(rollup, usage.getApplicationId(), usage.getApplicationId(), startDate, endDate, usage.getMetadata());
+            if (statistic != null) {
+                log.trace("Adding application usage statistic to response for app {}: {}", usage.getApplicationId(), statistic);
+                result.add(statistic);
+            }
+        }
+
         // Getting duration of state by comparing with next event (if next event is of same type, we just generate two statistics)...
-        for (int i = 0; i < usage.getEvents().size(); i++) {
-            ApplicationEvent current = usage.getEvents().get(i);
+        for (int i = 0; i < events.size(); i++) {
+            ApplicationEvent current = events.get(i);
             Date eventStartDate = current.getDate();
             Date eventEndDate;
 
-            if (i <  usage.getEvents().size() - 1) {
-                ApplicationEvent next =  usage.getEvents().get(i + 1);
+            if (i <  events.size() - 1) {
+                ApplicationEvent next =  events.get(i + 1);
                 eventEndDate = next.getDate();
             } else if (current.getState() == Lifecycle.DESTROYED) {
                 eventEndDate = eventStartDate;
@@ -162,23 +173,16 @@ public class UsageResource extends AbstractBrooklynRestResource implements Usage
         Set<LocationUsage> matches = mgmtInternal().getUsageManager().getLocationUsage(new Predicate<LocationUsage>() {
             @Override
             public boolean apply(LocationUsage input) {
-                LocationUsage.LocationEvent first = input.getEvents().get(0);
-                if (endDate.compareTo(first.getDate()) < 0) {
+                // checked without copying the usage history, as this is called for every location
+                Date firstDate = input.getFirstDate();
+                if (firstDate == null || endDate.compareTo(firstDate) < 0) {
                     return false;
                 }
-                LocationUsage.LocationEvent last = input.getEvents().get(input.getEvents().size() - 1);
+                LocationUsage.LocationEvent last = input.getLastEvent();
                 if (!WORKING_LIFECYCLES.contains(last.getState()) && startDate.compareTo(last.getDate()) > 0) {
                     return false;
                 }
-                if (application != null) {
-                    for (LocationUsage.LocationEvent e : input.getEvents()) {
-                        if (Objects.equal(application, e.getApplicationId())) {
-                            return true;
-                        }
-                    }
-                    return false;
-                }
-                return true;
+                return application == null || input.hasApplication(application);
             }
         });
         
@@ -217,21 +221,31 @@ public class UsageResource extends AbstractBrooklynRestResource implements Usage
 
     private List<UsageStatistic> retrieveMachineUsage(LocationUsage usage, Date startDate, Date endDate) {
         log.debug("Determining machine usage for location {}", usage.getLocationId());
-        log.trace("Considering machine usage events of {}: {}", usage.getLocationId(), usage.getEvents());
+        List<LocationUsage.LocationEvent> events = usage.getEvents(startDate, endDate);
+        log.trace("Considering machine usage events of {}: {}", usage.getLocationId(), events);
 
         if (!Entitlements.isEntitled(mgmt().getEntitlementManager(), Entitlements.USAGE, null))
             throw WebResourceUtils.forbidden("User '%s' is not authorized to perform this operation", Entitlements.getEntitlementContext().user());
 
         List<UsageStatistic> result = Lists.newArrayList();
 
+        // Older events may have been compacted to daily totals, which come before the remaining events
+        for (UsageRollup rollup : usage.getRollups(startDate, endDate)) {
+            UsageStatistic statistic = toStatistic(rollup, usage.getLocationId(), rollup.getApplicationId(), startDate, endDate, usage.getMetadata());
+            if (statistic != null) {
+                log.trace("Adding machine usage statistic to response for app {}: {}", usage.getLocationId(), statistic);
+                result.add(statistic);
+            }
+        }
+
         // Getting duration of state by comparing with next event (if next event is of same type, we just generate two statistics)...
-        for (int i = 0; i < usage.getEvents().size(); i++) {
-            LocationUsage.LocationEvent current = usage.getEvents().get(i);
+        for (int i = 0; i < events.size(); i++) {
+            LocationUsage.LocationEvent current = events.get(i);
             Date eventStartDate = current.getDate();
             Date eventEndDate;
 
-            if (i <  usage.getEvents().size() - 1) {
-                LocationUsage.LocationEvent next =  usage.getEvents().get(i + 1);
+            if (i <  events.size() - 1) {
+                LocationUsage.LocationEvent next =  events.get(i + 1);
                 eventEndDate = next.getDate();
             } else if (current.getState() == Lifecycle.DESTROYED || current.getState() == Lifecycle.STOPPED) {
                 eventEndDate = eventStartDate;
@@ -258,6 +272,20 @@ public class UsageResource extends AbstractBrooklynRestResource implements Usage
         return result;
     }
     
+    /**
+     * A statistic for a day's total in one state, clipped to the dates asked for; null if outside them.
+     * The time in that state within the day is only known in total, so when clipped it is at most the clipped period.
+     */
+    private UsageStatistic toStatistic(UsageRollup rollup, String id, String applicationId, Date startDate, Date endDate, Map<String, String> metadata) {
+        Date rollupStartDate = rollup.getStart().before(startDate) ? startDate : rollup.getStart();
+        Date rollupEndDate = rollup.getEnd().after(endDate) ? endDate : rollup.getEnd();
+        if (rollupStartDate.after(rollupEndDate)) {
+            return null;
+        }
+        long duration = Math.min(rollup.getDurationMillis(), rollupEndDate.getTime() - rollupStartDate.getTime());
+        return new UsageStatistic(ApplicationTransformer.statusFromLifecycle(rollup.getState()), id, applicationId, format(rollupStartDate), format(rollupEndDate), duration, metadata);
+    }
+
     private void checkDates(Date startDate, Date endDate) {
         if (startDate.compareTo(endDate) > 0) {
             throw new UserFacingException(new IllegalArgumentException("Start must be less than or equal to end: " + startDate + " > " + endDate + 
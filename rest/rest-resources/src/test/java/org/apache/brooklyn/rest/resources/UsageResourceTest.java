@@ -23,6 +23,7 @@ import static org.testng.Assert.assertTrue;
 
 import java.util.Arrays;
 import java.util.Calendar;
+import java.util.Date;
 import java.util.GregorianCalendar;
 import java.util.List;
 import java.util.Map;
@@ -39,8 +40,11 @@ import org.apache.brooklyn.api.entity.EntitySpec;
 import org.apache.brooklyn.api.location.Location;
 import org.apache.brooklyn.api.location.LocationSpec;
 import org.apache.brooklyn.api.location.NoMachinesAvailableException;
+import org.apache.brooklyn.core.entity.lifecycle.Lifecycle;
 import org.apache.brooklyn.core.mgmt.internal.LocalUsageManager;
 import org.apache.brooklyn.core.mgmt.internal.ManagementContextInternal;
+import org.apache.brooklyn.core.mgmt.usage.ApplicationUsage;
+import org.apache.brooklyn.core.mgmt.usage.LocationUsage;
 import org.apache.brooklyn.core.test.entity.TestApplication;
 import org.apache.brooklyn.entity.software.base.SoftwareProcessEntityTest;
 import org.apache.brooklyn.location.localhost.LocalhostMachineProvisioningLocation;
@@ -52,6 +56,7 @@ import org.apache.brooklyn.rest.domain.UsageStatistic;
 import org.apache.brooklyn.rest.domain.UsageStatistics;
 import org.apache.brooklyn.rest.testing.BrooklynRestResourceTest;
 import org.apache.brooklyn.rest.testing.mocks.RestMockSimpleEntity;
+import org.apache.brooklyn.util.collections.MutableMap;
 import org.apache.brooklyn.util.repeat.Repeater;
 import org.apache.brooklyn.util.time.Time;
 
@@ -71,6 +76,10 @@ public class UsageResourceTest extends BrooklynRestResourceTest {
 
     private static final long TIMEOUT_MS = 10*1000;
     
+    private static final long HOUR = 60*60*1000L;
+    // 2020-01-01T00:00:00Z
+    private static final long DAY = 1577836800000L;
+    
     private Calendar testStartTime;
     
     private final ApplicationSpec simpleSpec = ApplicationSpec.builder().name("simple-app").
@@ -304,6 +313,84 @@ public class UsageResourceTest extends BrooklynRestResourceTest {
         assertTrue(Iterables.isEmpty(usages), "usages="+usages);
     }
 
+    @Test
+    public void testGetApplicationUsageIncludesRollupsClippedToRange() throws Exception {
+        ApplicationUsage appUsage = new ApplicationUsage("myappid", "myappname", "myapptype", MutableMap.<String,String>of());
+        appUsage.addEvent(new ApplicationUsage.ApplicationEvent(at(20), Lifecycle.RUNNING));
+        appUsage.addEvent(new ApplicationUsage.ApplicationEvent(at(26), Lifecycle.STOPPED));
+        appUsage.addEvent(new ApplicationUsage.ApplicationEvent(at(30), Lifecycle.DESTROYED));
+        appUsage.compact(at(48));
+        ((ManagementContextInternal)getManagementContext()).getStorage().<String, ApplicationUsage>getMap(LocalUsageManager.APPLICATION_USAGE_KEY).put("myappid", appUsage);
+
+        Response response = client().path("/usage/applications/myappid").query("start", at(23).getTime()).query("end", at(27).getTime()).get();
+        assertEquals(response.getStatus(), Response.Status.OK.getStatusCode());
+        List<UsageStatistic> statistics = ImmutableList.copyOf(response.readEntity(new GenericType<UsageStatistics>() {}).getStatistics());
+
+        // the daily totals, clipped to the range; the remaining (destroyed) event is after it
+        assertEquals(statistics.size(), 3, "statistics="+statistics);
+        assertStatistic(statistics.get(0), Status.RUNNING, "myappid", at(23), at(24), HOUR);
+        assertStatistic(statistics.get(1), Status.RUNNING, "myappid", at(24), at(26), 2*HOUR);
+        assertStatistic(statistics.get(2), Status.STOPPED, "myappid", at(26), at(27), HOUR);
+
+        // events and rollups both included when the range covers them
+        response = client().path("/usage/applications/myappid").query("start", at(0).getTime()).query("end", at(30).getTime()).get();
+        statistics = ImmutableList.copyOf(response.readEntity(new GenericType<UsageStatistics>() {}).getStatistics());
+        assertEquals(statistics.size(), 4, "statistics="+statistics);
+        assertStatistic(statistics.get(0), Status.RUNNING, "myappid", at(20), at(24), 4*HOUR);
+        assertStatistic(statistics.get(3), Status.DESTROYED, "myappid", at(30), at(30), 0);
+    }
+
+    @Test
+    public void testListMachinesUsageForAppFindsCompactedUsage() throws Exception {
+        // app1 used the machine before app2; its events have since been compacted
+        LocationUsage locUsage = new LocationUsage("myloc1", MutableMap.<String,String>of());
+        locUsage.addEvent(new LocationUsage.LocationEvent(at(1), Lifecycle.RUNNING, "myentity1", "myentitytype", "app1", null));
+        locUsage.addEvent(new LocationUsage.LocationEvent(at(2), Lifecycle.RUNNING, "myentity2", "myentitytype", "app2", null));
+        locUsage.addEvent(new LocationUsage.LocationEvent(at(5), Lifecycle.STOPPED, "myentity2", "myentitytype", "app2", null));
+        locUsage.compact(at(6));
+        LocationUsage otherLocUsage = new LocationUsage("myloc2", MutableMap.<String,String>of());
+        otherLocUsage.addEvent(new LocationUsage.LocationEvent(at(30), Lifecycle.RUNNING, "myentity3", "myentitytype", "app3", null));
+        otherLocUsage.addEvent(new LocationUsage.LocationEvent(at(31), Lifecycle.STOPPED, "myentity3", "myentitytype", "app3", null));
+        Map<String, LocationUsage> locUsageMap = ((ManagementContextInternal)getManagementContext()).getStorage().getMap(LocalUsageManager.LOCATION_USAGE_KEY);
+        locUsageMap.put("myloc1", locUsage);
+        locUsageMap.put("myloc2", otherLocUsage);
+
+        Response response = client().path("/usage/machines").query("application", "app1").get();
+        assertEquals(response.getStatus(), Response.Status.OK.getStatusCode());
+        Iterable<UsageStatistics> usages = response.readEntity(new GenericType<List<UsageStatistics>>() {});
+        List<UsageStatistic> statistics = ImmutableList.copyOf(Iterables.getOnlyElement(usages).getStatistics());
+        assertEquals(statistics.size(), 3, "statistics="+statistics);
+        assertStatistic(statistics.get(0), Status.RUNNING, "app1", at(1), at(2), HOUR);
+        assertStatistic(statistics.get(1), Status.RUNNING, "app2", at(2), at(5), 3*HOUR);
+        assertStatistic(statistics.get(2), Status.STOPPED, "app2", at(5), at(5), 0);
+        assertEquals(statistics.get(0).getId(), "myloc1");
+
+        // machine stopped before the range
+        response = client().path("/usage/machines").query("application", "app1").query("start", at(10).getTime()).query("end", at(20).getTime()).get();
+        usages = response.readEntity(new GenericType<List<UsageStatistics>>() {});
+        assertTrue(Iterables.isEmpty(usages), "usages="+usages);
+
+        // machine first used after the range
+        response = client().path("/usage/machines").query("application", "app3").query("start", at(0).getTime()).query("end", at(29).getTime()).get();
+        usages = response.readEntity(new GenericType<List<UsageStatistics>>() {});
+        assertTrue(Iterables.isEmpty(usages), "usages="+usages);
+        response = client().path("/usage/machines").query("application", "app3").query("start", at(0).getTime()).query("end", at(31).getTime()).get();
+        usages = response.readEntity(new GenericType<List<UsageStatistics>>() {});
+        assertEquals(Iterables.getFirst(Iterables.getOnlyElement(usages).getStatistics(), null).getId(), "myloc2");
+    }
+
+    private Date at(long hours) {
+        return new Date(DAY + hours*HOUR);
+    }
+
+    private void assertStatistic(UsageStatistic statistic, Status status, String appId, Date start, Date end, long duration) {
+        assertEquals(statistic.getStatus(), status, "statistic="+statistic);
+        assertEquals(statistic.getApplicationId(), appId, "statistic="+statistic);
+        assertEquals(Time.parseDate(statistic.getStart()), start, "statistic="+statistic);
+        assertEquals(Time.parseDate(statistic.getEnd()), end, "statistic="+statistic);
+        assertEquals(statistic.getDuration(), duration, "statistic="+statistic);
+    }
+
     private String createApp(ApplicationSpec spec) {
         Response response = clientDeploy(spec);
         assertEquals(response.getStatus(), Response.Status.CREATED.getStatusCode());
@@ -0,0 +1,133 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.brooklyn.feed.jmx;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.brooklyn.api.entity.Entity;
+import org.apache.brooklyn.entity.java.UsesJmx;
+import org.apache.brooklyn.util.collections.MutableMap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.annotations.Beta;
+import com.google.common.annotations.VisibleForTesting;
+
+/**
+ * Shares {@link JmxHelper} instances, and so JMX connections, between all users of the same JMX URL and credentials.
+ * <p>
+ * Each {@link #acquire(Entity)} must be matched by a {@link #release(JmxHelper)}; the helper is
+ * {@link JmxHelper#terminate() terminated} when the last user releases it.
+ * Callers must not terminate or disconnect a shared helper themselves.
+ */
+@Beta
+public class JmxConnectionPool {
+
+    private static final Logger LOG = LoggerFactory.getLogger(JmxConnectionPool.class);
+
+    private static final JmxConnectionPool INSTANCE = new JmxConnectionPool();
+
+    public static JmxConnectionPool getInstance() {
+        return INSTANCE;
+    }
+
+    private static class PooledHelper {
+        final JmxHelper helper;
+        int references;
+
+        PooledHelper(JmxHelper helper) {
+            this.helper = helper;
+        }
+    }
+
+    private final Map<List<String>, PooledHelper> helpers = MutableMap.of();
+
+    @VisibleForTesting
+    JmxConnectionPool() {
+    }
+
+    /** Returns a shared helper for the JMX URL and credentials of the given entity, creating it if needed. */
+    public JmxHelper acquire(Entity entity) {
+        String url = JmxHelper.toJmxUrl(entity);
+        List<String> key = key(url, entity.getAttribute(UsesJmx.JMX_USER), entity.getAttribute(UsesJmx.JMX_PASSWORD));
+        synchronized (helpers) {
+            PooledHelper result = helpers.get(key);
+            if (result == null) {
+                result = new PooledHelper(new JmxHelper(entity));
+                helpers.put(key, result);
+            }
+            result.references++;
+            return result.helper;
+        }
+    }
+
+    /** Returns a shared helper for the given JMX URL and credentials, creating it if needed. */
+    public JmxHelper acquire(String url, String user, String password) {
+        List<String> key = key(url, user, password);
+        synchronized (helpers) {
+            PooledHelper result = helpers.get(key);
+            if (result == null) {
+                result = new PooledHelper(new JmxHelper(url, user, password));
+                helpers.put(key, result);
+            }
+            result.references++;
+            return result.helper;
+        }
+    }
+
+    /** Releases a helper obtained from {@link #acquire(Entity)}, terminating it if there are no other users. */
+    public void release(JmxHelper helper) {
+        List<String> key = key(helper.url, helper.user, helper.password);
+        boolean terminate = false;
+        synchronized (helpers) {
+            PooledHelper pooled = helpers.get(key);
+            if (pooled == null || pooled.helper != helper) {
+                LOG.warn("Request to release JMX helper for "+helper.getUrl()+" which is not in the pool; terminating it");
+                terminate = true;
+            } else if (--pooled.references <= 0) {
+                helpers.remove(key);
+                terminate = true;
+            }
+        }
+        if (terminate) {
+            // outside the lock, as disconnecting can block if the other side is unreachable
+            helper.terminate();
+        }
+    }
+
+    /** Returns the number of users of the given helper, or 0 if it is not (or no longer) in the pool. */
+    public int getReferenceCount(JmxHelper helper) {
+        synchronized (helpers) {
+            PooledHelper pooled = helpers.get(key(helper.url, helper.user, helper.password));
+            return pooled != null && pooled.helper == helper ? pooled.references : 0;
+        }
+    }
+
+    public int size() {
+        synchronized (helpers) {
+            return helpers.size();
+        }
+    }
+
+    private static List<String> key(String url, String user, String password) {
+        return Arrays.asList(url, user, password);
+    }
+}
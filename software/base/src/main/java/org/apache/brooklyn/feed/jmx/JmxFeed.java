@@ -42,13 +42,16 @@ import org.apache.brooklyn.core.feed.PollHandler;
 import org.apache.brooklyn.core.feed.Poller;
 import org.apache.brooklyn.entity.software.base.SoftwareProcessImpl;
 import org.apache.brooklyn.feed.windows.WindowsPerformanceCounterFeed;
+import org.apache.brooklyn.util.exceptions.Exceptions;
 import org.apache.brooklyn.util.time.Duration;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.google.common.collect.HashMultimap;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Iterables;
 import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
 import com.google.common.collect.SetMultimap;
 import com.google.common.collect.Sets;
 import com.google.common.reflect.TypeToken;
@@ -99,6 +102,11 @@ public class JmxFeed extends AbstractFeed {
     public static final ConfigKey<Boolean> OWN_HELPER = ConfigKeys.newBooleanConfigKey("ownHelper");
     public static final ConfigKey<String> JMX_URI = ConfigKeys.newStringConfigKey("jmxUri");
     public static final ConfigKey<Long> JMX_CONNECTION_TIMEOUT = ConfigKeys.newLongConfigKey("jmxConnectionTimeout");
+    public static final ConfigKey<Boolean> SHARED_HELPER = ConfigKeys.newBooleanConfigKey("sharedHelper",
+            "Whether to use a helper (and so a JMX connection) from the JmxConnectionPool, shared with other feeds for the same JMX URL", false);
+    public static final ConfigKey<Boolean> BULK_ATTRIBUTE_POLLS = ConfigKeys.newBooleanConfigKey("bulkAttributePolls",
+            "Whether to read all polled attributes of each MBean with a single getAttributes call each period, "
+            + "rather than one call per attribute", false);
     
     @SuppressWarnings("serial")
     public static final ConfigKey<SetMultimap<String, JmxAttributePollConfig<?>>> ATTRIBUTE_POLLS = ConfigKeys.newConfigKey(
@@ -129,6 +137,8 @@ public class JmxFeed extends AbstractFeed {
         private List<JmxOperationPollConfig<?>> operationPolls = Lists.newArrayList();
         private List<JmxNotificationSubscriptionConfig<?>> notificationSubscriptions = Lists.newArrayList();
         private String uniqueTag;
+        private boolean sharedConnection;
+        private boolean bulkAttributePolls;
         private volatile boolean built;
         
         public Builder entity(Entity val) {
@@ -166,6 +176,16 @@ public class JmxFeed extends AbstractFeed {
             this.uniqueTag = uniqueTag;
             return this;
         }
+        /** Whether to use a JMX connection shared with other feeds for the same URL; see {@link JmxConnectionPool}. Ignored if a {@link #helper(JmxHelper)} is supplied. */
+        public Builder sharedConnection(boolean val) {
+            this.sharedConnection = val;
+            return this;
+        }
+        /** Whether to read the polled attributes of each MBean (with the same period) in a single call each period. */
+        public Builder bulkAttributePolls(boolean val) {
+            this.bulkAttributePolls = val;
+            return this;
+        }
         public JmxFeed build() {
             built = true;
             return AbstractFeed.initAndMaybeStart(new JmxFeed(this), entity);
@@ -193,6 +213,8 @@ public class JmxFeed extends AbstractFeed {
             config().set(JMX_URI, helper.getUrl());
         }
         config().set(JMX_CONNECTION_TIMEOUT, builder.jmxConnectionTimeout);
+        config().set(SHARED_HELPER, builder.sharedConnection);
+        config().set(BULK_ATTRIBUTE_POLLS, builder.bulkAttributePolls);
         
         SetMultimap<String, JmxAttributePollConfig<?>> attributePolls = HashMultimap.<String,JmxAttributePollConfig<?>>create();
         for (JmxAttributePollConfig<?> config : builder.attributePolls) {
@@ -226,7 +248,7 @@ public class JmxFeed extends AbstractFeed {
     @Override
     public void setEntity(EntityLocal entity) {
         if (getConfig(HELPER) == null) {
-            JmxHelper helper = new JmxHelper(entity);
+            JmxHelper helper = Boolean.TRUE.equals(getConfig(SHARED_HELPER)) ? JmxConnectionPool.getInstance().acquire(entity) : new JmxHelper(entity);
             config().set(HELPER, helper);
             config().set(OWN_HELPER, true);
             config().set(JMX_URI, helper.getUrl());
@@ -287,8 +309,12 @@ public class JmxFeed extends AbstractFeed {
         }
         
         // Setup polling of sensors
-        for (final String jmxAttributeName : attributePolls.keys()) {
-            registerAttributePoller(attributePolls.get(jmxAttributeName));
+        if (Boolean.TRUE.equals(getConfig(BULK_ATTRIBUTE_POLLS))) {
+            registerBulkAttributePollers(attributePolls);
+        } else {
+            for (final String jmxAttributeName : attributePolls.keys()) {
+                registerAttributePoller(attributePolls.get(jmxAttributeName));
+            }
         }
         
         // Setup polling of operations
@@ -312,7 +338,13 @@ public class JmxFeed extends AbstractFeed {
         super.postStop();
         JmxHelper helper = getHelper();
         Boolean ownHelper = getConfig(OWN_HELPER);
-        if (helper != null && ownHelper) helper.terminate();
+        if (helper != null && Boolean.TRUE.equals(ownHelper)) {
+            if (Boolean.TRUE.equals(getConfig(SHARED_HELPER))) {
+                JmxConnectionPool.getInstance().release(helper);
+            } else {
+                helper.terminate();
+            }
+        }
     }
     
     /**
@@ -374,6 +406,119 @@ public class JmxFeed extends AbstractFeed {
                 new DelegatingPollHandler<Object>(handlers), minPeriod);
     }
 
+    /**
+     * Registers to poll all the given jmx-attributes, with one poller per ObjectName and period,
+     * which reads all the attributes for that ObjectName in a single call.
+     */
+    private void registerBulkAttributePollers(SetMultimap<String, JmxAttributePollConfig<?>> attributePolls) {
+        Map<List<Object>, Map<String, PollHandler<Object>>> handlersByObjectNameAndPeriod = Maps.newLinkedHashMap();
+        
+        for (String key : attributePolls.keySet()) {
+            Set<JmxAttributePollConfig<?>> configs = attributePolls.get(key);
+            Set<AttributePollHandler<? super Object>> handlers = Sets.newLinkedHashSet();
+            long minPeriod = Integer.MAX_VALUE;
+            for (JmxAttributePollConfig<?> config : configs) {
+                handlers.add(new AttributePollHandler<Object>(config, getEntity(), this));
+                if (config.getPeriod() > 0) minPeriod = Math.min(minPeriod, config.getPeriod());
+            }
+            
+            ObjectName objectName = Iterables.get(configs, 0).getObjectName();
+            List<Object> group = ImmutableList.<Object>of(objectName, minPeriod);
+            Map<String, PollHandler<Object>> handlersByAttribute = handlersByObjectNameAndPeriod.get(group);
+            if (handlersByAttribute == null) {
+                handlersByAttribute = Maps.newLinkedHashMap();
+                handlersByObjectNameAndPeriod.put(group, handlersByAttribute);
+            }
+            handlersByAttribute.put(Iterables.get(configs, 0).getAttributeName(), new DelegatingPollHandler<Object>(handlers));
+        }
+        
+        for (Map.Entry<List<Object>, Map<String, PollHandler<Object>>> entry : handlersByObjectNameAndPeriod.entrySet()) {
+            final ObjectName objectName = (ObjectName) entry.getKey().get(0);
+            final long period = (Long) entry.getKey().get(1);
+            final Map<String, PollHandler<Object>> handlersByAttribute = entry.getValue();
+            
+            getPoller().scheduleAtFixedRate(
+                    new Callable<Object>() {
+                        @Override
+                        public Object call() throws Exception {
+                            if (log.isTraceEnabled()) log.trace("jmx bulk attribute polling for {} sensors at {} -> {}", new Object[] {getEntity(), getJmxUri(), handlersByAttribute.keySet()});
+                            Map<String, Object> result = getHelper().getAttributes(objectName, handlersByAttribute.keySet());
+                            if (result != null) {
+                                for (String attribute : handlersByAttribute.keySet()) {
+                                    if (!result.containsKey(attribute)) {
+                                        // read individually, to report the reason it could not be read
+                                        try {
+                                            result.put(attribute, getHelper().getAttribute(objectName, attribute));
+                                        } catch (Exception e) {
+                                            Exceptions.propagateIfFatal(e);
+                                            result.put(attribute, new AttributeReadFailure(e));
+                                        }
+                                    }
+                                }
+                            }
+                            return result;
+                        }
+                    }, 
+                    new BulkAttributePollHandler(handlersByAttribute), period);
+        }
+    }
+
+    /** Marks an attribute in a bulk read which could not be read. */
+    private static class AttributeReadFailure {
+        final Exception exception;
+        AttributeReadFailure(Exception exception) {
+            this.exception = exception;
+        }
+    }
+    
+    /** Passes each attribute in the result of a bulk read (a map, or null if the MBean was not found) to the handlers for that attribute. */
+    private static class BulkAttributePollHandler implements PollHandler<Object> {
+        private final Map<String, PollHandler<Object>> handlersByAttribute;
+        
+        BulkAttributePollHandler(Map<String, PollHandler<Object>> handlersByAttribute) {
+            this.handlersByAttribute = handlersByAttribute;
+        }
+        
+        @Override
+        public boolean checkSuccess(Object val) {
+            // each attribute is checked individually
+            return true;
+        }
+        
+        @Override
+        public void onSuccess(Object val) {
+            for (Map.Entry<String, PollHandler<Object>> entry : handlersByAttribute.entrySet()) {
+                // a null result means the MBean was not found; treated as for a single attribute, where the value is null
+                Object value = val == null ? null : ((Map<?, ?>) val).get(entry.getKey());
+                PollHandler<Object> handler = entry.getValue();
+                if (value instanceof AttributeReadFailure) {
+                    handler.onException(((AttributeReadFailure) value).exception);
+                } else if (handler.checkSuccess(value)) {
+                    handler.onSuccess(value);
+                } else {
+                    handler.onFailure(value);
+                }
+            }
+        }
+        
+        @Override
+        public void onFailure(Object val) {
+            onSuccess(val);
+        }
+        
+        @Override
+        public void onException(Exception exception) {
+            for (PollHandler<Object> handler : handlersByAttribute.values()) {
+                handler.onException(exception);
+            }
+        }
+        
+        @Override
+        public String getDescription() {
+            return "jmx attributes " + handlersByAttribute.keySet();
+        }
+    }
+
     /**
      * Registers to subscribe to notifications for an ObjectName, where all the given configs are for that same ObjectName + filter.
      */
@@ -26,6 +26,7 @@ import java.security.KeyStore;
 import java.security.PrivateKey;
 import java.security.cert.Certificate;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.LinkedHashMap;
 import java.util.Map;
@@ -36,6 +37,7 @@ import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicReference;
 
+import javax.management.AttributeList;
 import javax.management.AttributeNotFoundException;
 import javax.management.InstanceAlreadyExistsException;
 import javax.management.InstanceNotFoundException;
@@ -659,6 +661,33 @@ public class JmxHelper {
         }
     }
 
+    /**
+     * Returns the given attributes of a JMX {@link ObjectName}, read with a single call,
+     * or null if the MBean is not found.
+     * As with {@link MBeanServerConnection#getAttributes(ObjectName, String[])}, attributes
+     * which could not be read are omitted from the result.
+     */
+    public Map<String, Object> getAttributes(ObjectName objectName, final Collection<String> attributes) {
+        final ObjectName realObjectName = toLiteralObjectName(objectName);
+        
+        if (realObjectName != null) {
+            AttributeList list = invokeWithReconnect(new Callable<AttributeList>() {
+                    @Override
+                    public AttributeList call() throws Exception {
+                        return getConnectionOrFail().getAttributes(realObjectName, attributes.toArray(new String[attributes.size()]));
+                    }});
+
+            Map<String, Object> result = MutableMap.of();
+            for (javax.management.Attribute attribute : list.asList()) {
+                result.put(attribute.getName(), attribute.getValue());
+            }
+            if (LOG.isTraceEnabled()) LOG.trace("From {}, for jmx attributes {}.{}, got values {}", new Object[] {url, objectName.getCanonicalName(), attributes, result});
+            return result;
+        } else {
+            return null;
+        }
+    }
+
     public void setAttribute(String objectName, String attribute, Object val) {
         setAttribute(createObjectName(objectName), attribute, val);
     }
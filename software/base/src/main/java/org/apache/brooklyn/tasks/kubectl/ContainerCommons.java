@@ -57,12 +57,20 @@ public interface ContainerCommons {
     ConfigKey<Set<Map<String,Object>>> VOLUMES = new SetConfigKey.Builder(new TypeToken<Map<String,Object>>()  {}, "volumes")
             .description("List of directories with data that is accessible across multiple containers").defaultValue(null).build();
 
+    ConfigKey<Boolean> WATCH_PODS = ConfigKeys.newBooleanConfigKey("watchPods", "Whether to follow the job's pod using a 'kubectl get pods --watch' " +
+            "shared by all jobs in the namespace, rather than by polling with 'kubectl' (default true)", true);
+
+    ConfigKey<Boolean> FOLLOW_LOGS = ConfigKeys.newBooleanConfigKey("followLogs", "Whether to stream the container output into the task " +
+            "using 'kubectl logs --follow', rather than repeatedly fetching the whole log (default true)", true);
+
     String NAMESPACE_CREATE_CMD = "kubectl create namespace %s";
     String NAMESPACE_SET_CMD = "kubectl config set-context --current --namespace=%s";
     String JOBS_CREATE_CMD = "kubectl apply -f %s --namespace=%s";
     String JOBS_WAIT_COMPLETE_CMD = "kubectl wait --timeout=%ds --for=condition=complete job/%s --namespace=%s";
     String JOBS_WAIT_FAILED_CMD = "kubectl wait --timeout=%ds --for=condition=failed job/%s --namespace=%s";
     String JOBS_LOGS_CMD = "kubectl logs jobs/%s --namespace=%s";
+    String JOBS_LOGS_FOLLOW_CMD = JOBS_LOGS_CMD + " --follow --timestamps";
+    String JOBS_LOGS_CHECK_CMD = JOBS_LOGS_CMD + " --limit-bytes=1";
     String JOBS_DELETE_CMD = "kubectl delete job %s --namespace=%s";
     String PODS_CMD_PREFIX = "kubectl get pods --namespace=%s --selector=job-name=%s ";
     String PODS_STATUS_STATE_CMD = PODS_CMD_PREFIX + "-ojsonpath='{.items[0].status.containerStatuses[0].state}'";
@@ -72,6 +80,7 @@ public interface ContainerCommons {
     String SCOPED_EVENTS_CMD = "kubectl --namespace %s get events --field-selector=involvedObject.name=%s";
     String SCOPED_EVENTS_FAILED_JSON_CMD = "kubectl --namespace %s get events --field-selector=reason=Failed,involvedObject.name=%s -ojsonpath='{.items}'";
     String NAMESPACE_DELETE_CMD = "kubectl delete namespace %s";
+    String PODS_WATCH_CMD = "kubectl get pods --namespace=%s --watch --output-watch-events --output=json";
 
     public static enum PodPhases {
         // from https://kubernetes.io/docs/concepts/workloads/pods/pod-lifecycle/
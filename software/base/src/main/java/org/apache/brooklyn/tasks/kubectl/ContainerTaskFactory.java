@@ -18,6 +18,7 @@
  */
 package org.apache.brooklyn.tasks.kubectl;
 
+import com.google.common.annotations.VisibleForTesting;
 import com.google.common.collect.Lists;
 import com.google.gson.Gson;
 import org.apache.brooklyn.api.entity.Entity;
@@ -168,6 +169,8 @@ public class ContainerTaskFactory<T extends ContainerTaskFactory<T,RET>,RET> imp
 
                         // only delete if told to always, unless we successfully create it
                         boolean deleteNamespaceHere = Boolean.TRUE.equals(deleteNamespace);
+                        KubectlPodWatcher podWatcher = null;
+                        KubectlLogFollower logFollower = null;
                         try {
                             if (createNsJob!=null) {
                                 ProcessTaskWrapper<?> nsDetails = createNsJob.get();
@@ -188,28 +191,41 @@ public class ContainerTaskFactory<T extends ContainerTaskFactory<T,RET>,RET> imp
                                 }
                             }
 
+                            if (!Boolean.FALSE.equals(EntityInitializers.resolve(config, WATCH_PODS))) {
+                                podWatcher = KubectlPodWatcher.acquire(((EntityInternal)entity).getManagementContext(), namespace);
+                            }
+
                             runTask(entity,
                                     newSimpleTaskFactory(String.format(JOBS_CREATE_CMD, jobYaml.getFile().getAbsolutePath(), namespace)).summary("Submit job").newTask(), true, true);
 
                             final CountdownTimer timer = CountdownTimer.newInstanceStarted(timeout);
 
                             // wait for it to be running (or failed / succeeded) -
-                            PodPhases phaseOnceActive = waitForContainerAvailable(entity, kubeJobName, result, timer);
+                            PodPhases phaseOnceActive = waitForContainerAvailable(entity, kubeJobName, result, timer, podWatcher);
                             result.containerStarted = true;
 //                            waitForContainerPodContainerState(kubeJobName, result, timer);
 
                             // notify once pod is available
                             synchronized (result) { result.notifyAll(); }
 
+                            if (PodPhases.Running == phaseOnceActive && !Boolean.FALSE.equals(EntityInitializers.resolve(config, FOLLOW_LOGS))) {
+                                final KubectlPodWatcher podWatcherF = podWatcher;
+                                logFollower = new KubectlLogFollower(((EntityInternal)entity).getManagementContext(), namespace, kubeJobName, stdout,
+                                        () -> isWatching(podWatcherF) ? isTerminated(podWatcherF.getPhase(kubeJobName)) : null).start();
+                            }
+
                             boolean succeeded = PodPhases.Succeeded == phaseOnceActive ||
                                     (PodPhases.Failed != phaseOnceActive &&
                                             //use `wait --for` api, but in a 5s loop in case there are other issues
 //                                            waitForContainerCompletedUsingK8sWaitFor(stdout, kubeJobName, entity, timer)
-                                            waitForContainerCompletedUsingPodState(stdout, kubeJobName, entity, timer)
+                                            waitForContainerCompletedUsingPodState(stdout, kubeJobName, entity, timer, podWatcher, logFollower)
                                     );
 
                             LOG.debug("Container job "+kubeJobName+" completed, success "+succeeded);
 
+                            // the full log is still retrieved once, for the result
+                            if (logFollower!=null) logFollower.stop();
+
                             ProcessTaskWrapper<String> retrieveOutput = runTask(entity, newSimpleTaskFactory(String.format(JOBS_LOGS_CMD, kubeJobName, namespace)).summary("Retrieve output").newTask(), false, true);
                             ProcessTaskWrapper<String> retrieveExitCode = runTask(entity, newSimpleTaskFactory(String.format(PODS_EXIT_CODE_CMD, namespace, kubeJobName)).summary("Retrieve exit code").newTask(), false, true);
 
@@ -233,6 +249,11 @@ public class ContainerTaskFactory<T extends ContainerTaskFactory<T,RET>,RET> imp
                             return returnConversion==null ? (RET) result : returnConversion.apply(result);
 
                         } finally {
+                            if (logFollower!=null) logFollower.stop();
+                            if (podWatcher!=null) {
+                                podWatcher.forgetJob(kubeJobName);
+                                podWatcher.release();
+                            }
                             if (deleteNamespaceHere) {
                                 doDeleteNamespace(!namespaceRandom, true);  // if a one-off job, namespace has random id in it so can safely be deleted in background (no one else risks reusing it)
                             } else {
@@ -272,7 +293,7 @@ public class ContainerTaskFactory<T extends ContainerTaskFactory<T,RET>,RET> imp
                 // other one-off checks for job error, we could do here
                 // e.g. if image can't be pulled, for instance
 
-                refreshStdout(entity, stdout, kubeJobName, timer);
+                refreshStdout(entity, stdout, kubeJobName, timer, false);
 
                 // probably timed out or job not yet available; short wait then retry
                 Time.sleep(Duration.millis(50));
@@ -281,13 +302,14 @@ public class ContainerTaskFactory<T extends ContainerTaskFactory<T,RET>,RET> imp
         }).build(), false, true).getUnchecked();
     }
 
-    private Boolean waitForContainerCompletedUsingPodState(ByteArrayOutputStream stdout, String kubeJobName, Entity entity, CountdownTimer timer) {
+    private Boolean waitForContainerCompletedUsingPodState(ByteArrayOutputStream stdout, String kubeJobName, Entity entity, CountdownTimer timer,
+                                                           KubectlPodWatcher podWatcher, KubectlLogFollower logFollower) {
         return runTask(entity, Tasks.<Boolean>builder().dynamic(true).displayName("Wait for success or failure").body(() -> {
             long retryDelay = 10;
             while (true) {
                 LOG.debug("Container job " + kubeJobName + " submitted, now waiting on success or failure");
 
-                PodPhases phase = checkPodPhase(entity, kubeJobName);
+                PodPhases phase = checkPodPhase(entity, kubeJobName, podWatcher);
                 if (phase.equals(PodPhases.Succeeded)) return true;
                 if (phase.equals(PodPhases.Failed)) return false;
 
@@ -296,7 +318,13 @@ public class ContainerTaskFactory<T extends ContainerTaskFactory<T,RET>,RET> imp
                 // other one-off checks for job error, we could do here
                 // e.g. if image can't be pulled, for instance
 
-                refreshStdout(entity, stdout, kubeJobName, timer);
+                refreshStdout(entity, stdout, kubeJobName, timer, logFollower!=null);
+
+                if (isWatching(podWatcher)) {
+                    // woken as soon as the pod changes, otherwise refresh the output every few seconds
+                    podWatcher.awaitPhaseChange(kubeJobName, phase, Duration.min(timer.getDurationRemaining(), Duration.FIVE_SECONDS));
+                    continue;
+                }
 
                 // probably timed out or job not yet available; short wait then retry
                 Time.sleep(Duration.millis(retryDelay));
@@ -310,14 +338,19 @@ public class ContainerTaskFactory<T extends ContainerTaskFactory<T,RET>,RET> imp
         }).build(), false, true).getUnchecked();
     }
 
-    private void refreshStdout(Entity entity, ByteArrayOutputStream stdout, String kubeJobName, CountdownTimer timer) throws IOException {
-        // finally get the partial log for reporting
+    @VisibleForTesting
+    void refreshStdout(Entity entity, ByteArrayOutputStream stdout, String kubeJobName, CountdownTimer timer, boolean followingLogs) throws IOException {
+        // if following the logs, output is already being appended to stdout, so only check the logs can still be read
         ProcessTaskWrapper<String> outputSoFarCmd = runTask(entity,
-                newSimpleTaskFactory(String.format(JOBS_LOGS_CMD, kubeJobName, namespace)).summary("Retrieve output so far").allowingNonZeroExitCode().newTask(), true, true);
+                newSimpleTaskFactory(String.format(followingLogs ? JOBS_LOGS_CHECK_CMD : JOBS_LOGS_CMD, kubeJobName, namespace))
+                        .summary(followingLogs ? "Check output can be retrieved" : "Retrieve output so far").allowingNonZeroExitCode().newTask(), true, true);
         if (outputSoFarCmd.getExitCode() != 0) {
             throw new IllegalStateException("Error detected with container job while reading logs (exit code " + outputSoFarCmd.getExitCode() + "): " + outputSoFarCmd.getStdout() + " / " + outputSoFarCmd.getStderr());
         }
-        updateStdoutWithNewData(stdout, outputSoFarCmd.get());
+        if (!followingLogs) {
+            // finally get the partial log for reporting
+            updateStdoutWithNewData(stdout, outputSoFarCmd.get());
+        }
 
         if (timer.isExpired())
             throw new IllegalStateException("Timeout waiting for success or failure");
@@ -431,7 +464,7 @@ public class ContainerTaskFactory<T extends ContainerTaskFactory<T,RET>,RET> imp
         return null;
     }
 
-    private PodPhases waitForContainerAvailable(Entity entity, String kubeJobName, ContainerTaskResult result, CountdownTimer timer) {
+    private PodPhases waitForContainerAvailable(Entity entity, String kubeJobName, ContainerTaskResult result, CountdownTimer timer, KubectlPodWatcher podWatcher) {
         return runTask(entity, Tasks.<PodPhases>builder().dynamic(true).displayName("Wait for container to be running (or fail)").body(() -> {
             long first = System.currentTimeMillis();
             long last = first;
@@ -439,7 +472,10 @@ public class ContainerTaskFactory<T extends ContainerTaskFactory<T,RET>,RET> imp
             PodPhases phase = PodPhases.Unknown;
             long startupReportDelay = 1000;  // report any start longer than 1s
             while (timer.isNotExpired()) {
-                phase = checkPodPhase(entity, kubeJobName);
+                phase = checkPodPhase(entity, kubeJobName, podWatcher);
+                if (phase!=PodPhases.Unknown && Strings.isBlank(result.kubePodName) && isWatching(podWatcher)) {
+                    result.kubePodName = podWatcher.getPodName(kubeJobName);
+                }
                 if (phase!=PodPhases.Unknown && Strings.isBlank(result.kubePodName)) {
                     result.kubePodName = runTask(entity, newSimpleTaskFactory(String.format(PODS_NAME_CMD, namespace, kubeJobName)).summary("Get pod name").allowingNonZeroExitCode().newTask(), false, true).get().trim();
                 }
@@ -488,8 +524,14 @@ public class ContainerTaskFactory<T extends ContainerTaskFactory<T,RET>,RET> imp
                     if (startupReportDelay > 20*1000) startupReportDelay = 20*1000;
                 }
                 long backoffMillis2 = backoffMillis;
-                Tasks.withBlockingDetails("waiting "+backoffMillis2+"ms for pod to be available (current status '" + phase + "')", () -> {
-                    Time.sleep(backoffMillis2);
+                PodPhases phase2 = phase;
+                Tasks.withBlockingDetails("waiting for pod to be available (current status '" + phase + "')", () -> {
+                    if (isWatching(podWatcher)) {
+                        // woken as soon as the pod changes, but still check periodically for failure events
+                        podWatcher.awaitPhaseChange(kubeJobName, phase2, Duration.min(timer.getDurationRemaining(), Duration.ONE_SECOND));
+                    } else {
+                        Time.sleep(backoffMillis2);
+                    }
                     return null;
                 });
                 if (backoffMillis<80) backoffMillis*=2;
@@ -498,6 +540,22 @@ public class ContainerTaskFactory<T extends ContainerTaskFactory<T,RET>,RET> imp
         }).build(), false, true).getUnchecked();
     }
 
+    private static boolean isTerminated(PodPhases phase) {
+        return phase==PodPhases.Succeeded || phase==PodPhases.Failed;
+    }
+
+    private static boolean isWatching(KubectlPodWatcher podWatcher) {
+        return podWatcher!=null && podWatcher.isWatching();
+    }
+
+    private PodPhases checkPodPhase(Entity entity, String kubeJobName, KubectlPodWatcher podWatcher) {
+        if (isWatching(podWatcher)) {
+            PodPhases phase = podWatcher.getPhase(kubeJobName);
+            return phase!=null ? phase : PodPhases.Unknown;
+        }
+        return checkPodPhase(entity, kubeJobName);
+    }
+
     private PodPhases checkPodPhase(Entity entity, String kubeJobName) {
         PodPhases succeeded = getPodPhaseFromContainerState(entity, kubeJobName);
         if (succeeded != null) return succeeded;
@@ -673,7 +731,8 @@ public class ContainerTaskFactory<T extends ContainerTaskFactory<T,RET>,RET> imp
         return self();
     }
 
-    private ProcessTaskFactory<String> newSimpleTaskFactory(final String... kubeCommands) {
+    @VisibleForTesting
+    ProcessTaskFactory<String> newSimpleTaskFactory(final String... kubeCommands) {
         return new SystemProcessTaskFactory.ConcreteSystemProcessTaskFactory<String>(kubeCommands)
                 //i think we don't care about any of these configs, and most cause debug messages about them being ignored
                 //.configure(config.getAllConfig())
@@ -0,0 +1,305 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.brooklyn.tasks.kubectl;
+
+import com.google.common.annotations.Beta;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Supplier;
+import com.google.common.util.concurrent.MoreExecutors;
+import org.apache.brooklyn.api.mgmt.ManagementContext;
+import org.apache.brooklyn.api.mgmt.Task;
+import org.apache.brooklyn.core.mgmt.BrooklynTaskTags;
+import org.apache.brooklyn.util.collections.MutableList;
+import org.apache.brooklyn.util.core.task.Tasks;
+import org.apache.brooklyn.util.exceptions.Exceptions;
+import org.apache.brooklyn.util.stream.Streams;
+import org.apache.brooklyn.util.time.Duration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.ChronoUnit;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.apache.brooklyn.tasks.kubectl.ContainerCommons.JOBS_LOGS_FOLLOW_CMD;
+
+/**
+ * Copies the output of a container job into a task's stdout stream as it is produced, using a single
+ * {@code kubectl logs --follow}, rather than repeatedly fetching the whole log.
+ * <p>
+ * Output is copied through a fixed-size buffer, so memory use here does not grow with the size of the log.
+ * If the connection is interrupted (or the container has not yet started) the command is re-run with
+ * {@code --since-time} set to the time of the last output copied, so only the output since then is read again;
+ * lines are requested with {@code --timestamps} so that those already copied can be skipped.
+ * Following ends once the pod has terminated and its output has been read, or when {@link #stop()} is called.
+ * <p>
+ * The command is run from a task in the management context, so is also stopped if that task is cancelled.
+ */
+@Beta
+public class KubectlLogFollower {
+
+    private static final Logger LOG = LoggerFactory.getLogger(KubectlLogFollower.class);
+
+    private static final int BUFFER_SIZE = 8192;
+    /** longer than any RFC 3339 timestamp, so a line start without a space within this is treated as having no timestamp */
+    private static final int MAX_TIMESTAMP_LENGTH = 64;
+    private static final Duration MAX_RECONNECT_DELAY = Duration.FIVE_SECONDS;
+
+    private final ManagementContext mgmt;
+    private final List<String> command;
+    private final String description;
+    private final OutputStream target;
+    private final Supplier<Boolean> podTerminated;
+
+    private volatile boolean stopped;
+    private volatile long bytesCopied;
+    private volatile Task<?> task;
+    // guarded by this
+    private Process process;
+
+    // position in the output, used only by the task following the logs (or a test calling copy):
+    // the timestamp of the last line started, how many lines have been seen with that timestamp,
+    // and how many bytes of the last line (after its timestamp) have been copied
+    private Instant lastTimestamp;
+    private int linesAtLastTimestamp;
+    private long lastLineBytesCopied;
+
+    /**
+     * @param podTerminated whether the job's pod has terminated, so that following can end once its output is read;
+     *                      may be null, or return null if not known, in which case following ends once a
+     *                      {@code kubectl logs --follow} exits successfully (as it does when the container ends)
+     */
+    public KubectlLogFollower(ManagementContext mgmt, String namespace, String kubeJobName, OutputStream target, Supplier<Boolean> podTerminated) {
+        this(mgmt, Arrays.asList(String.format(JOBS_LOGS_FOLLOW_CMD, kubeJobName, namespace).split(" ")),
+                "job "+kubeJobName+" in namespace "+namespace, target, podTerminated);
+    }
+
+    /** The {@code command} must write lines prefixed by their timestamp, as {@code --timestamps}, and accept a {@code --since-time} argument. */
+    @VisibleForTesting
+    KubectlLogFollower(ManagementContext mgmt, List<String> command, String description, OutputStream target, Supplier<Boolean> podTerminated) {
+        this.mgmt = mgmt;
+        this.command = command;
+        this.description = description;
+        this.target = target;
+        this.podTerminated = podTerminated;
+    }
+
+    public synchronized KubectlLogFollower start() {
+        if (task!=null) throw new IllegalStateException("Already started following logs of "+description);
+        task = mgmt.getExecutionManager().submit(Tasks.<Void>builder().dynamic(false).tag(BrooklynTaskTags.TRANSIENT_TASK_TAG)
+                .displayName("kubectl logs of "+description)
+                .body(() -> {
+                    followLoop();
+                    return null;
+                }).build());
+        // interrupting the task does not end a blocking read of the process output, so stop it explicitly if cancelled
+        task.addListener(this::destroyProcess, MoreExecutors.directExecutor());
+        return this;
+    }
+
+    /** The number of bytes of output copied to the target stream so far. */
+    public long getBytesCopied() {
+        return bytesCopied;
+    }
+
+    /** Whether output is still being followed, i.e. it has been started and has not been stopped or read to the end of the terminated pod. */
+    public boolean isFollowing() {
+        Task<?> t = task;
+        return t!=null && !t.isDone();
+    }
+
+    /** Stops following, waiting briefly for any output being copied to be written. */
+    public void stop() {
+        destroyProcess();
+        Task<?> t = task;
+        if (t!=null && !t.blockUntilEnded(Duration.TEN_SECONDS, true)) {
+            t.cancel(true);
+        }
+    }
+
+    private void destroyProcess() {
+        synchronized (this) {
+            stopped = true;
+            if (process!=null) process.destroy();
+            notifyAll();
+        }
+    }
+
+    private void followLoop() throws InterruptedException {
+        int attemptsWithoutOutput = 0;
+        while (!stopped) {
+            long copiedBefore = bytesCopied;
+            Integer exitCode = null;
+            Process p = null;
+            try {
+                List<String> commandNow = MutableList.copyOf(command);
+                if (lastTimestamp!=null) {
+                    // the api takes whole seconds; lines already copied in that second are skipped
+                    commandNow.add("--since-time="+lastTimestamp.truncatedTo(ChronoUnit.SECONDS));
+                }
+                p = new ProcessBuilder(commandNow).start();
+                synchronized (this) {
+                    if (stopped) return;
+                    process = p;
+                }
+                Streams.closeQuietly(p.getOutputStream());
+                drainStderr(p);
+
+                copy(p.getInputStream());
+                exitCode = p.waitFor();
+            } catch (Exception e) {
+                if (stopped) return;
+                Exceptions.propagateIfFatal(e);
+                LOG.debug("Following logs of "+description+" failed; will reconnect: "+e);
+            } finally {
+                if (p!=null) p.destroy();
+                synchronized (this) {
+                    process = null;
+                }
+            }
+            if (stopped) return;
+
+            Boolean terminated = podTerminated==null ? null : podTerminated.get();
+            if (terminated==null) terminated = exitCode!=null && exitCode==0;
+            if (terminated) {
+                LOG.debug("Following logs of "+description+" ended (exit code "+exitCode+", "+bytesCopied+" bytes copied); pod has terminated");
+                return;
+            }
+            LOG.debug("Following logs of "+description+" ended (exit code "+exitCode+", "+bytesCopied+" bytes copied); will reconnect");
+
+            attemptsWithoutOutput = bytesCopied>copiedBefore ? 0 : attemptsWithoutOutput+1;
+            long delay = Math.min(MAX_RECONNECT_DELAY.toMilliseconds(), 100L << Math.min(attemptsWithoutOutput, 6));
+            synchronized (this) {
+                if (!stopped) wait(delay);
+            }
+        }
+    }
+
+    /**
+     * Copies the output of one run of the command to the target, removing the timestamps and skipping lines
+     * (or the part of a line) already copied by an earlier run.
+     */
+    @VisibleForTesting
+    void copy(InputStream in) throws IOException {
+        byte[] buffer = new byte[BUFFER_SIZE];
+        byte[] timestamp = new byte[MAX_TIMESTAMP_LENGTH];
+        int timestampLength = 0;
+        boolean atLineStart = true;
+        // for the line being read: how many bytes of it to skip, or -1 to skip all of it; and whether it has a timestamp
+        long toSkip = 0;
+        boolean timestamped = false;
+        // lines seen with the last timestamp in this run, to match against those seen in earlier runs
+        int linesAtTimestampThisRun = 0;
+        int n;
+        while ((n = in.read(buffer)) != -1) {
+            int i = 0;
+            while (i < n) {
+                if (atLineStart) {
+                    byte b = buffer[i++];
+                    if (b != ' ' && b != '\n' && timestampLength < timestamp.length) {
+                        timestamp[timestampLength++] = b;
+                        continue;
+                    }
+                    Instant lineTimestamp = b == ' ' ? parseTimestamp(timestamp, timestampLength) : null;
+                    timestamped = lineTimestamp != null;
+                    atLineStart = b == '\n';
+                    if (lineTimestamp == null) {
+                        // not a timestamp (not expected); copy the line as it is
+                        toSkip = 0;
+                        write(timestamp, 0, timestampLength);
+                        write(new byte[] {b}, 0, 1);
+                    } else if (lastTimestamp != null && lineTimestamp.isBefore(lastTimestamp)) {
+                        toSkip = -1;
+                    } else {
+                        if (lastTimestamp == null || lineTimestamp.isAfter(lastTimestamp)) {
+                            lastTimestamp = lineTimestamp;
+                            linesAtLastTimestamp = 0;
+                            linesAtTimestampThisRun = 0;
+                        }
+                        linesAtTimestampThisRun++;
+                        if (linesAtTimestampThisRun < linesAtLastTimestamp) {
+                            toSkip = -1;
+                        } else if (linesAtTimestampThisRun == linesAtLastTimestamp) {
+                            // the line being copied when the previous run ended; continue from where it stopped
+                            toSkip = lastLineBytesCopied;
+                        } else {
+                            linesAtLastTimestamp = linesAtTimestampThisRun;
+                            lastLineBytesCopied = 0;
+                            toSkip = 0;
+                        }
+                    }
+                    timestampLength = 0;
+                    continue;
+                }
+
+                int end = i;
+                while (end < n && buffer[end] != '\n') end++;
+                boolean endOfLine = end < n;
+                if (endOfLine) end++;
+
+                int start = i;
+                if (toSkip < 0) {
+                    start = end;
+                } else if (toSkip > 0) {
+                    int skipped = (int) Math.min(toSkip, end - start);
+                    start += skipped;
+                    toSkip -= skipped;
+                }
+                if (end > start) {
+                    write(buffer, start, end - start);
+                    if (timestamped) lastLineBytesCopied += end - start;
+                }
+                i = end;
+                if (endOfLine) atLineStart = true;
+            }
+        }
+    }
+
+    private void write(byte[] bytes, int offset, int length) throws IOException {
+        if (stopped || length == 0) return;
+        target.write(bytes, offset, length);
+        bytesCopied += length;
+    }
+
+    private static Instant parseTimestamp(byte[] bytes, int length) {
+        if (length == 0) return null;
+        try {
+            return Instant.parse(new String(bytes, 0, length, StandardCharsets.US_ASCII));
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+
+    private void drainStderr(Process p) {
+        // ends when the process is destroyed
+        mgmt.getExecutionManager().submit(Tasks.<Void>builder().dynamic(false).tag(BrooklynTaskTags.TRANSIENT_TASK_TAG)
+                .displayName("kubectl logs stderr of "+description)
+                .body(() -> {
+                    String stderr = Streams.readFullyStringAndClose(p.getErrorStream());
+                    if (!stopped && !stderr.trim().isEmpty()) LOG.debug("Following logs of "+description+" reported: "+stderr.trim());
+                    return null;
+                }).build());
+    }
+}
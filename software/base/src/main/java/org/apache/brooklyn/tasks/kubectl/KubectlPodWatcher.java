@@ -0,0 +1,373 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.brooklyn.tasks.kubectl;
+
+import com.google.common.annotations.Beta;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.reflect.TypeToken;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonStreamParser;
+import org.apache.brooklyn.api.mgmt.ManagementContext;
+import org.apache.brooklyn.api.mgmt.Task;
+import org.apache.brooklyn.config.ConfigKey;
+import org.apache.brooklyn.core.config.ConfigKeys;
+import org.apache.brooklyn.core.mgmt.BrooklynTaskTags;
+import org.apache.brooklyn.tasks.kubectl.ContainerCommons.PodPhases;
+import org.apache.brooklyn.util.collections.MutableMap;
+import org.apache.brooklyn.util.core.task.Tasks;
+import org.apache.brooklyn.util.exceptions.Exceptions;
+import org.apache.brooklyn.util.stream.Streams;
+import org.apache.brooklyn.util.time.CountdownTimer;
+import org.apache.brooklyn.util.time.Duration;
+import org.apache.brooklyn.util.time.Time;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Map;
+
+import static org.apache.brooklyn.tasks.kubectl.ContainerCommons.PODS_WATCH_CMD;
+
+/**
+ * Follows the pods in a namespace with a single long-running {@code kubectl get pods --watch}, so that container
+ * tasks can wait for their job's pod to change state rather than running {@code kubectl} repeatedly to poll it.
+ * <p>
+ * Watchers are shared by all tasks using the same namespace in a management context; see {@link #acquire(ManagementContext, String)}.
+ * The process is run from a task in the management context, restarted if it exits while the watcher is in use, and stopped when
+ * the last user calls {@link #release()} or the task is cancelled (e.g. when the management context is terminated).
+ * Callers should fall back to polling whenever {@link #isWatching()} is false.
+ * <p>
+ * Pods are forgotten when the watch reports them deleted, or when the caller waiting on their job calls {@link #forgetJob(String)}.
+ */
+@Beta
+public class KubectlPodWatcher {
+
+    private static final Logger LOG = LoggerFactory.getLogger(KubectlPodWatcher.class);
+
+    @SuppressWarnings("serial")
+    private static final ConfigKey<Map<String,KubectlPodWatcher>> POD_WATCHERS = ConfigKeys.newConfigKey(new TypeToken<Map<String,KubectlPodWatcher>>() {},
+            "internals.brooklyn.kubectl.pod_watchers");
+
+    /** Returns the watcher for the given namespace, starting it if necessary; callers must {@link #release()} it when done. */
+    public static KubectlPodWatcher acquire(ManagementContext mgmt, String namespace) {
+        synchronized (POD_WATCHERS) {
+            Map<String,KubectlPodWatcher> watchers = mgmt.getScratchpad().get(POD_WATCHERS);
+            if (watchers==null) {
+                watchers = MutableMap.of();
+                mgmt.getScratchpad().put(POD_WATCHERS, watchers);
+            }
+            KubectlPodWatcher watcher = watchers.get(namespace);
+            if (watcher==null || watcher.stopped) {
+                watcher = new KubectlPodWatcher(mgmt, namespace, watchers);
+                watchers.put(namespace, watcher);
+                watcher.start();
+            }
+            watcher.users++;
+            return watcher;
+        }
+    }
+
+    private static class PodState {
+        final String podName;
+        /** as RFC 3339 in UTC, so ordered as strings; empty if not known */
+        final String creationTimestamp;
+        /** order in which pods were first seen, for pods created in the same second */
+        final long seen;
+        final PodPhases phase;
+        PodState(String podName, String creationTimestamp, long seen, PodPhases phase) {
+            this.podName = podName;
+            this.creationTimestamp = creationTimestamp;
+            this.seen = seen;
+            this.phase = phase;
+        }
+        boolean isNewerThan(PodState other) {
+            int c = creationTimestamp.compareTo(other.creationTimestamp);
+            return c!=0 ? c>0 : seen>other.seen;
+        }
+    }
+
+    private final ManagementContext mgmt;
+    private final String namespace;
+    private final Map<String,KubectlPodWatcher> registry;
+    // guarded by POD_WATCHERS
+    private int users;
+
+    private final Object mutex = new Object();
+    // guarded by mutex; keyed by job name then pod name, as a job may have several pods (e.g. if one fails and is retried)
+    private final Map<String,Map<String,PodState>> podsByJob = MutableMap.of();
+    private long podsSeen;
+    private Process process;
+    private boolean watching;
+    private volatile boolean stopped;
+    private volatile Task<?> task;
+
+    @VisibleForTesting
+    KubectlPodWatcher(ManagementContext mgmt, String namespace, Map<String,KubectlPodWatcher> registry) {
+        // validate as passed to the command line
+        if (!namespace.matches("[A-Za-z0-9_.-]+")) throw new IllegalStateException("Invalid namespace: "+namespace);
+        this.mgmt = mgmt;
+        this.namespace = namespace;
+        this.registry = registry;
+    }
+
+    public String getNamespace() {
+        return namespace;
+    }
+
+    /** Indicates this watcher is no longer needed by the caller; the watch is stopped once no one needs it. */
+    public void release() {
+        synchronized (POD_WATCHERS) {
+            if (--users > 0) return;
+            // may have been replaced if stopped while in use
+            if (registry.get(namespace)==this) registry.remove(namespace);
+        }
+        stop();
+    }
+
+    /** Whether the watch is currently running, so that the states reported here are up to date. */
+    public boolean isWatching() {
+        synchronized (mutex) {
+            return watching;
+        }
+    }
+
+    /**
+     * The phase of the current pod for the given job, as last reported by the watch, or null if no such pod has been seen.
+     * If the job has had several pods, the current one is the most recently created (earlier ones having been replaced),
+     * whatever order updates to them are reported in.
+     */
+    public PodPhases getPhase(String jobName) {
+        synchronized (mutex) {
+            PodState state = getCurrentPod(jobName);
+            return state==null ? null : state.phase;
+        }
+    }
+
+    /** The name of the current pod for the given job (see {@link #getPhase(String)}), or null if no such pod has been seen. */
+    public String getPodName(String jobName) {
+        synchronized (mutex) {
+            PodState state = getCurrentPod(jobName);
+            return state==null ? null : state.podName;
+        }
+    }
+
+    // requires mutex
+    private PodState getCurrentPod(String jobName) {
+        Map<String,PodState> pods = podsByJob.get(jobName);
+        if (pods==null) return null;
+        PodState result = null;
+        for (PodState state: pods.values()) {
+            if (result==null || state.isNewerThan(result)) result = state;
+        }
+        return result;
+    }
+
+    /** Discards what is known about the pods of the given job, e.g. once the task waiting on it has finished. */
+    public void forgetJob(String jobName) {
+        synchronized (mutex) {
+            podsByJob.remove(jobName);
+        }
+    }
+
+    @VisibleForTesting
+    int getPodCount() {
+        synchronized (mutex) {
+            int result = 0;
+            for (Map<String,PodState> pods: podsByJob.values()) result += pods.size();
+            return result;
+        }
+    }
+
+    /**
+     * Waits until the phase of the pod for the given job is something other than the given phase,
+     * the watch stops, or the timeout elapses; returns the latest phase ({@link PodPhases#Unknown} if no pod has been seen).
+     */
+    public PodPhases awaitPhaseChange(String jobName, PodPhases phase, Duration timeout) {
+        CountdownTimer timer = CountdownTimer.newInstanceStarted(timeout);
+        synchronized (mutex) {
+            while (true) {
+                PodState state = getCurrentPod(jobName);
+                PodPhases current = state==null ? PodPhases.Unknown : state.phase;
+                if (current!=phase || !watching || timer.isExpired()) return current;
+                try {
+                    mutex.wait(Math.max(1, timer.getDurationRemaining().toMilliseconds()));
+                } catch (InterruptedException e) {
+                    throw Exceptions.propagate(e);
+                }
+            }
+        }
+    }
+
+    private void start() {
+        task = mgmt.getExecutionManager().submit(Tasks.<Void>builder().dynamic(false).tag(BrooklynTaskTags.TRANSIENT_TASK_TAG)
+                .displayName("kubectl pod watch in namespace "+namespace)
+                .body(() -> {
+                    watchLoop();
+                    return null;
+                }).build());
+        // interrupting the task does not end a blocking read of the process output, so stop it explicitly if cancelled
+        task.addListener(this::stop, MoreExecutors.directExecutor());
+    }
+
+    private void stop() {
+        stopped = true;
+        synchronized (mutex) {
+            if (process!=null) process.destroy();
+            watching = false;
+            mutex.notifyAll();
+        }
+        Task<?> t = task;
+        if (t!=null && !t.isDone()) t.cancel(true);
+    }
+
+    private void watchLoop() {
+        int quickFailures = 0;
+        while (!stopped) {
+            long startTime = System.currentTimeMillis();
+            Process p = null;
+            try {
+                p = new ProcessBuilder(Arrays.asList(String.format(PODS_WATCH_CMD, namespace).split(" "))).start();
+                synchronized (mutex) {
+                    if (stopped) {
+                        p.destroy();
+                        return;
+                    }
+                    process = p;
+                    watching = true;
+                    mutex.notifyAll();
+                }
+                Streams.closeQuietly(p.getOutputStream());
+                drainStderr(p);
+                LOG.debug("Watching pods in namespace "+namespace);
+
+                onPods(new InputStreamReader(p.getInputStream(), StandardCharsets.UTF_8));
+                int exitCode = p.waitFor();
+                if (!stopped) LOG.debug("Watch of pods in namespace "+namespace+" ended (exit code "+exitCode+"); will restart");
+            } catch (Exception e) {
+                if (stopped) return;
+                Exceptions.propagateIfFatal(e);
+                LOG.debug("Watch of pods in namespace "+namespace+" failed; will restart (callers will poll in the meantime): "+e);
+            } finally {
+                if (p!=null) p.destroy();
+                synchronized (mutex) {
+                    process = null;
+                    watching = false;
+                    mutex.notifyAll();
+                }
+            }
+
+            // back off if kubectl keeps exiting quickly (e.g. not installed or not configured)
+            quickFailures = System.currentTimeMillis() - startTime < 10*1000 ? quickFailures+1 : 0;
+            if (!stopped) Time.sleep(Duration.millis(Math.min(30*1000, 250L << Math.min(quickFailures, 7))));
+        }
+    }
+
+    private void drainStderr(Process p) {
+        // ends when the process is destroyed
+        mgmt.getExecutionManager().submit(Tasks.<Void>builder().dynamic(false).tag(BrooklynTaskTags.TRANSIENT_TASK_TAG)
+                .displayName("kubectl pod watch stderr in namespace "+namespace)
+                .body(() -> {
+                    String stderr = Streams.readFullyStringAndClose(p.getErrorStream());
+                    if (!stopped && !stderr.trim().isEmpty()) LOG.debug("Watch of pods in namespace "+namespace+" reported: "+stderr.trim());
+                    return null;
+                }).build());
+    }
+
+    /**
+     * Reads the output of the watch until it ends; kubectl writes each pod as a separate (pretty-printed) json object whenever it changes,
+     * wrapped in an event giving the type of change (e.g. {@code DELETED}) as we ask for watch events.
+     */
+    @VisibleForTesting
+    void onPods(Reader output) {
+        JsonStreamParser parser = new JsonStreamParser(output);
+        while (parser.hasNext()) {
+            onPod(parser.next());
+        }
+    }
+
+    private void onPod(JsonElement element) {
+        if (!element.isJsonObject()) return;
+        JsonObject pod = element.getAsJsonObject();
+        String eventType = null;
+        if (pod.has("type") && pod.has("object")) {
+            eventType = getString(pod, "type");
+            pod = getObject(pod, "object");
+        }
+        JsonObject metadata = getObject(pod, "metadata");
+        String podName = getString(metadata, "name");
+        String jobName = getString(getObject(metadata, "labels"), "job-name");
+        if (podName==null || jobName==null) return;
+        String creationTimestamp = getString(metadata, "creationTimestamp");
+        PodPhases phase = getPhase(getObject(pod, "status"));
+
+        synchronized (mutex) {
+            Map<String,PodState> pods = podsByJob.get(jobName);
+            if ("DELETED".equals(eventType)) {
+                if (pods!=null) {
+                    pods.remove(podName);
+                    if (pods.isEmpty()) podsByJob.remove(jobName);
+                }
+            } else {
+                if (pods==null) {
+                    pods = MutableMap.of();
+                    podsByJob.put(jobName, pods);
+                }
+                PodState previous = pods.get(podName);
+                long seen = previous!=null ? previous.seen : podsSeen++;
+                pods.put(podName, new PodState(podName, creationTimestamp==null ? "" : creationTimestamp, seen, phase));
+            }
+            mutex.notifyAll();
+        }
+    }
+
+    /** As {@link ContainerTaskFactory}, prefers the container state as it is populated much sooner than the pod phase. */
+    private static PodPhases getPhase(JsonObject status) {
+        JsonElement containerStatuses = status==null ? null : status.get("containerStatuses");
+        if (containerStatuses!=null && containerStatuses.isJsonArray() && ((JsonArray) containerStatuses).size()>0
+                && containerStatuses.getAsJsonArray().get(0).isJsonObject()) {
+            JsonObject state = getObject(containerStatuses.getAsJsonArray().get(0).getAsJsonObject(), "state");
+            if (state!=null) {
+                // exit code is checked separately
+                if (state.has("terminated")) return PodPhases.Succeeded;
+                if (state.has("running")) return PodPhases.Running;
+            }
+        }
+        String phase = getString(status, "phase");
+        for (PodPhases candidate: PodPhases.values()) {
+            if (candidate.name().equalsIgnoreCase(phase)) return candidate;
+        }
+        return PodPhases.Unknown;
+    }
+
+    private static JsonObject getObject(JsonObject parent, String field) {
+        JsonElement result = parent==null ? null : parent.get(field);
+        return result!=null && result.isJsonObject() ? result.getAsJsonObject() : null;
+    }
+
+    private static String getString(JsonObject parent, String field) {
+        JsonElement result = parent==null ? null : parent.get(field);
+        return result!=null && result.isJsonPrimitive() ? result.getAsString() : null;
+    }
+}
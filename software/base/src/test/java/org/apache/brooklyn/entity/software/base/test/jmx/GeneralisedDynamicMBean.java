@@ -22,6 +22,7 @@ import static com.google.common.base.Preconditions.checkArgument;
 
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.management.Attribute;
 import javax.management.AttributeList;
@@ -55,6 +56,8 @@ public class GeneralisedDynamicMBean implements DynamicMBean {
     private final MBeanInfo mBeanInfo;
     private final Map<String,Object> attributes = Maps.newLinkedHashMap();
     private final Map<String,Function> operations = Maps.newLinkedHashMap();
+    private final AtomicInteger getAttributeCallCount = new AtomicInteger();
+    private final AtomicInteger getAttributesCallCount = new AtomicInteger();
     
     public GeneralisedDynamicMBean(Map<String,?> initialAttributes, Map<?,?> initialOperations) {
         attributes.putAll(initialAttributes);
@@ -101,8 +104,19 @@ public class GeneralisedDynamicMBean implements DynamicMBean {
         attributes.put(name, value);
     }
 
+    /** Number of calls to {@link #getAttribute(String)}. */
+    public int getAttributeCallCount() {
+        return getAttributeCallCount.get();
+    }
+
+    /** Number of calls to {@link #getAttributes(String[])}. */
+    public int getAttributesCallCount() {
+        return getAttributesCallCount.get();
+    }
+
     @Override
     public Object getAttribute(String s) {
+        getAttributeCallCount.incrementAndGet();
         return attributes.get(s);
     }
 
@@ -113,10 +127,12 @@ public class GeneralisedDynamicMBean implements DynamicMBean {
 
     @Override
     public AttributeList getAttributes(String[] strings) {
+        getAttributesCallCount.incrementAndGet();
         AttributeList result = new AttributeList();
-        for (Object obj : mBeanInfo.getAttributes()) {
-            Attribute attrib = (Attribute) obj;
-            result.add(new Attribute(attrib.getName(), attributes.get(attrib.getName())));
+        for (String name : strings) {
+            if (attributes.containsKey(name)) {
+                result.add(new Attribute(name, attributes.get(name)));
+            }
         }
         return result;
     }
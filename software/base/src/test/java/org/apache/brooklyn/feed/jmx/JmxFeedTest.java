@@ -180,6 +180,84 @@ public class JmxFeedTest extends BrooklynAppUnitTestSupport {
         assertSensorEventually(intAttribute, 64, TIMEOUT_MS);
     }
 
+    @Test
+    public void testBulkAttributePollsReadEachMBeanInOneCall() throws Exception {
+        GeneralisedDynamicMBean mbean = jmxService.registerMBean(ImmutableMap.of(attributeName, 42, "mystringattrib", "abc"), objectName);
+        AttributeSensor<Integer> missingAttribute = Sensors.newIntegerSensor("brooklyn.test.missingAttribute");
+
+        feed = JmxFeed.builder()
+                .entity(entity)
+                .bulkAttributePolls(true)
+                .pollAttribute(new JmxAttributePollConfig<Integer>(intAttribute)
+                        .objectName(objectName)
+                        .period(50)
+                        .attributeName(attributeName))
+                .pollAttribute(new JmxAttributePollConfig<String>(stringAttribute)
+                        .objectName(objectName)
+                        .period(50)
+                        .attributeName("mystringattrib"))
+                .pollAttribute(new JmxAttributePollConfig<Integer>(missingAttribute)
+                        .objectName(objectName)
+                        .period(50)
+                        .attributeName("notthere"))
+                .build();
+        
+        assertSensorEventually(intAttribute, 42, TIMEOUT_MS);
+        assertSensorEventually(stringAttribute, "abc", TIMEOUT_MS);
+        assertEquals(entity.getAttribute(missingAttribute), null);
+
+        mbean.updateAttributeValue(attributeName, 64);
+        mbean.updateAttributeValue("mystringattrib", "def");
+        assertSensorEventually(intAttribute, 64, TIMEOUT_MS);
+        assertSensorEventually(stringAttribute, "def", TIMEOUT_MS);
+        
+        // attributes missing from the bulk read are re-read individually (so any error can be reported), but no others
+        assertTrue(mbean.getAttributesCallCount() > 0);
+        assertTrue(mbean.getAttributeCallCount() <= mbean.getAttributesCallCount(), 
+                "getAttribute="+mbean.getAttributeCallCount()+"; getAttributes="+mbean.getAttributesCallCount());
+    }
+
+    @Test
+    public void testSharedConnectionIsReferenceCounted() throws Exception {
+        jmxService.registerMBean(ImmutableMap.of(attributeName, 42, "mystringattrib", "abc"), objectName);
+        
+        feed = JmxFeed.builder()
+                .entity(entity)
+                .sharedConnection(true)
+                .pollAttribute(new JmxAttributePollConfig<Integer>(intAttribute)
+                        .objectName(objectName)
+                        .period(50)
+                        .attributeName(attributeName))
+                .build();
+        JmxFeed feed2 = JmxFeed.builder()
+                .entity(entity)
+                .sharedConnection(true)
+                .pollAttribute(new JmxAttributePollConfig<String>(stringAttribute)
+                        .objectName(objectName)
+                        .period(50)
+                        .attributeName("mystringattrib"))
+                .build();
+        try {
+            assertSensorEventually(intAttribute, 42, TIMEOUT_MS);
+            assertSensorEventually(stringAttribute, "abc", TIMEOUT_MS);
+            
+            JmxHelper helper = feed.getHelper();
+            assertTrue(helper == feed2.getHelper(), "feeds should share a helper");
+            assertEquals(JmxConnectionPool.getInstance().getReferenceCount(helper), 2);
+            
+            feed2.stop();
+            assertEquals(JmxConnectionPool.getInstance().getReferenceCount(helper), 1);
+            assertTrue(helper.isConnected());
+            
+            feed.stop();
+            feed = null;
+            assertEquals(JmxConnectionPool.getInstance().getReferenceCount(helper), 0);
+            assertTrue(!helper.isConnected());
+        } finally {
+            feed2.stop();
+        }
+    }
+
     @Test
     public void testJmxAttributeSensor() throws Exception {
         GeneralisedDynamicMBean mbean = jmxService.registerMBean(ImmutableMap.of(attributeName, 42), objectName);
@@ -0,0 +1,139 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.brooklyn.tasks.kubectl;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import org.apache.brooklyn.core.test.BrooklynAppUnitTestSupport;
+import org.apache.brooklyn.test.Asserts;
+import org.apache.brooklyn.util.core.config.ConfigBag;
+import org.apache.brooklyn.util.core.task.system.ProcessTaskFactory;
+import org.apache.brooklyn.util.core.task.system.ProcessTaskStub;
+import org.apache.brooklyn.util.core.task.system.ProcessTaskWrapper;
+import org.apache.brooklyn.util.core.task.system.internal.SystemProcessTaskFactory;
+import org.apache.brooklyn.util.exceptions.Exceptions;
+import org.apache.brooklyn.util.time.CountdownTimer;
+import org.apache.brooklyn.util.time.Duration;
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.testng.Assert.assertEquals;
+
+/** Checks the handling of {@code kubectl} output, with the commands stubbed so no cluster is needed. */
+public class ContainerTaskFactoryTest extends BrooklynAppUnitTestSupport {
+
+    @Test
+    public void testRefreshStdoutWhenPollingAppendsOutput() throws Exception {
+        StubbedContainerTaskFactory factory = new StubbedContainerTaskFactory(0, "line1\nline2\n", "");
+        ByteArrayOutputStream stdout = new ByteArrayOutputStream();
+        stdout.write("line1\n".getBytes(StandardCharsets.UTF_8));
+
+        factory.refreshStdout(app, stdout, "job1", newTimer(), false);
+
+        assertEquals(new String(stdout.toByteArray(), StandardCharsets.UTF_8), "line1\nline2\n");
+        assertEquals(factory.commands, ImmutableList.of("kubectl logs jobs/job1 --namespace=test-ns"));
+    }
+
+    @Test
+    public void testRefreshStdoutWhenFollowingLogsOnlyChecksLogs() throws Exception {
+        StubbedContainerTaskFactory factory = new StubbedContainerTaskFactory(0, "l", "");
+        ByteArrayOutputStream stdout = new ByteArrayOutputStream();
+
+        factory.refreshStdout(app, stdout, "job1", newTimer(), true);
+
+        // output is written by the log follower
+        assertEquals(stdout.size(), 0);
+        assertEquals(factory.commands, ImmutableList.of("kubectl logs jobs/job1 --namespace=test-ns --limit-bytes=1"));
+    }
+
+    @Test
+    public void testRefreshStdoutWhenFollowingLogsFailsOnLogsError() throws Exception {
+        assertRefreshStdoutFailsOnLogsError(true);
+    }
+
+    @Test
+    public void testRefreshStdoutWhenPollingFailsOnLogsError() throws Exception {
+        assertRefreshStdoutFailsOnLogsError(false);
+    }
+
+    private void assertRefreshStdoutFailsOnLogsError(boolean followingLogs) throws Exception {
+        StubbedContainerTaskFactory factory = new StubbedContainerTaskFactory(1, "", "Error from server (BadRequest): container is terminated");
+        ByteArrayOutputStream stdout = new ByteArrayOutputStream();
+        try {
+            factory.refreshStdout(app, stdout, "job1", newTimer(), followingLogs);
+            Asserts.shouldHaveFailedPreviously();
+        } catch (IllegalStateException e) {
+            Asserts.expectedFailureContains(e, "Error detected with container job while reading logs", "exit code 1", "BadRequest");
+        }
+        assertEquals(stdout.size(), 0);
+    }
+
+    private static CountdownTimer newTimer() {
+        return CountdownTimer.newInstanceStarted(Duration.ONE_MINUTE);
+    }
+
+    /** Records the commands, returning the given result for each rather than running it. */
+    private static class StubbedContainerTaskFactory extends ContainerTaskFactory<StubbedContainerTaskFactory, ContainerTaskResult> {
+        final List<String> commands = Lists.newCopyOnWriteArrayList();
+        final int stubExitCode;
+        final String stubStdout;
+        final String stubStderr;
+
+        StubbedContainerTaskFactory(int exitCode, String stdout, String stderr) {
+            this.stubExitCode = exitCode;
+            this.stubStdout = stdout;
+            this.stubStderr = stderr;
+            useNamespace("test-ns", false, false);
+        }
+
+        @Override
+        ProcessTaskFactory<String> newSimpleTaskFactory(String... kubeCommands) {
+            commands.addAll(Arrays.asList(kubeCommands));
+            return new StubbedProcessTaskFactory(kubeCommands);
+        }
+
+        private class StubbedProcessTaskFactory extends SystemProcessTaskFactory.ConcreteSystemProcessTaskFactory<String> {
+            StubbedProcessTaskFactory(String... commands) {
+                super(commands);
+                this.<String>returning(ProcessTaskStub.ScriptReturnType.STDOUT_STRING);
+            }
+
+            @Override
+            public ProcessTaskWrapper<String> newTask() {
+                return new SystemProcessTaskWrapper() {
+                    @Override
+                    protected void run(ConfigBag config) {
+                        try {
+                            stdoutForWriting().write(stubStdout.getBytes(StandardCharsets.UTF_8));
+                            stderrForWriting().write(stubStderr.getBytes(StandardCharsets.UTF_8));
+                        } catch (IOException e) {
+                            throw Exceptions.propagate(e);
+                        }
+                        exitCode = stubExitCode;
+                    }
+                };
+            }
+        }
+    }
+}
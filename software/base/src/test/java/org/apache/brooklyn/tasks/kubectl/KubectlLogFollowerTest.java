@@ -0,0 +1,175 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.brooklyn.tasks.kubectl;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.io.Files;
+import org.apache.brooklyn.api.mgmt.ManagementContext;
+import org.apache.brooklyn.core.entity.Entities;
+import org.apache.brooklyn.core.test.entity.LocalManagementContextForTests;
+import org.apache.brooklyn.test.Asserts;
+import org.apache.brooklyn.util.os.Os;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+
+/**
+ * The integration tests use a local command in place of {@code kubectl logs --follow --timestamps}; each run prints
+ * the whole "log" so far, then exits.
+ */
+public class KubectlLogFollowerTest {
+
+    private static final String T1 = "2022-01-01T10:00:00.000000001Z";
+    private static final String T2 = "2022-01-01T10:00:00.5Z";
+    private static final String T3 = "2022-01-01T10:00:01Z";
+
+    private ManagementContext mgmt;
+    private File logFile;
+    private ByteArrayOutputStream stdout;
+    private KubectlLogFollower follower;
+
+    @BeforeMethod(alwaysRun = true)
+    public void setUp() throws Exception {
+        logFile = Os.newTempFile(getClass(), "log");
+        stdout = new ByteArrayOutputStream();
+    }
+
+    @AfterMethod(alwaysRun = true)
+    public void tearDown() throws Exception {
+        if (follower != null) follower.stop();
+        if (mgmt != null) Entities.destroyAll(mgmt);
+        if (logFile != null) logFile.delete();
+    }
+
+    @Test
+    public void testCopiesOutputWithoutTimestamps() throws Exception {
+        follower = newFollowerNotStarted();
+        copy(T1+" line1\n"+T2+" line2\n");
+        assertStdout("line1\nline2\n");
+        assertEquals(follower.getBytesCopied(), 12);
+    }
+
+    @Test
+    public void testSkipsOutputAlreadyCopiedOnReconnect() throws Exception {
+        follower = newFollowerNotStarted();
+        copy(T1+" line1\n"+T2+" line2\n");
+        // since-time is truncated to the second, so earlier lines are repeated
+        copy(T1+" line1\n"+T2+" line2\n"+T3+" line3\n");
+        assertStdout("line1\nline2\nline3\n");
+    }
+
+    @Test
+    public void testSkipsLinesWithSameTimestampAlreadyCopied() throws Exception {
+        follower = newFollowerNotStarted();
+        copy(T1+" a\n"+T1+" b\n");
+        copy(T1+" a\n"+T1+" b\n"+T1+" c\n");
+        assertStdout("a\nb\nc\n");
+    }
+
+    @Test
+    public void testContinuesLineInterruptedByReconnect() throws Exception {
+        follower = newFollowerNotStarted();
+        copy(T1+" line1\n"+T2+" hel");
+        copy(T1+" line1\n"+T2+" hello\n"+T3+" line3\n");
+        assertStdout("line1\nhello\nline3\n");
+    }
+
+    @Test
+    public void testCopiesLinesWithoutTimestampAsIs() throws Exception {
+        follower = newFollowerNotStarted();
+        copy("plain line\n\n"+T1+" line1\n");
+        assertStdout("plain line\n\nline1\n");
+    }
+
+    @Test(groups = "Integration")
+    public void testReconnectsWithoutDuplicatingOutput() throws Exception {
+        Files.asCharSink(logFile, StandardCharsets.UTF_8).write(T1+" line1\n");
+        follower = newFollower(new AtomicBoolean(false)).start();
+
+        assertStdoutEventually("line1\n");
+
+        Files.asCharSink(logFile, StandardCharsets.UTF_8).write(T1+" line1\n"+T2+" line2\n"+T3+" line3\n");
+        assertStdoutEventually("line1\nline2\nline3\n");
+
+        // reconnecting repeatedly does not duplicate output
+        Thread.sleep(500);
+        assertStdout("line1\nline2\nline3\n");
+        assertEquals(follower.getBytesCopied(), 18);
+    }
+
+    @Test(groups = "Integration")
+    public void testStopsReconnectingOncePodTerminated() throws Exception {
+        Files.asCharSink(logFile, StandardCharsets.UTF_8).write(T1+" line1\n");
+        AtomicBoolean terminated = new AtomicBoolean(false);
+        follower = newFollower(terminated).start();
+        assertStdoutEventually("line1\n");
+
+        terminated.set(true);
+        Asserts.succeedsEventually(() -> assertFalse(follower.isFollowing()));
+        Files.asCharSink(logFile, StandardCharsets.UTF_8).write(T1+" line1\n"+T2+" line2\n");
+        Thread.sleep(500);
+
+        assertStdout("line1\n");
+    }
+
+    @Test(groups = "Integration")
+    public void testStopEndsFollowing() throws Exception {
+        Files.asCharSink(logFile, StandardCharsets.UTF_8).write(T1+" line1\n");
+        follower = newFollower(new AtomicBoolean(false)).start();
+        assertStdoutEventually("line1\n");
+
+        follower.stop();
+        assertFalse(follower.isFollowing());
+        Files.asCharSink(logFile, StandardCharsets.UTF_8).write(T1+" line1\n"+T2+" line2\n");
+        Thread.sleep(500);
+
+        assertStdout("line1\n");
+    }
+
+    private KubectlLogFollower newFollowerNotStarted() {
+        return new KubectlLogFollower(null, ImmutableList.<String>of(), "test log", stdout, null);
+    }
+
+    private KubectlLogFollower newFollower(AtomicBoolean terminated) {
+        mgmt = LocalManagementContextForTests.newInstance();
+        // the --since-time argument added on reconnecting is ignored by the script
+        return new KubectlLogFollower(mgmt, ImmutableList.of("sh", "-c", "cat "+logFile.getAbsolutePath()), "test log", stdout, terminated::get);
+    }
+
+    private void copy(String output) throws Exception {
+        follower.copy(new ByteArrayInputStream(output.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private void assertStdout(String expected) {
+        assertEquals(new String(stdout.toByteArray(), StandardCharsets.UTF_8), expected);
+    }
+
+    private void assertStdoutEventually(final String expected) {
+        Asserts.succeedsEventually(() -> assertStdout(expected));
+    }
+}
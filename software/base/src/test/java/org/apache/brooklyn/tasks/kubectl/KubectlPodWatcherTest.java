@@ -0,0 +1,148 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.brooklyn.tasks.kubectl;
+
+import org.apache.brooklyn.tasks.kubectl.ContainerCommons.PodPhases;
+import org.apache.brooklyn.util.collections.MutableMap;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.StringReader;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+
+public class KubectlPodWatcherTest {
+
+    private KubectlPodWatcher watcher;
+
+    @BeforeMethod(alwaysRun = true)
+    public void setUp() {
+        // not started, so no kubectl needed; output of the watch is fed in directly
+        watcher = new KubectlPodWatcher(null, "test-ns", MutableMap.<String, KubectlPodWatcher>of());
+    }
+
+    @Test
+    public void testReportsPhaseOfPod() {
+        watcher.onPods(new StringReader(pod("job1-aaaaa", "job1", "2022-01-01T10:00:00Z", "Pending", null)
+                + pod("job1-aaaaa", "job1", "2022-01-01T10:00:00Z", "Running", "running")));
+
+        assertEquals(watcher.getPhase("job1"), PodPhases.Running);
+        assertEquals(watcher.getPodName("job1"), "job1-aaaaa");
+        assertNull(watcher.getPhase("other"));
+        assertNull(watcher.getPodName("other"));
+    }
+
+    @Test
+    public void testLateUpdateToFailedPodDoesNotReplaceRetriedPod() {
+        watcher.onPods(new StringReader(pod("job1-aaaaa", "job1", "2022-01-01T10:00:00Z", "Running", "running")
+                + pod("job1-bbbbb", "job1", "2022-01-01T10:00:05Z", "Pending", null)
+                + pod("job1-aaaaa", "job1", "2022-01-01T10:00:00Z", "Failed", "terminated")
+                + pod("job2-ccccc", "job2", "2022-01-01T10:00:01Z", "Succeeded", "terminated")));
+
+        assertEquals(watcher.getPhase("job1"), PodPhases.Pending);
+        assertEquals(watcher.getPodName("job1"), "job1-bbbbb");
+        assertEquals(watcher.getPhase("job2"), PodPhases.Succeeded);
+        assertEquals(watcher.getPodName("job2"), "job2-ccccc");
+    }
+
+    @Test
+    public void testPodsCreatedInSameSecondUseOrderSeen() {
+        watcher.onPods(new StringReader(pod("job1-aaaaa", "job1", "2022-01-01T10:00:00Z", "Running", "running")
+                + pod("job1-bbbbb", "job1", "2022-01-01T10:00:00Z", "Running", "running")
+                + pod("job1-aaaaa", "job1", "2022-01-01T10:00:00Z", "Failed", "terminated")));
+
+        assertEquals(watcher.getPodName("job1"), "job1-bbbbb");
+        assertEquals(watcher.getPhase("job1"), PodPhases.Running);
+    }
+
+    @Test
+    public void testIgnoresPodsNotForJobs() {
+        watcher.onPods(new StringReader("{ \"metadata\": { \"name\": \"standalone\", \"labels\": {} }, \"status\": { \"phase\": \"Running\" } }"
+                + pod("job1-aaaaa", "job1", "2022-01-01T10:00:00Z", "Pending", null)));
+
+        assertEquals(watcher.getPhase("job1"), PodPhases.Pending);
+    }
+
+    @Test
+    public void testReadsWatchEvents() {
+        watcher.onPods(new StringReader(event("ADDED", pod("job1-aaaaa", "job1", "2022-01-01T10:00:00Z", "Pending", null))
+                + event("MODIFIED", pod("job1-aaaaa", "job1", "2022-01-01T10:00:00Z", "Running", "running"))));
+
+        assertEquals(watcher.getPhase("job1"), PodPhases.Running);
+        assertEquals(watcher.getPodName("job1"), "job1-aaaaa");
+    }
+
+    @Test
+    public void testForgetsDeletedPods() {
+        watcher.onPods(new StringReader(event("ADDED", pod("job1-aaaaa", "job1", "2022-01-01T10:00:00Z", "Running", "running"))
+                + event("ADDED", pod("job1-bbbbb", "job1", "2022-01-01T10:00:05Z", "Pending", null))
+                + event("ADDED", pod("job2-ccccc", "job2", "2022-01-01T10:00:01Z", "Running", "running"))
+                + event("DELETED", pod("job1-bbbbb", "job1", "2022-01-01T10:00:05Z", "Pending", null))));
+
+        assertEquals(watcher.getPodName("job1"), "job1-aaaaa");
+        assertEquals(watcher.getPodCount(), 2);
+
+        watcher.onPods(new StringReader(event("DELETED", pod("job1-aaaaa", "job1", "2022-01-01T10:00:00Z", "Succeeded", "terminated"))));
+        assertNull(watcher.getPhase("job1"));
+        assertEquals(watcher.getPhase("job2"), PodPhases.Running);
+        assertEquals(watcher.getPodCount(), 1);
+    }
+
+    @Test
+    public void testForgetsPodsOfFinishedJob() {
+        watcher.onPods(new StringReader(pod("job1-aaaaa", "job1", "2022-01-01T10:00:00Z", "Failed", "terminated")
+                + pod("job1-bbbbb", "job1", "2022-01-01T10:00:05Z", "Succeeded", "terminated")
+                + pod("job2-ccccc", "job2", "2022-01-01T10:00:01Z", "Running", "running")));
+
+        watcher.forgetJob("job1");
+
+        assertNull(watcher.getPhase("job1"));
+        assertEquals(watcher.getPhase("job2"), PodPhases.Running);
+        assertEquals(watcher.getPodCount(), 1);
+    }
+
+    /** A change to a pod as written by {@code kubectl get pods --watch --output-watch-events -o json}. */
+    private static String event(String type, String pod) {
+        return "{\n"
+                + "    \"type\": \"" + type + "\",\n"
+                + "    \"object\": " + pod
+                + "}\n";
+    }
+
+    /** A pod as written (pretty-printed) by {@code kubectl get pods --watch -o json}, with optional container state. */
+    private static String pod(String podName, String jobName, String creationTimestamp, String phase, String containerState) {
+        return "{\n"
+                + "    \"apiVersion\": \"v1\",\n"
+                + "    \"kind\": \"Pod\",\n"
+                + "    \"metadata\": {\n"
+                + "        \"creationTimestamp\": \"" + creationTimestamp + "\",\n"
+                + "        \"labels\": {\n"
+                + "            \"job-name\": \"" + jobName + "\"\n"
+                + "        },\n"
+                + "        \"name\": \"" + podName + "\"\n"
+                + "    },\n"
+                + "    \"status\": {\n"
+                + (containerState == null ? "" :
+                  "        \"containerStatuses\": [ { \"state\": { \"" + containerState + "\": {} } } ],\n")
+                + "        \"phase\": \"" + phase + "\"\n"
+                + "    }\n"
+                + "}\n";
+    }
+}
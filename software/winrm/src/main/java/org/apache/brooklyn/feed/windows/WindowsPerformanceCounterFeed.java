@@ -24,6 +24,7 @@ import static com.google.common.base.Preconditions.checkNotNull;
 import java.util.Collection;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.Callable;
@@ -61,6 +62,7 @@ import com.google.common.base.Function;
 import com.google.common.base.Joiner;
 import com.google.common.base.Strings;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Iterables;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
@@ -73,8 +75,10 @@ import com.google.common.reflect.TypeToken;
  * <p>To use this feed, you must provide the entity, and a collection of mappings between Windows performance counter
  * names and Brooklyn attribute sensors.</p>
  *
- * <p>This feed uses WinRM to invoke the windows utility <tt>typeperf</tt> to query for a specific set of performance
- * counters, by name. The values are extracted from the response, and published to the entity's sensors.</p>
+ * <p>This feed uses WinRM to invoke the PowerShell <tt>Get-Counter</tt> cmdlet to query for a specific set of performance
+ * counters, by name. All counters are fetched in a single call each period; the values are extracted from the response,
+ * and published to the entity's sensors. To avoid setting up a new WinRM session for each call, configure the machine
+ * with {@link WinRmMachineLocation#REUSE_SESSIONS}.</p>
  *
  * <p>Example:</p>
  *
@@ -271,12 +275,22 @@ public class WindowsPerformanceCounterFeed extends AbstractFeed {
     static class SendPerfCountersToSensors implements PollHandler<WinRmToolResponse> {
         private final Entity entity;
         private final List<WindowsPerformanceCounterPollConfig<?>> polls;
+        /** sensors for each poll, keyed by lower-case counter name, so each line of the batched response is matched directly */
+        private final Map<String, AttributeSensor<Object>> sensorsByCounterName;
         private final Set<AttributeSensor<?>> failedAttributes = Sets.newLinkedHashSet();
+        private final Set<String> unknownCounterNames = Sets.newConcurrentHashSet();
         private static final Pattern MACHINE_NAME_LOOKBACK_PATTERN = Pattern.compile(String.format("(?<=\\\\\\\\.{0,%d})\\\\.*", OUTPUT_COLUMN_WIDTH));
         
         public SendPerfCountersToSensors(Entity entity, Collection<WindowsPerformanceCounterPollConfig<?>> polls) {
             this.entity = entity;
             this.polls = ImmutableList.copyOf(polls);
+            Map<String, AttributeSensor<Object>> sensors = Maps.newLinkedHashMap();
+            for (WindowsPerformanceCounterPollConfig<?> config : this.polls) {
+                @SuppressWarnings("unchecked")
+                AttributeSensor<Object> attribute = (AttributeSensor<Object>) Sensors.newSensor(config.getSensor().getType(), config.getSensor().getName(), config.getDescription());
+                sensors.putIfAbsent(config.getPerformanceCounterName().toLowerCase(Locale.ROOT), attribute);
+            }
+            this.sensorsByCounterName = ImmutableMap.copyOf(sensors);
         }
 
         @Override
@@ -306,9 +320,15 @@ public class WindowsPerformanceCounterFeed extends AbstractFeed {
                 }
                 String name = machineNameLookbackMatcher.group(0).trim();
                 String rawValue = pollResponse.substring(OUTPUT_COLUMN_WIDTH).replaceAll("^\\s+", "");
-                WindowsPerformanceCounterPollConfig<?> config = getPollConfig(name);
-                Class<?> clazz = config.getSensor().getType();
-                AttributeSensor<Object> attribute = (AttributeSensor<Object>) Sensors.newSensor(clazz, config.getSensor().getName(), config.getDescription());
+                AttributeSensor<Object> attribute = sensorsByCounterName.get(name.toLowerCase(Locale.ROOT));
+                if (attribute == null) {
+                    // skip rather than fail, so the other counters in the batch are still published
+                    if (unknownCounterNames.add(name)) {
+                        log.debug("Ignoring unexpected Windows performance counter '{}' for {}; not found in configured polls: {}", new Object[] {name, entity, polls});
+                    }
+                    continue;
+                }
+                Class<?> clazz = attribute.getType();
                 try {
                     Object value = TypeCoercions.coerce(rawValue, TypeToken.of(clazz));
                     entity.sensors().set(attribute, value);
@@ -331,19 +351,19 @@ public class WindowsPerformanceCounterFeed extends AbstractFeed {
             }
             log.error("Windows Performance Counter query did not respond as expected. exitcode={} stdout={} stderr={}",
                     new Object[]{val.getStatusCode(), val.getStdOut(), val.getStdErr()});
-            for (WindowsPerformanceCounterPollConfig<?> config : polls) {
-                Class<?> clazz = config.getSensor().getType();
-                AttributeSensor<?> attribute = Sensors.newSensor(clazz, config.getSensor().getName(), config.getDescription());
-                entity.sensors().set(attribute, null);
-            }
+            clearSensors();
         }
 
         @Override
         public void onException(Exception exception) {
             log.error("Detected exception while retrieving Windows Performance Counters from entity " +
                     entity.getDisplayName(), exception);
-            for (WindowsPerformanceCounterPollConfig<?> config : polls) {
-                entity.sensors().set(Sensors.newSensor(config.getSensor().getClass(), config.getPerformanceCounterName(), config.getDescription()), null);
+            clearSensors();
+        }
+
+        private void clearSensors() {
+            for (AttributeSensor<Object> attribute : sensorsByCounterName.values()) {
+                entity.sensors().set(attribute, null);
             }
         }
 
@@ -356,15 +376,6 @@ public class WindowsPerformanceCounterFeed extends AbstractFeed {
         public String toString() {
             return super.toString()+"["+getDescription()+"]";
         }
-
-        private WindowsPerformanceCounterPollConfig<?> getPollConfig(String sensorName) {
-            for (WindowsPerformanceCounterPollConfig<?> poll : polls) {
-                if (poll.getPerformanceCounterName().equalsIgnoreCase(sensorName)) {
-                    return poll;
-                }
-            }
-            throw new IllegalStateException(String.format("%s not found in configured polls: %s", sensorName, polls));
-        }
     }
 
     static class PerfCounterValueIterator implements Iterator<String> {
@@ -27,6 +27,8 @@ import java.net.InetAddress;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
 
 import javax.annotation.Nullable;
 
@@ -48,6 +50,7 @@ import org.apache.brooklyn.core.location.access.PortForwardManagerLocationResolv
 import org.apache.brooklyn.core.mgmt.BrooklynTaskTags;
 import org.apache.brooklyn.core.mgmt.BrooklynTaskTags.WrappedStream;
 import org.apache.brooklyn.core.mgmt.ManagementContextInjectable;
+import org.apache.brooklyn.core.mgmt.internal.LocalLocationManager;
 import org.apache.brooklyn.location.ssh.CanResolveOnBoxDir;
 import org.apache.brooklyn.util.collections.MutableMap;
 import org.apache.brooklyn.util.core.ClassLoaderUtils;
@@ -58,17 +61,26 @@ import org.apache.brooklyn.util.core.internal.ssh.SshTool;
 import org.apache.brooklyn.util.core.internal.winrm.WinRmTool;
 import org.apache.brooklyn.util.core.internal.winrm.WinRmToolResponse;
 import org.apache.brooklyn.util.core.internal.winrm.winrm4j.Winrm4jTool;
+import org.apache.brooklyn.util.core.task.ScheduledTask;
 import org.apache.brooklyn.util.core.task.Tasks;
 import org.apache.brooklyn.util.exceptions.Exceptions;
 import org.apache.brooklyn.util.guava.Maybe;
+import org.apache.brooklyn.util.pool.BasicPool;
+import org.apache.brooklyn.util.pool.Pool;
 import org.apache.brooklyn.util.stream.StreamGobbler;
 import org.apache.brooklyn.util.stream.Streams;
 import org.apache.brooklyn.util.text.Strings;
+import org.apache.brooklyn.util.time.Duration;
 import org.apache.commons.codec.binary.Base64;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.google.common.annotations.Beta;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import com.google.common.cache.RemovalNotification;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
@@ -76,7 +88,7 @@ import com.google.common.collect.Iterables;
 import com.google.common.net.HostAndPort;
 import com.google.common.reflect.TypeToken;
 
-public class WinRmMachineLocation extends AbstractMachineLocation implements MachineLocation, CanResolveOnBoxDir {
+public class WinRmMachineLocation extends AbstractMachineLocation implements MachineLocation, CanResolveOnBoxDir, Closeable {
 
     private static final Logger LOG = LoggerFactory.getLogger(WinRmMachineLocation.class);
     private static final Logger logWinRm = LoggerFactory.getLogger(BrooklynLogging.WINRM_IO);
@@ -104,6 +116,16 @@ public class WinRmMachineLocation extends AbstractMachineLocation implements Mac
     @Beta
     public static final ConfigKey<Boolean> USE_NTLM = WinRmTool.USE_NTLM;
 
+    /** @see WinRmTool#REUSE_SESSIONS */
+    @Beta
+    public static final ConfigKey<Boolean> REUSE_SESSIONS = WinRmTool.REUSE_SESSIONS;
+
+    @Beta
+    public static final ConfigKey<Duration> SESSION_IDLE_TIMEOUT = ConfigKeys.newConfigKey(Duration.class,
+            "winrm.sessionIdleTimeout",
+            "Time for which WinRM sessions kept for reuse (when "+REUSE_SESSIONS.getName()+" is set) can go unused before they are closed",
+            Duration.ONE_MINUTE);
+
     // TODO merge with {link SshTool#PROP_USER} and {@link SshMachineLocation#user}?
     public static final ConfigKey<String> USER = WinRmTool.PROP_USER;
 
@@ -179,6 +201,12 @@ public class WinRmMachineLocation extends AbstractMachineLocation implements Mac
                 }
             }));
     
+    /** pools of tools kept for reuse, keyed by their configuration; callers should use {@link #getSessionPoolCache()} */
+    @Nullable
+    private transient LoadingCache<Map<String, ?>, Pool<WinRmTool>> sessionPoolCacheOrNull;
+    private transient Task<?> sessionPoolCleanupTask;
+    private final transient Object sessionPoolMutex = new Object();
+
     @Override
     public void init() {
         super.init();
@@ -317,8 +345,7 @@ public class WinRmMachineLocation extends AbstractMachineLocation implements Mac
      * @since 0.9.0 (previously was {@code executeScript(Map, List)}
      */
     public WinRmToolResponse executeCommand(Map<?,?> props, List<String> script) {
-        WinRmTool tool = newWinRmTool(props);
-        return runWithLogging(props, script, () -> tool.executeCommand(script));
+        return execWinRm(props, tool -> runWithLogging(props, script, () -> tool.executeCommand(script)));
     }
 
     public WinRmToolResponse executePsScript(String psScript) {
@@ -330,8 +357,121 @@ public class WinRmMachineLocation extends AbstractMachineLocation implements Mac
     }
 
     public WinRmToolResponse executePsScript(Map<?,?> props, List<String> psScript) {
-        WinRmTool tool = newWinRmTool(props);
-        return runWithLogging(props, psScript, () -> tool.executePs(psScript));
+        return execWinRm(props, tool -> runWithLogging(props, psScript, () -> tool.executePs(psScript)));
+    }
+
+    /**
+     * Runs the given task with a {@link WinRmTool} for the given properties. If {@link #REUSE_SESSIONS} is set,
+     * and the properties do not include output streams particular to this call, the tool is leased from a pool
+     * of tools with the same configuration, so that their sessions can be reused; otherwise a new tool is used,
+     * and closed afterwards.
+     */
+    protected <T> T execWinRm(Map<?,?> props, Function<WinRmTool, T> task) {
+        ConfigBag args = newWinRmToolArgs(props);
+        if (!Boolean.TRUE.equals(args.get(WinRmTool.REUSE_SESSIONS))
+                || args.get(ShellTool.PROP_OUT_STREAM) != null || args.get(ShellTool.PROP_ERR_STREAM) != null) {
+            // a one-off tool should not hold on to a session of its own
+            args.configure(WinRmTool.REUSE_SESSIONS, false);
+            WinRmTool tool = newWinRmTool(args);
+            try {
+                return task.apply(tool);
+            } finally {
+                if (tool instanceof Closeable) Streams.closeQuietly((Closeable) tool);
+            }
+        }
+        LoadingCache<Map<String, ?>, Pool<WinRmTool>> sessionPoolCache = getSessionPoolCache();
+        // expiry is otherwise only done as a side effect of writes to the cache
+        sessionPoolCache.cleanUp();
+        return sessionPoolCache.getUnchecked(args.getAllConfig()).exec(task);
+    }
+
+    private LoadingCache<Map<String, ?>, Pool<WinRmTool>> getSessionPoolCache() {
+        synchronized (sessionPoolMutex) {
+            if (sessionPoolCacheOrNull == null) {
+                Duration idleTimeout = getConfig(SESSION_IDLE_TIMEOUT);
+                sessionPoolCacheOrNull = CacheBuilder.newBuilder()
+                        .maximumSize(10)
+                        .expireAfterAccess(idleTimeout.toMilliseconds(), TimeUnit.MILLISECONDS)
+                        .removalListener((RemovalNotification<Map<String, ?>, Pool<WinRmTool>> notification) -> {
+                            Pool<WinRmTool> removed = notification.getValue();
+                            if (removed == null) return;
+                            if (LOG.isDebugEnabled()) LOG.debug("{} closing WinRM session pool {}; cause {}", new Object[] {this, removed, notification.getCause()});
+                            Streams.closeQuietly(removed);
+                        })
+                        .build(new CacheLoader<Map<String, ?>, Pool<WinRmTool>>() {
+                            @Override
+                            public Pool<WinRmTool> load(Map<String, ?> args) {
+                                return BasicPool.<WinRmTool>builder()
+                                        .name(getDisplayName()+"@"+getHostAndPort()+":hash"+System.identityHashCode(WinRmMachineLocation.this))
+                                        .supplier(() -> newWinRmTool(ConfigBag.newInstance(args)))
+                                        .closer(tool -> {
+                                            if (tool instanceof Closeable) Streams.closeQuietly((Closeable) tool);
+                                            return null;
+                                        })
+                                        .build();
+                            }
+                        });
+                addSessionPoolCleanupTask(idleTimeout);
+            }
+            return sessionPoolCacheOrNull;
+        }
+    }
+
+    /** Periodically expires idle sessions, so they are closed even if the machine is no longer being used. */
+    private void addSessionPoolCleanupTask(Duration period) {
+        if (sessionPoolCleanupTask != null && !sessionPoolCleanupTask.isDone()) {
+            return;
+        }
+        if (getManagementContext() == null || getManagementContext().getExecutionManager() == null
+                || Boolean.TRUE.equals(config().get(LocalLocationManager.CREATE_UNMANAGED))) {
+            LOG.debug("No cleanup task for "+this+"; WinRM sessions will be closed when idle on next use, or when the machine is closed");
+            return;
+        }
+        Callable<Task<?>> cleanupTaskFactory = () -> Tasks.<Void>builder().dynamic(false).tag(BrooklynTaskTags.TRANSIENT_TASK_TAG)
+                .displayName("winrm-location session cleaner").body(() -> {
+                    try {
+                        LoadingCache<Map<String, ?>, Pool<WinRmTool>> cacheRef = sessionPoolCacheOrNull;
+                        if (cacheRef != null) {
+                            cacheRef.cleanUp();
+                            if (!isManaged()) closeSessionPools();
+                        }
+                    } catch (Exception e) {
+                        // don't rethrow, as that would stop the task being run again
+                        Exceptions.propagateIfFatal(e);
+                        LOG.warn("Problem cleaning up WinRM sessions for "+this, e);
+                    }
+                    return (Void) null;
+                }).build();
+        sessionPoolCleanupTask = getManagementContext().getExecutionManager().submit(
+                ScheduledTask.builder(cleanupTaskFactory).displayName("scheduled:[winrm-location session cleaner]").period(period).delay(period).build());
+    }
+
+    private void closeSessionPools() {
+        LoadingCache<Map<String, ?>, Pool<WinRmTool>> cacheRef;
+        Task<?> cleanupTaskRef;
+        synchronized (sessionPoolMutex) {
+            cacheRef = sessionPoolCacheOrNull;
+            cleanupTaskRef = sessionPoolCleanupTask;
+            sessionPoolCacheOrNull = null;
+            sessionPoolCleanupTask = null;
+        }
+        if (cacheRef != null) cacheRef.invalidateAll();
+        if (cleanupTaskRef != null) cleanupTaskRef.cancel(false);
+    }
+
+    /** Number of pools of reusable sessions currently held, each for a distinct configuration. */
+    @VisibleForTesting
+    int getSessionPoolCount() {
+        LoadingCache<Map<String, ?>, Pool<WinRmTool>> cacheRef = sessionPoolCacheOrNull;
+        if (cacheRef == null) return 0;
+        cacheRef.cleanUp();
+        return (int) cacheRef.size();
+    }
+
+    /** Closes any WinRM sessions kept for reuse; the machine can still be used afterwards. */
+    @Override
+    public void close() throws IOException {
+        closeSessionPools();
     }
 
     private WinRmToolResponse runWithLogging(Map<?,?> props, List<String> stdinToLog, Supplier<WinRmToolResponse> r) {
@@ -395,6 +535,11 @@ public class WinRmMachineLocation extends AbstractMachineLocation implements Mac
     }
 
     protected WinRmTool newWinRmTool(Map<?,?> props) {
+        return newWinRmTool(newWinRmToolArgs(props));
+    }
+
+    /** The configuration for a {@link WinRmTool}, from this location's config overridden by the given properties. */
+    protected ConfigBag newWinRmToolArgs(Map<?,?> props) {
         // TODO See comments/TODOs in SshMachineLocation.connectSsh()
         try {
             ConfigBag args = new ConfigBag();
@@ -433,7 +578,14 @@ public class WinRmMachineLocation extends AbstractMachineLocation implements Mac
             args.configure(SshTool.PROP_HOST, getAddress().getHostAddress());
             args.configure(WinRmTool.USE_NTLM, getConfig(WinRmMachineLocation.USE_NTLM));
             args.configure(WinRmTool.PROP_PORT, getPort());
+            return args;
+        } catch (Exception e) {
+            throw Exceptions.propagate(e);
+        }
+    }
 
+    protected WinRmTool newWinRmTool(ConfigBag args) {
+        try {
             if (LOG.isTraceEnabled()) LOG.trace("creating WinRM session for "+Sanitizer.sanitize(args));
 
             // look up tool class
@@ -471,8 +623,7 @@ public class WinRmMachineLocation extends AbstractMachineLocation implements Mac
     }
     
     public int copyTo(Map<?,?> props, InputStream source, String destination) {
-        WinRmTool tool = newWinRmTool(props);
-        WinRmToolResponse response = tool.copyToServer(source, destination);
+        WinRmToolResponse response = execWinRm(props, tool -> tool.copyToServer(source, destination));
         return response.getStatusCode();
     }
 
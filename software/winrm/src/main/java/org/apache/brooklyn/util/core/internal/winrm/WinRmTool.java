@@ -89,6 +89,16 @@ public interface WinRmTool {
             "Size of file chunks (in bytes) to be used when copying a file to the remote server", 
             1024);
 
+    /**
+     * Whether the tool should keep its WinRM client (and its client context) between operations, rather than
+     * setting up a new one for every command. Reusing tools is only safe where they are not shared between
+     * threads, so callers such as {@code WinRmMachineLocation} lease them from a pool when this is set.
+     */
+    @Beta
+    ConfigKey<Boolean> REUSE_SESSIONS = ConfigKeys.newBooleanConfigKey("winrm.reuseSessions",
+            "Whether to reuse WinRM sessions between commands to the same machine (with the same settings), "
+            + "rather than setting up a new session for each command; default false", false);
+
     ConfigKey<String> ADDITIONAL_CONNECTION_METADATA = newStringConfigKey("additional.connection.metadata",
             "Can be used to pass additional custom data to the WinrmTool, which is especially useful " +
                     "if writing a bespoke tool implementation");
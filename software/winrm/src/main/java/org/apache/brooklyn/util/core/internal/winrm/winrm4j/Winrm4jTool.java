@@ -44,6 +44,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.google.common.annotations.Beta;
+import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Function;
 import com.google.common.base.Stopwatch;
 import com.google.common.collect.ImmutableList;
@@ -54,7 +55,7 @@ import io.cloudsoft.winrm4j.winrm.WinRmTool;
 import io.cloudsoft.winrm4j.winrm.WinRmToolResponse;
 
 @Beta
-public class Winrm4jTool implements org.apache.brooklyn.util.core.internal.winrm.WinRmTool, ManagementContextInjectable {
+public class Winrm4jTool implements org.apache.brooklyn.util.core.internal.winrm.WinRmTool, ManagementContextInjectable, Closeable {
 
     private static final Logger LOG = LoggerFactory.getLogger(Winrm4jTool.class);
 
@@ -81,9 +82,14 @@ public class Winrm4jTool implements org.apache.brooklyn.util.core.internal.winrm
     private final String operationTimeout;
     private final Integer retriesOfNetworkFailures;
     private final Map<String, String> environment;
+    private final boolean reuseSessions;
 
     private ManagementContext mgmt;
 
+    /** when reusing sessions, the connected client and the context it was built with (if we own it); guarded by this */
+    private WinRmTool reusableTool;
+    private WinRmClientContext ownContext;
+
     public Winrm4jTool(Map<String,?> config) {
         this(ConfigBag.newInstance(config));
     }
@@ -103,6 +109,7 @@ public class Winrm4jTool implements org.apache.brooklyn.util.core.internal.winrm
         operationTimeout = config.get(OPERATION_TIMEOUT);
         retriesOfNetworkFailures = config.get(RETRIES_OF_NETWORK_FAILURES);
         environment = config.get(ENVIRONMENT);
+        reuseSessions = Boolean.TRUE.equals(config.get(REUSE_SESSIONS));
     }
 
     @Override
@@ -180,9 +187,7 @@ public class Winrm4jTool implements org.apache.brooklyn.util.core.internal.winrm
             Duration connectTimestamp = null;
             Duration execTimestamp = null;
             try {
-                WinRmTool tool = connect();
-                tool.setRetriesForConnectionFailures(retriesOfNetworkFailures);
-                tool.setOperationTimeout(Duration.of(operationTimeout).toMilliseconds());
+                WinRmTool tool = reuseSessions ? connectReusable() : connectAndConfigure();
                 connectTimestamp = Duration.of(stopwatch);
                 WinRmToolResponse result = task.apply(tool);
                 execTimestamp = Duration.of(stopwatch);
@@ -195,6 +200,7 @@ public class Winrm4jTool implements org.apache.brooklyn.util.core.internal.winrm
                 return wrap(result);
             } catch (Exception e) {
                 Exceptions.propagateIfFatal(e);
+                if (reuseSessions) discardReusable();
                 Duration sleep = Duration.millis(Math.min(Math.pow(2, i) * 1000, execRetryDelay.toMilliseconds()));
                 Duration failTimestamp = Duration.of(stopwatch);
                 String timeMsg = "total time "+Duration.of(totalStopwatch).toStringRounded()
@@ -222,11 +228,64 @@ public class Winrm4jTool implements org.apache.brooklyn.util.core.internal.winrm
         throw propagate(Exceptions.create("failed to execute command", exceptions), "");
     }
 
-    private io.cloudsoft.winrm4j.winrm.WinRmTool connect() {
+    @VisibleForTesting
+    synchronized WinRmTool connectReusable() {
+        if (reusableTool == null) {
+            WinRmClientContext context = bag.get(CONTEXT);
+            if (context == null) {
+                if (ownContext == null) ownContext = WinRmClientContext.newInstance();
+                context = ownContext;
+            }
+            reusableTool = connectAndConfigure(context);
+        }
+        return reusableTool;
+    }
+
+    private synchronized void discardReusable() {
+        // the client may be left in a bad state by a failure, so retries (and later commands) start afresh
+        reusableTool = null;
+    }
+
+    /** Releases the client kept when reusing sessions; the tool can still be used afterwards, setting up a new one. */
+    @Override
+    public synchronized void close() {
+        reusableTool = null;
+        if (ownContext != null) {
+            try {
+                ownContext.shutdown();
+            } catch (Exception e) {
+                Exceptions.propagateIfFatal(e);
+                LOG.debug("Problem shutting down WinRM client context for "+this+" (continuing)", e);
+            }
+            ownContext = null;
+        }
+    }
+
+    /** Whether this tool has created a client context of its own, which it shuts down on {@link #close()}. */
+    @VisibleForTesting
+    synchronized boolean hasOwnContext() {
+        return ownContext != null;
+    }
+
+    private WinRmTool connectAndConfigure() {
+        return connectAndConfigure(bag.get(CONTEXT));
+    }
+
+    private WinRmTool connectAndConfigure(WinRmClientContext context) {
+        WinRmTool tool = connect(context);
+        tool.setRetriesForConnectionFailures(retriesOfNetworkFailures);
+        tool.setOperationTimeout(Duration.of(operationTimeout).toMilliseconds());
+        return tool;
+    }
+
+    private io.cloudsoft.winrm4j.winrm.WinRmTool connect(WinRmClientContext context) {
         WinRmTool.Builder builder = WinRmTool.Builder.builder(host, computerName, user, password)
                 .setAuthenticationScheme(authenticationScheme)
                 .useHttps(useSecureWinrm)
                 .port(port);
+        if (context != null) {
+            builder.context(context);
+        }
         if (environment != null) {
             builder.environment(environment);
         }
@@ -120,6 +120,29 @@ public class WindowsPerformanceCounterFeedTest extends BrooklynAppUnitTestSuppor
         EntityAsserts.assertAttributeEquals(entity, doubleSensor, 3.1415926);
     }
 
+    @Test
+    public void testSendPerfCountersToSensorsIgnoresUnexpectedCounters() {
+        AttributeSensor<Integer> integerSensor = Sensors.newIntegerSensor("bar.baz");
+        AttributeSensor<Double> doubleSensor = Sensors.newDoubleSensor("baz.quux");
+
+        Collection<WindowsPerformanceCounterPollConfig<?>> polls = ImmutableSet.<WindowsPerformanceCounterPollConfig<?>>of(
+                new WindowsPerformanceCounterPollConfig<>(integerSensor).performanceCounterName("\\Integer.Sensor"),
+                new WindowsPerformanceCounterPollConfig<>(doubleSensor).performanceCounterName("\\double\\sensor")
+        );
+
+        WindowsPerformanceCounterFeed.SendPerfCountersToSensors sendPerfCountersToSensors = new WindowsPerformanceCounterFeed.SendPerfCountersToSensors(entity, polls);
+
+        StringBuilder responseBuilder = new StringBuilder();
+        addMockResponse(responseBuilder, "\\\\machine.name\\integer.sensor", "15");
+        addMockResponse(responseBuilder, "\\\\machine.name\\not\\configured", "42");
+        addMockResponse(responseBuilder, "\\\\machine.name\\double\\sensor", "2.5");
+
+        sendPerfCountersToSensors.onSuccess(new WinRmToolResponse(responseBuilder.toString(), "", 0));
+
+        EntityAsserts.assertAttributeEquals(entity, integerSensor, 15);
+        EntityAsserts.assertAttributeEquals(entity, doubleSensor, 2.5);
+    }
+
     private void addMockResponse(StringBuilder responseBuilder, String path, String value) {
         responseBuilder.append(path);
         responseBuilder.append(Strings.repeat(" ", 200 - (path.length() + value.length())));
@@ -20,17 +20,42 @@ package org.apache.brooklyn.location.winrm;
 
 import static org.testng.Assert.assertEquals;
 
+import java.io.ByteArrayOutputStream;
+
 import org.apache.brooklyn.api.location.LocationSpec;
 import org.apache.brooklyn.core.entity.BrooklynConfigKeys;
 import org.apache.brooklyn.core.test.BrooklynAppUnitTestSupport;
+import org.apache.brooklyn.util.core.internal.ssh.ShellTool;
+import org.apache.brooklyn.util.core.internal.winrm.RecordingWinRmTool;
+import org.apache.brooklyn.util.core.internal.winrm.WinRmTool;
 import org.apache.brooklyn.util.net.Networking;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 
 public class WinRmMachineLocationTest extends BrooklynAppUnitTestSupport {
 
+    @BeforeMethod(alwaysRun=true)
+    @Override
+    public void setUp() throws Exception {
+        super.setUp();
+        RecordingWinRmTool.clear();
+    }
+
+    @AfterMethod(alwaysRun=true)
+    @Override
+    public void tearDown() throws Exception {
+        try {
+            super.tearDown();
+        } finally {
+            RecordingWinRmTool.clear();
+        }
+    }
+
     @Test
     public void testConfigurePrivateAddresses() throws Exception {
         WinRmMachineLocation host = mgmt.getLocationManager().createLocation(LocationSpec.create(WinRmMachineLocation.class)
@@ -40,4 +65,59 @@ public class WinRmMachineLocationTest extends BrooklynAppUnitTestSupport {
 
         assertEquals(host.getPrivateAddresses(), ImmutableSet.of("1.2.3.4"));
     }
+
+    @Test
+    public void testNewToolForEachCommandByDefault() throws Exception {
+        WinRmMachineLocation host = newRecordingMachine(false);
+        host.executePsScript("first");
+        host.executeCommand("second");
+
+        assertEquals(RecordingWinRmTool.constructorProps.size(), 2);
+        assertEquals(RecordingWinRmTool.getExecs().size(), 2);
+        assertEquals(host.getSessionPoolCount(), 0);
+    }
+
+    @Test
+    public void testReusesSessionsWhenConfigured() throws Exception {
+        WinRmMachineLocation host = newRecordingMachine(true);
+        host.executePsScript("first");
+        host.executeCommand("second");
+        host.executePsScript("third");
+
+        assertEquals(RecordingWinRmTool.constructorProps.size(), 1);
+        assertEquals(RecordingWinRmTool.getExecs().size(), 3);
+        assertEquals(host.getSessionPoolCount(), 1);
+
+        // different settings need a different session
+        host.executeCommand(ImmutableMap.of(WinRmMachineLocation.OPERATION_TIMEOUT.getName(), "5m"), ImmutableList.of("fourth"));
+        assertEquals(RecordingWinRmTool.constructorProps.size(), 2);
+        assertEquals(host.getSessionPoolCount(), 2);
+
+        host.close();
+        assertEquals(host.getSessionPoolCount(), 0);
+
+        // still usable after close, with a new session
+        host.executePsScript("fifth");
+        assertEquals(RecordingWinRmTool.constructorProps.size(), 3);
+    }
+
+    @Test
+    public void testCommandWithStreamsUsesOneOffToolWhenReusingSessions() throws Exception {
+        WinRmMachineLocation host = newRecordingMachine(true);
+        host.executeCommand(ImmutableMap.of(ShellTool.PROP_OUT_STREAM.getName(), new ByteArrayOutputStream()), ImmutableList.of("first"));
+
+        // the tool is not pooled, so it must not keep a session of its own, and is closed after use
+        assertEquals(RecordingWinRmTool.constructorProps.size(), 1);
+        assertEquals(RecordingWinRmTool.getLastConstructorProps().get(WinRmTool.REUSE_SESSIONS.getName()), false);
+        assertEquals(RecordingWinRmTool.closedProps.size(), 1);
+        assertEquals(host.getSessionPoolCount(), 0);
+    }
+
+    private WinRmMachineLocation newRecordingMachine(boolean reuseSessions) {
+        return mgmt.getLocationManager().createLocation(LocationSpec.create(WinRmMachineLocation.class)
+                .configure("address", "1.2.3.4")
+                .configure(WinRmMachineLocation.WINRM_TOOL_CLASS, RecordingWinRmTool.class.getName())
+                .configure(WinRmMachineLocation.REUSE_SESSIONS, reuseSessions)
+                .configure(BrooklynConfigKeys.SKIP_ON_BOX_BASE_DIR_RESOLUTION, true));
+    }
 }
@@ -20,6 +20,7 @@ package org.apache.brooklyn.util.core.internal.winrm;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 
+import java.io.Closeable;
 import java.io.InputStream;
 import java.util.Collections;
 import java.util.LinkedHashMap;
@@ -39,7 +40,7 @@ import com.google.common.collect.Lists;
  * 
  * By default, all commands return exit code 0, and no stdout/stderr.
  */
-public class RecordingWinRmTool implements WinRmTool {
+public class RecordingWinRmTool implements WinRmTool, Closeable {
 
     public enum ExecType {
         COMMAND,
@@ -100,10 +101,12 @@ public class RecordingWinRmTool implements WinRmTool {
     public static List<ExecParams> execs = Lists.newCopyOnWriteArrayList();
     public static List<Map<?,?>> constructorProps = Lists.newCopyOnWriteArrayList();
     public static Map<String, CustomResponseGenerator> customResponses = Collections.synchronizedMap(new LinkedHashMap<>());
+    public static List<Map<?,?>> closedProps = Lists.newCopyOnWriteArrayList();
     
     public static void clear() {
         execs.clear();
         constructorProps.clear();
+        closedProps.clear();
         customResponses.clear();
     }
     
@@ -163,6 +166,11 @@ public class RecordingWinRmTool implements WinRmTool {
     public WinRmToolResponse executeScript(List<String> commands) {
         throw new UnsupportedOperationException();
     }
+
+    @Override
+    public void close() {
+        closedProps.add(ownConstructorProps);
+    }
     
     protected WinRmToolResponse generateResponse(ExecParams execParams) {
         LinkedHashMap<String, CustomResponseGenerator> customResponsesCopy;
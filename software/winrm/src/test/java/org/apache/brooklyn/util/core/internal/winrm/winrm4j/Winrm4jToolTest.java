@@ -0,0 +1,68 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.brooklyn.util.core.internal.winrm.winrm4j;
+
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNotSame;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+
+import org.apache.brooklyn.util.core.internal.winrm.WinRmTool;
+import org.testng.annotations.Test;
+
+import com.google.common.collect.ImmutableMap;
+
+public class Winrm4jToolTest {
+
+    @Test
+    public void testReusesClientUntilClosed() throws Exception {
+        Winrm4jTool tool = newTool(true);
+        try {
+            io.cloudsoft.winrm4j.winrm.WinRmTool client = tool.connectReusable();
+            assertSame(tool.connectReusable(), client);
+            assertTrue(tool.hasOwnContext());
+
+            tool.close();
+            assertFalse(tool.hasOwnContext());
+
+            // still usable after close, with a new client and context
+            assertNotSame(tool.connectReusable(), client);
+            assertTrue(tool.hasOwnContext());
+        } finally {
+            tool.close();
+        }
+        assertFalse(tool.hasOwnContext());
+    }
+
+    @Test
+    public void testCloseWithoutReuseIsNoop() throws Exception {
+        Winrm4jTool tool = newTool(false);
+        tool.close();
+        assertFalse(tool.hasOwnContext());
+    }
+
+    private Winrm4jTool newTool(boolean reuseSessions) {
+        return new Winrm4jTool(ImmutableMap.<String, Object>of(
+                WinRmTool.PROP_HOST.getName(), "1.2.3.4",
+                WinRmTool.PROP_PORT.getName(), 5985,
+                WinRmTool.PROP_USER.getName(), "myuser",
+                WinRmTool.PROP_PASSWORD.getName(), "mypassword",
+                WinRmTool.REUSE_SESSIONS.getName(), reuseSessions));
+    }
+}
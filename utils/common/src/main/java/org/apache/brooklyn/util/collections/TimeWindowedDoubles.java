@@ -0,0 +1,209 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.brooklyn.util.collections;
+
+import org.apache.brooklyn.util.time.Duration;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Keeps timestamped numeric values in a time window, as primitives in a ring buffer,
+ * maintaining their time-weighted sum so that the mean over the window can be read in O(1)
+ * (adding and pruning are O(1) amortised).
+ * <p>
+ * Each value is taken to hold for the period between the previous value's timestamp and its own,
+ * so one value from before the window is kept to mark the start of the first value's period.
+ * Values arriving within the {@code resolution} of the previous value's period are merged into it
+ * (as the time-weighted mean of the two), bounding the memory used for frequently updated values
+ * to about {@code window / resolution} entries.
+ * <p>
+ * Values with a timestamp earlier than the latest are ignored.
+ * 
+ * @see TimeWindowedList for arbitrary values
+ */
+public class TimeWindowedDoubles {
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    private long[] timestamps = new long[INITIAL_CAPACITY];
+    private double[] values = new double[INITIAL_CAPACITY];
+    /** index of the oldest value */
+    private int head;
+    private int size;
+
+    /** sum of each value (except the oldest) multiplied by the length of its period */
+    private double weightedSum;
+    private int removalsSinceRecompute;
+
+    private volatile long windowMillis;
+    private final long resolutionMillis;
+
+    public TimeWindowedDoubles(Duration window) {
+        this(window, Duration.ZERO);
+    }
+
+    public TimeWindowedDoubles(Duration window, Duration resolution) {
+        this.windowMillis = Preconditions.checkNotNull(window, "window").toMilliseconds();
+        this.resolutionMillis = (resolution == null) ? 0 : resolution.toMilliseconds();
+    }
+
+    public void setWindow(Duration window) {
+        this.windowMillis = Preconditions.checkNotNull(window, "window").toMilliseconds();
+    }
+
+    public Duration getWindow() {
+        return Duration.millis(windowMillis);
+    }
+
+    /** Adds the value, and discards values which are out-of-date as of the given timestamp. */
+    public synchronized void add(double value, long timestamp) {
+        if (size > 0 && timestamp < timestampAt(size-1)) {
+            return;
+        }
+        if (size >= 2 && resolutionMillis > 0 && timestamp - timestampAt(size-2) <= resolutionMillis) {
+            // merge into the latest value, extending its period to this timestamp
+            int last = index(size-1);
+            long lastPeriod = timestamps[last] - timestampAt(size-2);
+            long period = timestamp - timestamps[last];
+            weightedSum += value * period;
+            if (lastPeriod + period > 0) {
+                values[last] = (values[last] * lastPeriod + value * period) / (lastPeriod + period);
+            } else {
+                values[last] = value;
+            }
+            timestamps[last] = timestamp;
+        } else {
+            if (size == timestamps.length) grow();
+            if (size > 0) {
+                weightedSum += value * (timestamp - timestampAt(size-1));
+            }
+            int i = index(size);
+            timestamps[i] = timestamp;
+            values[i] = value;
+            size++;
+        }
+        prune(timestamp);
+    }
+
+    /**
+     * Discards values from before the window ending at {@code now},
+     * but keeps the latest such value (to mark the start of the next value's period) and always at least one value.
+     */
+    public synchronized void prune(long now) {
+        long windowStart = now - windowMillis;
+        while (size > 1 && timestampAt(1) < windowStart) {
+            weightedSum -= values[index(1)] * (timestampAt(1) - timestampAt(0));
+            head = index(1);
+            size--;
+            removalsSinceRecompute++;
+        }
+        if (size <= 1) {
+            weightedSum = 0;
+            removalsSinceRecompute = 0;
+        } else if (removalsSinceRecompute > Math.max(size, INITIAL_CAPACITY)) {
+            // avoid accumulating floating point errors from the subtractions
+            recomputeWeightedSum();
+        }
+    }
+
+    public synchronized void clear() {
+        head = 0;
+        size = 0;
+        weightedSum = 0;
+        removalsSinceRecompute = 0;
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    public synchronized boolean isEmpty() {
+        return size == 0;
+    }
+
+    /** @return the timestamp of the oldest value, or -1 if empty */
+    public synchronized long getFirstTimestamp() {
+        return size == 0 ? -1 : timestampAt(0);
+    }
+
+    /** @return the timestamp of the latest value, or -1 if empty */
+    public synchronized long getLastTimestamp() {
+        return size == 0 ? -1 : timestampAt(size-1);
+    }
+
+    /** @return the latest value, or NaN if empty */
+    public synchronized double getLastValue() {
+        return size == 0 ? Double.NaN : values[index(size-1)];
+    }
+
+    /**
+     * @return the time-weighted mean of the values between {@code start} and the latest timestamp,
+     *         or NaN if that period is empty; expects values before {@code start} to have been {@link #prune(long) pruned},
+     *         so that only the first value's period can extend before it
+     */
+    public synchronized double getMeanSince(long start) {
+        if (size < 2) return Double.NaN;
+        long first = timestampAt(0);
+        long last = timestampAt(size-1);
+        start = Math.max(start, first);
+        if (start >= last) return Double.NaN;
+        // exclude the part of the first value's period which is before the start
+        long excluded = Math.min(start, timestampAt(1)) - first;
+        return (weightedSum - values[index(1)] * excluded) / (last - start);
+    }
+
+    private void recomputeWeightedSum() {
+        double sum = 0;
+        for (int i = 1; i < size; i++) {
+            sum += values[index(i)] * (timestampAt(i) - timestampAt(i-1));
+        }
+        weightedSum = sum;
+        removalsSinceRecompute = 0;
+    }
+
+    private void grow() {
+        long[] newTimestamps = new long[timestamps.length * 2];
+        double[] newValues = new double[values.length * 2];
+        for (int i = 0; i < size; i++) {
+            newTimestamps[i] = timestampAt(i);
+            newValues[i] = values[index(i)];
+        }
+        timestamps = newTimestamps;
+        values = newValues;
+        head = 0;
+    }
+
+    private int index(int offset) {
+        return (head + offset) % timestamps.length;
+    }
+
+    private long timestampAt(int offset) {
+        return timestamps[index(offset)];
+    }
+
+    @Override
+    public synchronized String toString() {
+        StringBuilder result = new StringBuilder("window="+Duration.millis(windowMillis)+", vals=[");
+        for (int i = 0; i < size; i++) {
+            if (i > 0) result.append(", ");
+            result.append(values[index(i)]).append("@").append(timestampAt(i));
+        }
+        return result.append("]").toString();
+    }
+}
@@ -0,0 +1,124 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.brooklyn.util.collections;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.apache.brooklyn.util.time.Duration;
+import org.testng.annotations.Test;
+
+public class TimeWindowedDoublesTest {
+
+    @Test
+    public void testEmpty() {
+        TimeWindowedDoubles vals = new TimeWindowedDoubles(Duration.ONE_SECOND);
+        assertTrue(vals.isEmpty());
+        assertEquals(vals.getLastTimestamp(), -1L);
+        assertTrue(Double.isNaN(vals.getLastValue()));
+        assertTrue(Double.isNaN(vals.getMeanSince(0)));
+    }
+    
+    @Test
+    public void testWeightedMean() {
+        TimeWindowedDoubles vals = new TimeWindowedDoubles(Duration.ONE_SECOND);
+        vals.add(10, 1000);
+        vals.add(20, 1100);
+        vals.add(30, 1300);
+        vals.add(40, 1600);
+        vals.add(50, 2000);
+        assertEquals(vals.size(), 5);
+        assertEquals(vals.getMeanSince(1000), 40d);
+        assertEquals(vals.getMeanSince(1050), (20*50+30*200+40*300+50*400)/950d);
+    }
+    
+    @Test
+    public void testKeepsOneValueFromBeforeWindow() {
+        TimeWindowedDoubles vals = new TimeWindowedDoubles(Duration.ONE_SECOND);
+        vals.add(10, 1000);
+        vals.add(20, 1250);
+        vals.add(30, 1500);
+        vals.add(40, 1750);
+        vals.add(50, 2000);
+        
+        vals.prune(2500);
+        assertEquals(vals.getFirstTimestamp(), 1250L);
+        assertEquals(vals.getMeanSince(1500), 45d);
+        
+        vals.prune(5000);
+        assertEquals(vals.size(), 1);
+        assertEquals(vals.getLastValue(), 50d);
+        assertTrue(Double.isNaN(vals.getMeanSince(4000)));
+    }
+    
+    @Test
+    public void testIgnoresOutOfOrderValues() {
+        TimeWindowedDoubles vals = new TimeWindowedDoubles(Duration.ONE_SECOND);
+        vals.add(10, 1000);
+        vals.add(20, 2000);
+        vals.add(30, 1500);
+        assertEquals(vals.size(), 2);
+        assertEquals(vals.getLastValue(), 20d);
+    }
+    
+    @Test
+    public void testMergesValuesWithinResolution() {
+        TimeWindowedDoubles vals = new TimeWindowedDoubles(Duration.ONE_SECOND, Duration.millis(100));
+        vals.add(10, 1000);
+        vals.add(20, 1050);
+        vals.add(40, 1100);
+        assertEquals(vals.size(), 2);
+        assertEquals(vals.getLastTimestamp(), 1100L);
+        assertEquals(vals.getLastValue(), 30d);
+        assertEquals(vals.getMeanSince(1000), 30d);
+        
+        vals.add(50, 1300);
+        assertEquals(vals.size(), 3);
+        assertEquals(vals.getMeanSince(1000), (30*100+50*200)/300d);
+    }
+    
+    @Test
+    public void testGrowsAndWrapsAroundMatchingNaiveMean() {
+        Duration window = Duration.millis(500);
+        TimeWindowedDoubles vals = new TimeWindowedDoubles(window);
+        Random random = new Random(0);
+        long[] timestamps = new long[1000];
+        double[] values = new double[1000];
+        long time = 0;
+        for (int i = 0; i < timestamps.length; i++) {
+            time += 1 + random.nextInt(20);
+            timestamps[i] = time;
+            values[i] = random.nextDouble() * 100;
+            vals.add(values[i], time);
+            
+            long start = Math.max(time - window.toMilliseconds(), vals.getFirstTimestamp());
+            double sum = 0;
+            for (int j = 1; j <= i; j++) {
+                long periodStart = Math.max(timestamps[j-1], start);
+                if (timestamps[j] > periodStart) sum += values[j] * (timestamps[j] - periodStart);
+            }
+            if (time > start) {
+                assertEquals(vals.getMeanSince(start), sum / (time - start), 0.000001);
+            }
+        }
+        assertTrue(vals.size() < 500, "size="+vals.size());
+    }
+}